@@ -28,75 +28,21 @@ import course_generator.utils.Utils;
  * @author pierre.delore
  */
 public class CgData {
-	/** Line number **/
-	private double Num;
-	/** Latitude of the position **/
-	private double Latitude;
-	/** Longitude of the position **/
-	private double Longitude;
-	/** Elevation of the position in meter **/
-	private double Elevation;
-	/** Not smoothed elevation of the position in meter. **/
-	private double ElevationNotSmoothed;
-	/** Smoothed elevation of the position in meter **/
-	private double ElevationSmoothed;
-	/** Memorized elevation of the position in meter **/
-	private double ElevationMemo;
-	/** Tag of the position **/
-	private int Tag;
-	/** Distance between 2 points in meters **/
-	private double Dist;
-	/** Total distance in meters from the start to this position **/
-	private double Total;
-	/** Track difficulty coefficient at this position **/
-	private double Diff;
-	/** Health coefficient at this position **/
-	private double Coeff;
-	/** Health recovery percentage at this position **/
-	private double Recovery;
-	/** Slope of the track from the last position to this position (in %) **/
-	private double Slope;
-	/** Speed from the last position to this position (in km/h) **/
-	private double Speed;
-	/** Elevation from the last position to this position (in m) **/
-	private double dElevation;
-	/** Time from the start to this position (in s) **/
-	private int Time;
-	/**
-	 * Time from the previous position to this position (in s). In float format in
-	 * order to maximize the precision
-	 **/
-	private double dTime_f;
-	/** Time limit at this position. in second from the start. 0=none **/
-	private int TimeLimit;
-	/** Hour at this position **/
-	private DateTime Hour;
-	/** Time stayed at this position. Rest, eat, drink... (in s) **/
-	private int Station;
-	/** Name of the position **/
-	private String Name;
-	/** Comment of the position **/
-	private String Comment;
-	/** Used for calculation **/
-	public double tmp1;
-	/** Used for calculation **/
-	public double tmp2;
-	/** Label format in the mini roadbook for this position **/
-	public String FmtLbMiniRoadbook;
-	/** Option of the mini roadbook for this position **/
-	public int OptionMiniRoadbook;
-	/**
-	 * Vertical position of the label in the mini roadbook for this position
-	 **/
-	public int VPosMiniRoadbook;
-	/** Comment of this position in the mini roadbook **/
-	public String CommentMiniRoadbook;
-	/** Font size of this position in the mini roadbook **/
-	public int FontSizeMiniRoadbook;
-	// ** Indicate that this position is in the night period **/
-	private boolean isNight;
+	/** Store containing the values of this position **/
+	TrackStore store;
+	/** Index of the position in the store **/
+	int index;
+	/** 'true' if the store is private to this object (not part of a track) **/
+	private boolean detached;
 
-	public boolean ToDelete;
+	/**
+	 * Cursor on the position 'index' of a store. Used by {@link TrackStore}
+	 */
+	CgData(TrackStore store, int index) {
+		this.store = store;
+		this.index = index;
+		this.detached = false;
+	}
 
 	public CgData(double Num, double Latitude, double Longitude, double Elevation, double ElevationNotSmoothed,
 			double ElevationSmoothed, double ElevationMemo, int Tag, double Dist, double Total, double Diff,
@@ -104,127 +50,153 @@ public class CgData {
 			int TimeLimit, DateTime Hour, int Station, String Name, String Comment, double tmp1, double tmp2,
 			String FmtLbMiniRoadbook, int OptionMiniRoadbook, int VPosMiniRoadbook, String CommentMiniRoadbook,
 			int FontSizeMiniRoadbook) {
-		this.Num = Num;
-		this.Latitude = Latitude;
-		this.Longitude = Longitude;
-		this.Elevation = Elevation;
-		this.ElevationNotSmoothed = ElevationNotSmoothed;
-		this.ElevationSmoothed = ElevationSmoothed;
-		this.ElevationMemo = ElevationMemo;
-		this.Tag = Tag;
-		this.Dist = Dist;
-		this.Total = Total;
-		this.Diff = Diff;// Elevation in meter
-		this.Coeff = Coeff;
-		this.Recovery = Recup;
-		this.Slope = Slope;
-		this.Speed = Speed;
-		this.dElevation = dElevation;
-		this.Time = Time; // Total time in second
-		this.dTime_f = dTime_f; // partial time in second (with digit)
-		this.TimeLimit = TimeLimit; // Time limit
-		this.Hour = Hour; // Date and time at this position
-		this.Station = Station;
-		this.Name = Name;
-		this.Comment = Comment;
-		this.tmp1 = tmp1;
-		this.tmp2 = tmp2;
-		this.FmtLbMiniRoadbook = FmtLbMiniRoadbook;
-		this.OptionMiniRoadbook = OptionMiniRoadbook;
-		this.VPosMiniRoadbook = VPosMiniRoadbook;
-		this.CommentMiniRoadbook = CommentMiniRoadbook;
+		detach();
+		setValues(Num, Latitude, Longitude, Elevation, ElevationNotSmoothed, ElevationSmoothed, ElevationMemo, Tag,
+				Dist, Total, Diff, Coeff, Recup, Slope, Speed, dElevation, Time, dTime_f, TimeLimit, Hour, Station, Name,
+				Comment, tmp1, tmp2, FmtLbMiniRoadbook, OptionMiniRoadbook, VPosMiniRoadbook, CommentMiniRoadbook,
+				FontSizeMiniRoadbook);
+	}
+
+	/**
+	 * Set all the values of the position. Used to fill a position added to a
+	 * store with {@link TrackStore#addEmpty(int)} without creating a detached
+	 * object
+	 */
+	void setValues(double Num, double Latitude, double Longitude, double Elevation, double ElevationNotSmoothed,
+			double ElevationSmoothed, double ElevationMemo, int Tag, double Dist, double Total, double Diff,
+			double Coeff, double Recup, double Slope, double Speed, double dElevation, int Time, double dTime_f,
+			int TimeLimit, DateTime Hour, int Station, String Name, String Comment, double tmp1, double tmp2,
+			String FmtLbMiniRoadbook, int OptionMiniRoadbook, int VPosMiniRoadbook, String CommentMiniRoadbook,
+			int FontSizeMiniRoadbook) {
+		setNum(Num);
+		setLatitude(Latitude);
+		setLongitude(Longitude);
+		setElevation(Elevation);
+		setElevationNotSmoothed(ElevationNotSmoothed);
+		setElevationSmoothed(ElevationSmoothed);
+		setElevationMemo(ElevationMemo);
+		setTag(Tag);
+		setDist(Dist);
+		setTotal(Total);
+		setDiff(Diff);// Elevation in meter
+		setCoeff(Coeff);
+		setRecovery(Recup);
+		setSlope(Slope);
+		setSpeed(Speed);
+		setdElevation(dElevation);
+		setTime(Time); // Total time in second
+		setdTime_f(dTime_f); // partial time in second (with digit)
+		setTimeLimit(TimeLimit); // Time limit
+		setHour(Hour); // Date and time at this position
+		setStation(Station);
+		setName(Name);
+		setComment(Comment);
+		setTmp1(tmp1);
+		setTmp2(tmp2);
+		setFmtLbMiniRoadbook(FmtLbMiniRoadbook);
+		setOptionMiniRoadbook(OptionMiniRoadbook);
+		setVPosMiniRoadbook(VPosMiniRoadbook);
+		setCommentMiniRoadbook(CommentMiniRoadbook);
 		if (FontSizeMiniRoadbook == 0)
-			this.FontSizeMiniRoadbook = CgConst.DEFAULTMRBFONTSIZE;
+			setFontSizeMiniRoadbook(CgConst.DEFAULTMRBFONTSIZE);
 		else
-			this.FontSizeMiniRoadbook = FontSizeMiniRoadbook;
-		this.ToDelete = false;
-		this.isNight = false;
+			setFontSizeMiniRoadbook(FontSizeMiniRoadbook);
 	}
 
 	public CgData() {
-		this.Num = 0;
-		this.Latitude = 0;
-		this.Longitude = 0;
-		this.Elevation = 0;
-		this.ElevationNotSmoothed = 0;
-		this.ElevationSmoothed = 0;
-		this.ElevationMemo = 0;
-		this.Tag = 0;
-		this.Dist = 0;
-		this.Total = 0;
-		this.Diff = 0;
-		this.Coeff = 0;
-		this.Recovery = 0;
-		this.Slope = 0;
-		this.Speed = 0;
-		this.dElevation = 0;
-		this.Time = 0;
-		this.dTime_f = 0;
-		this.TimeLimit = 0;
-		this.Hour = new DateTime();
-		this.Station = 0;
-		this.Name = "";
-		this.Comment = "";
-		this.tmp1 = 0;
-		this.tmp2 = 0;
-		this.FmtLbMiniRoadbook = "";
-		this.OptionMiniRoadbook = 0;
-		this.VPosMiniRoadbook = 0;
-		this.CommentMiniRoadbook = "";
-		this.FontSizeMiniRoadbook = 10;
-		this.ToDelete = false;
-		this.isNight = false;
+		detach();
+		setHour(new DateTime());
+		setFontSizeMiniRoadbook(10);
+	}
+
+	/**
+	 * Give a private store of one position to this object
+	 */
+	private void detach() {
+		store = new TrackStore(1);
+		index = store.addEmpty();
+		detached = true;
+	}
+
+	/**
+	 * Indicate if this object has its own store (it's not a position of a
+	 * track)
+	 */
+	boolean isDetached() {
+		return detached;
+	}
+
+	/**
+	 * Make this object a cursor on a position of a store. Called when a detached
+	 * object is added to a track
+	 */
+	void attach(TrackStore store, int index) {
+		this.store = store;
+		this.index = index;
+		this.detached = false;
+	}
+
+	/**
+	 * Return a counter incremented at each modification of this position. For a
+	 * position of a track, the counter is incremented at each modification of
+	 * the track
+	 */
+	public int getVersion() {
+		return store.getVersion();
 	}
 
 	// -------------------------------
 	public double getNum() {
-		return Num;
+		return store.num[index];
 	}
 
 	public String getNumString() {
-		return String.format("%1.0f ", Num);
+		return String.format("%1.0f ", getNum());
 	}
 
 	public void setNum(double num) {
-		Num = num;
+		store.num[index] = (int) num;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public double getLatitude() {
-		return Latitude;
+		return store.lat[index];
 	}
 
 	public String getLatitudeString() {
-		return String.format("%1.7f", Latitude);
+		return String.format("%1.7f", getLatitude());
 	}
 
 	public void setLatitude(double latitude) {
-		Latitude = latitude;
+		store.lat[index] = latitude;
+		store.positionChanged(index);
 	}
 
 	// -------------------------------
 	public double getLongitude() {
-		return Longitude;
+		return store.lon[index];
 	}
 
 	public String getLongitudeString() {
-		return String.format("%1.7f", Longitude);
+		return String.format("%1.7f", getLongitude());
 	}
 
 	public void setLongitude(double longitude) {
-		Longitude = longitude;
+		store.lon[index] = longitude;
+		store.positionChanged(index);
 	}
 
 	// -----------------------------------------------------
 	public double getElevation(int unit) {
 		switch (unit) {
 		case CgConst.UNIT_METER:
-			return Elevation;
+			return store.ele[index];
 		case CgConst.UNIT_MILES_FEET:
 			// meter to miles
-			return Utils.Meter2Feet(Elevation);
+			return Utils.Meter2Feet(store.ele[index]);
 		default:
-			return Elevation;
+			return store.ele[index];
 		}
 	}
 
@@ -254,7 +226,8 @@ public class CgData {
 	}
 
 	public void setElevation(double elevation) {
-		Elevation = elevation;
+		store.ele[index] = elevation;
+		store.changed(index);
 	}
 
 	// -------------------------------
@@ -262,12 +235,12 @@ public class CgData {
 	public double getElevationNotSmoothed(int unit) {
 		switch (unit) {
 		case CgConst.UNIT_METER:
-			return ElevationNotSmoothed;
+			return store.eleNotSmoothed[index];
 		case CgConst.UNIT_MILES_FEET:
 			// meter to miles
-			return Utils.Meter2Feet(ElevationNotSmoothed);
+			return Utils.Meter2Feet(store.eleNotSmoothed[index]);
 		default:
-			return ElevationNotSmoothed;
+			return store.eleNotSmoothed[index];
 		}
 	}
 
@@ -297,7 +270,8 @@ public class CgData {
 	}
 
 	public void setElevationNotSmoothed(double elevationNotSmoothed) {
-		ElevationNotSmoothed = elevationNotSmoothed;
+		store.eleNotSmoothed[index] = elevationNotSmoothed;
+		store.changed(index);
 	}
 
 	// -------------------------------
@@ -305,12 +279,12 @@ public class CgData {
 	public double getElevationSmoothed(int unit) {
 		switch (unit) {
 		case CgConst.UNIT_METER:
-			return ElevationSmoothed;
+			return store.eleSmoothed[index];
 		case CgConst.UNIT_MILES_FEET:
 			// meter to miles
-			return Utils.Meter2Feet(ElevationSmoothed);
+			return Utils.Meter2Feet(store.eleSmoothed[index]);
 		default:
-			return ElevationSmoothed;
+			return store.eleSmoothed[index];
 		}
 	}
 
@@ -340,27 +314,29 @@ public class CgData {
 	}
 
 	public void setElevationSmoothed(double elevationSmoothed) {
-		ElevationSmoothed = elevationSmoothed;
+		store.eleSmoothed[index] = elevationSmoothed;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public int getTag() {
-		return Tag;
+		return store.tag[index];
 	}
 
 	public void setTag(int tag) {
-		Tag = tag;
+		store.tag[index] = tag;
+		store.changed(index);
 	}
 
 	public double getDist(int unit) {
 		switch (unit) {
 		case CgConst.UNIT_METER:
-			return Dist;
+			return store.dist[index];
 		case CgConst.UNIT_MILES_FEET:
 			// meter to miles
-			return Utils.Meter2uMiles(Dist);
+			return Utils.Meter2uMiles(store.dist[index]);
 		default:
-			return Dist;
+			return store.dist[index];
 		}
 	}
 
@@ -392,18 +368,19 @@ public class CgData {
 	}
 
 	public void setDist(double dist) {
-		Dist = dist;
+		store.dist[index] = dist;
+		store.changed(index);
 	}
 
 	public double getTotal(int unit) {
 		switch (unit) {
 		case CgConst.UNIT_METER:
-			return Total;
+			return store.total[index];
 		case CgConst.UNIT_MILES_FEET:
 			// meter to miles
-			return Utils.Meter2uMiles(Total);
+			return Utils.Meter2uMiles(store.total[index]);
 		default:
-			return Total;
+			return store.total[index];
 		}
 	}
 
@@ -435,39 +412,43 @@ public class CgData {
 	}
 
 	public void setTotal(double total) {
-		Total = total;
+		store.total[index] = total;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public double getDiff() {
-		return Diff;
+		return store.diff[index];
 	}
 
 	public void setDiff(double diff) {
-		Diff = diff;
+		store.diff[index] = diff;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public double getCoeff() {
-		return Coeff;
+		return store.coeff[index];
 	}
 
 	public void setCoeff(double coeff) {
-		Coeff = coeff;
+		store.coeff[index] = coeff;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public double getRecovery() {
-		return Recovery;
+		return store.recovery[index];
 	}
 
 	public void setRecovery(double recup) {
-		Recovery = recup;
+		store.recovery[index] = recup;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public double getSlope() {
-		return Slope;
+		return store.slope[index];
 	}
 
 	public String getSlopeString(boolean withunit) {
@@ -478,7 +459,8 @@ public class CgData {
 	}
 
 	public void setSlope(double slope) {
-		Slope = slope;
+		store.slope[index] = slope;
+		store.changed(index);
 	}
 
 	/**
@@ -503,11 +485,11 @@ public class CgData {
 	public double getSpeed(int unit) {
 		switch (unit) {
 		case CgConst.UNIT_METER:
-			return Speed;
+			return store.speed[index];
 		case CgConst.UNIT_MILES_FEET:
-			return Utils.Meter2uMiles(Speed);
+			return Utils.Meter2uMiles(store.speed[index]);
 		default:
-			return Speed;
+			return store.speed[index];
 		}
 	}
 
@@ -523,11 +505,12 @@ public class CgData {
 	 * @return A string containing the speed in the correct format.
 	 */
 	public String getSpeedString(int unit, boolean withUnit, boolean pace) {
-		return Utils.FormatSpeed(Speed, unit, pace, withUnit);
+		return Utils.FormatSpeed(getSpeed(), unit, pace, withUnit);
 	}
 
 	public void setSpeed(double speed) {
-		Speed = speed;
+		store.speed[index] = speed;
+		store.changed(index);
 	}
 
 	/**
@@ -536,28 +519,29 @@ public class CgData {
 	 * @return A double containing the speed.
 	 */
 	public double getSpeed() {
-		return Speed;
+		return store.speed[index];
 	}
 
 	public double getdElevation(int unit) {
 		switch (unit) {
 		case CgConst.UNIT_METER:
-			return dElevation;
+			return store.dElevation[index];
 		case CgConst.UNIT_MILES_FEET:
 			// meter to miles
-			return Utils.Meter2Feet(dElevation);
+			return Utils.Meter2Feet(store.dElevation[index]);
 		default:
-			return dElevation;
+			return store.dElevation[index];
 		}
 	}
 
 	public void setdElevation(double dElevation) {
-		this.dElevation = dElevation;
+		store.dElevation[index] = dElevation;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public int getTime() {
-		return Time;
+		return store.time[index];
 	}
 
 	public String getTimeString() {
@@ -571,21 +555,23 @@ public class CgData {
 	}
 
 	public void setTime(int time) {
-		Time = time;
+		store.time[index] = time;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public double getdTime_f() {
-		return dTime_f;
+		return store.dTimeF[index];
 	}
 
 	public void setdTime_f(double dTime_f) {
-		this.dTime_f = dTime_f;
+		store.dTimeF[index] = dTime_f;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public int getTimeLimit() {
-		return TimeLimit;
+		return store.timeLimit[index];
 	}
 
 	public String getTimeLimitString(boolean empty_if_0) {
@@ -603,12 +589,13 @@ public class CgData {
 	}
 
 	public void setTimeLimit(int timeLimit) {
-		TimeLimit = timeLimit;
+		store.timeLimit[index] = timeLimit;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public DateTime getHour() {
-		return Hour;
+		return store.getHour(index);
 	}
 
 	public String getHourString() {
@@ -616,12 +603,13 @@ public class CgData {
 	}
 
 	public void setHour(DateTime hour) {
-		Hour = hour;
+		store.setHour(index, hour);
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public int getStation() {
-		return Station;
+		return store.station[index];
 	}
 
 	public String getStationString(boolean empty_if_0) {
@@ -639,78 +627,137 @@ public class CgData {
 	}
 
 	public void setStation(int station) {
-		Station = station;
+		store.station[index] = station;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public String getName() {
-		return Name;
+		return store.name.get(index);
 	}
 
 	public void setName(String name) {
-		Name = name;
+		store.name.set(index, name);
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public String getComment() {
-		return Comment;
+		return store.comment.get(index);
 	}
 
 	public void setComment(String comment) {
-		Comment = comment;
+		store.comment.set(index, comment);
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public double getElevationMemo() {
-		return ElevationMemo;
+		return store.eleMemo[index];
 	}
 
 	public void setElevationMemo(double elevationMemo) {
-		ElevationMemo = elevationMemo;
+		store.eleMemo[index] = elevationMemo;
+		store.changed(index);
 	}
 
 	// -------------------------------
 	public boolean getNight() {
-		return isNight;
+		return (store.flags[index] & TrackStore.FLAG_NIGHT) != 0;
 	}
 
 	public void setNight(boolean night) {
-		isNight = night;
+		store.setFlag(index, TrackStore.FLAG_NIGHT, night);
+		store.changed(index);
+	}
+
+	// -------------------------------
+	public double getTmp1() {
+		return store.getTmp1(index);
+	}
+
+	public void setTmp1(double tmp1) {
+		store.setTmp1(index, tmp1);
+	}
+
+	// -------------------------------
+	public double getTmp2() {
+		return store.getTmp2(index);
+	}
+
+	public void setTmp2(double tmp2) {
+		store.setTmp2(index, tmp2);
+	}
+
+	// -------------------------------
+	/** Label format in the mini roadbook for this position **/
+	public String getFmtLbMiniRoadbook() {
+		return store.fmtLbMrb[index];
+	}
+
+	public void setFmtLbMiniRoadbook(String fmtLbMiniRoadbook) {
+		store.fmtLbMrb[index] = store.pool(fmtLbMiniRoadbook);
+		store.changed(index);
+	}
+
+	// -------------------------------
+	/** Option of the mini roadbook for this position **/
+	public int getOptionMiniRoadbook() {
+		return store.optMrb[index];
+	}
+
+	public void setOptionMiniRoadbook(int optionMiniRoadbook) {
+		store.optMrb[index] = optionMiniRoadbook;
+		store.changed(index);
+	}
+
+	// -------------------------------
+	/** Vertical position of the label in the mini roadbook for this position **/
+	public int getVPosMiniRoadbook() {
+		return store.vposMrb[index];
+	}
+
+	public void setVPosMiniRoadbook(int vPosMiniRoadbook) {
+		store.vposMrb[index] = vPosMiniRoadbook;
+		store.changed(index);
+	}
+
+	// -------------------------------
+	/** Comment of this position in the mini roadbook **/
+	public String getCommentMiniRoadbook() {
+		return store.commentMrb.get(index);
+	}
+
+	public void setCommentMiniRoadbook(String commentMiniRoadbook) {
+		store.commentMrb.set(index, commentMiniRoadbook);
+		store.changed(index);
+	}
+
+	// -------------------------------
+	/** Font size of this position in the mini roadbook **/
+	public int getFontSizeMiniRoadbook() {
+		return store.fontSizeMrb[index];
+	}
+
+	public void setFontSizeMiniRoadbook(int fontSizeMiniRoadbook) {
+		store.fontSizeMrb[index] = fontSizeMiniRoadbook;
+		store.changed(index);
+	}
+
+	// -------------------------------
+	/** Indicate that the position must be removed by the position filter **/
+	public boolean getToDelete() {
+		return (store.flags[index] & TrackStore.FLAG_TO_DELETE) != 0;
+	}
+
+	public void setToDelete(boolean toDelete) {
+		store.setFlag(index, TrackStore.FLAG_TO_DELETE, toDelete);
 	}
 
 	// -------------------------------
 	public CgData CopyTo(CgData d) {
-		d.Num = Num;
-		d.Latitude = Latitude;
-		d.Longitude = Longitude;
-		d.Elevation = Elevation;
-		d.ElevationNotSmoothed = ElevationNotSmoothed;
-		d.ElevationSmoothed = ElevationSmoothed;
-		d.ElevationMemo = ElevationMemo;
-		d.Tag = Tag;
-		d.Dist = Dist;
-		d.Total = Total;
-		d.Diff = Diff;
-		d.Coeff = Coeff;
-		d.Recovery = Recovery;
-		d.Slope = Slope;
-		d.Speed = Speed;
-		d.dElevation = dElevation;
-		d.Time = Time;
-		d.dTime_f = dTime_f;
-		d.TimeLimit = TimeLimit;
-		d.Hour = Hour;
-		d.Station = Station;
-		d.Name = Name;
-		d.Comment = Comment;
-		d.tmp1 = tmp1;
-		d.tmp2 = tmp2;
-		d.FmtLbMiniRoadbook = FmtLbMiniRoadbook;
-		d.OptionMiniRoadbook = OptionMiniRoadbook;
-		d.VPosMiniRoadbook = VPosMiniRoadbook;
-		d.CommentMiniRoadbook = CommentMiniRoadbook;
-		d.FontSizeMiniRoadbook = FontSizeMiniRoadbook;
-		d.isNight = isNight;
+		d.store.copyRow(store, index, d.index);
+		d.store.positionChanged(d.index);
 		return d;
 	}
 
@@ -0,0 +1,600 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.swing.JOptionPane;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import course_generator.utils.CgConst;
+import course_generator.utils.Utils;
+import course_generator.weather.HistoricalWeather;
+import course_generator.weather.NoaaWeatherData;
+import course_generator.weather.NoaaWeatherStation;
+
+/**
+ * Read and write the binary track format (CGB).
+ *
+ * The file contains the same data as a CGX file, without the text conversion
+ * of the values (the doubles are saved as is):
+ *
+ * <pre>
+ * Directory   magic, version, number of positions, flags,
+ *             offset of the header, columns, weather and string table
+ * Header      track settings (same content as the header of a CGX file)
+ * Columns     one fixed-width column per value, for all the positions
+ * Weather     historical weather data (if flag FLAG_WEATHER is set)
+ * Strings     string table. The strings are referenced by their index
+ *             (0=empty string, -1=null)
+ * </pre>
+ *
+ * The numbers are little endian. The file is written through a
+ * {@link FileChannel} and read through a {@link MappedByteBuffer}: the columns
+ * are copied in the track store without parsing.
+ */
+public class CgbFile {
+	/** "CGB" followed by a control-Z **/
+	private static final int MAGIC = 0x1A424743;
+	/** Version of the format written by this class **/
+	public static final int VERSION = 1;
+
+	/** Flag: the file contains historical weather data **/
+	private static final int FLAG_WEATHER = 0x01;
+
+	/** Size of the directory (magic, version, count, flags and 4 offsets) **/
+	private static final int DIRECTORY_SIZE = 4 * 4 + 4 * 8;
+	/** Size of one position in the columns (10 doubles and 11 ints) **/
+	private static final int ROW_SIZE = 10 * 8 + 11 * 4;
+	/** Size of the buffer used to write the file **/
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	public static final int ERR_READ_NO = 0;
+	public static final int ERR_READ_VERSION = -5;
+	public static final int ERR_READ_NOTEXIST = -6;
+	public static final int ERR_READ_FORMAT = -8;
+
+	private static final DateTimeFormatter fmtNight = DateTimeFormat.forPattern("HH:mm");
+
+	/**
+	 * String table used during the write
+	 */
+	private static class StringTable {
+		private final HashMap<String, Integer> index = new HashMap<String, Integer>();
+		private final List<byte[]> strings = new ArrayList<byte[]>();
+
+		StringTable() {
+			add("");
+		}
+
+		/**
+		 * Return the index of a string in the table. The string is added if it is
+		 * not in the table
+		 */
+		int add(String s) {
+			if (s == null)
+				return -1;
+			Integer i = index.get(s);
+			if (i == null) {
+				byte[] b = s.getBytes(StandardCharsets.UTF_8);
+				i = strings.size();
+				strings.add(b);
+				index.put(s, i);
+			}
+			return i;
+		}
+	}
+
+	/**
+	 * Write the positions from 'start' to 'end' (included) of a track in a CGB
+	 * file
+	 *
+	 * @param filename Name of the file
+	 * @param track    Track to save
+	 * @param start    First position to save
+	 * @param end      Last position to save
+	 * @throws IOException
+	 */
+	public static void write(String filename, TrackData track, int start, int end) throws IOException {
+		final TrackStore data = track.data;
+		final int n = end - start + 1;
+		StringTable strings = new StringTable();
+
+		// -- Header
+		ByteBuffer header = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+		header.putDouble(data.total[end] - data.total[start]);
+		header.putInt(data.time[end] - data.time[start]);
+		header.putInt(strings.add(track.CourseName));
+		header.putInt(strings.add(track.Description));
+		header.putLong(track.StartTime.getMillis());
+		header.putInt(strings.add(track.StartTime.getZone().getID()));
+		header.put((byte) (track.bElevEffect ? 1 : 0));
+		header.put((byte) (track.bNightCoeff ? 1 : 0));
+		header.putInt(strings.add(track.StartNightTime.toString(fmtNight)));
+		header.putInt(strings.add(track.EndNightTime.toString(fmtNight)));
+		header.putDouble(track.NightCoeffAsc);
+		header.putDouble(track.NightCoeffDesc);
+		header.putDouble(track.StartGlobalCoeff);
+		header.putDouble(track.EndGlobalCoeff);
+		header.putInt(track.timeZoneOffsetHours);
+		header.putInt(strings.add(track.timeZoneId));
+		header.put((byte) (track.TrackUseDaylightSaving ? 1 : 0));
+		header.putInt(strings.add(track.Paramfile));
+		header.putInt(track.MrbSizeW);
+		header.putInt(track.MrbSizeH);
+		header.put((byte) (track.bShowNightDay ? 1 : 0));
+		header.putInt(track.clProfil_Simple_Fill.getRGB());
+		header.putInt(track.clProfil_Simple_Border.getRGB());
+		header.putInt(track.clProfil_RS_Road.getRGB());
+		header.putInt(track.clProfil_RS_Path.getRGB());
+		header.putInt(track.clProfil_RS_Border.getRGB());
+		header.putInt(track.clProfil_SlopeInf5.getRGB());
+		header.putInt(track.clProfil_SlopeInf10.getRGB());
+		header.putInt(track.clProfil_SlopeInf15.getRGB());
+		header.putInt(track.clProfil_SlopeSup15.getRGB());
+		header.putInt(track.clProfil_SlopeBorder.getRGB());
+		header.putInt(track.CurveFilter);
+		header.putInt(track.WordWrapLength);
+		header.put((byte) (track.LabelToBottom ? 1 : 0));
+		header.putInt(track.MRBType);
+		header.putInt(track.TopMargin);
+		header.putInt(track.SmoothFilter);
+		((Buffer) header).flip();
+
+		// -- String columns
+		int[] names = new int[n];
+		int[] comments = new int[n];
+		int[] fmts = new int[n];
+		int[] commentsMrb = new int[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = strings.add(data.name.get(start + i));
+			comments[i] = strings.add(data.comment.get(start + i));
+			fmts[i] = strings.add(data.fmtLbMrb[start + i]);
+			commentsMrb[i] = strings.add(data.commentMrb.get(start + i));
+		}
+
+		// -- Historical weather
+		int flags = 0;
+		ByteBuffer weather = ByteBuffer.allocate(0);
+		if (track.historicalWeatherData != null) {
+			flags |= FLAG_WEATHER;
+			weather = writeWeather(track.historicalWeatherData, strings);
+		}
+
+		// -- Directory
+		long offHeader = DIRECTORY_SIZE;
+		long offColumns = offHeader + header.remaining();
+		long offWeather = offColumns + (long) n * ROW_SIZE;
+		long offStrings = offWeather + weather.remaining();
+
+		ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(MAGIC);
+		buf.putInt(VERSION);
+		buf.putInt(n);
+		buf.putInt(flags);
+		buf.putLong(offHeader);
+		buf.putLong(offColumns);
+		buf.putLong(offWeather);
+		buf.putLong(offStrings);
+
+		FileChannel channel = openForWrite(filename);
+		try {
+			buf.put(header);
+			flush(channel, buf);
+
+			// -- Columns
+			double[][] doubles = { data.lat, data.lon, data.ele, data.eleNotSmoothed, data.eleSmoothed, data.dist,
+					data.total, data.diff, data.coeff, data.recovery };
+			for (double[] c : doubles)
+				writeColumn(channel, buf, c, start, n);
+
+			int[][] ints = { data.time, data.station, data.timeLimit, data.tag, data.optMrb, data.vposMrb,
+					data.fontSizeMrb };
+			for (int[] c : ints)
+				writeColumn(channel, buf, c, start, n);
+			for (int[] c : new int[][] { names, comments, fmts, commentsMrb })
+				writeColumn(channel, buf, c, 0, n);
+
+			// -- Weather
+			write(channel, weather);
+
+			// -- Strings
+			buf.putInt(strings.strings.size());
+			for (byte[] s : strings.strings) {
+				if (buf.remaining() < 4 + s.length)
+					flush(channel, buf);
+				buf.putInt(s.length);
+				if (s.length > buf.remaining()) {
+					flush(channel, buf);
+					write(channel, ByteBuffer.wrap(s));
+				} else
+					buf.put(s);
+			}
+			flush(channel, buf);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Open a file for write. The content of the file is removed
+	 */
+	private static FileChannel openForWrite(String filename) throws IOException {
+		File f = new File(filename);
+		try {
+			return FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException e) {
+			// -- On Windows a file can't be truncated while a mapping of the file
+			// exists. The mapping of the last read is released by the garbage
+			// collector
+			System.gc();
+			System.runFinalization();
+			return FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining())
+			channel.write(buf);
+	}
+
+	/**
+	 * Write the content of the buffer in the file and clear the buffer
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+		((Buffer) buf).flip();
+		write(channel, buf);
+		((Buffer) buf).clear();
+	}
+
+	private static void writeColumn(FileChannel channel, ByteBuffer buf, double[] c, int start, int n)
+			throws IOException {
+		flush(channel, buf);
+		int i = 0;
+		while (i < n) {
+			int k = Math.min(n - i, BUFFER_SIZE / 8);
+			buf.asDoubleBuffer().put(c, start + i, k);
+			((Buffer) buf).position(k * 8);
+			flush(channel, buf);
+			i += k;
+		}
+	}
+
+	private static void writeColumn(FileChannel channel, ByteBuffer buf, int[] c, int start, int n)
+			throws IOException {
+		flush(channel, buf);
+		int i = 0;
+		while (i < n) {
+			int k = Math.min(n - i, BUFFER_SIZE / 4);
+			buf.asIntBuffer().put(c, start + i, k);
+			((Buffer) buf).position(k * 4);
+			flush(channel, buf);
+			i += k;
+		}
+	}
+
+	private static ByteBuffer writeWeather(HistoricalWeather w, StringTable strings) {
+		List<NoaaWeatherData> summaries = w.getPastDailySummaries();
+		int size = 4 + 8 + 2 * (1 + 4 * 4 + 8) + 4 + 2 * (1 + 5 * 4);
+		if (summaries != null)
+			size += summaries.size() * (1 + 5 * 4);
+
+		ByteBuffer b = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		b.putInt(strings.add(w.getDaylightHours()));
+		b.putDouble(w.getMoonFraction());
+		writeStation(b, w.getNoaaSummariesWeatherStation(), strings);
+		writeStation(b, w.getNoaaNormalsWeatherStation(), strings);
+		if (summaries == null)
+			b.putInt(-1);
+		else {
+			b.putInt(summaries.size());
+			for (NoaaWeatherData d : summaries)
+				writeWeatherData(b, d, strings);
+		}
+		writeWeatherData(b, w.getNormalsDaily(), strings);
+		writeWeatherData(b, w.getNormalsMonthly(), strings);
+		((Buffer) b).flip();
+		return b;
+	}
+
+	private static void writeStation(ByteBuffer b, NoaaWeatherStation s, StringTable strings) {
+		b.put((byte) (s == null ? 0 : 1));
+		b.putInt(s == null ? -1 : strings.add(s.getId()));
+		b.putInt(s == null ? -1 : strings.add(s.getName()));
+		b.putInt(s == null ? -1 : strings.add(s.getLatitude()));
+		b.putInt(s == null ? -1 : strings.add(s.getLongitude()));
+		b.putDouble(s == null ? 0.0 : s.getDistanceFromStart());
+	}
+
+	private static void writeWeatherData(ByteBuffer b, NoaaWeatherData d, StringTable strings) {
+		b.put((byte) (d == null ? 0 : 1));
+		b.putInt(d == null ? -1 : strings.add(d.getTemperatureMax()));
+		b.putInt(d == null ? -1 : strings.add(d.getTemperatureMin()));
+		b.putInt(d == null ? -1 : strings.add(d.getTemperatureAverage()));
+		b.putInt(d == null ? -1 : strings.add(d.getPrecipitation()));
+		b.putInt((d == null || d.getDate() == null) ? -1 : strings.add(d.getDate().toString()));
+	}
+
+	/**
+	 * Read a CGB file
+	 *
+	 * @param parent   Parent component of the message boxes
+	 * @param filename Name of the file
+	 * @param track    Track where the positions are added
+	 * @param mode     Reading mode (see CgConst.IMPORT_MODE_xxx)
+	 * @return Error code: ERR_READ_NO = No problem during the read,
+	 *         ERR_READ_VERSION = The version of the file is not supported,
+	 *         ERR_READ_NOTEXIST = The file doesn't exist or can't be read,
+	 *         ERR_READ_FORMAT = The file is not a CGB file or is corrupted
+	 * @throws IOException
+	 */
+	public static int read(Component parent, String filename, TrackData track, int mode) throws IOException {
+		File f = new File(filename);
+		if (!f.isFile() || !f.canRead()) {
+			track.ReadError = ERR_READ_NOTEXIST;
+			return track.ReadError;
+		}
+
+		MappedByteBuffer buf;
+		FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+		try {
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			channel.close();
+		}
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+
+		try {
+			track.ReadError = read(parent, buf, track, mode);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+				| NegativeArraySizeException e) {
+			track.ReadError = ERR_READ_FORMAT;
+		}
+		return track.ReadError;
+	}
+
+	private static int read(Component parent, ByteBuffer buf, TrackData track, int mode) {
+		// -- Directory
+		if (buf.remaining() < DIRECTORY_SIZE || buf.getInt() != MAGIC)
+			return ERR_READ_FORMAT;
+		if (buf.getInt() > VERSION)
+			return ERR_READ_VERSION;
+		final int n = buf.getInt();
+		final int flags = buf.getInt();
+		final int offHeader = offset(buf, buf.getLong());
+		final int offColumns = offset(buf, buf.getLong());
+		final int offWeather = offset(buf, buf.getLong());
+		final int offStrings = offset(buf, buf.getLong());
+		if (n < 0 || (long) n * ROW_SIZE > offWeather - offColumns)
+			return ERR_READ_FORMAT;
+
+		// -- Strings
+		((Buffer) buf).position(offStrings);
+		String[] strings = new String[buf.getInt()];
+		for (int i = 0; i < strings.length; i++) {
+			byte[] b = new byte[buf.getInt()];
+			buf.get(b);
+			strings[i] = new String(b, StandardCharsets.UTF_8);
+		}
+
+		// -- Header
+		((Buffer) buf).position(offHeader);
+		readHeader(parent, buf, strings, track);
+
+		// -- Positions
+		final TrackStore data = track.data;
+		final int first = data.size();
+		HistoricalWeather weather = null;
+		boolean ok = false;
+		try {
+			data.ensureCapacity(first + n);
+			for (int i = 0; i < n; i++)
+				data.addEmpty();
+
+			((Buffer) buf).position(offColumns);
+			double[][] doubles = { data.lat, data.lon, data.ele, data.eleNotSmoothed, data.eleSmoothed, data.dist,
+					data.total, data.diff, data.coeff, data.recovery };
+			for (double[] c : doubles) {
+				buf.asDoubleBuffer().get(c, first, n);
+				((Buffer) buf).position(buf.position() + n * 8);
+			}
+
+			int[][] ints = { data.time, data.station, data.timeLimit, data.tag, data.optMrb, data.vposMrb,
+					data.fontSizeMrb };
+			for (int[] c : ints) {
+				buf.asIntBuffer().get(c, first, n);
+				((Buffer) buf).position(buf.position() + n * 4);
+			}
+
+			long now = System.currentTimeMillis();
+			short chrono = data.chronologyIndex(new DateTime(now).getChronology());
+			int oldTime = 0;
+			for (int i = first; i < first + n; i++) {
+				data.num[i] = i - first + 1;
+				data.eleMemo[i] = data.ele[i];
+				data.dTimeF[i] = data.time[i] - oldTime;
+				oldTime = data.time[i];
+				data.setHour(i, now, chrono);
+				if (data.fontSizeMrb[i] == 0)
+					data.fontSizeMrb[i] = CgConst.DEFAULTMRBFONTSIZE;
+			}
+			for (int i = first; i < first + n; i++)
+				data.name.set(i, string(strings, buf.getInt()));
+			for (int i = first; i < first + n; i++)
+				data.comment.set(i, string(strings, buf.getInt()));
+			for (int i = first; i < first + n; i++)
+				data.fmtLbMrb[i] = data.pool(string(strings, buf.getInt()));
+			for (int i = first; i < first + n; i++)
+				data.commentMrb.set(i, string(strings, buf.getInt()));
+
+			// -- Historical weather
+			if ((flags & FLAG_WEATHER) != 0) {
+				((Buffer) buf).position(offWeather);
+				weather = readWeather(buf, strings);
+			}
+
+			if (n > 0)
+				track.isTimeLoaded = true;
+			ok = true;
+		} finally {
+			if (!ok)
+				data.removeRange(first, data.size());
+		}
+
+		// -- Move the new positions at their place
+		if (mode == CgConst.IMPORT_MODE_INS_START)
+			data.rotate(first);
+		else if (mode == CgConst.IMPORT_MODE_LOAD) {
+			data.removeRange(0, first);
+			track.historicalWeatherData = null;
+		}
+
+		// -- The daylight hours are the minimum data of the historical weather
+		if (weather != null && weather.getDaylightHours() != null && !weather.getDaylightHours().isEmpty())
+			track.setHistoricalWeather(weather);
+
+		return ERR_READ_NO;
+	}
+
+	/**
+	 * Check an offset read in the directory
+	 */
+	private static int offset(ByteBuffer buf, long offset) {
+		if (offset < DIRECTORY_SIZE || offset > buf.limit())
+			throw new IllegalArgumentException("Bad offset: " + offset);
+		return (int) offset;
+	}
+
+	private static String string(String[] strings, int index) {
+		return (index == -1) ? null : strings[index];
+	}
+
+	private static boolean bool(ByteBuffer buf) {
+		return buf.get() != 0;
+	}
+
+	private static void readHeader(Component parent, ByteBuffer buf, String[] strings, TrackData track) {
+		track.setTotalDistance(buf.getDouble());
+		track.TotalTime = buf.getInt();
+		track.CourseName = string(strings, buf.getInt());
+		track.Description = string(strings, buf.getInt());
+		long startTime = buf.getLong();
+		track.StartTime = new DateTime(startTime, DateTimeZone.forID(string(strings, buf.getInt())));
+		track.bElevEffect = bool(buf);
+		track.bNightCoeff = bool(buf);
+		track.StartNightTime = DateTime.parse(string(strings, buf.getInt()), fmtNight);
+		track.EndNightTime = DateTime.parse(string(strings, buf.getInt()), fmtNight);
+		track.NightCoeffAsc = buf.getDouble();
+		track.NightCoeffDesc = buf.getDouble();
+		track.StartGlobalCoeff = buf.getDouble();
+		track.EndGlobalCoeff = buf.getDouble();
+		track.timeZoneOffsetHours = buf.getInt();
+		track.timeZoneId = string(strings, buf.getInt());
+		track.TrackUseDaylightSaving = bool(buf);
+
+		String curve = string(strings, buf.getInt());
+		if (Utils.searchCurveFolder(curve) == CgConst.CURVE_NOT_FOUND) {
+			java.util.ResourceBundle bundle = java.util.ResourceBundle.getBundle("course_generator/Bundle");
+			JOptionPane.showMessageDialog(parent,
+					String.format(bundle.getString("loadCGX.CurveFileError"), curve + ".par"));
+			track.Paramfile = "Default";
+		} else
+			track.Paramfile = curve;
+
+		track.MrbSizeW = buf.getInt();
+		track.MrbSizeH = buf.getInt();
+		track.bShowNightDay = bool(buf);
+		track.clProfil_Simple_Fill = new Color(buf.getInt());
+		track.clProfil_Simple_Border = new Color(buf.getInt());
+		track.clProfil_RS_Road = new Color(buf.getInt());
+		track.clProfil_RS_Path = new Color(buf.getInt());
+		track.clProfil_RS_Border = new Color(buf.getInt());
+		track.clProfil_SlopeInf5 = new Color(buf.getInt());
+		track.clProfil_SlopeInf10 = new Color(buf.getInt());
+		track.clProfil_SlopeInf15 = new Color(buf.getInt());
+		track.clProfil_SlopeSup15 = new Color(buf.getInt());
+		track.clProfil_SlopeBorder = new Color(buf.getInt());
+		track.CurveFilter = buf.getInt();
+		track.WordWrapLength = buf.getInt();
+		track.LabelToBottom = bool(buf);
+		track.MRBType = buf.getInt();
+		track.TopMargin = buf.getInt();
+		track.SmoothFilter = buf.getInt();
+	}
+
+	private static HistoricalWeather readWeather(ByteBuffer buf, String[] strings) {
+		String daylightHours = string(strings, buf.getInt());
+		double moonFraction = buf.getDouble();
+		NoaaWeatherStation summariesStation = readStation(buf, strings);
+		NoaaWeatherStation normalsStation = readStation(buf, strings);
+		ArrayList<NoaaWeatherData> summaries = null;
+		int count = buf.getInt();
+		if (count >= 0) {
+			summaries = new ArrayList<NoaaWeatherData>();
+			for (int i = 0; i < count; i++)
+				summaries.add(readWeatherData(buf, strings));
+		}
+		NoaaWeatherData normalsDaily = readWeatherData(buf, strings);
+		NoaaWeatherData normalsMonthly = readWeatherData(buf, strings);
+		return new HistoricalWeather(summaries, normalsDaily, normalsMonthly, summariesStation, normalsStation,
+				daylightHours, moonFraction);
+	}
+
+	private static NoaaWeatherStation readStation(ByteBuffer buf, String[] strings) {
+		boolean present = bool(buf);
+		String id = string(strings, buf.getInt());
+		String name = string(strings, buf.getInt());
+		String latitude = string(strings, buf.getInt());
+		String longitude = string(strings, buf.getInt());
+		double distance = buf.getDouble();
+		return present ? new NoaaWeatherStation(id, name, latitude, longitude, distance) : null;
+	}
+
+	private static NoaaWeatherData readWeatherData(ByteBuffer buf, String[] strings) {
+		boolean present = bool(buf);
+		String max = string(strings, buf.getInt());
+		String min = string(strings, buf.getInt());
+		String average = string(strings, buf.getInt());
+		String precipitation = string(strings, buf.getInt());
+		String date = string(strings, buf.getInt());
+		if (!present)
+			return null;
+		return new NoaaWeatherData(max, min, average, precipitation, (date == null) ? null : DateTime.parse(date));
+	}
+}
@@ -445,8 +445,7 @@ public class SaxCGXHandler extends DefaultHandler {
 				trkdata.TrackUseDaylightSaving = ManageBoolean(false, ERR_READ_BOOL);
 			} else if (qName.equalsIgnoreCase("CURVE")) {
 				curve = ManageString();
-				int FolderType = Utils.searchCurveFolder(curve);
-				if (!Utils.FileExist(Utils.getSelectedCurveFolder(FolderType) + curve + ".par")) {
+				if (Utils.searchCurveFolder(curve) == CgConst.CURVE_NOT_FOUND) {
 					JOptionPane.showMessageDialog(Parent,
 							String.format(bundle.getString("loadCGX.CurveFileError"), curve + ".par"));
 					trkdata.Paramfile = "Default";
@@ -565,7 +564,8 @@ public class SaxCGXHandler extends DefaultHandler {
 
 					// Add data at the end of the array
 					Cmpt++;
-					trkdata.data.add(new CgData(Cmpt, // double Num
+					// -- Filled in place: no detached object per position
+					trkdata.data.get(trkdata.data.addEmpty()).setValues(Cmpt, // double Num
 							trkpt_lat, // double Latitude
 							trkpt_lon, // double Longitude
 							trkpt_ele, // double Elevation
@@ -595,10 +595,10 @@ public class SaxCGXHandler extends DefaultHandler {
 							trkpt_vposmrb, // int VPosMiniRoadbook
 							trkpt_commentmrb, // String CommentMiniRoadbook
 							trkpt_FontSizemrb // int FontSizeMiniRoadbook
-					));
+					);
 				} else {
 					// Add data at the beginning of the array
-					trkdata.data.add(Cmpt, new CgData(Cmpt, // double Num
+					trkdata.data.get(trkdata.data.addEmpty(Cmpt)).setValues(Cmpt, // double Num
 							trkpt_lat, // double Latitude
 							trkpt_lon, // double Longitude
 							trkpt_ele, // double Elevation
@@ -628,7 +628,7 @@ public class SaxCGXHandler extends DefaultHandler {
 							trkpt_vposmrb, // int VPosMiniRoadbook
 							trkpt_commentmrb, // String CommentMiniRoadbook
 							trkpt_FontSizemrb // int FontSizeMiniRoadbook
-					));
+					);
 					Cmpt++;
 				} // else
 
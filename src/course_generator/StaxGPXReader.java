@@ -0,0 +1,669 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.function.IntConsumer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+
+import course_generator.utils.CgConst;
+import course_generator.utils.Utils;
+
+/**
+ * GPX reader based on a StAX parser.
+ *
+ * The file is read in one pass and the positions are written directly in the
+ * columns of the track store. The numbers ("45.1234") and the times
+ * ("2018-05-12T08:30:00Z") are parsed from the character buffer of the parser
+ * without creating a String or a DateTime. The other formats go through
+ * Double.parseDouble and DateTime.parse.
+ *
+ * The positions are read in a store private to the reader. They are added to
+ * the track by {@link #apply()} at the end of the reading, so the track is
+ * unchanged while the file is read (in background) and if the reading is
+ * cancelled or fails.
+ *
+ * @author Pierre
+ */
+public class StaxGPXReader {
+
+	public static final int ERR_READ_NO = 0;
+	public static final int ERR_READ_NOTEXIST = -6;
+	public static final int ERR_READ_CANCELLED = -7;
+
+	private static final int LEVEL_TRKPT = 4;
+
+	/** Number of positions between two checks of the progress **/
+	private static final int PROGRESS_STEP = 1024;
+
+	/** Powers of ten exactly represented by a double **/
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+			1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// -- Element codes
+	private static final int TAG_OTHER = 0;
+	private static final int TAG_GPX = 1;
+	private static final int TAG_TRK = 2;
+	private static final int TAG_TRKSEG = 3;
+	private static final int TAG_TRKPT = 4;
+	private static final int TAG_ELE = 5;
+	private static final int TAG_TIME = 6;
+
+	private TrackData trkdata;
+	/** Positions read from the file **/
+	private TrackStore data;
+	/** True if the positions have been read and must be added to the track **/
+	private boolean readDone = false;
+	/** Value of TrackData.isTimeLoaded after the reading **/
+	private boolean timeLoaded;
+	/** Value of TrackData.ReadError after the reading **/
+	private int readError;
+	private int mode = 0;
+	private int level = 0;
+	private int errline = 0;
+	private volatile boolean cancelled = false;
+
+	/** Text of the current element **/
+	private char[] text = new char[64];
+	private int textLen = 0;
+
+	private double trkpt_lat = 0.0;
+	private double trkpt_lon = 0.0;
+	private double trkpt_ele = 0.0;
+	private double mLat;
+	private double mLon;
+
+	// -- Time of the current position: time in ms and chronology index in the
+	// store
+	private long trkpt_time;
+	private short trkpt_chrono;
+	private boolean first = true;
+	private long startTime;
+	private long oldTime;
+	private int Time_s;
+	private double dTime_f;
+	private int Cmpt = 0;
+
+	// -- Last time offset found and its chronology index
+	private int lastOffset = Integer.MIN_VALUE;
+	private short lastChrono;
+
+	/**
+	 * Input stream counting the read bytes
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		long count = 0;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int r = super.read();
+			if (r >= 0)
+				count++;
+			return r;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int r = super.read(b, off, len);
+			if (r > 0)
+				count += r;
+			return r;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long r = super.skip(n);
+			count += r;
+			return r;
+		}
+	}
+
+	/**
+	 * Read the GPX file from disc
+	 *
+	 * @param filename Name of the gpx file to read
+	 * @param TData    TrackData object where to store the read data
+	 * @param readmode Reading mode 0=Load the complete file 1=Insert the read data
+	 *                 at the beginning of the current track 2=Insert the read data
+	 *                 at the end of the current track
+	 * @param progress Receive the progress of the reading in % (0-100). Can be
+	 *                 null
+	 * @return The error code: ERR_READ_NO = No problem during the reading of the
+	 *         file ERR_READ_NOTEXIST = The file doesn't exist or can't by read
+	 *         ERR_READ_CANCELLED = The reading has been cancelled by
+	 *         {@link #cancel()}. The track is unchanged
+	 * @throws XMLStreamException
+	 * @throws IOException
+	 */
+	public int readDataFromGPX(String filename, TrackData TData, int readmode, IntConsumer progress)
+			throws XMLStreamException, IOException {
+		try {
+			return read(filename, TData, readmode, progress);
+		} finally {
+			apply();
+		}
+	}
+
+	/**
+	 * Read the GPX file without modifying the track. Can be called from a
+	 * background thread. The positions are added to the track by
+	 * {@link #apply()}
+	 *
+	 * @return The error code (see {@link #readDataFromGPX})
+	 */
+	int read(String filename, TrackData TData, int readmode, IntConsumer progress)
+			throws XMLStreamException, IOException {
+
+		mode = readmode;
+		trkdata = TData;
+		data = new TrackStore();
+		readDone = false;
+		timeLoaded = TData.isTimeLoaded;
+		level = 0;
+		textLen = 0;
+		trkpt_lat = 0.0;
+		trkpt_lon = 0.0;
+		trkpt_ele = 0.0;
+		mLat = 0.0;
+		mLon = 0.0;
+		Time_s = 0;
+		Cmpt = 0;
+		dTime_f = 0.0;
+		first = true;
+		cancelled = false;
+		lastOffset = Integer.MIN_VALUE;
+
+		setDefaultTime();
+		startTime = trkpt_time;
+		oldTime = trkpt_time;
+
+		readError = ERR_READ_NO;
+
+		File f = new File(filename);
+		if (!f.isFile() || !f.canRead()) {
+			readError = ERR_READ_NOTEXIST;
+			return readError;
+		}
+
+		final long fileSize = Math.max(f.length(), 1);
+		int lastProgress = -1;
+
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+
+		try (CountingInputStream in = new CountingInputStream(
+				new BufferedInputStream(new FileInputStream(f), 64 * 1024))) {
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			try {
+				while (reader.hasNext()) {
+					switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						textLen = 0;
+						startElement(reader);
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						appendText(reader);
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						if (endElement(reader) && (Cmpt % PROGRESS_STEP) == 0) {
+							if (cancelled)
+								return ERR_READ_CANCELLED;
+							if (progress != null) {
+								int p = (int) Math.min(99, in.count * 100 / fileSize);
+								if (p != lastProgress) {
+									lastProgress = p;
+									progress.accept(p);
+								}
+							}
+						}
+						textLen = 0;
+						break;
+					default:
+						break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+			readDone = true;
+		}
+
+		if (progress != null)
+			progress.accept(100);
+
+		return readError;
+	}
+
+	/**
+	 * Add the positions read by {@link #read} to the track. Must be called from
+	 * the thread using the track (EDT). Nothing is added if the reading has been
+	 * cancelled or has failed
+	 */
+	void apply() {
+		if (trkdata == null)
+			return;
+		trkdata.ReadError = readError;
+		if (readDone) {
+			readDone = false;
+			trkdata.isTimeLoaded = timeLoaded;
+			switch (mode) {
+			case 0:
+				trkdata.data.copyFrom(data);
+				trkdata.historicalWeatherData = null;
+				break;
+			case 1:
+				trkdata.data.insertRange(0, data);
+				break;
+			default:
+				trkdata.data.insertRange(trkdata.data.size(), data);
+				break;
+			}
+		}
+		data = null;
+	}
+
+	/**
+	 * Request the end of the reading. Can be called from any thread
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public int getErrLine() {
+		return errline;
+	}
+
+	private static int tagCode(String name) {
+		switch (name.length()) {
+		case 3:
+			if (name.equalsIgnoreCase("GPX"))
+				return TAG_GPX;
+			if (name.equalsIgnoreCase("TRK"))
+				return TAG_TRK;
+			if (name.equalsIgnoreCase("ELE"))
+				return TAG_ELE;
+			break;
+		case 4:
+			if (name.equalsIgnoreCase("TIME"))
+				return TAG_TIME;
+			break;
+		case 5:
+			if (name.equalsIgnoreCase("TRKPT"))
+				return TAG_TRKPT;
+			break;
+		case 6:
+			if (name.equalsIgnoreCase("TRKSEG"))
+				return TAG_TRKSEG;
+			break;
+		default:
+			break;
+		}
+		return TAG_OTHER;
+	}
+
+	private void startElement(XMLStreamReader reader) {
+		switch (tagCode(reader.getLocalName())) {
+		case TAG_GPX:
+		case TAG_TRK:
+		case TAG_TRKSEG:
+			level++;
+			break;
+		case TAG_TRKPT:
+			level++;
+			for (int index = 0; index < reader.getAttributeCount(); index++) {
+				String name = reader.getAttributeLocalName(index);
+				if (name.equalsIgnoreCase("LAT")) {
+					trkpt_lat = parseAttribute(reader, index);
+				} else if (name.equalsIgnoreCase("LON")) {
+					trkpt_lon = parseAttribute(reader, index);
+				}
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Process the end of an element
+	 *
+	 * @return true if a position has been added
+	 */
+	private boolean endElement(XMLStreamReader reader) {
+		switch (tagCode(reader.getLocalName())) {
+		case TAG_GPX:
+		case TAG_TRK:
+		case TAG_TRKSEG:
+			level--;
+			break;
+		case TAG_ELE:
+			if (level == LEVEL_TRKPT) {
+				trkpt_ele = parseDouble(text, 0, textLen);
+				if (Double.isNaN(trkpt_ele)) {
+					trkpt_ele = 0.0;
+					errline = reader.getLocation().getLineNumber();
+				}
+			}
+			break;
+		case TAG_TIME:
+			if (level == LEVEL_TRKPT)
+				readTime(reader);
+			break;
+		case TAG_TRKPT:
+			if (level == LEVEL_TRKPT) {
+				level--;
+				boolean added = false;
+				if ((mLat != trkpt_lat) || (mLon != trkpt_lon) || (!timeLoaded)) {
+					if ((mode == 0) || (mode == 2)) {
+						Cmpt++;
+						addPosition(Cmpt);
+					} else {
+						addPosition(Cmpt);
+						Cmpt++;
+					}
+					added = true;
+				}
+				mLat = trkpt_lat;
+				mLon = trkpt_lon;
+				oldTime = trkpt_time;
+				return added;
+			}
+			break;
+		default:
+			// -- The level of a track is not changed by the other elements
+			// (name...)
+			break;
+		}
+		return false;
+	}
+
+	/**
+	 * Add a position at the end of the store with the current values
+	 */
+	private void addPosition(int num) {
+		int i = data.addEmpty();
+		data.num[i] = num;
+		data.lat[i] = trkpt_lat;
+		data.lon[i] = trkpt_lon;
+		data.ele[i] = trkpt_ele;
+		data.eleNotSmoothed[i] = trkpt_ele;
+		data.eleSmoothed[i] = trkpt_ele;
+		data.eleMemo[i] = trkpt_ele;
+		data.diff[i] = 100.0;
+		data.coeff[i] = 100.0;
+		data.time[i] = Time_s;
+		data.dTimeF[i] = dTime_f;
+		data.setHour(i, trkpt_time, trkpt_chrono);
+		data.fmtLbMrb[i] = data.pool(CgConst.DEFAULTMRBFORMAT);
+		data.optMrb[i] = CgConst.MRBOPT_SEL | CgConst.MRBOPT_LEFT | CgConst.MRBOPT_SHOWTAGS;
+		data.fontSizeMrb[i] = CgConst.DEFAULTMRBFONTSIZE;
+	}
+
+	/**
+	 * Time used when the time of a position can't be read
+	 */
+	private void setDefaultTime() {
+		DateTime t = new DateTime(1970, 1, 1, 0, 0, 0);
+		trkpt_time = t.getMillis();
+		trkpt_chrono = data.chronologyIndex(t.getChronology());
+	}
+
+	private void readTime(XMLStreamReader reader) {
+		try {
+			if (first) {
+				first = false;
+				// -- Determine the course time zone. It's used for the first point
+				TimeZone timeZoneId = Utils.getTimeZoneFromLatLon(trkpt_lat, trkpt_lon);
+				DateTime t = DateTime.parse(new String(text, 0, textLen))
+						.withZone(DateTimeZone.forTimeZone(timeZoneId));
+				trkpt_time = t.getMillis();
+				trkpt_chrono = data.chronologyIndex(t.getChronology());
+				startTime = trkpt_time;
+				oldTime = startTime;
+				Time_s = 0;
+				dTime_f = 0.0;
+			} else {
+				if (!parseTime(text, 0, textLen)) {
+					DateTime t = DateTime.parse(new String(text, 0, textLen));
+					trkpt_time = t.getMillis();
+					trkpt_chrono = data.chronologyIndex(t.getChronology());
+				}
+				if (trkpt_time < startTime)
+					throw new IllegalArgumentException("Time before the start time");
+				Time_s = (int) ((trkpt_time - startTime) / 1000);
+				if (trkpt_time < oldTime)
+					throw new IllegalArgumentException("Time before the previous time");
+				dTime_f = (trkpt_time - oldTime) / 1000.0;
+			}
+			timeLoaded = true;
+		} catch (IllegalArgumentException e) {
+			setDefaultTime();
+			errline = reader.getLocation().getLineNumber();
+		}
+	}
+
+	private void appendText(XMLStreamReader reader) {
+		int len = reader.getTextLength();
+		if (textLen + len > text.length)
+			text = Arrays.copyOf(text, Math.max(text.length * 2, textLen + len));
+		System.arraycopy(reader.getTextCharacters(), reader.getTextStart(), text, textLen, len);
+		textLen += len;
+	}
+
+	/**
+	 * Parse the value of an attribute
+	 *
+	 * @return The value. 0.0 if the value is not a number
+	 */
+	private double parseAttribute(XMLStreamReader reader, int index) {
+		String s = reader.getAttributeValue(index);
+		if (s.length() > text.length)
+			text = new char[s.length()];
+		s.getChars(0, s.length(), text, 0);
+		double v = parseDouble(text, 0, s.length());
+		if (Double.isNaN(v)) {
+			errline = reader.getLocation().getLineNumber();
+			return 0.0;
+		}
+		return v;
+	}
+
+	/**
+	 * Parse a decimal number. The simple numbers ("-12.345") with 15 digits or
+	 * less are converted directly (the result is the same as Double.parseDouble).
+	 * The other ones are converted by Double.parseDouble
+	 *
+	 * @return The value. NaN if the text is not a number
+	 */
+	static double parseDouble(char[] buf, int start, int len) {
+		int end = start + len;
+		while (start < end && buf[start] <= ' ')
+			start++;
+		while (end > start && buf[end - 1] <= ' ')
+			end--;
+
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0; // Number of digits
+		int significant = 0; // Number of digits without the leading zeros
+		int decimals = 0;
+		boolean point = false;
+		for (; i < end; i++) {
+			char c = buf[i];
+			if (c >= '0' && c <= '9') {
+				digits++;
+				if (mantissa != 0 || c != '0')
+					significant++;
+				mantissa = mantissa * 10 + (c - '0');
+				if (point)
+					decimals++;
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if (i == end && digits > 0 && significant <= 15 && decimals < POW10.length) {
+			// -- The mantissa and the power of ten are exact: one division gives
+			// the correctly rounded value
+			double v = mantissa / POW10[decimals];
+			return negative ? -v : v;
+		}
+
+		try {
+			return Double.parseDouble(new String(buf, start, end - start));
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	private static int digits(char[] buf, int pos, int n) {
+		int v = 0;
+		for (int i = pos; i < pos + n; i++) {
+			char c = buf[i];
+			if (c < '0' || c > '9')
+				return -1;
+			v = v * 10 + (c - '0');
+		}
+		return v;
+	}
+
+	/**
+	 * Parse an ISO-8601 time in the format "YYYY-MM-DDThh:mm:ss[.SSS](Z|+hh:mm)"
+	 * and set the current time. The offset of the time becomes the time zone of
+	 * the time, as DateTime.parse does
+	 *
+	 * @return false if the text has another format
+	 */
+	private boolean parseTime(char[] buf, int start, int len) {
+		int end = start + len;
+		while (start < end && buf[start] <= ' ')
+			start++;
+		while (end > start && buf[end - 1] <= ' ')
+			end--;
+		if (end - start < 20 || buf[start + 4] != '-' || buf[start + 7] != '-' || buf[start + 10] != 'T'
+				|| buf[start + 13] != ':' || buf[start + 16] != ':')
+			return false;
+
+		int year = digits(buf, start, 4);
+		int month = digits(buf, start + 5, 2);
+		int day = digits(buf, start + 8, 2);
+		int hour = digits(buf, start + 11, 2);
+		int minute = digits(buf, start + 14, 2);
+		int second = digits(buf, start + 17, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || (day > 28 && day > daysInMonth(year, month))
+				|| hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59)
+			return false;
+
+		int pos = start + 19;
+		int millis = 0;
+		if (buf[pos] == '.') {
+			int n = 0;
+			pos++;
+			while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+				if (++n > 3)
+					return false;
+				millis = millis * 10 + (buf[pos] - '0');
+				pos++;
+			}
+			if (n == 0)
+				return false;
+			for (; n < 3; n++)
+				millis *= 10;
+		}
+
+		int offset;
+		if (pos == end - 1 && buf[pos] == 'Z') {
+			offset = 0;
+		} else if (pos == end - 6 && (buf[pos] == '+' || buf[pos] == '-') && buf[pos + 3] == ':') {
+			int oh = digits(buf, pos + 1, 2);
+			int om = digits(buf, pos + 4, 2);
+			if (oh < 0 || oh > 23 || om < 0 || om > 59)
+				return false;
+			offset = (oh * 60 + om) * 60000;
+			if (buf[pos] == '-')
+				offset = -offset;
+		} else {
+			return false;
+		}
+
+		long days = daysFromCivil(year, month, day);
+		trkpt_time = (((days * 24 + hour) * 60 + minute) * 60 + second) * 1000L + millis - offset;
+		if (offset != lastOffset) {
+			lastOffset = offset;
+			lastChrono = data.chronologyIndex(ISOChronology.getInstance(DateTimeZone.forOffsetMillis(offset)));
+		}
+		trkpt_chrono = lastChrono;
+		return true;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return ((year % 4 == 0) && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/**
+	 * Number of days between 1970-01-01 and a date of the proleptic Gregorian
+	 * calendar
+	 */
+	private static long daysFromCivil(int y, int m, int d) {
+		y -= (m <= 2) ? 1 : 0;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era * 400;
+		long doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
+import course_generator.TrackData.CalcClimbResult;
+import course_generator.param.ParamData;
+import course_generator.settings.CgSettings;
+import course_generator.utils.CgConst;
+import course_generator.utils.CgLog;
+
+/**
+ * Time calculation of a track outside of the event dispatch thread.
+ *
+ * The calculation is done on a copy of the columns of the track it reads, taken
+ * when it starts, so the user can continue to work on the track. The result is
+ * copied in the track at the end of the calculation, only if the positions of
+ * the track have not been modified in the meantime. Otherwise the calculation
+ * is started again.
+ *
+ * Only one calculation runs at a time. A request received during a calculation
+ * cancels it and the last request is calculated when it ends: a burst of
+ * requests gives at most one more calculation.
+ *
+ * All the methods and the listeners are called from the event dispatch thread.
+ */
+public class TrackCalculator {
+
+	/**
+	 * Listener of the calculations
+	 */
+	public interface CalculatorListener {
+		/** Progress of the running calculation (0-100) **/
+		void calculationProgress(int percent);
+
+		/**
+		 * End of a calculation
+		 *
+		 * @param track   Calculated track
+		 * @param applied True if the result has been copied in the track. False if
+		 *                the calculation has been cancelled or has failed
+		 */
+		void calculationDone(TrackData track, boolean applied);
+	}
+
+	private final CgSettings settings;
+	private final ArrayList<CalculatorListener> listeners = new ArrayList<CalculatorListener>();
+	/** Running calculation. null=none **/
+	private SwingWorker<Boolean, Integer> worker = null;
+	/** Copy of the track used by the running calculation **/
+	private TrackData calc = null;
+	/** Track to calculate at the end of the running calculation. null=none **/
+	private TrackData pending = null;
+	/** True if the running calculation has been cancelled **/
+	private boolean cancelled = false;
+	/** Number of results copied in a track **/
+	private int resultVersion = 0;
+
+	public TrackCalculator(CgSettings settings) {
+		this.settings = settings;
+	}
+
+	public void addCalculatorListener(CalculatorListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeCalculatorListener(CalculatorListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Ask for the time calculation of a track. The running calculation is
+	 * cancelled
+	 *
+	 * @param track Track to calculate
+	 */
+	public void request(TrackData track) {
+		pending = track;
+		if (worker == null)
+			startNext();
+		else {
+			cancelled = true;
+			calc.CancelCalculation();
+		}
+	}
+
+	/**
+	 * Cancel the running calculation and the waiting request
+	 */
+	public void cancel() {
+		pending = null;
+		if (worker != null) {
+			cancelled = true;
+			calc.CancelCalculation();
+		}
+	}
+
+	/**
+	 * Return true if a calculation is running
+	 */
+	public boolean isRunning() {
+		return worker != null;
+	}
+
+	/**
+	 * Return a counter incremented each time a result is copied in a track
+	 */
+	public int getResultVersion() {
+		return resultVersion;
+	}
+
+	/**
+	 * Start the calculation of the waiting request
+	 */
+	private void startNext() {
+		final TrackData track = pending;
+		pending = null;
+		if (track == null || track.data.isEmpty())
+			return;
+
+		// -- The copy has its own curve: the calculation loads the curve in it
+		final int version = track.data.getVersion();
+		final TrackData c = track.CopyForCalculation(new TrackData(settings));
+		c.param = new ParamData();
+		calc = c;
+		cancelled = false;
+
+		worker = new SwingWorker<Boolean, Integer>() {
+			@Override
+			protected Boolean doInBackground() throws Exception {
+				if (!c.Calculate(p -> publish(p)))
+					return false;
+
+				CalcClimbResult ccr = new CalcClimbResult();
+				ccr = c.CalcClimb(CgConst.ELEV_NORM, 0, c.data.size() - 1, ccr);
+				c.setClimbP(ccr.cp);
+				c.setClimbM(ccr.cm);
+				c.AscTime = ccr.tp;
+				c.DescTime = ccr.tm;
+				c.CheckTimeLimit();
+				return true;
+			}
+
+			@Override
+			protected void process(List<Integer> chunks) {
+				int percent = chunks.get(chunks.size() - 1);
+				for (CalculatorListener l : listeners)
+					l.calculationProgress(percent);
+			}
+
+			@Override
+			protected void done() {
+				boolean ok = false;
+				try {
+					ok = get();
+				} catch (InterruptedException | ExecutionException e) {
+					CgLog.error("TrackCalculator : Calculation failed : " + e.getMessage());
+				}
+				worker = null;
+				calc = null;
+
+				boolean applied = false;
+				if (ok && !cancelled) {
+					if ((track.data.getVersion() == version) && track.ApplyCalculation(c)) {
+						applied = true;
+						resultVersion++;
+					} else {
+						// -- The track has been modified during the calculation
+						pending = track;
+					}
+				}
+
+				// -- The next calculation is started first: the listeners see it
+				// running
+				startNext();
+				for (CalculatorListener l : listeners)
+					l.calculationDone(track, applied);
+			}
+		};
+		worker.execute();
+	}
+}
@@ -32,11 +32,14 @@ import java.io.PrintWriter;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
@@ -45,13 +48,16 @@ import org.joda.time.DateTime;
 
 import com.sun.xml.txw2.output.IndentingXMLStreamWriter;
 
+import course_generator.dialogs.ProgressDialog;
+import course_generator.dialogs.ProgressDialogListener;
+import course_generator.param.CurveRepository;
 import course_generator.param.ParamData;
+import course_generator.param.SpeedTable;
 import course_generator.settings.CgSettings;
 import course_generator.utils.CgConst;
 import course_generator.utils.CgLog;
 import course_generator.utils.StatData;
 import course_generator.utils.Utils;
-import course_generator.utils.Utils.CalcLineResult;
 import course_generator.weather.HistoricalWeather;
 import course_generator.weather.NoaaWeatherData;
 import course_generator.weather.NoaaWeatherStation;
@@ -63,13 +69,22 @@ public class TrackData {
 
 	private static TrackData instance;
 
+	/** Cancellation and progress are checked every 4096 positions **/
+	private static final int CALC_STEP_MASK = 4096 - 1;
+
 	/** Slope/Speed parameters **/
 	public ParamData param = null;
+	/** Curve 'param' compiled for the time calculation **/
+	private SpeedTable speedTable = null;
 	/** Parameters file name **/
 	public String Paramfile = "";
 
-	/** Arraylist containing the main data **/
-	public ArrayList<CgData> data;
+	/** Store containing the main data **/
+	public TrackStore data;
+	/** Index used for the range queries on 'data' **/
+	private final TrackRangeIndex rangeIndex;
+	/** Index used for the position searches on 'data' **/
+	private final TrackSpatialIndex spatialIndex;
 
 	/** Historical weather data **/
 	public HistoricalWeather historicalWeatherData;
@@ -109,6 +124,19 @@ public class TrackData {
 	 * Indicate if the data has been calculated. false=They must be calculate
 	 **/
 	public boolean isCalculated = false;
+	/**
+	 * First position whose data must be recalculated by {@link #Recalculate()}.
+	 * Equal to the size of the track when everything is up to date
+	 **/
+	private int DirtyStart = 0;
+	/** Structure version of 'data' at the last time calculation **/
+	private int CalcVersion = -1;
+	/** Curve used for the last time calculation. null=no calculation done **/
+	private String CalcParamfile = null;
+	/** Settings used for the last time calculation **/
+	private String CalcSignature = "";
+	/** Set by {@link #CancelCalculation()} to stop a calculation running in another thread **/
+	private volatile boolean CalcCancelled = false;
 	/** If 'true' this indicate that the data has been modified **/
 	public boolean isModified = false;
 	/** Contain the ascent climb of the whole track (in m) **/
@@ -213,7 +241,9 @@ public class TrackData {
 		isNewTrack = true;
 		param = new ParamData();
 		Paramfile = "Default";
-		data = new ArrayList<CgData>();
+		data = new TrackStore();
+		rangeIndex = new TrackRangeIndex(data);
+		spatialIndex = new TrackSpatialIndex(data);
 		historicalWeatherData = new HistoricalWeather();
 		tInNight = new StatData();
 		tInDay = new StatData();
@@ -321,22 +351,27 @@ public class TrackData {
 	 * Check the GPS point density on the track. If the result is too high, ask if
 	 * CG need to filter the track
 	 * 
+	 * @param start Index of the first position to check
+	 * @param end   Index after the last position to check
 	 * @return true : filter must be apply
 	 */
-	private boolean CheckPointDensity(double PosFilterAskThreshold) {
+	private boolean CheckPointDensity(double PosFilterAskThreshold, int start, int end) {
 		java.util.ResourceBundle bundle = java.util.ResourceBundle.getBundle("course_generator/Bundle");
 
+		if (start >= end)
+			return false;
+
 		CalcDist();
 
 		int nb = 0;
 		boolean ok = false;
 
 		// Scan the data
-		for (CgData r : data) {
-			if (r.getDist(CgConst.UNIT_METER) < 10.0)
+		for (int i = start; i < end; i++) {
+			if (data.dist[i] < 10.0)
 				nb += 1;
 		}
-		double p = nb * 100.0 / data.size();
+		double p = nb * 100.0 / (end - start);
 		CgLog.info("Point density calculation = " + p + "%");
 
 		// Question?
@@ -362,19 +397,51 @@ public class TrackData {
 	 * @throws Exception
 	 */
 	public boolean OpenGPX(String name, int mode, double PosFilterAskThreshold) throws Exception {
-		SaxGPXHandler GPXhandler = new SaxGPXHandler();
+		return OpenGPX(name, mode, PosFilterAskThreshold, null);
+	}
 
-		int ret = GPXhandler.readDataFromGPX(name, this, mode);
+	/**
+	 * Read a GPX file and store the data in the array
+	 * 
+	 * @param name     Full name of the file
+	 * @param mode     0 = Replace the existing data by the new data 1 = Insert the
+	 *                 new data at the beginning of the existing data 2 = Add the
+	 *                 new data at the end of the existing data
+	 * @param progress Dialog displaying the progress of the reading. The file is
+	 *                 read in background while the dialog is displayed. null=the
+	 *                 file is read in the current thread. If set, the method must
+	 *                 be called from the EDT
+	 * @return Return true if time data have been loaded
+	 * @throws CancellationException The reading has been cancelled by the user.
+	 *                               The track is unchanged
+	 * @throws Exception
+	 */
+	public boolean OpenGPX(String name, int mode, double PosFilterAskThreshold, ProgressDialog progress)
+			throws Exception {
+		StaxGPXReader GPXreader = new StaxGPXReader();
+
+		int oldSize = data.size();
+		int ret;
+		if (progress == null)
+			ret = GPXreader.readDataFromGPX(name, this, mode, null);
+		else
+			ret = ReadGPXInBackground(GPXreader, name, mode, progress);
+		if (ret == StaxGPXReader.ERR_READ_CANCELLED)
+			throw new CancellationException();
 		if (ret != 0)
-			CgLog.error("TrackData.OpenGPX : Error while reading '" + name + "'. Line =" + GPXhandler.getErrLine());
+			CgLog.error("TrackData.OpenGPX : Error while reading '" + name + "'. Line =" + GPXreader.getErrLine());
 
 		CgLog.info(data.size() + " positions loaded.");
 
-		boolean filter = CheckPointDensity(PosFilterAskThreshold);
+		// -- Read positions. The existing positions are not filtered: an import
+		// only inserts positions
+		int start = (mode == CgConst.IMPORT_MODE_ADD_END) ? oldSize : 0;
+		int end = (mode == CgConst.IMPORT_MODE_LOAD) ? data.size() : start + data.size() - oldSize;
+		boolean filter = CheckPointDensity(PosFilterAskThreshold, start, end);
 
 		// -- Positions filter
 		if (filter) {
-			PositionFilter();
+			PositionFilter(start, end);
 			CgLog.info(data.size() + " positions after positions filter.");
 		}
 
@@ -387,6 +454,8 @@ public class TrackData {
 
 		isCalculated = false;
 		isModified = false;
+		// -- The time has not been calculated with the curve
+		CalcParamfile = null;
 
 		if (mode == 0)
 			isNewTrack = true;
@@ -423,6 +492,58 @@ public class TrackData {
 		return isTimeLoaded;
 	} // -- OpenGPX
 
+	/**
+	 * Read a GPX file in a background thread while the progress dialog is
+	 * displayed
+	 * 
+	 * @return The error code of {@link StaxGPXReader#readDataFromGPX}
+	 */
+	private int ReadGPXInBackground(final StaxGPXReader reader, final String name, final int mode,
+			final ProgressDialog progress) throws Exception {
+		final TrackData track = this;
+		SwingWorker<Integer, Integer> worker = new SwingWorker<Integer, Integer>() {
+			@Override
+			protected Integer doInBackground() throws Exception {
+				// -- The track is not modified in background: the panels can
+				// repaint it during the reading
+				return reader.read(name, track, mode, p -> publish(p));
+			}
+
+			@Override
+			protected void process(List<Integer> chunks) {
+				progress.setValue(chunks.get(chunks.size() - 1));
+			}
+
+			@Override
+			protected void done() {
+				// -- Add the read positions to the track in the EDT
+				reader.apply();
+				progress.setVisible(false);
+			}
+		};
+
+		// The worker is not cancelled: the reader stops by itself and the track is
+		// left unchanged
+		progress.setListener(new ProgressDialogListener() {
+			@Override
+			public void progressDialogCancelled() {
+				reader.cancel();
+			}
+		});
+		progress.setValue(0);
+		worker.execute();
+		// -- Modal dialog: return when the worker is done
+		progress.setVisible(true);
+
+		try {
+			return worker.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
 	// -- Save GPX file (complet or partial) --
 	/**
 	 * Save the track in GPX format
@@ -736,19 +857,19 @@ public class TrackData {
 					Utils.WriteIntToXML(writer, "TimeLimit", r.getTimeLimit());
 
 					// <FmtLbMiniRoadbook>1234</FmtLbMiniRoadbook>
-					Utils.WriteStringToXML(writer, "FmtLbMiniRoadbook", r.FmtLbMiniRoadbook);
+					Utils.WriteStringToXML(writer, "FmtLbMiniRoadbook", r.getFmtLbMiniRoadbook());
 
 					// <OptMiniRoadbook>1234</OptMiniRoadbook>
-					Utils.WriteIntToXML(writer, "OptMiniRoadbook", r.OptionMiniRoadbook);
+					Utils.WriteIntToXML(writer, "OptMiniRoadbook", r.getOptionMiniRoadbook());
 
 					// <VPosMiniRoadbook>1234</VPosMiniRoadbook>
-					Utils.WriteIntToXML(writer, "VPosMiniRoadbook", r.VPosMiniRoadbook);
+					Utils.WriteIntToXML(writer, "VPosMiniRoadbook", r.getVPosMiniRoadbook());
 
 					// <CommentMiniRoadbook>1234</CommentMiniRoadbook>
-					Utils.WriteStringToXML(writer, "CommentMiniRoadbook", r.CommentMiniRoadbook);
+					Utils.WriteStringToXML(writer, "CommentMiniRoadbook", r.getCommentMiniRoadbook());
 
 					// <FontSizeMiniRoadbook>1234</FontSizeMiniRoadbook>
-					Utils.WriteIntToXML(writer, "FontSizeMiniRoadbook", r.FontSizeMiniRoadbook);
+					Utils.WriteIntToXML(writer, "FontSizeMiniRoadbook", r.getFontSizeMiniRoadbook());
 
 					writer.writeEndElement(); // Pt
 				} // if
@@ -791,54 +912,76 @@ public class TrackData {
 	 *         searched point
 	 */
 	public SearchPointResult SearchPoint(double lat, double lon) {
-		CgData cdata;
-		double d, best;
-		int p;
+		double best = 10000000000.0; // Big value. It's normal
+		int p = spatialIndex.nearest(lat, lon);
 
-		best = 10000000000.0; // Big value. It's normal
-		p = -1;
-
-		if (data.size() >= 0) {
-			for (int i = 0; i < data.size() - 1; i++) {
-				cdata = data.get(i);
-				d = Math.abs(Utils.CalcDistance(cdata.getLatitude(), cdata.getLongitude(), lat, lon));
-				if (d < best) {
-					best = d;
-					p = i;
-				}
-			}
-		}
+		if (p >= 0)
+			best = Math.abs(Utils.CalcDistance(data.getLatitude(p), data.getLongitude(p), lat, lon));
 		return new SearchPointResult(p, best);
 	}
 
 	/**
-	 * Search the best point from the latitude and longitude
+	 * Search the points around a position
+	 * 
+	 * @param lat    Latitude of the position
+	 * @param lon    Longitude of the position
+	 * @param radius Maximum distance from the position in meter
+	 * @return Index of the points at 'radius' meters or less from the position,
+	 *         in the track order
+	 */
+	public int[] SearchPointsInRadius(double lat, double lon, double radius) {
+		return spatialIndex.withinRadius(lat, lon, radius);
+	}
+
+	/**
+	 * Search the point with the nearest total distance. The search is a binary
+	 * search on the total distances. If they are not up to date (CalcDist() not
+	 * called after an insertion) the distances are scanned
 	 * 
-	 * @param dist Distance to search
+	 * @param dist Distance to search (in the unit of the settings)
 	 * 
-	 * @return Index of the found point
+	 * @return Index of the found point. -1 if the track is empty
 	 */
 	public int SearchDistance(double dist) {
-		CgData cdata;
-		double d, best;
-		int p;
+		return rangeIndex.nearestDistance(Utils.Distance2Meter(dist, Settings.Unit));
+	}
 
-		double val = Utils.Distance2Meter(dist, Settings.Unit);
+	/**
+	 * Convert a distance in a fractional point index, interpolated between the
+	 * two points around the distance (ex: 10.5 = half way between the points 10
+	 * and 11)
+	 * 
+	 * @param dist Distance to search (in meter)
+	 * 
+	 * @return Fractional index of the point, limited to the first and last point.
+	 *         -1 if the track is empty
+	 */
+	public double DistanceToIndex(double dist) {
+		return rangeIndex.distanceToIndex(dist);
+	}
 
-		best = 10000000000.0; // Big value. It's normal
-		p = -1;
+	/**
+	 * Search the point with the nearest time. Same rules as
+	 * {@link #SearchDistance(double)}
+	 * 
+	 * @param time Time from the start (in second)
+	 * 
+	 * @return Index of the found point. -1 if the track is empty
+	 */
+	public int SearchTime(int time) {
+		return rangeIndex.nearestTime(time);
+	}
 
-		if (data.size() >= 0) {
-			for (int i = 0; i < data.size() - 1; i++) {
-				cdata = data.get(i);
-				d = Math.abs(val - cdata.getTotal(CgConst.UNIT_METER));
-				if (d < best) {
-					best = d;
-					p = i;
-				}
-			}
-		}
-		return p;
+	/**
+	 * Convert a time in a fractional point index. Same rules as
+	 * {@link #DistanceToIndex(double)}
+	 * 
+	 * @param time Time from the start (in second)
+	 * 
+	 * @return Fractional index of the point. -1 if the track is empty
+	 */
+	public double TimeToIndex(double time) {
+		return rangeIndex.timeToIndex(time);
 	}
 
 	/*
@@ -852,9 +995,12 @@ public class TrackData {
 
 	/**
 	 * Position filter
+	 * 
+	 * @param start Index of the first position to filter
+	 * @param end   Index after the last position to filter
 	 */
-	private void PositionFilter() {
-		if (data.size() <= 0) {
+	private void PositionFilter(int start, int end) {
+		if (end <= start) {
 			return;
 		}
 
@@ -869,9 +1015,9 @@ public class TrackData {
 		double threshold = 15.0; // 8.0;
 
 		// Scan the data
-		for (i = 0; i < data.size() - 6; i++) {
+		for (i = start; i < end - 6; i++) {
 			r = data.get(i);
-			if (r.ToDelete)
+			if (r.getToDelete())
 				continue;
 
 			r1 = data.get(i + 1);
@@ -885,24 +1031,21 @@ public class TrackData {
 			double dist4 = CalcDistance(r.getLatitude(), r.getLongitude(), r4.getLatitude(), r4.getLongitude());
 
 			if (dist4 < threshold) {
-				r4.ToDelete = true;
+				r4.setToDelete(true);
 			}
 			if (dist3 < threshold) {
-				r3.ToDelete = true;
+				r3.setToDelete(true);
 			}
 			if (dist2 < threshold) {
-				r2.ToDelete = true;
+				r2.setToDelete(true);
 			}
 			if (dist1 < threshold) {
-				r1.ToDelete = true;
+				r1.setToDelete(true);
 			}
 		}
 
 		// Removed the marked points
-		for (i = data.size() - 1; i >= 0; i--) {
-			if (data.get(i).ToDelete)
-				data.remove(i);
-		}
+		data.removeMarked();
 
 	}
 
@@ -912,6 +1055,7 @@ public class TrackData {
 	 * @param CalcHour Indicate hour calculation need to be done
 	 */
 	public void CalcMainData(boolean CalcHour, boolean SpeedwithTime) {
+		MarkDirty(0);
 		CalcDist();
 		CalcSpeed(SpeedwithTime);
 		CalcSlope();
@@ -939,6 +1083,16 @@ public class TrackData {
 	 * The calculation take into account the elevation
 	 */
 	public void CalcDist() {
+		CalcDist(0);
+	}
+
+	/**
+	 * Calculate the distance of each portion of the track from the position
+	 * 'start'. The positions before 'start' must be up to date
+	 * 
+	 * @param start Index of the first position to calculate
+	 */
+	public void CalcDist(int start) {
 		double dist = 0.0;
 		double mLat = 0.0;
 		double mLon = 0.0;
@@ -950,12 +1104,23 @@ public class TrackData {
 
 		TotalDistance = 0;
 
-		boolean b = false;
-		for (CgData r : data) {
-			Lat = r.getLatitude();
-			Lon = r.getLongitude();
-			Ele = r.getElevation(CgConst.UNIT_METER);
-			if (b) {
+		final double[] lat = data.lat;
+		final double[] lon = data.lon;
+		final double[] ele = data.ele;
+		final int n = data.size();
+		if ((start > 0) && (start < n)) {
+			TotalDistance = data.total[start - 1];
+			mLat = lat[start - 1];
+			mLon = lon[start - 1];
+			mEle = ele[start - 1];
+		} else {
+			start = 0;
+		}
+		for (int i = start; i < n; i++) {
+			Lat = lat[i];
+			Lon = lon[i];
+			Ele = ele[i];
+			if (i > 0) {
 				// -- Calculate the "flat" distance
 				dist = CalcDistance(mLat, mLon, Lat, Lon);
 				// -- A little bit of Pythagoras theorem in order to include the
@@ -963,17 +1128,17 @@ public class TrackData {
 				v = Math.sqrt(dist * dist + (Ele - mEle) * (Ele - mEle));
 
 				TotalDistance = TotalDistance + v;
-				r.setDist(v);
-				r.setTotal(TotalDistance);
+				data.dist[i] = v;
+				data.total[i] = TotalDistance;
 			} else {
-				r.setDist(0.0);
-				r.setTotal(0.0);
-				b = true;
+				data.dist[i] = 0.0;
+				data.total[i] = 0.0;
 			} // if
 			mLat = Lat;
 			mLon = Lon;
 			mEle = Ele;
 		}
+		data.changed(start);
 	} // Calcdist
 
 	/**
@@ -983,40 +1148,45 @@ public class TrackData {
 		if (withTime)
 //			CalcSpeedWithTime();
 		{
-			int prevTime = data.get(0).getTime();
+			final int[] time = data.time;
+			int prevTime = time[0];
 			// -- Calculation loop --
-			for (CgData r : data) {
-				int dTime = r.getTime() - prevTime;
+			for (int i = 0; i < data.size(); i++) {
+				int dTime = time[i] - prevTime;
 
-				//double dist = r.getDist(CgConst.UNIT_METER);
 				if (dTime != 0.0) {
-					r.setSpeed(r.getDist(CgConst.UNIT_METER) / dTime * 3.6);
+					data.speed[i] = data.dist[i] / dTime * 3.6;
 				} else {
-					r.setSpeed(0.0);
+					data.speed[i] = 0.0;
 				}
-				prevTime = r.getTime();
+				prevTime = time[i];
 			} // End of the calculation loop --
 		} else {
-			boolean b = false;
-			for (CgData r : data) {
-				if (b) {
-					if (r.getdTime_f() != 0.0) {
-						r.setSpeed(r.getDist(CgConst.UNIT_METER) / r.getdTime_f() * 3.6);
-					} else {
-						r.setSpeed(0.0);
-					}
+			final double[] dTimeF = data.dTimeF;
+			for (int i = 0; i < data.size(); i++) {
+				if ((i > 0) && (dTimeF[i] != 0.0)) {
+					data.speed[i] = data.dist[i] / dTimeF[i] * 3.6;
 				} else {
-					r.setSpeed(0.0);
-					b = true;
+					data.speed[i] = 0.0;
 				} // if
 			}
 		}
+		data.changed();
 	} // CalcSpeed
 
 	/**
 	 * Calculate slope
 	 */
 	public void CalcSlope() {
+		CalcSlope(0);
+	}
+
+	/**
+	 * Calculate slope from the position 'start'
+	 * 
+	 * @param start Index of the first position to calculate
+	 */
+	public void CalcSlope(int start) {
 		double delta = 0;
 		double dist = 0;
 		double mLat = 0;
@@ -1026,31 +1196,39 @@ public class TrackData {
 		double Lon = 0;
 		double Ele = 0;
 
-		boolean b = false;
-		for (CgData r : data) {
+		final double[] slope = data.slope;
+		final int n = data.size();
+		if ((start > 0) && (start < n)) {
+			mLat = data.lat[start - 1];
+			mLon = data.lon[start - 1];
+			mEle = data.ele[start - 1];
+		} else {
+			start = 0;
+		}
+		for (int i = start; i < n; i++) {
 
-			r.setSlope(0.0);
-			Lat = (double) r.getLatitude();
-			Lon = (double) r.getLongitude();
-			Ele = (double) r.getElevation(CgConst.UNIT_METER);
+			slope[i] = 0.0;
+			Lat = data.lat[i];
+			Lon = data.lon[i];
+			Ele = data.ele[i];
 
-			if (b) {
+			if (i > 0) {
 				dist = CalcDistance(mLat, mLon, Lat, Lon);
 
 				delta = Ele - mEle;
-				r.setdElevation(delta);
+				data.dElevation[i] = delta;
 				if (dist != 0) {
-					r.setSlope(delta / dist * 100);
+					slope[i] = delta / dist * 100;
 				} else {
-					r.setSlope(0);
+					slope[i] = 0;
 				}
 			}
-			b = true;
 
 			mLat = Lat;
 			mLon = Lon;
 			mEle = Ele;
 		} // for i
+		data.changed(start);
 	} // Calcslope
 
 	public static class CalcAvrSlopeResult {
@@ -1119,42 +1297,7 @@ public class TrackData {
 
 	// -- Calculate climb - and + ---
 	public CalcAvrSlopeResult CalcAvrSlope(int StartLine, int EndLine, CalcAvrSlopeResult r) {
-		int i = 0;
-		int ip = 0;
-		int im = 0;
-		double slope = 0.0;
-
-		r.AvrSlopeP = 0.0;
-		r.AvrSlopeM = 0.0;
-		r.TotClimbP = 0.0;
-		r.TotFlat = 0.0;
-		r.TotClimbM = 0.0;
-
-		if (data.size() > 0) {
-
-			for (i = StartLine; i <= EndLine; i++) {
-				slope = data.get(i).getSlope();
-				if (slope > 0) {
-					r.AvrSlopeP += slope;
-					ip++;
-				} else {
-					r.AvrSlopeM += slope;
-					im++;
-				}
-
-				if (slope <= -2) {
-					r.TotClimbM += data.get(i).getDist(CgConst.UNIT_METER);
-				} else if ((slope > -2) && (slope < 2)) {
-					r.TotFlat += data.get(i).getDist(CgConst.UNIT_METER);
-				} else if (slope >= 2) {
-					r.TotClimbP += data.get(i).getDist(CgConst.UNIT_METER);
-				}
-
-			} // for i
-		} // if
-		r.AvrSlopeP = r.AvrSlopeP / ip;
-		r.AvrSlopeM = r.AvrSlopeM / im;
-		return r;
+		return rangeIndex.avrSlope(StartLine, EndLine, r);
 	} // CalcAvrSlope
 
 	public static class CalcClimbResult {
@@ -1244,65 +1387,7 @@ public class TrackData {
 	// tp: cumul temps en montée (s)
 	// tm: cumul temps en descente (s)
 	public CalcClimbResult CalcClimb(int elevType, int StartLine, int EndLine, CalcClimbResult r) {
-		int i = 0;
-		int oldTime = 0;
-		int dt = 0;
-		double oldElev = 0.0;
-		double de = 0.0;
-		double elev = 0.0;
-		int time = 0;
-
-		r.cp = 0;
-		r.cm = 0;
-		r.tp = 0;
-		r.tm = 0;
-
-		if (data.size() > 0) {
-			switch (elevType) {
-			case CgConst.ELEV_NOTSMOOTHED:
-				oldElev = data.get(StartLine).getElevationNotSmoothed(CgConst.UNIT_METER);
-				break;
-			case CgConst.ELEV_SMOOTHED:
-				oldElev = data.get(StartLine).getElevationSmoothed(CgConst.UNIT_METER);
-				break;
-			default:
-				oldElev = data.get(StartLine).getElevation(CgConst.UNIT_METER);
-			}
-
-			oldTime = data.get(StartLine).getTime();
-
-			for (i = StartLine; i <= EndLine; i++) {
-				switch (elevType) {
-				case CgConst.ELEV_NOTSMOOTHED:
-					elev = data.get(i).getElevationNotSmoothed(CgConst.UNIT_METER);
-					break;
-				case CgConst.ELEV_SMOOTHED:
-					elev = data.get(i).getElevationSmoothed(CgConst.UNIT_METER);
-					break;
-				default:
-					elev = data.get(i).getElevation(CgConst.UNIT_METER);
-				}
-
-				time = data.get(i).getTime();
-
-				de = (elev - oldElev);
-				dt = (time - oldTime);
-
-				if (Math.abs(de) > (double) Settings.ClimbThresholdForCalculation) {
-					if (de > 0) {
-						r.cp += de;
-						r.tp += dt;
-					}
-					if (de < 0) {
-						r.cm -= de;
-						r.tm += dt;
-					}
-					oldElev = elev;
-					oldTime = time;
-				}
-			} // for i
-		} // if
-		return r;
+		return rangeIndex.climb(elevType, StartLine, EndLine, (double) Settings.ClimbThresholdForCalculation, r);
 	} // CalcClimb
 
 	/**
@@ -1349,26 +1434,19 @@ public class TrackData {
 	 */
 	public int CalcHour() {
 		int last = 0;
-		for (CgData r : data) {
-			r.setHour(StartTime.plusSeconds(r.getTime()));
-			last = r.getTime();
+		final long start = StartTime.getMillis();
+		final short chrono = data.chronologyIndex(StartTime.getChronology());
+		for (int i = 0; i < data.size(); i++) {
+			last = data.time[i];
+			data.setHour(i, start + last * 1000L, chrono);
 		} // for i
+		data.changed();
 		return last;
 	}
 
 	// -- Calculate road distance (in meter) --
 	public double CalcRoad(int start, int end) {
-		double road = 0.0;
-		// DistRoad = 0.0;
-		// for (CgData r : data) {
-		for (int i = start; i < end; i++) {
-			CgData r = data.get(i);
-			if (r.getDiff() == 100) {
-				// DistRoad = DistRoad + r.getDist(CgConst.UNIT_METER);
-				road = road + r.getDist(CgConst.UNIT_METER);
-			}
-		}
-		return road;
+		return rangeIndex.road(start, end);
 	}
 
 	class SearchMinMaxElevationResult {
@@ -1385,18 +1463,9 @@ public class TrackData {
 	 * @return Result in a SearchMinMaxElevationResult object
 	 */
 	private SearchMinMaxElevationResult SearchMinMaxElevation(int start, int end, SearchMinMaxElevationResult r) {
-		r.min = 9999.0;
-		r.max = -1.0;
-		int i = 0;
-		for (i = start; i < end; i++) {
-			double e = data.get(i).getElevation(CgConst.UNIT_METER);
-			if (e < r.min) {
-				r.min = e;
-			}
-			if (e > r.max) {
-				r.max = e;
-			}
-		}
+		double[] mm = rangeIndex.minMaxElevation(start, end);
+		r.min = Math.min(9999.0, mm[0]);
+		r.max = Math.max(-1.0, mm[1]);
 		return r;
 	}
 
@@ -1429,140 +1498,142 @@ public class TrackData {
 	 * Calculate the time for each position of the track
 	 */
 	public void Calculate() {
-		int j = 0;
-		int k = 0;
-		double ts = 0.0;
-		double x = 0.0;
-		double x1 = 0.0;
-		double y1 = 0.0;
-		double x2 = 0.0;
-		double y2 = 0.0;
-		double y = 0.0;
-		double tmp = 0.0;
-		double night = 0.0;
-		double dt = 0.0;
-		double ef = 1.0;
-		boolean ok;
+		Calculate(null);
+	}
 
+	/**
+	 * Calculate the time for each position of the track. The calculation can be
+	 * stopped from another thread by {@link #CancelCalculation()}
+	 * 
+	 * @param progress Receive the progress of the calculation (0-100). Can be null
+	 * @return False if the calculation has been cancelled or can't be done. The
+	 *         time of the track is then partially calculated
+	 */
+	public boolean Calculate(IntConsumer progress) {
 		if (param == null) {
-			return;
+			return false;
 		}
 
 		isTimeLoaded = false;
 
-		// String sParamfile = Utils.GetHomeDir() + "/" + CgConst.CG_DIR + "/" +
-		// Paramfile + ".par";
-
 		// -- Search the curve in a special order (user>min_miles>km_h)
-		int FolderType = Utils.searchCurveFolder(Paramfile);
-		String sParamfile = Utils.getSelectedCurveFolder(FolderType) + Paramfile + ".par";
-
-		try {
-			param.Load(sParamfile);
-		} catch (Exception e) {
-			return;
+		CurveRepository.Curve curve = CurveRepository.getInstance().get(Paramfile);
+		if (curve == null) {
+			return false;
 		}
+		curve.copyTo(param);
+		speedTable = curve.getSpeedTable();
 
-		ef = 1;
+		return CalcTime(0, progress);
+	} // Calculate
 
-		dt = 0;
-		// -- Calculation loop --
-		for (CgData r : data) {
-			x = r.getSlope();
-			if (x > CgConst.MAX_CLIMB) {
-				x = CgConst.MAX_CLIMB;
-			}
-			if (x < CgConst.MIN_CLIMB) {
-				x = CgConst.MIN_CLIMB;
-			}
-			ok = false;
-			for (j = 0; j <= param.data.size() - 1; j++) // -2
-			{
-				tmp = param.data.get(j).getSlope();
-				if (tmp >= x) {
-					k = j - 1;
-					if (j == 0) {
-						k = 0;
-					}
-					x1 = param.data.get(k).getSlope();
-					y1 = param.data.get(k).getSpeedNumber();
-					x2 = param.data.get(j).getSlope();
-					y2 = param.data.get(j).getSpeedNumber();
-					ok = true;
-					break;
-				}
-			} // for j
-
-			if (ok) {
-				// We give 2 points (slope/speed) and we get "a" and
-				// "b" from the line equation
-				if (x1 != x2) {
-					Utils.CalcLineResult res = new CalcLineResult();
-					res = Utils.CalcLine(x1, y1, x2, y2, res);
-					// We calculate the line equation. "Y"=speed in km/h
-					// and "X"=slope
-					y = res.a * x + res.b;
-				} else {
-					y = y1;
-				}
-			} else {
-				y = param.data.get(param.data.size() - 2).getSpeedNumber();
-			}
+	/**
+	 * Stop the calculation running in another thread. Used on a copy of the track
+	 * which is thrown away after the cancellation
+	 */
+	public void CancelCalculation() {
+		CalcCancelled = true;
+	}
 
-			// --Night coeff --
-			DateTime t = r.getHour();
-			if (bNightCoeff
-					&& ((Utils.CompareHMS(t, StartNightTime) >= 0) || (Utils.CompareHMS(t, EndNightTime) <= 0))) {
-				if (r.getSlope() < -2.0) {
-					night = 100.0 / NightCoeffDesc;
-					r.setNight(true);
-				} else {
-					night = 100.0 / NightCoeffAsc;
-					r.setNight(true);
-				}
-			} else {
-				night = 1;
-				r.setNight(false);
-			}
+	/**
+	 * Copy the result of a time calculation done on a copy of this track (see
+	 * {@link #CopyForCalculation(TrackData)}, {@link #Calculate(IntConsumer)} and
+	 * {@link #CalcClimb(int, int, int, CalcClimbResult)}). The caller must check
+	 * that the positions have not been modified since the copy
+	 * 
+	 * @param calc Calculated copy of the track
+	 * @return False if the curve or the settings of the track have changed since
+	 *         the copy. Nothing is copied
+	 */
+	public boolean ApplyCalculation(TrackData calc) {
+		if (!calc.isCalculated || (calc.data.size() != data.size()) || !Paramfile.equals(calc.CalcParamfile)
+				|| !getCalcSignature().equals(calc.CalcSignature))
+			return false;
+
+		data.copyTimes(calc.data);
+		param = calc.param;
+		speedTable = calc.speedTable;
+		isTimeLoaded = false;
 
-			// --Elev effect --
-			if (bElevEffect && ((double) r.getElevation(CgConst.UNIT_METER) > 1500.0)) {
-				ef = 1.0 + (Math.round(((double) r.getElevation(CgConst.UNIT_METER) - 1500.0) / 100.0) / 100.0);
-			} else {
-				ef = 1.0;
-			}
-			// --
-			double dist = r.getDist(CgConst.UNIT_METER);
-			double coeff = 100.0;
-			double diff = 100.0;
+		DistRoad = calc.DistRoad;
+		TotalTime = calc.TotalTime;
+		ClimbP = calc.ClimbP;
+		ClimbM = calc.ClimbM;
+		AscTime = calc.AscTime;
+		DescTime = calc.DescTime;
+		isTimeLimit = calc.isTimeLimit;
+		TimeLimit_Line = calc.TimeLimit_Line;
+		isCalculated = true;
+		isModified = true;
 
-			if (coeff != 0.0) {
-				coeff = 100.0 / r.getCoeff();
-			}
-			if (diff != 0) {
-				diff = 100.0 / r.getDiff();
-			}
+		CalcVersion = data.getStructureVersion();
+		CalcParamfile = calc.CalcParamfile;
+		CalcSignature = calc.CalcSignature;
+		DirtyStart = data.size();
+		return true;
+	}
 
-			double station = (double) (r.getStation());
+	/**
+	 * Calculate the time of the positions from 'start' to the end of the track
+	 * with the curve already loaded in 'param'. The positions before 'start' must
+	 * be up to date
+	 * 
+	 * @param start Index of the first position to calculate
+	 */
+	private void CalcTime(int start) {
+		CalcTime(start, null);
+	}
 
-			if (y != 0.0) {
-				// Calculate the travel time in second in a part of the track
-				ts = (dist / (y / 3.6)) * coeff * diff * night * ef + station;
-			} else {
-				ts = 0.0;
+	/**
+	 * Calculate the time of the positions from 'start' to the end of the track
+	 * with the curve already loaded in 'param'. The positions before 'start' must
+	 * be up to date
+	 * 
+	 * @param start    Index of the first position to calculate
+	 * @param progress Receive the progress of the calculation (0-100). Can be null
+	 * @return False if the calculation has been cancelled by
+	 *         {@link #CancelCalculation()}
+	 */
+	private boolean CalcTime(int start, IntConsumer progress) {
+		double ts = 0.0;
+		double dt = 0.0;
+
+		// -- Time at the end of the previous position. Same summation order as
+		// the full calculation so the result is identical
+		dt = 0;
+		for (int i = 0; i < start; i++) {
+			dt = dt + data.dTimeF[i];
+		}
+
+		final long startTime = StartTime.getMillis();
+		final short chrono = data.chronologyIndex(StartTime.getChronology());
+		// -- Calculation loop --
+		for (int i = start; i < data.size(); i++) {
+			if ((i & CALC_STEP_MASK) == 0) {
+				if (CalcCancelled)
+					return false;
+				if (progress != null)
+					progress.accept((int) (i * 100L / data.size()));
 			}
+
+			boolean isNight = bNightCoeff && isNightHour(data.getHour(i));
+			data.setFlag(i, TrackStore.FLAG_NIGHT, isNight);
+
+			ts = CalcTravelTime(speedTable, i, isNight);
 			dt = dt + ts;
 
-			r.setdTime_f(ts);
-			r.setTime((int) Math.round(dt));
+			data.dTimeF[i] = ts;
+			data.time[i] = (int) Math.round(dt);
 
+			double dist = data.dist[i];
 			if (ts != 0.0) {
-				r.setSpeed(dist * 3.6 / ts);
+				data.speed[i] = dist * 3.6 / ts;
 			} else {
-				r.setSpeed(0.0);
+				data.speed[i] = 0.0;
 			}
-			r.setHour(StartTime.plusSeconds((int) (Math.round(dt))));
+			data.setHour(i, startTime + data.time[i] * 1000L, chrono);
 		} // End of the calculation loop --
+		data.changed(start);
 
 		// -- Update the road distance for the track
 		DistRoad = CalcRoad(0, data.size() - 1);
@@ -1570,7 +1641,156 @@ public class TrackData {
 		TotalTime = (int) Math.round(dt);
 		isCalculated = true;
 		isModified = true;
-	} // Calculate
+
+		CalcVersion = data.getStructureVersion();
+		CalcParamfile = Paramfile;
+		CalcSignature = getCalcSignature();
+		DirtyStart = data.size();
+		return true;
+	} // CalcTime
+
+	/**
+	 * Calculate the total time of the track with a curve, without modifying the
+	 * track. The result is the total time calculated by {@link #Calculate()}
+	 * with the same curve. The track can be read by several threads at the same
+	 * time if it is not modified
+	 * 
+	 * @param p Curve to use
+	 * @return Total time in second. -1 if the calculation has been cancelled
+	 *         (see {@link #CancelCalculation()})
+	 */
+	public int CalcTotalTime(SpeedTable p) {
+		double dt = 0.0;
+		for (int i = 0; i < data.size(); i++) {
+			if (((i & CALC_STEP_MASK) == 0) && CalcCancelled)
+				return -1;
+			dt = dt + CalcTravelTime(p, i, bNightCoeff && isNightHour(data.getHour(i)));
+		}
+		return (int) Math.round(dt);
+	}
+
+	/**
+	 * Calculate the travel time in second in a part of the track
+	 * 
+	 * @param p       Curve to use
+	 * @param i       Index of the position at the end of the part
+	 * @param isNight True if the position is in the night period
+	 * @return Travel time in second (including the time at the station)
+	 */
+	private double CalcTravelTime(SpeedTable p, int i, boolean isNight) {
+		double y = p.getSpeed(data.slope[i]);
+
+		// --Night coeff --
+		double night = 1.0;
+		if (isNight) {
+			if (data.slope[i] < -2.0) {
+				night = 100.0 / NightCoeffDesc;
+			} else {
+				night = 100.0 / NightCoeffAsc;
+			}
+		}
+
+		// --Elev effect --
+		double ef = 1.0;
+		double elevation = data.ele[i];
+		if (bElevEffect && (elevation > 1500.0)) {
+			ef = 1.0 + (Math.round((elevation - 1500.0) / 100.0) / 100.0);
+		}
+		// --
+		double dist = data.dist[i];
+		double coeff = 100.0;
+		double diff = 100.0;
+
+		if (coeff != 0.0) {
+			coeff = 100.0 / data.coeff[i];
+		}
+		if (diff != 0) {
+			diff = 100.0 / data.diff[i];
+		}
+
+		double station = (double) (data.station[i]);
+
+		if (y != 0.0) {
+			return (dist / (y / 3.6)) * coeff * diff * night * ef + station;
+		} else {
+			return 0.0;
+		}
+	}
+
+	/**
+	 * Return a counter incremented at each modification of the positions of the
+	 * track (structure or values, including the result of a calculation). Used by
+	 * the panels to know if what they display is up to date
+	 */
+	public int getVersion() {
+		return data.getVersion();
+	}
+
+	/**
+	 * Indicate that the positions from 'start' have been modified and must be
+	 * recalculated by {@link #Recalculate()}
+	 * 
+	 * @param start Index of the first modified position
+	 */
+	public void MarkDirty(int start) {
+		if (start < 0)
+			start = 0;
+		if (start < DirtyStart)
+			DirtyStart = start;
+	}
+
+	/**
+	 * Recalculate the data of the track from the first position marked by
+	 * {@link #MarkDirty(int)}: distance, slope, climb, min/max elevation and, if
+	 * the time of the track has been calculated with the current curve, the time,
+	 * hour, speed and night flag. The curve is not reloaded. Positions before the
+	 * first modified position are not recalculated.
+	 */
+	public void Recalculate() {
+		int start = DirtyStart;
+		if (start >= data.size())
+			return;
+
+		CalcDist(start);
+		CalcSlope(start);
+
+		SearchMinMaxElevationResult resMinMaxElev = new SearchMinMaxElevationResult();
+		resMinMaxElev = SearchMinMaxElevation(0, (data.size() - 1), resMinMaxElev);
+		MinElev = resMinMaxElev.min;
+		MaxElev = resMinMaxElev.max;
+
+		if ((CalcParamfile != null) && CalcParamfile.equals(Paramfile) && (speedTable != null)) {
+			// -- The structure of the track or the settings have changed since the
+			// last calculation. The whole track must be recalculated
+			if ((CalcVersion != data.getStructureVersion()) || !CalcSignature.equals(getCalcSignature()))
+				start = 0;
+
+			CalcTime(start);
+			CheckTimeLimit();
+		} else {
+			// -- No calculation with the current curve. The user must launch it
+			isCalculated = false;
+			DirtyStart = data.size();
+		}
+
+		CalcClimbResult resClimb = new CalcClimbResult();
+		CalcClimb(CgConst.ELEV_NORM, 0, data.size() - 1, resClimb);
+		ClimbP = resClimb.cp;
+		ClimbM = resClimb.cm;
+		AscTime = resClimb.tp;
+		DescTime = resClimb.tm;
+
+		isModified = true;
+	}
+
+	/**
+	 * Return a string containing the settings of the track used by the time
+	 * calculation
+	 */
+	private String getCalcSignature() {
+		return StartTime.getMillis() + ";" + StartTime.getZone() + ";" + bNightCoeff + ";" + StartNightTime + ";"
+				+ EndNightTime + ";" + NightCoeffAsc + ";" + NightCoeffDesc + ";" + bElevEffect;
+	}
 
 	public void CalcSpeedWithTime() {
 		if (param == null) {
@@ -1579,19 +1799,20 @@ public class TrackData {
 
 		isTimeLoaded = false;
 
-		int prevTime = data.get(0).getTime();
+		int prevTime = data.time[0];
 		// -- Calculation loop --
-		for (CgData r : data) {
-			int dTime = r.getTime() - prevTime;
+		for (int i = 0; i < data.size(); i++) {
+			int dTime = data.time[i] - prevTime;
 
-			double dist = r.getDist(CgConst.UNIT_METER);
+			double dist = data.dist[i];
 			if (dTime != 0.0) {
-				r.setSpeed(dist * 3.6 / dTime);
+				data.speed[i] = dist * 3.6 / dTime;
 			} else {
-				r.setSpeed(0.0);
+				data.speed[i] = 0.0;
 			}
-			prevTime = r.getTime();
+			prevTime = data.time[i];
 		} // End of the calculation loop --
+		data.changed();
 		isModified = true;
 	} // Calculate
 
@@ -1601,17 +1822,19 @@ public class TrackData {
 	 */
 	public void SetNightBit() {
 		// -- Calculation loop --
-		for (CgData r : data) {
-			DateTime t = r.getHour();
-			if (bNightCoeff
-					&& ((Utils.CompareHMS(t, StartNightTime) >= 0) || (Utils.CompareHMS(t, EndNightTime) <= 0))) {
-				r.setNight(true);
-			} else {
-				r.setNight(false);
-			}
+		for (int i = 0; i < data.size(); i++) {
+			data.setFlag(i, TrackStore.FLAG_NIGHT, bNightCoeff && isNightHour(data.getHour(i)));
 		}
+		data.changed();
 	} // SetNightBit
 
+	/**
+	 * Indicate if an hour is in the night period
+	 */
+	private boolean isNightHour(DateTime t) {
+		return (Utils.CompareHMS(t, StartNightTime) >= 0) || (Utils.CompareHMS(t, EndNightTime) <= 0);
+	}
+
 	/**
 	 * Search the min/max elevation of the track
 	 */
@@ -1727,7 +1950,7 @@ public class TrackData {
 		if (data.size() >= 0) {
 
 			// -- Invert the list
-			Collections.reverse(data);
+			data.reverse();
 
 			// -- Set the line number
 			int n = 1;
@@ -1766,63 +1989,13 @@ public class TrackData {
 
 		if (data.size() >= 0) {
 
-			ArrayList<CgData> datatmp;
-
-			datatmp = new ArrayList<CgData>();
-
-			int n = start;
-			int nb = 0;
-			while (nb < data.size()) {
-				datatmp.add(new CgData((double) (nb + 1), data.get(n).getLatitude(), data.get(n).getLongitude(),
-						data.get(n).getElevation(CgConst.UNIT_METER),
-						data.get(n).getElevationNotSmoothed(CgConst.UNIT_METER),
-						data.get(n).getElevationSmoothed(CgConst.UNIT_METER), data.get(n).getElevationMemo(),
-						data.get(n).getTag(), data.get(n).getDist(CgConst.UNIT_METER),
-						data.get(n).getTotal(CgConst.UNIT_METER), data.get(n).getDiff(), data.get(n).getCoeff(), 0.0,
-						data.get(n).getSlope(), data.get(n).getSpeed(CgConst.UNIT_METER),
-						data.get(n).getdElevation(CgConst.UNIT_METER), data.get(n).getTime(), data.get(n).getdTime_f(),
-						data.get(n).getTimeLimit(), data.get(n).getHour(), data.get(n).getStation(),
-						data.get(n).getName(), data.get(n).getComment(), 0.0, 0.0, data.get(n).FmtLbMiniRoadbook,
-						data.get(n).OptionMiniRoadbook, data.get(n).VPosMiniRoadbook, data.get(n).CommentMiniRoadbook,
-						data.get(n).FontSizeMiniRoadbook));
-
-				nb++;
-				n++;
-				if (n >= data.size()) {
-					n = 0;
-				}
-			}
+			// -- Rotate the positions
+			data.rotate(start);
 
-			n = 0;
-			for (CgData r : data) {
-				r.setNum(datatmp.get(n).getNum());
-				r.setLatitude(datatmp.get(n).getLatitude());
-				r.setLongitude(datatmp.get(n).getLongitude());
-				r.setElevation(datatmp.get(n).getElevation(CgConst.UNIT_METER));
-				r.setElevationNotSmoothed(datatmp.get(n).getElevationNotSmoothed(CgConst.UNIT_METER));
-				r.setElevationSmoothed(datatmp.get(n).getElevationSmoothed(CgConst.UNIT_METER));
-				r.setElevationMemo(datatmp.get(n).getElevationMemo());
-				r.setTag(datatmp.get(n).getTag());
-				r.setDist(datatmp.get(n).getDist(CgConst.UNIT_METER));
-				r.setTotal(datatmp.get(n).getTotal(CgConst.UNIT_METER));
-				r.setDiff(datatmp.get(n).getDiff());
-				r.setCoeff(datatmp.get(n).getCoeff());
-				r.setSlope(datatmp.get(n).getSlope());
-				r.setSpeed(datatmp.get(n).getSpeed(CgConst.UNIT_METER));
-				r.setdElevation(datatmp.get(n).getdElevation(CgConst.UNIT_METER));
-				r.setTime(datatmp.get(n).getTime());
-				r.setdTime_f(datatmp.get(n).getdTime_f());
-				r.setTimeLimit(datatmp.get(n).getTimeLimit());
-				r.setHour(datatmp.get(n).getHour());
-				r.setStation(datatmp.get(n).getStation());
-				r.setName(datatmp.get(n).getName());
-				r.setComment(datatmp.get(n).getComment());
-				r.FmtLbMiniRoadbook = data.get(n).FmtLbMiniRoadbook;
-				r.OptionMiniRoadbook = data.get(n).OptionMiniRoadbook;
-				r.VPosMiniRoadbook = data.get(n).VPosMiniRoadbook;
-				r.CommentMiniRoadbook = data.get(n).CommentMiniRoadbook;
-				n++;
-			}
+			// -- Set the line number
+			for (int n = 0; n < data.size(); n++)
+				data.num[n] = n + 1;
+			data.changed();
 
 			CalcDist();
 			CalcSpeed(false);
@@ -1867,6 +2040,40 @@ public class TrackData {
 		if (ret != 0)
 			CgLog.error("TrackData.OpenCGX : Error while reading '" + name + "'. Line =" + CGXhandler.getErrLine());
 
+		EndOpen("OpenCGX", name, mode, backup);
+	}// LoadCGX
+
+	/**
+	 * Load a CGB file
+	 * 
+	 * @param name   name of the file
+	 * @param mode   reading mode (0=complet 1=partial)
+	 * @param backup Indicate if the load is a backup or not. If it's a backup the
+	 *               name will not be updated
+	 */
+	public void OpenCGB(Component parent, String name, int mode, boolean backup) {
+		int ret = 0;
+		try {
+			ret = CgbFile.read(parent, name, this, mode);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		if (ret != 0)
+			CgLog.error("TrackData.OpenCGB : Error while reading '" + name + "'. Error =" + ret);
+
+		EndOpen("OpenCGB", name, mode, backup);
+	}
+
+	/**
+	 * Update the track after the load of a CGX or CGB file
+	 * 
+	 * @param from   name of the load method (for the log)
+	 * @param name   name of the file
+	 * @param mode   reading mode (0=complet 1=partial)
+	 * @param backup Indicate if the load is a backup or not
+	 */
+	private void EndOpen(String from, String name, int mode, boolean backup) {
 		CgLog.info(data.size() + " positions loaded.");
 
 		/*
@@ -1886,6 +2093,8 @@ public class TrackData {
 
 		isCalculated = false;
 		isModified = false;
+		// -- The time has not been calculated with the curve
+		CalcParamfile = null;
 		if (mode == 0)
 			isNewTrack = true;
 
@@ -1918,18 +2127,17 @@ public class TrackData {
 			//String Dir = new File(name).getAbsolutePath();
 			switch (mode) {
 			case 1:
-				CgLog.info("TrackData.OpenCGX : '" + name + "' imported at the end of the data");
+				CgLog.info("TrackData." + from + " : '" + name + "' imported at the end of the data");
 				break;
 			case 2:
-				CgLog.info("TrackData.OpenCGX : '" + name + "' imported at the start of the data");
+				CgLog.info("TrackData." + from + " : '" + name + "' imported at the start of the data");
 				break;
 			default:
-				CgLog.info("TrackData.OpenCGX : '" + name + "' loaded");
+				CgLog.info("TrackData." + from + " : '" + name + "' loaded");
 			}
 		}
 		FullName = name;
-
-	}// LoadCGX
+	}
 
 	/**
 	 * Save data in CGX format (complete and partial)
@@ -2028,11 +2236,11 @@ public class TrackData {
 				Utils.WriteStringToXML(writer, "COMMENT", r.getComment());
 				Utils.WriteStringToXML(writer, "NAME", r.getName());
 				Utils.WriteIntToXML(writer, "TAG", r.getTag());
-				Utils.WriteStringToXML(writer, "FMTLBMINIROADBOOK", r.FmtLbMiniRoadbook);
-				Utils.WriteIntToXML(writer, "OPTMINIROADBOOK", r.OptionMiniRoadbook);
-				Utils.WriteIntToXML(writer, "VPOSMINIROADBOOK", r.VPosMiniRoadbook);
-				Utils.WriteStringToXML(writer, "COMMENTMINIROADBOOK", r.CommentMiniRoadbook);
-				Utils.WriteIntToXML(writer, "FONTSIZEMINIROADBOOK", r.FontSizeMiniRoadbook);
+				Utils.WriteStringToXML(writer, "FMTLBMINIROADBOOK", r.getFmtLbMiniRoadbook());
+				Utils.WriteIntToXML(writer, "OPTMINIROADBOOK", r.getOptionMiniRoadbook());
+				Utils.WriteIntToXML(writer, "VPOSMINIROADBOOK", r.getVPosMiniRoadbook());
+				Utils.WriteStringToXML(writer, "COMMENTMINIROADBOOK", r.getCommentMiniRoadbook());
+				Utils.WriteIntToXML(writer, "FONTSIZEMINIROADBOOK", r.getFontSizeMiniRoadbook());
 
 				writer.writeEndElement();
 				cmpt++;
@@ -2181,6 +2389,37 @@ public class TrackData {
 		CgLog.info("Save time : " + (System.currentTimeMillis() - ts) + "ms");
 	}
 
+	/**
+	 * Save data in CGB format (complete and partial)
+	 * 
+	 * @param name  name of the file
+	 * @param start first line to save
+	 * @param end   last line to save
+	 */
+	public void SaveCGB(String name, int start, int end, boolean backup) {
+		if (data.isEmpty()) {
+			return;
+		}
+
+		long ts = System.currentTimeMillis();
+
+		try {
+			CgbFile.write(name, this, start, end);
+
+			if (!backup) {
+				isModified = false;
+				Name = new File(name).getName();
+				CgLog.info("TrackData.SaveCGB : '" + name + "' saved");
+				CgLog.info((end - start + 1) + " positions saved.");
+			}
+			FullName = name;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		CgLog.info("Save time : " + (System.currentTimeMillis() - ts) + "ms");
+	}
+
 	/**
 	 * Save CSV file
 	 * 
@@ -2278,312 +2517,17 @@ public class TrackData {
 	}
 
 	/**
-	 * Calculate the night and day time, speed and distance
-	 */
-	public void CalcStatNight() {
-		if (data.size() <= 0) {
-			return;
-		}
-
-		tInNight.Init();
-		tInDay.Init();
-
-		boolean first = true;
-		for (CgData r : data) {
-			if (!first) {
-				if (bNightCoeff && ((r.getHour().getSecondOfDay() >= StartNightTime.getSecondOfDay())
-						|| (r.getHour().getSecondOfDay() <= EndNightTime.getSecondOfDay()))) {
-					tInNight.Time = tInNight.Time + r.getdTime_f();
-					tInNight.setSpeed(tInNight.getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					tInNight.setDist(tInNight.getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					tInNight.Cmpt++;
-				} else {
-					tInDay.Time = tInDay.Time + r.getdTime_f();
-					tInDay.setSpeed(tInDay.getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					tInDay.setDist(tInDay.getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					tInDay.Cmpt++;
-				}
-			} else {
-				first = false;
-			}
-		}
-	}
-
-	/**
-	 * Calculate the slope statistic
+	 * Calculate the statistics of the track: time, speed and distance by slope,
+	 * by elevation (all, night and day) and during the night and the day
 	 */
-	public void CalcStatSlope() {
+	public void CalcStat() {
 		if (data.size() <= 0) {
 			return;
 		}
 
-		for (StatData st : StatSlope)
-			st.Init();
-
-		int j = 0;
-		boolean first = true;
-		for (CgData r : data) {
-			if (!first) {
-				if (r.getSlope() < -40) {
-					j = 0;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() >= -40) && (r.getSlope() < -30)) {
-					j = 1;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() >= -30) && (r.getSlope() < -20)) {
-					j = 2;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() >= -20) && (r.getSlope() < -10)) {
-					j = 3;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() >= -10) && (r.getSlope() < -5)) {
-					j = 4;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() >= -5) && (r.getSlope() < -2)) {
-					j = 5;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() >= -2) && (r.getSlope() <= 2)) {
-					j = 6;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() > 2) && (r.getSlope() <= 5)) {
-					j = 7;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() > 5) && (r.getSlope() <= 10)) {
-					j = 8;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() > 10) && (r.getSlope() <= 20)) {
-					j = 9;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() > 20) && (r.getSlope() <= 30)) {
-					j = 10;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if ((r.getSlope() > 30) && (r.getSlope() <= 40)) {
-					j = 11;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				} else if (r.getSlope() > 40) {
-					j = 12;
-					StatSlope[j].setSpeed(StatSlope[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatSlope[j].setDist(StatSlope[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatSlope[j].Time = StatSlope[j].Time + r.getdTime_f();
-					StatSlope[j].Cmpt++;
-				}
-			} else {
-				first = false;
-			}
-		} // foreach
-	}
-
-	/**
-	 * Calculate the elevation statistic
-	 */
-	public void CalcStatElev() {
-		if (data.size() <= 0) {
-			return;
-		}
-
-		for (StatData st : StatElev)
-			st.Init();
-
-		for (StatData st : StatElevNight)
-			st.Init();
-
-		for (StatData st : StatElevDay)
-			st.Init();
-
-		int j = 0;
-		boolean first = true;
-		for (CgData r : data) {
-			if (!first) {
-				if (r.getElevation(CgConst.UNIT_METER) < 1000) {
-					j = 0;
-					StatElev[j].setSpeed(StatElev[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatElev[j].setDist(StatElev[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatElev[j].Time = StatElev[j].Time + r.getdTime_f();
-					StatElev[j].Cmpt++;
-
-					// Night
-					if (bNightCoeff && ((r.getHour().getSecondOfDay() >= StartNightTime.getSecondOfDay())
-							|| (r.getHour().getSecondOfDay() <= EndNightTime.getSecondOfDay()))) {
-						StatElevNight[j].Time = StatElevNight[j].Time + r.getdTime_f();
-						StatElevNight[j].setSpeed(
-								StatElevNight[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevNight[j]
-								.setDist(StatElevNight[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevNight[j].Cmpt++;
-					} else // Day
-					{
-						StatElevDay[j].Time = StatElevDay[j].Time + r.getdTime_f();
-						StatElevDay[j]
-								.setSpeed(StatElevDay[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevDay[j]
-								.setDist(StatElevDay[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevDay[j].Cmpt++;
-					}
-				} else if ((r.getElevation(CgConst.UNIT_METER) >= 1000)
-						&& (r.getElevation(CgConst.UNIT_METER) < 1500)) {
-					j = 1;
-					StatElev[j].setSpeed(StatElev[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatElev[j].setDist(StatElev[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatElev[j].Time = StatElev[j].Time + r.getdTime_f();
-					StatElev[j].Cmpt++;
-					// Night
-					if (bNightCoeff && ((r.getHour().getSecondOfDay() >= StartNightTime.getSecondOfDay())
-							|| (r.getHour().getSecondOfDay() <= EndNightTime.getSecondOfDay()))) {
-						StatElevNight[j].Time = StatElevNight[j].Time + r.getdTime_f();
-						StatElevNight[j].setSpeed(
-								StatElevNight[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevNight[j]
-								.setDist(StatElevNight[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevNight[j].Cmpt++;
-					} else // Day
-					{
-						StatElevDay[j].Time = StatElevDay[j].Time + r.getdTime_f();
-						StatElevDay[j]
-								.setSpeed(StatElevDay[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevDay[j]
-								.setDist(StatElevDay[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevDay[j].Cmpt++;
-					}
-				} else if ((r.getElevation(CgConst.UNIT_METER) >= 1500)
-						&& (r.getElevation(CgConst.UNIT_METER) < 2000)) {
-					j = 2;
-					StatElev[j].setSpeed(StatElev[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatElev[j].setDist(StatElev[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatElev[j].Time = StatElev[j].Time + r.getdTime_f();
-					StatElev[j].Cmpt++;
-					// Night
-					if (bNightCoeff && ((r.getHour().getSecondOfDay() >= StartNightTime.getSecondOfDay())
-							|| (r.getHour().getSecondOfDay() <= EndNightTime.getSecondOfDay()))) {
-						StatElevNight[j].Time = StatElevNight[j].Time + r.getdTime_f();
-						StatElevNight[j].setSpeed(
-								StatElevNight[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevNight[j]
-								.setDist(StatElevNight[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevNight[j].Cmpt++;
-					} else // Day
-					{
-						StatElevDay[j].Time = StatElevDay[j].Time + r.getdTime_f();
-						StatElevDay[j]
-								.setSpeed(StatElevDay[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevDay[j]
-								.setDist(StatElevDay[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevDay[j].Cmpt++;
-					}
-				} else if ((r.getElevation(CgConst.UNIT_METER) >= 2000)
-						&& (r.getElevation(CgConst.UNIT_METER) < 2500)) {
-					j = 3;
-					StatElev[j].setSpeed(StatElev[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatElev[j].setDist(StatElev[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatElev[j].Time = StatElev[j].Time + r.getdTime_f();
-					StatElev[j].Cmpt++;
-					// Night
-					if (bNightCoeff && ((r.getHour().getSecondOfDay() >= StartNightTime.getSecondOfDay())
-							|| (r.getHour().getSecondOfDay() <= EndNightTime.getSecondOfDay()))) {
-						StatElevNight[j].Time = StatElevNight[j].Time + r.getdTime_f();
-						StatElevNight[j].setSpeed(
-								StatElevNight[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevNight[j]
-								.setDist(StatElevNight[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevNight[j].Cmpt++;
-					} else // Day
-					{
-						StatElevDay[j].Time = StatElevDay[j].Time + r.getdTime_f();
-						StatElevDay[j]
-								.setSpeed(StatElevDay[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevDay[j]
-								.setDist(StatElevDay[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevDay[j].Cmpt++;
-					}
-				} else if ((r.getElevation(CgConst.UNIT_METER) >= 2500)
-						&& (r.getElevation(CgConst.UNIT_METER) < 3000)) {
-					j = 4;
-					StatElev[j].setSpeed(StatElev[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatElev[j].setDist(StatElev[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatElev[j].Time = StatElev[j].Time + r.getdTime_f();
-					StatElev[j].Cmpt++;
-					// Night
-					if (bNightCoeff && ((r.getHour().getSecondOfDay() >= StartNightTime.getSecondOfDay())
-							|| (r.getHour().getSecondOfDay() <= EndNightTime.getSecondOfDay()))) {
-						StatElevNight[j].Time = StatElevNight[j].Time + r.getdTime_f();
-						StatElevNight[j].setSpeed(
-								StatElevNight[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevNight[j]
-								.setDist(StatElevNight[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevNight[j].Cmpt++;
-					} else // Day
-					{
-						StatElevDay[j].Time = StatElevDay[j].Time + r.getdTime_f();
-						StatElevDay[j]
-								.setSpeed(StatElevDay[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevDay[j]
-								.setDist(StatElevDay[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevDay[j].Cmpt++;
-					}
-				} else if ((r.getElevation(CgConst.UNIT_METER) >= 3000)) {
-					j = 5;
-					StatElev[j].setSpeed(StatElev[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-					StatElev[j].setDist(StatElev[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-					StatElev[j].Time = StatElev[j].Time + r.getdTime_f();
-					StatElev[j].Cmpt++;
-					// Night
-					if (bNightCoeff && ((r.getHour().getSecondOfDay() >= StartNightTime.getSecondOfDay())
-							|| (r.getHour().getSecondOfDay() <= EndNightTime.getSecondOfDay()))) {
-						StatElevNight[j].Time = StatElevNight[j].Time + r.getdTime_f();
-						StatElevNight[j].setSpeed(
-								StatElevNight[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevNight[j]
-								.setDist(StatElevNight[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevNight[j].Cmpt++;
-					} else // Day
-					{
-						StatElevDay[j].Time = StatElevDay[j].Time + r.getdTime_f();
-						StatElevDay[j]
-								.setSpeed(StatElevDay[j].getSpeed(CgConst.UNIT_METER) + r.getSpeed(CgConst.UNIT_METER));
-						StatElevDay[j]
-								.setDist(StatElevDay[j].getDist(CgConst.UNIT_METER) + r.getDist(CgConst.UNIT_METER));
-						StatElevDay[j].Cmpt++;
-					}
-				}
-			} else {
-				first = false;
-			}
-		}
+		TrackStatistics stat = TrackStatistics.calculate(data, bNightCoeff, StartNightTime.getSecondOfDay(),
+				EndNightTime.getSecondOfDay());
+		stat.copyTo(StatSlope, StatElev, StatElevNight, StatElevDay, tInNight, tInDay);
 	}
 
 	/**
@@ -2594,48 +2538,7 @@ public class TrackData {
 	 * @return index of the nearest point in the point list
 	 */
 	public int FindNearestPoint(double lat, double lon) {
-		double a, c, dDistance, dLat1InRad, dLong1InRad, dLat2InRad, dLong2InRad, dLongitude, dLatitude;
-		double kEarthRadiusKms;
-		double min;
-		int index = -1;
-		int i = 0;
-
-		min = 99999999;
-
-		double k = Math.PI / 180.0;
-
-		dLat1InRad = lat * k;
-		dLong1InRad = lon * k;
-
-		for (CgData r : data) {
-			kEarthRadiusKms = 6378.14; // 6376.5
-
-			dDistance = 0; // Double.MinValue
-			dLat2InRad = r.getLatitude() * k;
-			dLong2InRad = r.getLongitude() * k;
-
-			dLongitude = dLong2InRad - dLong1InRad;
-			dLatitude = dLat2InRad - dLat1InRad;
-
-			// Intermediate result a.
-			a = Math.pow(Math.sin(dLatitude / 2.0), 2.0)
-					+ Math.cos(dLat1InRad) * Math.cos(dLat2InRad) * Math.pow(Math.sin(dLongitude / 2.0), 2.0);
-
-			// Intermediate result c (great circle distance in Radians)
-			c = 2.0 * Math.atan2(Math.sqrt(a), Math.sqrt(1.0 - a));
-
-			// Distance.
-			dDistance = kEarthRadiusKms * c * 1000.0;
-			if (dDistance < min) {
-				min = dDistance;
-				index = i;
-			}
-
-			i++;
-		}
-
-		// Résultat en mètres
-		return index;
+		return spatialIndex.nearest(lat, lon);
 	}
 
 	/**
@@ -2753,15 +2656,14 @@ public class TrackData {
 		int i = 0;
 
 		d.param = param;
+		d.speedTable = speedTable;
 		d.Paramfile = Paramfile;
 
-		d.data.clear();
-		for (CgData r : data) {
-			CgData n = new CgData();
-			n = r.CopyTo(n);
-
-			d.data.add(n);
-		}
+		d.data.copyFrom(data);
+		d.DirtyStart = DirtyStart;
+		d.CalcVersion = (CalcVersion == data.getStructureVersion()) ? d.data.getStructureVersion() : -1;
+		d.CalcParamfile = CalcParamfile;
+		d.CalcSignature = CalcSignature;
 
 		d.tInNight = tInNight.CopyTo(d.tInNight);
 		d.tInDay = tInDay.CopyTo(d.tInDay);
@@ -2848,6 +2750,175 @@ public class TrackData {
 		return d;
 	}
 
+	/**
+	 * Copy in 'd' the positions and the settings read by the time calculation
+	 * ({@link #Calculate(IntConsumer)}, {@link #CalcClimb(int, int, int, CalcClimbResult)}
+	 * and {@link #CheckTimeLimit()}). The result is copied back by
+	 * {@link #ApplyCalculation(TrackData)}
+	 * 
+	 * @param d Destination track
+	 * @return The destination track
+	 */
+	public TrackData CopyForCalculation(TrackData d) {
+		d.param = param;
+		d.speedTable = speedTable;
+		d.Paramfile = Paramfile;
+
+		d.data.copyCalculationFrom(data);
+
+		d.StartTime = StartTime;
+		d.StartNightTime = StartNightTime;
+		d.EndNightTime = EndNightTime;
+		d.bNightCoeff = bNightCoeff;
+		d.NightCoeffAsc = NightCoeffAsc;
+		d.NightCoeffDesc = NightCoeffDesc;
+		d.bElevEffect = bElevEffect;
+		return d;
+	}
+
+	/**
+	 * Values of the track set by the load of a file, except the positions. Used
+	 * to cancel an import (see {@link TrackJournal})
+	 */
+	public static class Header {
+		private final String Name;
+		private final String FullName;
+		private final boolean isNewTrack;
+		private final String CourseName;
+		private final String Description;
+		private final String Paramfile;
+		private final String CalcParamfile;
+		private final String CalcSignature;
+		private final HistoricalWeather historicalWeatherData;
+		private final int TotalTime;
+		private final boolean isTimeLoaded;
+		private final boolean isCalculated;
+		private final DateTime StartTime;
+		private final int timeZoneOffsetHours;
+		private final String timeZoneId;
+		private final boolean TrackUseDaylightSaving;
+		private final DateTime StartNightTime;
+		private final DateTime EndNightTime;
+		private final boolean bNightCoeff;
+		private final double NightCoeffAsc;
+		private final double NightCoeffDesc;
+		private final boolean bElevEffect;
+		private final double StartGlobalCoeff;
+		private final double EndGlobalCoeff;
+		private final int SmoothFilter;
+		private final int MrbSizeW;
+		private final int MrbSizeH;
+		private final int CurveFilter;
+		private final int WordWrapLength;
+		private final boolean LabelToBottom;
+		private final int MRBType;
+		private final int TopMargin;
+		private final boolean bShowNightDay;
+		private final Color clProfil_Simple_Fill;
+		private final Color clProfil_Simple_Border;
+		private final Color clProfil_RS_Road;
+		private final Color clProfil_RS_Path;
+		private final Color clProfil_RS_Border;
+		private final Color clProfil_SlopeBorder;
+
+		private Header(TrackData t) {
+			Name = t.Name;
+			FullName = t.FullName;
+			isNewTrack = t.isNewTrack;
+			CourseName = t.CourseName;
+			Description = t.Description;
+			Paramfile = t.Paramfile;
+			CalcParamfile = t.CalcParamfile;
+			CalcSignature = t.CalcSignature;
+			historicalWeatherData = t.historicalWeatherData;
+			TotalTime = t.TotalTime;
+			isTimeLoaded = t.isTimeLoaded;
+			isCalculated = t.isCalculated;
+			StartTime = t.StartTime;
+			timeZoneOffsetHours = t.timeZoneOffsetHours;
+			timeZoneId = t.timeZoneId;
+			TrackUseDaylightSaving = t.TrackUseDaylightSaving;
+			StartNightTime = t.StartNightTime;
+			EndNightTime = t.EndNightTime;
+			bNightCoeff = t.bNightCoeff;
+			NightCoeffAsc = t.NightCoeffAsc;
+			NightCoeffDesc = t.NightCoeffDesc;
+			bElevEffect = t.bElevEffect;
+			StartGlobalCoeff = t.StartGlobalCoeff;
+			EndGlobalCoeff = t.EndGlobalCoeff;
+			SmoothFilter = t.SmoothFilter;
+			MrbSizeW = t.MrbSizeW;
+			MrbSizeH = t.MrbSizeH;
+			CurveFilter = t.CurveFilter;
+			WordWrapLength = t.WordWrapLength;
+			LabelToBottom = t.LabelToBottom;
+			MRBType = t.MRBType;
+			TopMargin = t.TopMargin;
+			bShowNightDay = t.bShowNightDay;
+			clProfil_Simple_Fill = t.clProfil_Simple_Fill;
+			clProfil_Simple_Border = t.clProfil_Simple_Border;
+			clProfil_RS_Road = t.clProfil_RS_Road;
+			clProfil_RS_Path = t.clProfil_RS_Path;
+			clProfil_RS_Border = t.clProfil_RS_Border;
+			clProfil_SlopeBorder = t.clProfil_SlopeBorder;
+		}
+	}
+
+	/**
+	 * Return the values of the track set by the load of a file, except the
+	 * positions
+	 */
+	public Header getHeader() {
+		return new Header(this);
+	}
+
+	/**
+	 * Restore the values returned by {@link #getHeader()}. The data calculated
+	 * from the positions are not updated (see {@link #Recalculate()})
+	 */
+	public void setHeader(Header h) {
+		Name = h.Name;
+		FullName = h.FullName;
+		isNewTrack = h.isNewTrack;
+		CourseName = h.CourseName;
+		Description = h.Description;
+		Paramfile = h.Paramfile;
+		CalcParamfile = h.CalcParamfile;
+		CalcSignature = h.CalcSignature;
+		historicalWeatherData = h.historicalWeatherData;
+		TotalTime = h.TotalTime;
+		isTimeLoaded = h.isTimeLoaded;
+		isCalculated = h.isCalculated;
+		StartTime = h.StartTime;
+		timeZoneOffsetHours = h.timeZoneOffsetHours;
+		timeZoneId = h.timeZoneId;
+		TrackUseDaylightSaving = h.TrackUseDaylightSaving;
+		StartNightTime = h.StartNightTime;
+		EndNightTime = h.EndNightTime;
+		bNightCoeff = h.bNightCoeff;
+		NightCoeffAsc = h.NightCoeffAsc;
+		NightCoeffDesc = h.NightCoeffDesc;
+		bElevEffect = h.bElevEffect;
+		StartGlobalCoeff = h.StartGlobalCoeff;
+		EndGlobalCoeff = h.EndGlobalCoeff;
+		SmoothFilter = h.SmoothFilter;
+		MrbSizeW = h.MrbSizeW;
+		MrbSizeH = h.MrbSizeH;
+		CurveFilter = h.CurveFilter;
+		WordWrapLength = h.WordWrapLength;
+		LabelToBottom = h.LabelToBottom;
+		MRBType = h.MRBType;
+		TopMargin = h.TopMargin;
+		bShowNightDay = h.bShowNightDay;
+		clProfil_Simple_Fill = h.clProfil_Simple_Fill;
+		clProfil_Simple_Border = h.clProfil_Simple_Border;
+		clProfil_RS_Road = h.clProfil_RS_Road;
+		clProfil_RS_Path = h.clProfil_RS_Path;
+		clProfil_RS_Border = h.clProfil_RS_Border;
+		clProfil_SlopeBorder = h.clProfil_SlopeBorder;
+		isModified = true;
+	}
+
 	public HistoricalWeather getHistoricalWeather() {
 		return historicalWeatherData;
 	}
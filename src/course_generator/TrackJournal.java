@@ -0,0 +1,668 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Undo/redo journal of the edits of a track.
+ *
+ * Each edit keeps only what is needed to cancel it: the previous values of the
+ * modified columns for the modified positions, the inserted positions, or
+ * nothing at all for the edits that can be reverted by a computation
+ * ({@link TrackData#Invert()}, {@link TrackData#NewStartingPoint(int)}). The
+ * values are swapped between the edit and the track, so the same edit is used
+ * for the undo and the redo, and the time of both is proportional to the size
+ * of the edit. The data calculated from the modified positions are then
+ * recalculated by {@link TrackData#Recalculate()}.
+ *
+ * The oldest edits are dropped when the memory used by the journal is over the
+ * budget. The last edit is always kept.
+ */
+public class TrackJournal {
+
+	/** Difficulty of the positions **/
+	public static final int COL_DIFF = 0x01;
+	/** Health coefficient of the positions **/
+	public static final int COL_COEFF = 0x02;
+	/** Tags of the positions **/
+	public static final int COL_TAG = 0x04;
+	/**
+	 * Point information: tags, name, comment, station time, time limit and mini
+	 * roadbook settings
+	 **/
+	public static final int COL_POINT = 0x08 | COL_TAG;
+	/** All the values of the positions **/
+	public static final int COL_ALL = 0xFFFF;
+
+	/** Estimated size of a saved position (all the columns) in byte **/
+	private static final int ROW_BYTES = 256;
+	/** Estimated size of an edit without data in byte **/
+	private static final int EDIT_BYTES = 64;
+
+	/**
+	 * An edit of the track
+	 */
+	public static abstract class Edit {
+		/** Cancel the edit **/
+		abstract void undo(TrackData track);
+
+		/** Apply again the edit **/
+		abstract void redo(TrackData track);
+
+		/** Estimated memory used by the edit (byte) **/
+		abstract long getSize();
+	}
+
+	private final ArrayDeque<Edit> undoList = new ArrayDeque<Edit>();
+	private final ArrayDeque<Edit> redoList = new ArrayDeque<Edit>();
+	private final ArrayList<ChangeListener> listeners = new ArrayList<ChangeListener>();
+	/** Maximum memory used by the journal (byte) **/
+	private long budget;
+	/** Memory used by the journal (byte) **/
+	private long used = 0;
+
+	/**
+	 * @param budget Maximum memory used by the journal (byte)
+	 */
+	public TrackJournal(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Set the maximum memory used by the journal (byte)
+	 */
+	public void setBudget(long budget) {
+		this.budget = budget;
+		trim();
+		fireChanged();
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Return the estimated memory used by the journal (byte)
+	 */
+	public long getSize() {
+		return used;
+	}
+
+	public boolean canUndo() {
+		return !undoList.isEmpty();
+	}
+
+	public boolean canRedo() {
+		return !redoList.isEmpty();
+	}
+
+	/**
+	 * Return the number of edits that can be cancelled
+	 */
+	public int getUndoCount() {
+		return undoList.size();
+	}
+
+	/**
+	 * Remove all the edits. Must be called when a new track is loaded
+	 */
+	public void clear() {
+		undoList.clear();
+		redoList.clear();
+		used = 0;
+		fireChanged();
+	}
+
+	/**
+	 * Add a listener called when the content of the journal changes
+	 */
+	public void addChangeListener(ChangeListener listener) {
+		listeners.add(listener);
+	}
+
+	private void fireChanged() {
+		ChangeEvent e = new ChangeEvent(this);
+		for (ChangeListener l : listeners)
+			l.stateChanged(e);
+	}
+
+	/**
+	 * Add an edit to the journal. The edits that were cancelled can't be applied
+	 * again
+	 */
+	public void add(Edit edit) {
+		if (edit == null)
+			return;
+		for (Edit e : redoList)
+			used -= e.getSize();
+		redoList.clear();
+		undoList.push(edit);
+		used += edit.getSize();
+		trim();
+		fireChanged();
+	}
+
+	/**
+	 * Cancel the last edit
+	 *
+	 * @return 'false' if there is nothing to cancel
+	 */
+	public boolean undo(TrackData track) {
+		if (undoList.isEmpty())
+			return false;
+		Edit e = undoList.pop();
+		used -= e.getSize();
+		e.undo(track);
+		redoList.push(e);
+		used += e.getSize();
+		trim();
+		fireChanged();
+		return true;
+	}
+
+	/**
+	 * Apply again the last cancelled edit
+	 *
+	 * @return 'false' if there is nothing to apply
+	 */
+	public boolean redo(TrackData track) {
+		if (redoList.isEmpty())
+			return false;
+		Edit e = redoList.pop();
+		used -= e.getSize();
+		e.redo(track);
+		undoList.push(e);
+		used += e.getSize();
+		trim();
+		fireChanged();
+		return true;
+	}
+
+	/**
+	 * Drop the oldest edits until the journal is within the budget
+	 */
+	private void trim() {
+		while (used > budget && redoList.size() + undoList.size() > 1) {
+			// -- The edits the farthest from the current state go first
+			Edit e = (redoList.size() > undoList.size()) ? redoList.removeLast() : undoList.removeLast();
+			used -= e.getSize();
+		}
+	}
+
+	// -- Record of the edits ------------------------------------------------
+
+	/**
+	 * Save the values of positions before their modification. The edit is not
+	 * added to the journal, see {@link #add(Edit)}
+	 *
+	 * @param track   Track
+	 * @param start   Index of the first modified position
+	 * @param end     Index of the last modified position (included)
+	 * @param columns Modified columns (COL_xxx)
+	 * @return the edit. null if the range is empty
+	 */
+	public static Edit captureRange(TrackData track, int start, int end, int columns) {
+		start = Math.max(start, 0);
+		end = Math.min(end, track.data.size() - 1);
+		if (start > end)
+			return null;
+		return new RangeEdit(track.data, start, end - start + 1, columns);
+	}
+
+	/**
+	 * Save the values of isolated positions before their modification. The edit
+	 * is not added to the journal, see {@link #add(Edit)}
+	 *
+	 * @param track   Track
+	 * @param rows    Index of the modified positions (in any order)
+	 * @param columns Modified columns (COL_xxx)
+	 * @return the edit. null if there is no position
+	 */
+	public static Edit captureRows(TrackData track, int[] rows, int columns) {
+		int[] r = Arrays.stream(rows).filter(i -> i >= 0 && i < track.data.size()).sorted().distinct().toArray();
+		if (r.length == 0)
+			return null;
+		RangeEdit[] parts = new RangeEdit[r.length];
+		for (int i = 0; i < r.length; i++)
+			parts[i] = new RangeEdit(track.data, r[i], 1, columns);
+		return new RowsEdit(parts);
+	}
+
+	/**
+	 * Save the values of positions before their modification and add the edit to
+	 * the journal
+	 *
+	 * @see #captureRange(TrackData, int, int, int)
+	 */
+	public void recordRange(TrackData track, int start, int end, int columns) {
+		add(captureRange(track, start, end, columns));
+	}
+
+	/**
+	 * Record an inversion of the track ({@link TrackData#Invert()})
+	 */
+	public void recordInvert() {
+		add(new InvertEdit());
+	}
+
+	/**
+	 * Record a new starting point ({@link TrackData#NewStartingPoint(int)})
+	 *
+	 * @param start Index of the new starting point before the edit
+	 */
+	public void recordNewStartingPoint(int start) {
+		add(new NewStartEdit(start));
+	}
+
+	/**
+	 * Record an insertion of positions (import of a track). Must be called after
+	 * the insertion
+	 *
+	 * @param index Index of the first inserted position
+	 * @param count Number of inserted positions
+	 */
+	public void recordInsert(int index, int count) {
+		if (count > 0)
+			add(new InsertEdit(index, count));
+	}
+
+	/**
+	 * Record an import of a file in the track (insertion of positions and new
+	 * values of the track). Must be called after the import. The existing
+	 * positions must not have been modified by the import
+	 *
+	 * @param header Values of the track before the import
+	 *               ({@link TrackData#getHeader()})
+	 * @param index  Index of the first inserted position
+	 * @param count  Number of inserted positions
+	 */
+	public void recordImport(TrackData.Header header, int index, int count) {
+		if (count > 0)
+			add(new ImportEdit(header, index, count));
+	}
+
+	// -- Edits -------------------------------------------------------------
+
+	/**
+	 * Set the line numbers of the positions from 'start'
+	 */
+	private static void renumber(TrackStore data, int start) {
+		for (int i = start; i < data.size(); i++)
+			data.num[i] = i + 1;
+		data.changed(start);
+	}
+
+	/**
+	 * Modification of the values of consecutive positions
+	 */
+	static class RangeEdit extends Edit {
+		private final int start;
+		private final int count;
+		private final int columns;
+
+		// -- Saved values (null=column not saved)
+		private double[] diff;
+		private double[] coeff;
+		private int[] tag;
+		private int[] station;
+		private int[] timeLimit;
+		private int[] optMrb;
+		private int[] vposMrb;
+		private int[] fontSizeMrb;
+		private String[] fmtLbMrb;
+		private String[] name;
+		private String[] comment;
+		private String[] commentMrb;
+		/** Saved positions when all the columns are modified **/
+		private TrackStore rows;
+
+		RangeEdit(TrackStore data, int start, int count, int columns) {
+			this.start = start;
+			this.count = count;
+			this.columns = columns;
+
+			int end = start + count;
+			if (columns == COL_ALL) {
+				rows = data.copyRange(start, end);
+				return;
+			}
+			if ((columns & COL_DIFF) != 0)
+				diff = Arrays.copyOfRange(data.diff, start, end);
+			if ((columns & COL_COEFF) != 0)
+				coeff = Arrays.copyOfRange(data.coeff, start, end);
+			if ((columns & COL_TAG) != 0)
+				tag = Arrays.copyOfRange(data.tag, start, end);
+			if ((columns & COL_POINT) == COL_POINT) {
+				station = Arrays.copyOfRange(data.station, start, end);
+				timeLimit = Arrays.copyOfRange(data.timeLimit, start, end);
+				optMrb = Arrays.copyOfRange(data.optMrb, start, end);
+				vposMrb = Arrays.copyOfRange(data.vposMrb, start, end);
+				fontSizeMrb = Arrays.copyOfRange(data.fontSizeMrb, start, end);
+				fmtLbMrb = Arrays.copyOfRange(data.fmtLbMrb, start, end);
+				name = copyRange(data.name, start, count);
+				comment = copyRange(data.comment, start, count);
+				commentMrb = copyRange(data.commentMrb, start, count);
+			}
+		}
+
+		private static String[] copyRange(TrackStore.SparseStringColumn column, int start, int count) {
+			String[] r = new String[count];
+			for (int i = 0; i < count; i++)
+				r[i] = column.get(start + i);
+			return r;
+		}
+
+		/**
+		 * Exchange the saved values and the values of the track
+		 */
+		private void swap(TrackData track) {
+			swapValues(track.data);
+			update(track);
+		}
+
+		/**
+		 * Exchange the saved values and the values of the positions. The data
+		 * calculated from the positions are not updated
+		 */
+		void swapValues(TrackStore data) {
+			if (rows != null) {
+				TrackStore tmp = new TrackStore(1);
+				for (int i = 0; i < count; i++) {
+					tmp.copyRow(data, start + i, 0);
+					data.copyRow(rows, i, start + i);
+					rows.copyRow(tmp, 0, i);
+				}
+				data.positionChanged(start);
+			} else {
+				swap(data.diff, diff);
+				swap(data.coeff, coeff);
+				swap(data.tag, tag);
+				swap(data.station, station);
+				swap(data.timeLimit, timeLimit);
+				swap(data.optMrb, optMrb);
+				swap(data.vposMrb, vposMrb);
+				swap(data.fontSizeMrb, fontSizeMrb);
+				swap(data.fmtLbMrb, fmtLbMrb);
+				swap(data.name, name);
+				swap(data.comment, comment);
+				swap(data.commentMrb, commentMrb);
+				data.changed(start);
+			}
+		}
+
+		/**
+		 * Update the data calculated from the modified positions
+		 */
+		void update(TrackData track) {
+			// -- The tags are not used by the calculation
+			if (columns == COL_TAG) {
+				track.isModified = true;
+			} else {
+				track.MarkDirty(start);
+				track.Recalculate();
+			}
+		}
+
+		private void swap(double[] column, double[] saved) {
+			if (saved == null)
+				return;
+			for (int i = 0; i < count; i++) {
+				double t = column[start + i];
+				column[start + i] = saved[i];
+				saved[i] = t;
+			}
+		}
+
+		private void swap(int[] column, int[] saved) {
+			if (saved == null)
+				return;
+			for (int i = 0; i < count; i++) {
+				int t = column[start + i];
+				column[start + i] = saved[i];
+				saved[i] = t;
+			}
+		}
+
+		private void swap(String[] column, String[] saved) {
+			if (saved == null)
+				return;
+			for (int i = 0; i < count; i++) {
+				String t = column[start + i];
+				column[start + i] = saved[i];
+				saved[i] = t;
+			}
+		}
+
+		private void swap(TrackStore.SparseStringColumn column, String[] saved) {
+			if (saved == null)
+				return;
+			for (int i = 0; i < count; i++) {
+				String t = column.get(start + i);
+				column.set(start + i, saved[i]);
+				saved[i] = t;
+			}
+		}
+
+		@Override
+		void undo(TrackData track) {
+			swap(track);
+		}
+
+		@Override
+		void redo(TrackData track) {
+			swap(track);
+		}
+
+		@Override
+		long getSize() {
+			long bytesPerRow;
+			if (rows != null)
+				bytesPerRow = ROW_BYTES;
+			else {
+				bytesPerRow = 0;
+				if (diff != null)
+					bytesPerRow += 8;
+				if (coeff != null)
+					bytesPerRow += 8;
+				if (tag != null)
+					bytesPerRow += 4;
+				// -- 5 int columns and 4 string references
+				if (station != null)
+					bytesPerRow += 5 * 4 + 4 * 8;
+			}
+			return EDIT_BYTES + bytesPerRow * count;
+		}
+	}
+
+	/**
+	 * Modification of the values of isolated positions. The data calculated from
+	 * the positions are updated once from the first modified position
+	 */
+	static class RowsEdit extends Edit {
+		/** One edit per position, in the order of the positions **/
+		private final RangeEdit[] parts;
+
+		RowsEdit(RangeEdit[] parts) {
+			this.parts = parts;
+		}
+
+		private void swap(TrackData track) {
+			for (RangeEdit e : parts)
+				e.swapValues(track.data);
+			parts[0].update(track);
+		}
+
+		@Override
+		void undo(TrackData track) {
+			swap(track);
+		}
+
+		@Override
+		void redo(TrackData track) {
+			swap(track);
+		}
+
+		@Override
+		long getSize() {
+			long size = EDIT_BYTES;
+			for (RangeEdit e : parts)
+				size += e.getSize();
+			return size;
+		}
+	}
+
+	/**
+	 * Inversion of the track. The track is inverted again to cancel it
+	 */
+	static class InvertEdit extends Edit {
+		@Override
+		void undo(TrackData track) {
+			track.Invert();
+		}
+
+		@Override
+		void redo(TrackData track) {
+			track.Invert();
+		}
+
+		@Override
+		long getSize() {
+			return EDIT_BYTES;
+		}
+	}
+
+	/**
+	 * New starting point. The positions are rotated back to cancel it
+	 */
+	static class NewStartEdit extends Edit {
+		private final int start;
+
+		NewStartEdit(int start) {
+			this.start = start;
+		}
+
+		@Override
+		void undo(TrackData track) {
+			track.NewStartingPoint(track.data.size() - start);
+		}
+
+		@Override
+		void redo(TrackData track) {
+			track.NewStartingPoint(start);
+		}
+
+		@Override
+		long getSize() {
+			return EDIT_BYTES;
+		}
+	}
+
+	/**
+	 * Insertion of positions. The positions are kept by the edit while the
+	 * insertion is cancelled
+	 */
+	static class InsertEdit extends Edit {
+		private final int index;
+		private final int count;
+		/** Removed positions (null=the positions are in the track) **/
+		private TrackStore rows;
+
+		InsertEdit(int index, int count) {
+			this.index = index;
+			this.count = count;
+		}
+
+		@Override
+		void undo(TrackData track) {
+			rows = track.data.copyRange(index, index + count);
+			track.data.removeRange(index, index + count);
+			update(track);
+		}
+
+		@Override
+		void redo(TrackData track) {
+			track.data.insertRange(index, rows);
+			rows = null;
+			update(track);
+		}
+
+		private void update(TrackData track) {
+			renumber(track.data, index);
+			// -- The position before the insertion point is the first one whose
+			// distance changes
+			track.MarkDirty(index - 1);
+			track.Recalculate();
+		}
+
+		@Override
+		long getSize() {
+			return EDIT_BYTES + ((rows == null) ? 0 : (long) ROW_BYTES * count);
+		}
+	}
+
+	/**
+	 * Import of a file. The values of the track are exchanged with the saved ones
+	 * before the positions are removed or inserted again
+	 */
+	static class ImportEdit extends InsertEdit {
+		private TrackData.Header header;
+
+		ImportEdit(TrackData.Header header, int index, int count) {
+			super(index, count);
+			this.header = header;
+		}
+
+		private void swapHeader(TrackData track) {
+			TrackData.Header h = track.getHeader();
+			track.setHeader(header);
+			header = h;
+		}
+
+		@Override
+		void undo(TrackData track) {
+			swapHeader(track);
+			super.undo(track);
+			updateHours(track);
+		}
+
+		@Override
+		void redo(TrackData track) {
+			swapHeader(track);
+			super.redo(track);
+			updateHours(track);
+		}
+
+		/**
+		 * The load of a file sets the hours from the start time of the track. They
+		 * are set again when the time is not calculated with the curve
+		 */
+		private void updateHours(TrackData track) {
+			if (!track.isCalculated) {
+				track.CalcHour();
+				track.SetNightBit();
+			}
+		}
+	}
+}
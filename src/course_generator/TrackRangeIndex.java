@@ -0,0 +1,637 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator;
+
+import java.util.Arrays;
+
+import course_generator.TrackData.CalcAvrSlopeResult;
+import course_generator.TrackData.CalcClimbResult;
+import course_generator.utils.CgConst;
+
+/**
+ * Index answering the range queries of {@link TrackData} (climb, average
+ * slope, road distance, min/max elevation) without scanning the range, and
+ * the searches of a position from a distance or a time.
+ *
+ * The index is built on the first query. When the content of the store
+ * changes (see {@link TrackStore#getVersion()}), only the part after the first
+ * modified position ({@link TrackStore#getFirstChanged(int)}) is calculated
+ * again, like the calculation of the track after an edit (MarkDirty).
+ *
+ * Sums are stored as prefix sums built in the order of the original loops, so
+ * a query starting at the first position gives exactly the same result as a
+ * scan. For the other ranges the result can differ by a rounding error.
+ */
+public class TrackRangeIndex {
+
+	/** Size of the blocks of the min/max elevation table **/
+	private static final int BLOCK_SHIFT = 5;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+	private final TrackStore data;
+
+	/** Version of the store used to build the index. -1=not built **/
+	private int version = -1;
+	/** Number of positions up to date in each table (from the start) **/
+	private int slopeValid = 0;
+	private int roadValid = 0;
+	private int minMaxValid = 0;
+	/** Number of positions used to build the min/max table **/
+	private int minMaxSize = 0;
+	private int totalValid = 0;
+	private int timeValid = 0;
+
+	/** Climb tables. One per elevation type, built on demand **/
+	private final ClimbTable[] climbs = new ClimbTable[3];
+
+	// -- Slope prefix sums (index k = sum of the positions 0 to k-1)
+	private double[] slopeP;
+	private double[] slopeM;
+	private int[] countP;
+	private int[] countM;
+	private double[] distClimbP;
+	private double[] distFlat;
+	private double[] distClimbM;
+	/** Distance on road (difficulty = 100) **/
+	private double[] road;
+
+	// -- Min/max elevation: value of each block and sparse table on the blocks
+	private double[][] blockMin;
+	private double[][] blockMax;
+
+	// -- Distance and time columns sorted (null=not checked)
+	private Boolean totalSorted;
+	private Boolean timeSorted;
+
+	/**
+	 * Read access to a column of the store
+	 */
+	private interface Column {
+		double get(int i);
+	}
+
+	/**
+	 * Cumulated climb of a track for one elevation type.
+	 */
+	private static class ClimbTable {
+		/** Threshold used to build the table **/
+		double threshold;
+		/** Cumulated values at each position (position included) **/
+		double[] cp;
+		double[] cm;
+		int[] tp;
+		int[] tm;
+		/** Index of the reference position of the hysteresis after each position **/
+		int[] ref;
+		/** Number of positions up to date **/
+		int valid;
+	}
+
+	TrackRangeIndex(TrackStore data) {
+		this.data = data;
+	}
+
+	/**
+	 * Mark the tables out of date from the first position modified since the
+	 * last query
+	 */
+	private void check() {
+		if (version != data.getVersion()) {
+			int from = data.getFirstChanged(version);
+			for (ClimbTable c : climbs) {
+				if (c != null)
+					c.valid = Math.min(c.valid, from);
+			}
+			slopeValid = Math.min(slopeValid, from);
+			roadValid = Math.min(roadValid, from);
+			minMaxValid = Math.min(minMaxValid, from);
+			totalValid = Math.min(totalValid, from);
+			timeValid = Math.min(timeValid, from);
+			version = data.getVersion();
+		}
+	}
+
+	/**
+	 * Return the elevation column for an elevation type
+	 */
+	private double[] elevations(int elevType) {
+		switch (elevType) {
+		case CgConst.ELEV_NOTSMOOTHED:
+			return data.eleNotSmoothed;
+		case CgConst.ELEV_SMOOTHED:
+			return data.eleSmoothed;
+		default:
+			return data.ele;
+		}
+	}
+
+	private ClimbTable getClimbTable(int elevType, double threshold) {
+		int t = (elevType == CgConst.ELEV_NOTSMOOTHED || elevType == CgConst.ELEV_SMOOTHED) ? elevType
+				: CgConst.ELEV_NORM;
+		ClimbTable c = climbs[t];
+		if (c == null || c.threshold != threshold) {
+			c = new ClimbTable();
+			c.threshold = threshold;
+			climbs[t] = c;
+		}
+		if (c.valid < data.size() || c.cp.length != data.size())
+			buildClimbTable(c, elevations(elevType));
+		return c;
+	}
+
+	/**
+	 * Run the climb calculation on the track from the first position out of date
+	 * and keep the cumulated values
+	 */
+	private void buildClimbTable(ClimbTable c, double[] ele) {
+		final int n = data.size();
+		final int[] time = data.time;
+		final int from = (c.cp == null) ? 0 : Math.min(c.valid, n);
+		if (c.cp == null) {
+			c.cp = new double[n];
+			c.cm = new double[n];
+			c.tp = new int[n];
+			c.tm = new int[n];
+			c.ref = new int[n];
+		} else if (c.cp.length != n) {
+			c.cp = Arrays.copyOf(c.cp, n);
+			c.cm = Arrays.copyOf(c.cm, n);
+			c.tp = Arrays.copyOf(c.tp, n);
+			c.tm = Arrays.copyOf(c.tm, n);
+			c.ref = Arrays.copyOf(c.ref, n);
+		}
+
+		double cp = 0.0;
+		double cm = 0.0;
+		int tp = 0;
+		int tm = 0;
+		int ref = 0;
+		double oldElev = (n > 0) ? ele[0] : 0.0;
+		int oldTime = (n > 0) ? time[0] : 0;
+		if (from > 0) {
+			// -- State of the calculation after the last position up to date
+			cp = c.cp[from - 1];
+			cm = c.cm[from - 1];
+			tp = c.tp[from - 1];
+			tm = c.tm[from - 1];
+			ref = c.ref[from - 1];
+			oldElev = ele[ref];
+			oldTime = time[ref];
+		}
+		for (int i = from; i < n; i++) {
+			double de = ele[i] - oldElev;
+			int dt = time[i] - oldTime;
+			if (Math.abs(de) > c.threshold) {
+				if (de > 0) {
+					cp += de;
+					tp += dt;
+				}
+				if (de < 0) {
+					cm -= de;
+					tm += dt;
+				}
+				oldElev = ele[i];
+				oldTime = time[i];
+				ref = i;
+			}
+			c.cp[i] = cp;
+			c.cm[i] = cm;
+			c.tp[i] = tp;
+			c.tm[i] = tm;
+			c.ref[i] = ref;
+		}
+		c.valid = n;
+	}
+
+	/**
+	 * Calculate the climb between two positions (included) with the same
+	 * hysteresis as a scan of the range.
+	 *
+	 * A scan starting at 'start' and the scan of the whole track take the same
+	 * decisions as soon as they use the same reference position. Only the part
+	 * before this position is scanned, the rest comes from the table.
+	 */
+	public CalcClimbResult climb(int elevType, int start, int end, double threshold, CalcClimbResult r) {
+		r.cp = 0;
+		r.cm = 0;
+		r.tp = 0;
+		r.tm = 0;
+		if (data.size() == 0 || end < start)
+			return r;
+
+		check();
+		ClimbTable c = getClimbTable(elevType, threshold);
+
+		if (start == 0) {
+			r.cp = c.cp[end];
+			r.cm = c.cm[end];
+			r.tp = c.tp[end];
+			r.tm = c.tm[end];
+			return r;
+		}
+
+		final double[] ele = elevations(elevType);
+		final int[] time = data.time;
+		double oldElev = ele[start];
+		int oldTime = time[start];
+		int ref = start;
+		for (int i = start; i <= end; i++) {
+			double de = ele[i] - oldElev;
+			int dt = time[i] - oldTime;
+			if (Math.abs(de) > threshold) {
+				if (de > 0) {
+					r.cp += de;
+					r.tp += dt;
+				}
+				if (de < 0) {
+					r.cm -= de;
+					r.tm += dt;
+				}
+				oldElev = ele[i];
+				oldTime = time[i];
+				ref = i;
+			}
+			if (c.ref[i] == ref) {
+				// Same state as the scan of the whole track
+				r.cp += c.cp[end] - c.cp[i];
+				r.cm += c.cm[end] - c.cm[i];
+				r.tp += c.tp[end] - c.tp[i];
+				r.tm += c.tm[end] - c.tm[i];
+				break;
+			}
+		}
+		return r;
+	}
+
+	private void buildSlope() {
+		final int n = data.size();
+		final int from = (slopeP == null) ? 0 : Math.min(slopeValid, n);
+		if (slopeP == null) {
+			slopeP = new double[n + 1];
+			slopeM = new double[n + 1];
+			countP = new int[n + 1];
+			countM = new int[n + 1];
+			distClimbP = new double[n + 1];
+			distFlat = new double[n + 1];
+			distClimbM = new double[n + 1];
+		} else if (slopeP.length != n + 1) {
+			slopeP = Arrays.copyOf(slopeP, n + 1);
+			slopeM = Arrays.copyOf(slopeM, n + 1);
+			countP = Arrays.copyOf(countP, n + 1);
+			countM = Arrays.copyOf(countM, n + 1);
+			distClimbP = Arrays.copyOf(distClimbP, n + 1);
+			distFlat = Arrays.copyOf(distFlat, n + 1);
+			distClimbM = Arrays.copyOf(distClimbM, n + 1);
+		}
+
+		for (int i = from; i < n; i++) {
+			double slope = data.slope[i];
+			double dist = data.dist[i];
+			slopeP[i + 1] = slopeP[i];
+			slopeM[i + 1] = slopeM[i];
+			countP[i + 1] = countP[i];
+			countM[i + 1] = countM[i];
+			distClimbP[i + 1] = distClimbP[i];
+			distFlat[i + 1] = distFlat[i];
+			distClimbM[i + 1] = distClimbM[i];
+
+			if (slope > 0) {
+				slopeP[i + 1] += slope;
+				countP[i + 1]++;
+			} else {
+				slopeM[i + 1] += slope;
+				countM[i + 1]++;
+			}
+
+			if (slope <= -2) {
+				distClimbM[i + 1] += dist;
+			} else if ((slope > -2) && (slope < 2)) {
+				distFlat[i + 1] += dist;
+			} else if (slope >= 2) {
+				distClimbP[i + 1] += dist;
+			}
+		}
+		slopeValid = n;
+	}
+
+	/**
+	 * Calculate the average slopes and the distances in climb, flat and descent
+	 * between two positions (included)
+	 */
+	public CalcAvrSlopeResult avrSlope(int start, int end, CalcAvrSlopeResult r) {
+		r.AvrSlopeP = 0.0;
+		r.AvrSlopeM = 0.0;
+		r.setTotClimbP(0.0);
+		r.setTotFlat(0.0);
+		r.setTotClimbM(0.0);
+		int ip = 0;
+		int im = 0;
+
+		if (data.size() > 0 && end >= start) {
+			check();
+			if (slopeP == null || slopeValid < data.size() || slopeP.length != data.size() + 1)
+				buildSlope();
+			r.AvrSlopeP = slopeP[end + 1] - slopeP[start];
+			r.AvrSlopeM = slopeM[end + 1] - slopeM[start];
+			ip = countP[end + 1] - countP[start];
+			im = countM[end + 1] - countM[start];
+			r.setTotClimbP(distClimbP[end + 1] - distClimbP[start]);
+			r.setTotFlat(distFlat[end + 1] - distFlat[start]);
+			r.setTotClimbM(distClimbM[end + 1] - distClimbM[start]);
+		}
+		r.AvrSlopeP = r.AvrSlopeP / ip;
+		r.AvrSlopeM = r.AvrSlopeM / im;
+		return r;
+	}
+
+	/**
+	 * Return the road distance (in meter) from 'start' (included) to 'end'
+	 * (excluded)
+	 */
+	public double road(int start, int end) {
+		if (end <= start)
+			return 0.0;
+		check();
+		final int n = data.size();
+		if (road == null || roadValid < n || road.length != n + 1) {
+			final int from = (road == null) ? 0 : Math.min(roadValid, n);
+			road = (road == null) ? new double[n + 1] : Arrays.copyOf(road, n + 1);
+			for (int i = from; i < n; i++) {
+				road[i + 1] = road[i];
+				if (data.diff[i] == 100)
+					road[i + 1] += data.dist[i];
+			}
+			roadValid = n;
+		}
+		return road[end] - road[start];
+	}
+
+	private void buildMinMax() {
+		final int n = data.size();
+		final double[] ele = data.ele;
+		int nb = (n + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+		int levels = 1;
+		while ((1 << levels) <= nb)
+			levels++;
+
+		// -- First block out of date. The tables keep their valid part
+		final int b0 = (blockMin == null) ? 0 : Math.min(minMaxValid, n) >> BLOCK_SHIFT;
+		if (blockMin == null) {
+			blockMin = new double[levels][];
+			blockMax = new double[levels][];
+		} else if (blockMin.length != levels) {
+			blockMin = Arrays.copyOf(blockMin, levels);
+			blockMax = Arrays.copyOf(blockMax, levels);
+		}
+		int start = resizeLevel(0, nb, b0);
+		for (int b = start; b < nb; b++) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			int last = Math.min(n, (b + 1) << BLOCK_SHIFT);
+			for (int i = b << BLOCK_SHIFT; i < last; i++) {
+				min = Math.min(min, ele[i]);
+				max = Math.max(max, ele[i]);
+			}
+			blockMin[0][b] = min;
+			blockMax[0][b] = max;
+		}
+		for (int l = 1; l < levels; l++) {
+			int len = nb - (1 << l) + 1;
+			// -- An entry covers the blocks b to b+2^l-1
+			start = resizeLevel(l, len, Math.max(0, b0 - (1 << l) + 1));
+			int h = 1 << (l - 1);
+			for (int b = start; b < len; b++) {
+				blockMin[l][b] = Math.min(blockMin[l - 1][b], blockMin[l - 1][b + h]);
+				blockMax[l][b] = Math.max(blockMax[l - 1][b], blockMax[l - 1][b + h]);
+			}
+		}
+		minMaxValid = n;
+		minMaxSize = n;
+	}
+
+	/**
+	 * Set the length of a level of the min/max table
+	 *
+	 * @return first entry to calculate: 'start', or 0 if the level is new
+	 */
+	private int resizeLevel(int l, int len, int start) {
+		if (blockMin[l] == null) {
+			blockMin[l] = new double[len];
+			blockMax[l] = new double[len];
+			return 0;
+		}
+		if (blockMin[l].length != len) {
+			blockMin[l] = Arrays.copyOf(blockMin[l], len);
+			blockMax[l] = Arrays.copyOf(blockMax[l], len);
+		}
+		return Math.min(start, len);
+	}
+
+	/**
+	 * Search the minimum and maximum elevation from 'start' (included) to 'end'
+	 * (excluded)
+	 *
+	 * @return array {min, max}. {+inf, -inf} if the range is empty
+	 */
+	public double[] minMaxElevation(int start, int end) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		if (end > start) {
+			check();
+			if (blockMin == null || minMaxValid < data.size() || minMaxSize != data.size())
+				buildMinMax();
+			final double[] ele = data.ele;
+			int b1 = (start + BLOCK_SIZE - 1) >> BLOCK_SHIFT; // First complete block
+			int b2 = end >> BLOCK_SHIFT; // Block after the last complete block
+			if (b1 >= b2) {
+				for (int i = start; i < end; i++) {
+					min = Math.min(min, ele[i]);
+					max = Math.max(max, ele[i]);
+				}
+			} else {
+				for (int i = start; i < (b1 << BLOCK_SHIFT); i++) {
+					min = Math.min(min, ele[i]);
+					max = Math.max(max, ele[i]);
+				}
+				for (int i = b2 << BLOCK_SHIFT; i < end; i++) {
+					min = Math.min(min, ele[i]);
+					max = Math.max(max, ele[i]);
+				}
+				int l = 31 - Integer.numberOfLeadingZeros(b2 - b1);
+				min = Math.min(min, Math.min(blockMin[l][b1], blockMin[l][b2 - (1 << l)]));
+				max = Math.max(max, Math.max(blockMax[l][b1], blockMax[l][b2 - (1 << l)]));
+			}
+		}
+		return new double[] { min, max };
+	}
+
+	/**
+	 * Return true if the values of a column are in ascending order
+	 */
+	private boolean isSorted(Column c, int from) {
+		final int n = data.size();
+		for (int i = Math.max(1, from); i < n; i++) {
+			if (c.get(i) < c.get(i - 1))
+				return false;
+		}
+		return true;
+	}
+
+	private Column totalColumn() {
+		check();
+		final double[] total = data.total;
+		if (totalSorted == null || totalValid < data.size()) {
+			// -- Sorted up to the first modified position: check only the rest
+			int from = (totalSorted == Boolean.TRUE) ? totalValid : 0;
+			totalSorted = isSorted(i -> total[i], from);
+			totalValid = data.size();
+		}
+		return i -> total[i];
+	}
+
+	private Column timeColumn() {
+		check();
+		final int[] time = data.time;
+		if (timeSorted == null || timeValid < data.size()) {
+			int from = (timeSorted == Boolean.TRUE) ? timeValid : 0;
+			timeSorted = isSorted(i -> time[i], from);
+			timeValid = data.size();
+		}
+		return i -> time[i];
+	}
+
+	/**
+	 * Return the first position whose value is greater or equal to 'v' (size if
+	 * none). The column must be sorted
+	 */
+	private int lowerBound(Column c, double v) {
+		int lo = 0;
+		int hi = data.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (c.get(mid) < v)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Return the first position with the nearest value of 'v'
+	 */
+	private int nearest(Column c, boolean sorted, double v) {
+		final int n = data.size();
+		if (n == 0)
+			return -1;
+
+		if (!sorted) {
+			// -- The column is not up to date. Scan it
+			int p = 0;
+			double best = Math.abs(v - c.get(0));
+			for (int i = 1; i < n; i++) {
+				double d = Math.abs(v - c.get(i));
+				if (d < best) {
+					best = d;
+					p = i;
+				}
+			}
+			return p;
+		}
+
+		int p = lowerBound(c, v);
+		if (p == n || (p > 0 && (v - c.get(p - 1)) <= (c.get(p) - v))) {
+			// -- The previous value is the nearest. Take the first position
+			// with this value
+			p = lowerBound(c, c.get(p - 1));
+		}
+		return p;
+	}
+
+	/**
+	 * Return the fractional position of the value 'v' (interpolation between the
+	 * two positions around the value)
+	 */
+	private double fractional(Column c, boolean sorted, double v) {
+		final int n = data.size();
+		if (n == 0)
+			return -1.0;
+		if (!sorted)
+			return nearest(c, false, v);
+		if (v <= c.get(0))
+			return lowerBound(c, c.get(0));
+		if (v >= c.get(n - 1))
+			return lowerBound(c, c.get(n - 1));
+
+		int p = lowerBound(c, v);
+		if (c.get(p) == v)
+			return p;
+		double v1 = c.get(p - 1);
+		return (p - 1) + (v - v1) / (c.get(p) - v1);
+	}
+
+	/**
+	 * Search the position with the nearest total distance
+	 *
+	 * @param meters Distance from the start in meter
+	 * @return Index of the position (the first one in case of equality). -1 if
+	 *         the track is empty
+	 */
+	public int nearestDistance(double meters) {
+		Column c = totalColumn();
+		return nearest(c, totalSorted, meters);
+	}
+
+	/**
+	 * Convert a distance in a fractional position. ex: 10.25 = a quarter of the
+	 * way between the positions 10 and 11
+	 *
+	 * @param meters Distance from the start in meter
+	 * @return Fractional position, limited to the first and last position. -1 if
+	 *         the track is empty
+	 */
+	public double distanceToIndex(double meters) {
+		Column c = totalColumn();
+		return fractional(c, totalSorted, meters);
+	}
+
+	/**
+	 * Search the position with the nearest time
+	 *
+	 * @param seconds Time from the start in second
+	 * @return Index of the position (the first one in case of equality). -1 if
+	 *         the track is empty
+	 */
+	public int nearestTime(double seconds) {
+		Column c = timeColumn();
+		return nearest(c, timeSorted, seconds);
+	}
+
+	/**
+	 * Convert a time in a fractional position
+	 *
+	 * @param seconds Time from the start in second
+	 * @return Fractional position, limited to the first and last position. -1 if
+	 *         the track is empty
+	 */
+	public double timeToIndex(double seconds) {
+		Column c = timeColumn();
+		return fractional(c, timeSorted, seconds);
+	}
+}
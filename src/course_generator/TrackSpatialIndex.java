@@ -0,0 +1,320 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator;
+
+import java.util.Arrays;
+
+import course_generator.utils.Utils;
+
+/**
+ * Spatial index of the positions of a track, used to find the nearest
+ * position of a point or the positions around a point.
+ *
+ * The positions are projected on the unit sphere (x, y, z) and stored in a k-d
+ * tree. The straight line distance between two points of the sphere grows with
+ * the great circle distance, so the nearest point for one is the nearest point
+ * for the other. The few candidates at the same distance are compared with
+ * {@link Utils#CalcDistance(double, double, double, double)} and the first
+ * position of the track wins, as with a scan of the track.
+ *
+ * The index is built on the first query and rebuilt when a position is moved,
+ * added or removed (see {@link TrackStore#getPositionVersion()}).
+ */
+public class TrackSpatialIndex {
+
+	/** Earth radius used to convert a distance in a chord (meter) **/
+	private static final double EARTH_RADIUS = 6371000.0;
+	/** Relative margin used to collect the candidates of the nearest search **/
+	private static final double MARGIN = 1e-6;
+
+	private final TrackStore data;
+
+	/** Version of the positions used to build the index. -1=not built **/
+	private int version = -1;
+
+	// -- k-d tree. The node of the range [lo, hi[ is at (lo + hi) / 2
+	/** Index of the position of each node **/
+	private int[] pos;
+	/** Coordinates of each node **/
+	private double[] xs;
+	private double[] ys;
+	private double[] zs;
+	/** Split axis of each node (0=x, 1=y, 2=z) **/
+	private byte[] axis;
+
+	/**
+	 * State of a query
+	 */
+	private static class Query {
+		double x, y, z;
+		double best2 = Double.POSITIVE_INFINITY;
+		int best = -1;
+		double radius2;
+		int[] found = new int[16];
+		int count = 0;
+
+		Query(double lat, double lon) {
+			double la = Math.toRadians(lat);
+			double lo = Math.toRadians(lon);
+			x = Math.cos(la) * Math.cos(lo);
+			y = Math.cos(la) * Math.sin(lo);
+			z = Math.sin(la);
+		}
+
+		void add(int p) {
+			if (count == found.length)
+				found = Arrays.copyOf(found, count * 2);
+			found[count++] = p;
+		}
+	}
+
+	TrackSpatialIndex(TrackStore data) {
+		this.data = data;
+	}
+
+	/**
+	 * Build the tree if the positions have been modified since the last build
+	 */
+	private void check() {
+		if (version == data.getPositionVersion())
+			return;
+
+		final int n = data.size();
+		pos = new int[n];
+		xs = new double[n];
+		ys = new double[n];
+		zs = new double[n];
+		axis = new byte[n];
+		for (int i = 0; i < n; i++) {
+			double la = Math.toRadians(data.lat[i]);
+			double lo = Math.toRadians(data.lon[i]);
+			pos[i] = i;
+			xs[i] = Math.cos(la) * Math.cos(lo);
+			ys[i] = Math.cos(la) * Math.sin(lo);
+			zs[i] = Math.sin(la);
+		}
+		build(0, n);
+		version = data.getPositionVersion();
+	}
+
+	private double[] coords(int a) {
+		return (a == 0) ? xs : (a == 1) ? ys : zs;
+	}
+
+	/**
+	 * Build the node of the range [lo, hi[ and its children
+	 */
+	private void build(int lo, int hi) {
+		if (hi - lo <= 1) {
+			return;
+		}
+
+		// -- Split on the axis with the largest extent
+		byte a = 0;
+		double best = -1.0;
+		for (byte k = 0; k < 3; k++) {
+			double[] c = coords(k);
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (int i = lo; i < hi; i++) {
+				min = Math.min(min, c[i]);
+				max = Math.max(max, c[i]);
+			}
+			if (max - min > best) {
+				best = max - min;
+				a = k;
+			}
+		}
+
+		int mid = (lo + hi) >>> 1;
+		select(coords(a), lo, hi - 1, mid);
+		axis[mid] = a;
+		build(lo, mid);
+		build(mid + 1, hi);
+	}
+
+	/**
+	 * Move the node of rank 'k' at its place in [lo, hi] for the coordinate
+	 * 'c' (quickselect)
+	 */
+	private void select(double[] c, int lo, int hi, int k) {
+		while (hi > lo) {
+			double pivot = c[(lo + hi) >>> 1];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (c[i] < pivot)
+					i++;
+				while (c[j] > pivot)
+					j--;
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int p = pos[i];
+		pos[i] = pos[j];
+		pos[j] = p;
+		double t = xs[i];
+		xs[i] = xs[j];
+		xs[j] = t;
+		t = ys[i];
+		ys[i] = ys[j];
+		ys[j] = t;
+		t = zs[i];
+		zs[i] = zs[j];
+		zs[j] = t;
+	}
+
+	private double dist2(Query q, int node) {
+		double dx = xs[node] - q.x;
+		double dy = ys[node] - q.y;
+		double dz = zs[node] - q.z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private double axisDiff(Query q, int node) {
+		switch (axis[node]) {
+		case 0:
+			return q.x - xs[node];
+		case 1:
+			return q.y - ys[node];
+		default:
+			return q.z - zs[node];
+		}
+	}
+
+	private void searchNearest(Query q, int lo, int hi) {
+		if (lo >= hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		double d2 = dist2(q, mid);
+		if (d2 < q.best2 || (d2 == q.best2 && pos[mid] < q.best)) {
+			q.best2 = d2;
+			q.best = pos[mid];
+		}
+		if (hi - lo == 1)
+			return;
+
+		double diff = axisDiff(q, mid);
+		if (diff < 0) {
+			searchNearest(q, lo, mid);
+			if (diff * diff <= q.best2)
+				searchNearest(q, mid + 1, hi);
+		} else {
+			searchNearest(q, mid + 1, hi);
+			if (diff * diff <= q.best2)
+				searchNearest(q, lo, mid);
+		}
+	}
+
+	private void searchRadius(Query q, int lo, int hi) {
+		if (lo >= hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		if (dist2(q, mid) <= q.radius2)
+			q.add(pos[mid]);
+		if (hi - lo == 1)
+			return;
+
+		double diff = axisDiff(q, mid);
+		if (diff < 0 || diff * diff <= q.radius2)
+			searchRadius(q, lo, mid);
+		if (diff >= 0 || diff * diff <= q.radius2)
+			searchRadius(q, mid + 1, hi);
+	}
+
+	/**
+	 * Return the positions at a chord distance lower or equal to sqrt(radius2),
+	 * sorted by index
+	 */
+	private int[] collect(Query q, double radius2) {
+		q.radius2 = radius2;
+		q.count = 0;
+		searchRadius(q, 0, pos.length);
+		int[] r = Arrays.copyOf(q.found, q.count);
+		Arrays.sort(r);
+		return r;
+	}
+
+	/**
+	 * Search the nearest position of a point
+	 *
+	 * @param lat Latitude of the point
+	 * @param lon Longitude of the point
+	 * @return Index of the nearest position. -1 if the track is empty
+	 */
+	public int nearest(double lat, double lon) {
+		check();
+		if (pos.length == 0)
+			return -1;
+
+		Query q = new Query(lat, lon);
+		searchNearest(q, 0, pos.length);
+
+		// -- Compare the candidates at the same distance with the real distance
+		int best = -1;
+		double bestDist = 0.0;
+		for (int p : collect(q, q.best2 * (1.0 + MARGIN) + 1e-24)) {
+			double d = Utils.CalcDistance(data.lat[p], data.lon[p], lat, lon);
+			if (best == -1 || d < bestDist) {
+				best = p;
+				bestDist = d;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Search the positions around a point
+	 *
+	 * @param lat    Latitude of the point
+	 * @param lon    Longitude of the point
+	 * @param radius Distance from the point in meter
+	 * @return Index of the positions at 'radius' meters or less from the point,
+	 *         sorted by index
+	 */
+	public int[] withinRadius(double lat, double lon, double radius) {
+		check();
+		if (pos.length == 0 || radius < 0)
+			return new int[0];
+
+		Query q = new Query(lat, lon);
+		double chord = 2.0 * Math.sin(Math.min(Math.PI, radius / EARTH_RADIUS) / 2.0);
+		int[] candidates = collect(q, chord * chord * (1.0 + MARGIN) + 1e-24);
+
+		int n = 0;
+		for (int p : candidates) {
+			if (Utils.CalcDistance(data.lat[p], data.lon[p], lat, lon) <= radius)
+				candidates[n++] = p;
+		}
+		return Arrays.copyOf(candidates, n);
+	}
+}
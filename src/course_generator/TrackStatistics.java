@@ -0,0 +1,227 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import course_generator.utils.StatData;
+
+/**
+ * Statistics of a track by slope, by elevation (all, night and day) and by
+ * period (night and day).
+ *
+ * All the statistics are calculated in one pass over the columns of the
+ * {@link TrackStore}. The slope and the elevation give directly the index of
+ * their bucket. A large track is cut in parts calculated in parallel on the
+ * fork-join pool; the statistics of the parts are then added.
+ *
+ * The first position of the track is not counted (no distance and no time).
+ */
+public class TrackStatistics {
+
+	/** Number of slope buckets **/
+	public static final int SLOPE_COUNT = 13;
+	/** Number of elevation buckets **/
+	public static final int ELEV_COUNT = 6;
+
+	/** Number of positions under which the calculation is not split **/
+	static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	// -- Index of the buckets in the accumulators
+	private static final int SLOPE = 0;
+	private static final int ELEV = SLOPE + SLOPE_COUNT;
+	private static final int ELEV_NIGHT = ELEV + ELEV_COUNT;
+	private static final int ELEV_DAY = ELEV_NIGHT + ELEV_COUNT;
+	private static final int NIGHT = ELEV_DAY + ELEV_COUNT;
+	private static final int DAY = NIGHT + 1;
+	private static final int BUCKET_COUNT = DAY + 1;
+
+	/**
+	 * Slope band from the absolute value of the slope rounded up (0..41):
+	 * [0,2]=0, ]2,5]=1, ]5,10]=2, ]10,20]=3, ]20,30]=4, ]30,40]=5, >40=6
+	 **/
+	private static final int[] SLOPE_BAND = new int[42];
+
+	static {
+		int[] limits = { 2, 5, 10, 20, 30, 40 };
+		int band = 0;
+		for (int i = 0; i < SLOPE_BAND.length; i++) {
+			if (band < limits.length && i > limits[band])
+				band++;
+			SLOPE_BAND[i] = band;
+		}
+	}
+
+	// -- Accumulators (one entry per bucket)
+	private final double[] speed = new double[BUCKET_COUNT];
+	private final double[] dist = new double[BUCKET_COUNT];
+	private final double[] time = new double[BUCKET_COUNT];
+	private final int[] count = new int[BUCKET_COUNT];
+
+	/**
+	 * Calculate the statistics of a track
+	 *
+	 * @param data        Positions of the track
+	 * @param nightCoeff  True if the night period is used
+	 * @param startNight  Start of the night in second of the day
+	 * @param endNight    End of the night in second of the day
+	 * @return Statistics of the track
+	 */
+	public static TrackStatistics calculate(TrackStore data, boolean nightCoeff, int startNight, int endNight) {
+		StatTask task = new StatTask(data, 1, data.size(), nightCoeff, startNight, endNight);
+		if (data.size() <= PARALLEL_THRESHOLD)
+			return task.compute();
+		return ForkJoinPool.commonPool().invoke(task);
+	}
+
+	/**
+	 * Calculation of the statistics of a part of the track. Split in two tasks
+	 * while the part is larger than {@link #PARALLEL_THRESHOLD}
+	 */
+	private static class StatTask extends RecursiveTask<TrackStatistics> {
+		private static final long serialVersionUID = -2917381046542731178L;
+
+		private final TrackStore data;
+		private final int start;
+		private final int end;
+		private final boolean nightCoeff;
+		private final int startNight;
+		private final int endNight;
+
+		StatTask(TrackStore data, int start, int end, boolean nightCoeff, int startNight, int endNight) {
+			this.data = data;
+			this.start = start;
+			this.end = end;
+			this.nightCoeff = nightCoeff;
+			this.startNight = startNight;
+			this.endNight = endNight;
+		}
+
+		@Override
+		protected TrackStatistics compute() {
+			if (end - start <= PARALLEL_THRESHOLD) {
+				TrackStatistics r = new TrackStatistics();
+				r.add(data, start, end, nightCoeff, startNight, endNight);
+				return r;
+			}
+			int mid = (start + end) >>> 1;
+			StatTask left = new StatTask(data, start, mid, nightCoeff, startNight, endNight);
+			left.fork();
+			TrackStatistics r = new StatTask(data, mid, end, nightCoeff, startNight, endNight).compute();
+			return left.join().merge(r);
+		}
+	}
+
+	/**
+	 * Add the positions of a part of the track
+	 *
+	 * @param data  Positions of the track
+	 * @param start Index of the first position
+	 * @param end   Index after the last position
+	 */
+	private void add(TrackStore data, int start, int end, boolean nightCoeff, int startNight, int endNight) {
+		final double[] slopes = data.slope;
+		final double[] eles = data.ele;
+		final double[] speeds = data.speed;
+		final double[] dists = data.dist;
+		final double[] times = data.dTimeF;
+
+		for (int i = Math.max(1, start); i < end; i++) {
+			final double v = speeds[i];
+			final double d = dists[i];
+			final double t = times[i];
+
+			// -- Slope
+			double s = slopes[i];
+			if (s == s) {
+				int band = SLOPE_BAND[(int) Math.ceil(Math.min(Math.abs(s), SLOPE_BAND.length - 1))];
+				add(SLOPE + ((s < 0) ? 6 - band : 6 + band), v, d, t);
+			}
+
+			// -- Night or day
+			boolean night = false;
+			if (nightCoeff) {
+				int sec = data.getSecondOfDay(i);
+				night = (sec >= 0) && ((sec >= startNight) || (sec <= endNight));
+			}
+			add(night ? NIGHT : DAY, v, d, t);
+
+			// -- Elevation: <1000, then one bucket each 500m, >=3000
+			double e = eles[i];
+			if (e == e) {
+				int j = (int) Math.max(0, Math.min(ELEV_COUNT - 1, Math.floor(e / 500.0) - 1));
+				add(ELEV + j, v, d, t);
+				add((night ? ELEV_NIGHT : ELEV_DAY) + j, v, d, t);
+			}
+		}
+	}
+
+	private void add(int bucket, double v, double d, double t) {
+		speed[bucket] += v;
+		dist[bucket] += d;
+		time[bucket] += t;
+		count[bucket]++;
+	}
+
+	/**
+	 * Add the statistics of the following part of the track
+	 *
+	 * @return This object
+	 */
+	private TrackStatistics merge(TrackStatistics o) {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			speed[i] += o.speed[i];
+			dist[i] += o.dist[i];
+			time[i] += o.time[i];
+			count[i] += o.count[i];
+		}
+		return this;
+	}
+
+	private void copyTo(int bucket, StatData d) {
+		d.setSpeed(speed[bucket]);
+		d.setDist(dist[bucket]);
+		d.Time = time[bucket];
+		d.Cmpt = count[bucket];
+	}
+
+	/**
+	 * Copy the statistics to the statistic objects of a track
+	 *
+	 * @param slope     Statistics by slope ({@link #SLOPE_COUNT} objects)
+	 * @param elev      Statistics by elevation ({@link #ELEV_COUNT} objects)
+	 * @param elevNight Statistics by elevation during the night
+	 * @param elevDay   Statistics by elevation during the day
+	 * @param night     Statistics of the night
+	 * @param day       Statistics of the day
+	 */
+	public void copyTo(StatData[] slope, StatData[] elev, StatData[] elevNight, StatData[] elevDay, StatData night,
+			StatData day) {
+		for (int i = 0; i < SLOPE_COUNT; i++)
+			copyTo(SLOPE + i, slope[i]);
+		for (int i = 0; i < ELEV_COUNT; i++) {
+			copyTo(ELEV + i, elev[i]);
+			copyTo(ELEV_NIGHT + i, elevNight[i]);
+			copyTo(ELEV_DAY + i, elevDay[i]);
+		}
+		copyTo(NIGHT, night);
+		copyTo(DAY, day);
+	}
+}
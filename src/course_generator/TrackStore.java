@@ -0,0 +1,1115 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.RandomAccess;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTime;
+
+/**
+ * Column oriented storage of the track positions.
+ *
+ * Each field of a position is stored in its own primitive array. The
+ * calculation loops of {@link TrackData} work directly on these arrays. The
+ * rest of the application keeps using {@link CgData} objects: {@link #get(int)}
+ * returns a light cursor on a row and writes through it go to the columns.
+ *
+ * A cursor addresses a row by its index. It must not be kept across an insert
+ * or a remove of positions.
+ */
+public class TrackStore extends AbstractList<CgData> implements RandomAccess {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** Flag: the position is in the night period **/
+	static final byte FLAG_NIGHT = 0x01;
+	/** Flag: the position must be deleted by the position filter **/
+	static final byte FLAG_TO_DELETE = 0x02;
+
+	/** Chronology index used when the hour is not set **/
+	static final short NO_HOUR = -1;
+
+	/** Number of positions **/
+	private int size = 0;
+	/** Counter incremented at each modification of a value **/
+	private int valueVersion = 0;
+	/** Counter incremented at each modification of a latitude or a longitude **/
+	private int positionVersion = 0;
+
+	/** Number of entries of the change log **/
+	private static final int CHANGE_LOG_SIZE = 32;
+	/**
+	 * Change log (ring buffer): version after a modification and first position
+	 * modified. Used by {@link #getFirstChanged(int)}
+	 **/
+	private final int[] changeVersion = new int[CHANGE_LOG_SIZE];
+	private final int[] changeRow = new int[CHANGE_LOG_SIZE];
+	/** Number of entries added to the change log since the creation **/
+	private int changeCount = 0;
+
+	// -- Columns
+	int[] num;
+	double[] lat;
+	double[] lon;
+	double[] ele;
+	double[] eleNotSmoothed;
+	double[] eleSmoothed;
+	double[] eleMemo;
+	int[] tag;
+	double[] dist;
+	double[] total;
+	double[] diff;
+	double[] coeff;
+	double[] recovery;
+	double[] slope;
+	double[] speed;
+	double[] dElevation;
+	int[] time;
+	double[] dTimeF;
+	int[] timeLimit;
+	/** Hour of the position in millisecond since the epoch **/
+	long[] hour;
+	/** Index of the chronology of the hour in 'chronologies' **/
+	short[] hourChrono;
+	int[] station;
+	/** Used for calculation. Allocated on the first write **/
+	double[] tmp1;
+	/** Used for calculation. Allocated on the first write **/
+	double[] tmp2;
+	/** Label format of the mini roadbook. Equal strings share the same instance **/
+	String[] fmtLbMrb;
+	int[] optMrb;
+	int[] vposMrb;
+	int[] fontSizeMrb;
+	byte[] flags;
+
+	// -- Sparse columns (most of the positions have no name or comment)
+	final SparseStringColumn name = new SparseStringColumn();
+	final SparseStringColumn comment = new SparseStringColumn();
+	final SparseStringColumn commentMrb = new SparseStringColumn();
+
+	/** Chronologies (time zones) used by the 'hour' column **/
+	private final ArrayList<Chronology> chronologies = new ArrayList<Chronology>();
+	/** Pool used to share the label format strings **/
+	private final HashMap<String, String> stringPool = new HashMap<String, String>();
+
+	public TrackStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public TrackStore(int capacity) {
+		allocate(Math.max(capacity, 1));
+	}
+
+	private void allocate(int capacity) {
+		num = new int[capacity];
+		lat = new double[capacity];
+		lon = new double[capacity];
+		ele = new double[capacity];
+		eleNotSmoothed = new double[capacity];
+		eleSmoothed = new double[capacity];
+		eleMemo = new double[capacity];
+		tag = new int[capacity];
+		dist = new double[capacity];
+		total = new double[capacity];
+		diff = new double[capacity];
+		coeff = new double[capacity];
+		recovery = new double[capacity];
+		slope = new double[capacity];
+		speed = new double[capacity];
+		dElevation = new double[capacity];
+		time = new int[capacity];
+		dTimeF = new double[capacity];
+		timeLimit = new int[capacity];
+		hour = new long[capacity];
+		hourChrono = new short[capacity];
+		station = new int[capacity];
+		tmp1 = null;
+		tmp2 = null;
+		fmtLbMrb = new String[capacity];
+		optMrb = new int[capacity];
+		vposMrb = new int[capacity];
+		fontSizeMrb = new int[capacity];
+		flags = new byte[capacity];
+	}
+
+	/**
+	 * Return all the allocated dense columns. Used for the operations that don't
+	 * depend on the type of the column (insert, remove, rotate...)
+	 */
+	private Object[] denseColumns() {
+		ArrayList<Object> l = new ArrayList<Object>(32);
+		addColumns(l, num, lat, lon, ele, eleNotSmoothed, eleSmoothed, eleMemo, tag, dist, total, diff, coeff,
+				recovery, slope, speed, dElevation, time, dTimeF, timeLimit, hour, hourChrono, station, tmp1, tmp2,
+				fmtLbMrb, optMrb, vposMrb, fontSizeMrb, flags);
+		return l.toArray();
+	}
+
+	private static void addColumns(ArrayList<Object> l, Object... columns) {
+		for (Object c : columns) {
+			if (c != null)
+				l.add(c);
+		}
+	}
+
+	/**
+	 * Increase the capacity of the store if necessary
+	 *
+	 * @param minCapacity Minimum number of positions the store must be able to
+	 *                    contain
+	 */
+	public void ensureCapacity(int minCapacity) {
+		int capacity = lat.length;
+		if (minCapacity <= capacity)
+			return;
+
+		int n = Math.max(minCapacity, capacity + (capacity >> 1));
+		num = Arrays.copyOf(num, n);
+		lat = Arrays.copyOf(lat, n);
+		lon = Arrays.copyOf(lon, n);
+		ele = Arrays.copyOf(ele, n);
+		eleNotSmoothed = Arrays.copyOf(eleNotSmoothed, n);
+		eleSmoothed = Arrays.copyOf(eleSmoothed, n);
+		eleMemo = Arrays.copyOf(eleMemo, n);
+		tag = Arrays.copyOf(tag, n);
+		dist = Arrays.copyOf(dist, n);
+		total = Arrays.copyOf(total, n);
+		diff = Arrays.copyOf(diff, n);
+		coeff = Arrays.copyOf(coeff, n);
+		recovery = Arrays.copyOf(recovery, n);
+		slope = Arrays.copyOf(slope, n);
+		speed = Arrays.copyOf(speed, n);
+		dElevation = Arrays.copyOf(dElevation, n);
+		time = Arrays.copyOf(time, n);
+		dTimeF = Arrays.copyOf(dTimeF, n);
+		timeLimit = Arrays.copyOf(timeLimit, n);
+		hour = Arrays.copyOf(hour, n);
+		hourChrono = Arrays.copyOf(hourChrono, n);
+		station = Arrays.copyOf(station, n);
+		if (tmp1 != null)
+			tmp1 = Arrays.copyOf(tmp1, n);
+		if (tmp2 != null)
+			tmp2 = Arrays.copyOf(tmp2, n);
+		fmtLbMrb = Arrays.copyOf(fmtLbMrb, n);
+		optMrb = Arrays.copyOf(optMrb, n);
+		vposMrb = Arrays.copyOf(vposMrb, n);
+		fontSizeMrb = Arrays.copyOf(fontSizeMrb, n);
+		flags = Arrays.copyOf(flags, n);
+	}
+
+	/**
+	 * Reduce the capacity of the store to its size
+	 */
+	public void trimToSize() {
+		if (size == lat.length)
+			return;
+		TrackStore t = new TrackStore(size);
+		t.copyFrom(this);
+		takeColumns(t);
+	}
+
+	private void takeColumns(TrackStore t) {
+		num = t.num;
+		lat = t.lat;
+		lon = t.lon;
+		ele = t.ele;
+		eleNotSmoothed = t.eleNotSmoothed;
+		eleSmoothed = t.eleSmoothed;
+		eleMemo = t.eleMemo;
+		tag = t.tag;
+		dist = t.dist;
+		total = t.total;
+		diff = t.diff;
+		coeff = t.coeff;
+		recovery = t.recovery;
+		slope = t.slope;
+		speed = t.speed;
+		dElevation = t.dElevation;
+		time = t.time;
+		dTimeF = t.dTimeF;
+		timeLimit = t.timeLimit;
+		hour = t.hour;
+		hourChrono = t.hourChrono;
+		station = t.station;
+		tmp1 = t.tmp1;
+		tmp2 = t.tmp2;
+		fmtLbMrb = t.fmtLbMrb;
+		optMrb = t.optMrb;
+		vposMrb = t.vposMrb;
+		fontSizeMrb = t.fontSizeMrb;
+		flags = t.flags;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return a counter incremented at each change of the structure of the store
+	 * (insert, remove, reorder)
+	 */
+	public int getStructureVersion() {
+		return modCount;
+	}
+
+	/**
+	 * Return a counter incremented at each modification of the store (structure
+	 * or values). Used to invalidate the data calculated from the store
+	 */
+	public int getVersion() {
+		return valueVersion + modCount;
+	}
+
+	/**
+	 * Indicate that values of the store have been modified. Must be called after
+	 * a direct write in the columns
+	 */
+	void changed() {
+		changed(0);
+	}
+
+	/**
+	 * Indicate that values of the store have been modified from the position
+	 * 'row'. The positions before 'row' must not have been modified
+	 */
+	void changed(int row) {
+		valueVersion++;
+		logChange(row);
+	}
+
+	/**
+	 * Indicate that positions have been inserted, removed or moved from the
+	 * position 'row'
+	 */
+	private void structureChanged(int row) {
+		modCount++;
+		logChange(row);
+	}
+
+	private void logChange(int row) {
+		int last = (changeCount - 1) % CHANGE_LOG_SIZE;
+		if (changeCount > 0 && changeRow[last] == row) {
+			// -- Same position modified again (several values of a row)
+			changeVersion[last] = getVersion();
+			return;
+		}
+		int e = changeCount % CHANGE_LOG_SIZE;
+		changeVersion[e] = getVersion();
+		changeRow[e] = row;
+		changeCount++;
+	}
+
+	/**
+	 * Return the first position modified since a version of the store (see
+	 * {@link #getVersion()}). The positions before it are unchanged (same values
+	 * at the same index). Return 0 if the modifications are too old to be known
+	 *
+	 * @param version Version of the store
+	 * @return Index of the first modified position. size() or more if nothing
+	 *         has been modified
+	 */
+	public int getFirstChanged(int version) {
+		int first = Integer.MAX_VALUE;
+		int n = Math.min(changeCount, CHANGE_LOG_SIZE);
+		for (int k = 1; k <= n; k++) {
+			int e = (changeCount - k) % CHANGE_LOG_SIZE;
+			if (changeVersion[e] <= version)
+				return first;
+			first = Math.min(first, changeRow[e]);
+		}
+		// -- All the log is after the version: the older modifications are lost
+		return (changeCount > CHANGE_LOG_SIZE) ? 0 : first;
+	}
+
+	/**
+	 * Return a counter incremented at each change of the structure of the store
+	 * or of the coordinates of a position. Used to invalidate the spatial index
+	 */
+	public int getPositionVersion() {
+		return positionVersion + modCount;
+	}
+
+	/**
+	 * Indicate that the coordinates of positions have been modified
+	 */
+	void positionChanged() {
+		positionChanged(0);
+	}
+
+	/**
+	 * Indicate that the coordinates of the positions have been modified from the
+	 * position 'row'
+	 */
+	void positionChanged(int row) {
+		positionVersion++;
+		changed(row);
+	}
+
+	/**
+	 * Return a cursor on the position 'index'
+	 */
+	@Override
+	public CgData get(int index) {
+		checkIndex(index);
+		return new CgData(this, index);
+	}
+
+	/**
+	 * Copy the values of 'element' in the position 'index'
+	 *
+	 * @return a detached copy of the previous values of the position
+	 */
+	@Override
+	public CgData set(int index, CgData element) {
+		checkIndex(index);
+		CgData old = new CgData(this, index).CopyTo(new CgData());
+		copyRow(element.store, element.index, index);
+		positionChanged(index);
+		return old;
+	}
+
+	/**
+	 * Insert a position. The values of 'element' are copied in the store. If
+	 * 'element' is a detached object, it becomes a cursor on the new position.
+	 */
+	@Override
+	public void add(int index, CgData element) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		// The source may be a cursor on a row of this store that is about to move
+		int src = element.index;
+		if (element.store == this && src >= index)
+			src++;
+
+		ensureCapacity(size + 1);
+		if (index < size) {
+			for (Object c : denseColumns())
+				System.arraycopy(c, index, c, index + 1, size - index);
+		}
+		name.insertRow(index);
+		comment.insertRow(index);
+		commentMrb.insertRow(index);
+		size++;
+		structureChanged(index);
+
+		clearRow(index);
+		copyRow(element.store, src, index);
+		if (element.isDetached())
+			element.attach(this, index);
+	}
+
+	/**
+	 * Insert the positions of 'src' at 'index'. The values are copied
+	 */
+	public void insertRange(int index, TrackStore src) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		int n = src.size;
+		if (n == 0)
+			return;
+
+		ensureCapacity(size + n);
+		if (index < size) {
+			for (Object c : denseColumns())
+				System.arraycopy(c, index, c, index + n, size - index);
+		}
+		name.insertRows(index, n);
+		comment.insertRows(index, n);
+		commentMrb.insertRows(index, n);
+		size += n;
+		structureChanged(index);
+
+		for (int i = 0; i < n; i++)
+			copyRow(src, i, index + i);
+	}
+
+	/**
+	 * Return a copy of the positions from 'fromIndex' (included) to 'toIndex'
+	 * (excluded)
+	 */
+	public TrackStore copyRange(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size);
+		TrackStore t = new TrackStore(toIndex - fromIndex);
+		t.size = toIndex - fromIndex;
+		for (int i = fromIndex; i < toIndex; i++)
+			t.copyRow(this, i, i - fromIndex);
+		return t;
+	}
+
+	/**
+	 * Copy the columns written by the time calculation (time, hour, speed and
+	 * night flag) from 'src'. 'src' must be a copy of this store
+	 * ({@link #copyFrom(TrackStore)}) with the same positions
+	 */
+	public void copyTimes(TrackStore src) {
+		if (src.size != size)
+			throw new IllegalArgumentException("Size: " + src.size + ", expected: " + size);
+		System.arraycopy(src.time, 0, time, 0, size);
+		System.arraycopy(src.dTimeF, 0, dTimeF, 0, size);
+		System.arraycopy(src.speed, 0, speed, 0, size);
+		System.arraycopy(src.hour, 0, hour, 0, size);
+		// -- The chronology tables can be different
+		short[] map = new short[src.chronologies.size()];
+		for (int c = 0; c < map.length; c++)
+			map[c] = chronologyIndex(src.chronologies.get(c));
+		for (int i = 0; i < size; i++) {
+			short c = src.hourChrono[i];
+			hourChrono[i] = (c == NO_HOUR) ? NO_HOUR : map[c];
+			flags[i] = (byte) ((flags[i] & ~FLAG_NIGHT) | (src.flags[i] & FLAG_NIGHT));
+		}
+		changed();
+	}
+
+	/**
+	 * Add an empty position at the end of the store
+	 *
+	 * @return index of the new position
+	 */
+	public int addEmpty() {
+		return addEmpty(size);
+	}
+
+	/**
+	 * Insert an empty position at 'index'
+	 *
+	 * @return index of the new position
+	 */
+	public int addEmpty(int index) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		ensureCapacity(size + 1);
+		if (index < size) {
+			for (Object c : denseColumns())
+				System.arraycopy(c, index, c, index + 1, size - index);
+			name.insertRow(index);
+			comment.insertRow(index);
+			commentMrb.insertRow(index);
+		}
+		size++;
+		structureChanged(index);
+		clearRow(index);
+		return index;
+	}
+
+	/**
+	 * Remove the position 'index'
+	 *
+	 * @return a detached copy of the removed position. Use
+	 *         {@link #removeRange(int, int)} when the values are not needed
+	 */
+	@Override
+	public CgData remove(int index) {
+		checkIndex(index);
+		CgData old = new CgData(this, index).CopyTo(new CgData());
+		removeRange(index, index + 1);
+		return old;
+	}
+
+	/**
+	 * Remove the positions from 'fromIndex' (included) to 'toIndex' (excluded)
+	 */
+	@Override
+	public void removeRange(int fromIndex, int toIndex) {
+		if (fromIndex >= toIndex)
+			return;
+		int n = toIndex - fromIndex;
+		for (Object c : denseColumns())
+			System.arraycopy(c, toIndex, c, fromIndex, size - toIndex);
+		name.removeRows(fromIndex, toIndex);
+		comment.removeRows(fromIndex, toIndex);
+		commentMrb.removeRows(fromIndex, toIndex);
+		Arrays.fill(fmtLbMrb, size - n, size, null);
+		size -= n;
+		structureChanged(fromIndex);
+	}
+
+	/**
+	 * Remove all the positions marked by {@link CgData#setToDelete(boolean)} in
+	 * one pass
+	 *
+	 * @return number of removed positions
+	 */
+	public int removeMarked() {
+		int dst = 0;
+		int first = -1;
+		for (int src = 0; src < size; src++) {
+			if ((flags[src] & FLAG_TO_DELETE) == 0) {
+				if (dst != src)
+					copyRow(this, src, dst);
+				dst++;
+			} else if (first < 0) {
+				first = src;
+			}
+		}
+		int removed = size - dst;
+		if (removed > 0) {
+			removeRange(dst, size);
+			// -- The positions have moved from the first removed one
+			structureChanged(first);
+		}
+		return removed;
+	}
+
+	@Override
+	public void clear() {
+		if (size > 0)
+			Arrays.fill(fmtLbMrb, 0, size, null);
+		name.clear();
+		comment.clear();
+		commentMrb.clear();
+		size = 0;
+		structureChanged(0);
+	}
+
+	/**
+	 * Invert the order of the positions
+	 */
+	public void reverse() {
+		reverse(num, size);
+		reverse(lat, size);
+		reverse(lon, size);
+		reverse(ele, size);
+		reverse(eleNotSmoothed, size);
+		reverse(eleSmoothed, size);
+		reverse(eleMemo, size);
+		reverse(tag, size);
+		reverse(dist, size);
+		reverse(total, size);
+		reverse(diff, size);
+		reverse(coeff, size);
+		reverse(recovery, size);
+		reverse(slope, size);
+		reverse(speed, size);
+		reverse(dElevation, size);
+		reverse(time, size);
+		reverse(dTimeF, size);
+		reverse(timeLimit, size);
+		reverse(hour, size);
+		reverse(hourChrono, size);
+		reverse(station, size);
+		reverse(tmp1, size);
+		reverse(tmp2, size);
+		reverse(fmtLbMrb, size);
+		reverse(optMrb, size);
+		reverse(vposMrb, size);
+		reverse(fontSizeMrb, size);
+		reverse(flags, size);
+		name.reverse(size);
+		comment.reverse(size);
+		commentMrb.reverse(size);
+		structureChanged(0);
+	}
+
+	/**
+	 * Rotate the positions so that the position 'start' becomes the first one
+	 */
+	public void rotate(int start) {
+		if (start <= 0 || start >= size)
+			return;
+		for (Object c : denseColumns()) {
+			Object t = java.lang.reflect.Array.newInstance(c.getClass().getComponentType(), size);
+			System.arraycopy(c, start, t, 0, size - start);
+			System.arraycopy(c, 0, t, size - start, start);
+			System.arraycopy(t, 0, c, 0, size);
+		}
+		name.rotate(start, size);
+		comment.rotate(start, size);
+		commentMrb.rotate(start, size);
+		structureChanged(0);
+	}
+
+	/**
+	 * Replace the content of this store by a copy of 'src'
+	 */
+	public void copyFrom(TrackStore src) {
+		clear();
+		ensureCapacity(src.size);
+		// Both stores must have the same set of columns
+		tmp1 = (src.tmp1 != null) ? new double[lat.length] : null;
+		tmp2 = (src.tmp2 != null) ? new double[lat.length] : null;
+		size = src.size;
+		Object[] s = src.denseColumns();
+		Object[] d = denseColumns();
+		for (int i = 0; i < s.length; i++)
+			System.arraycopy(s[i], 0, d[i], 0, size);
+		chronologies.clear();
+		chronologies.addAll(src.chronologies);
+		name.copyFrom(src.name);
+		comment.copyFrom(src.comment);
+		commentMrb.copyFrom(src.commentMrb);
+		structureChanged(0);
+	}
+
+	/**
+	 * Replace the content of this store by the columns of 'src' read by the time
+	 * calculation (elevation, distance, difficulty, coefficient, slope, station,
+	 * time limit, hour and flags). The other columns are not copied: used on a
+	 * new store whose result is copied back by {@link #copyTimes(TrackStore)}
+	 */
+	public void copyCalculationFrom(TrackStore src) {
+		clear();
+		ensureCapacity(src.size);
+		size = src.size;
+		System.arraycopy(src.ele, 0, ele, 0, size);
+		System.arraycopy(src.dist, 0, dist, 0, size);
+		System.arraycopy(src.diff, 0, diff, 0, size);
+		System.arraycopy(src.coeff, 0, coeff, 0, size);
+		System.arraycopy(src.slope, 0, slope, 0, size);
+		System.arraycopy(src.station, 0, station, 0, size);
+		System.arraycopy(src.timeLimit, 0, timeLimit, 0, size);
+		System.arraycopy(src.hour, 0, hour, 0, size);
+		System.arraycopy(src.hourChrono, 0, hourChrono, 0, size);
+		System.arraycopy(src.flags, 0, flags, 0, size);
+		chronologies.clear();
+		chronologies.addAll(src.chronologies);
+		structureChanged(0);
+	}
+
+	/**
+	 * Copy a position of 'src' (which can be this store) in the position 'dst'
+	 */
+	void copyRow(TrackStore src, int s, int d) {
+		num[d] = src.num[s];
+		lat[d] = src.lat[s];
+		lon[d] = src.lon[s];
+		ele[d] = src.ele[s];
+		eleNotSmoothed[d] = src.eleNotSmoothed[s];
+		eleSmoothed[d] = src.eleSmoothed[s];
+		eleMemo[d] = src.eleMemo[s];
+		tag[d] = src.tag[s];
+		dist[d] = src.dist[s];
+		total[d] = src.total[s];
+		diff[d] = src.diff[s];
+		coeff[d] = src.coeff[s];
+		recovery[d] = src.recovery[s];
+		slope[d] = src.slope[s];
+		speed[d] = src.speed[s];
+		dElevation[d] = src.dElevation[s];
+		time[d] = src.time[s];
+		dTimeF[d] = src.dTimeF[s];
+		timeLimit[d] = src.timeLimit[s];
+		if (src == this) {
+			hour[d] = hour[s];
+			hourChrono[d] = hourChrono[s];
+		} else
+			setHour(d, src.getHour(s));
+		station[d] = src.station[s];
+		setTmp1(d, src.getTmp1(s));
+		setTmp2(d, src.getTmp2(s));
+		fmtLbMrb[d] = (src == this) ? fmtLbMrb[s] : pool(src.fmtLbMrb[s]);
+		optMrb[d] = src.optMrb[s];
+		vposMrb[d] = src.vposMrb[s];
+		fontSizeMrb[d] = src.fontSizeMrb[s];
+		flags[d] = src.flags[s];
+		name.set(d, src.name.get(s));
+		comment.set(d, src.comment.get(s));
+		commentMrb.set(d, src.commentMrb.get(s));
+	}
+
+	/**
+	 * Reset a position to the default values
+	 */
+	private void clearRow(int i) {
+		num[i] = 0;
+		lat[i] = 0.0;
+		lon[i] = 0.0;
+		ele[i] = 0.0;
+		eleNotSmoothed[i] = 0.0;
+		eleSmoothed[i] = 0.0;
+		eleMemo[i] = 0.0;
+		tag[i] = 0;
+		dist[i] = 0.0;
+		total[i] = 0.0;
+		diff[i] = 0.0;
+		coeff[i] = 0.0;
+		recovery[i] = 0.0;
+		slope[i] = 0.0;
+		speed[i] = 0.0;
+		dElevation[i] = 0.0;
+		time[i] = 0;
+		dTimeF[i] = 0.0;
+		timeLimit[i] = 0;
+		hour[i] = 0;
+		hourChrono[i] = NO_HOUR;
+		station[i] = 0;
+		if (tmp1 != null)
+			tmp1[i] = 0.0;
+		if (tmp2 != null)
+			tmp2[i] = 0.0;
+		fmtLbMrb[i] = "";
+		optMrb[i] = 0;
+		vposMrb[i] = 0;
+		fontSizeMrb[i] = 0;
+		flags[i] = 0;
+		name.set(i, "");
+		comment.set(i, "");
+		commentMrb.set(i, "");
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+
+	// -- Column accessors --------------------------------------------------
+
+	public double getLatitude(int i) {
+		return lat[i];
+	}
+
+	public double getLongitude(int i) {
+		return lon[i];
+	}
+
+	/** Elevation in meter **/
+	public double getElevation(int i) {
+		return ele[i];
+	}
+
+	/** Distance from the previous position in meter **/
+	public double getDist(int i) {
+		return dist[i];
+	}
+
+	/** Distance from the start in meter **/
+	public double getTotal(int i) {
+		return total[i];
+	}
+
+	public double getSlope(int i) {
+		return slope[i];
+	}
+
+	/** Speed in km/h **/
+	public double getSpeed(int i) {
+		return speed[i];
+	}
+
+	/** Time from the start in second **/
+	public int getTime(int i) {
+		return time[i];
+	}
+
+	public int getTag(int i) {
+		return tag[i];
+	}
+
+	public double getDiff(int i) {
+		return diff[i];
+	}
+
+	public double getCoeff(int i) {
+		return coeff[i];
+	}
+
+	/** Elevation before the smoothing in meter **/
+	public double getElevationNotSmoothed(int i) {
+		return eleNotSmoothed[i];
+	}
+
+	/** Smoothed elevation in meter **/
+	public double getElevationSmoothed(int i) {
+		return eleSmoothed[i];
+	}
+
+	public boolean getNight(int i) {
+		return (flags[i] & FLAG_NIGHT) != 0;
+	}
+
+	/**
+	 * Return the hour of the position. Return null if the hour is not set
+	 */
+	public DateTime getHour(int i) {
+		short c = hourChrono[i];
+		if (c == NO_HOUR)
+			return null;
+		return new DateTime(hour[i], chronologies.get(c));
+	}
+
+	/**
+	 * Return the second of the day of the hour of the position. Return -1 if the
+	 * hour is not set
+	 */
+	int getSecondOfDay(int i) {
+		short c = hourChrono[i];
+		if (c == NO_HOUR)
+			return -1;
+		return chronologies.get(c).secondOfDay().get(hour[i]);
+	}
+
+	/**
+	 * Return the index of a chronology in the chronology table. The chronology is
+	 * added if necessary
+	 */
+	short chronologyIndex(Chronology c) {
+		for (int i = 0; i < chronologies.size(); i++) {
+			Chronology r = chronologies.get(i);
+			if (r == c || r.equals(c))
+				return (short) i;
+		}
+		chronologies.add(c);
+		return (short) (chronologies.size() - 1);
+	}
+
+	void setHour(int i, DateTime t) {
+		if (t == null) {
+			hour[i] = 0;
+			hourChrono[i] = NO_HOUR;
+		} else {
+			hour[i] = t.getMillis();
+			hourChrono[i] = chronologyIndex(t.getChronology());
+		}
+	}
+
+	/**
+	 * Set the hour of a position from a time in millisecond and a chronology
+	 * index returned by {@link #chronologyIndex(Chronology)}
+	 */
+	void setHour(int i, long millis, short chrono) {
+		hour[i] = millis;
+		hourChrono[i] = chrono;
+	}
+
+	double getTmp1(int i) {
+		return tmp1 == null ? 0.0 : tmp1[i];
+	}
+
+	void setTmp1(int i, double v) {
+		if (tmp1 == null) {
+			if (v == 0.0)
+				return;
+			tmp1 = new double[lat.length];
+		}
+		tmp1[i] = v;
+	}
+
+	double getTmp2(int i) {
+		return tmp2 == null ? 0.0 : tmp2[i];
+	}
+
+	void setTmp2(int i, double v) {
+		if (tmp2 == null) {
+			if (v == 0.0)
+				return;
+			tmp2 = new double[lat.length];
+		}
+		tmp2[i] = v;
+	}
+
+	void setFlag(int i, byte flag, boolean on) {
+		if (on)
+			flags[i] |= flag;
+		else
+			flags[i] &= ~flag;
+	}
+
+	/**
+	 * Return a shared instance of the string
+	 */
+	String pool(String s) {
+		if (s == null || s.isEmpty())
+			return "";
+		String r = stringPool.get(s);
+		if (r == null) {
+			stringPool.put(s, s);
+			r = s;
+		}
+		return r;
+	}
+
+	// -- Helpers -----------------------------------------------------------
+
+	private static void reverse(double[] a, int n) {
+		if (a == null)
+			return;
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			double t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	private static void reverse(int[] a, int n) {
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			int t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	private static void reverse(long[] a, int n) {
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			long t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	private static void reverse(short[] a, int n) {
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			short t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	private static void reverse(byte[] a, int n) {
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			byte t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	private static void reverse(Object[] a, int n) {
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			Object t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	/**
+	 * String column where only the non empty values are stored. The keys are the
+	 * row indexes, sorted in ascending order.
+	 */
+	static class SparseStringColumn {
+		private int[] keys = new int[4];
+		private String[] values = new String[4];
+		private int count = 0;
+
+		/** Number of stored values **/
+		int count() {
+			return count;
+		}
+
+		private int find(int row) {
+			return Arrays.binarySearch(keys, 0, count, row);
+		}
+
+		String get(int row) {
+			int p = find(row);
+			return (p >= 0) ? values[p] : "";
+		}
+
+		void set(int row, String v) {
+			int p = find(row);
+			if (v == null || v.isEmpty()) {
+				if (p >= 0) {
+					System.arraycopy(keys, p + 1, keys, p, count - p - 1);
+					System.arraycopy(values, p + 1, values, p, count - p - 1);
+					count--;
+					values[count] = null;
+				}
+			} else if (p >= 0) {
+				values[p] = v;
+			} else {
+				p = -p - 1;
+				if (count == keys.length) {
+					keys = Arrays.copyOf(keys, count * 2);
+					values = Arrays.copyOf(values, count * 2);
+				}
+				System.arraycopy(keys, p, keys, p + 1, count - p);
+				System.arraycopy(values, p, values, p + 1, count - p);
+				keys[p] = row;
+				values[p] = v;
+				count++;
+			}
+		}
+
+		/** A row has been inserted at 'row': shift the following keys **/
+		void insertRow(int row) {
+			insertRows(row, 1);
+		}
+
+		/** 'n' rows have been inserted at 'row': shift the following keys **/
+		void insertRows(int row, int n) {
+			int p = find(row);
+			if (p < 0)
+				p = -p - 1;
+			for (int i = p; i < count; i++)
+				keys[i] += n;
+		}
+
+		/** Rows [from, to[ have been removed **/
+		void removeRows(int from, int to) {
+			int n = to - from;
+			int dst = 0;
+			for (int i = 0; i < count; i++) {
+				int k = keys[i];
+				if (k >= from && k < to)
+					continue;
+				keys[dst] = (k >= to) ? k - n : k;
+				values[dst] = values[i];
+				dst++;
+			}
+			Arrays.fill(values, dst, count, null);
+			count = dst;
+		}
+
+		void reverse(int size) {
+			for (int i = 0, j = count - 1; i <= j; i++, j--) {
+				int k = keys[i];
+				keys[i] = size - 1 - keys[j];
+				keys[j] = size - 1 - k;
+				String v = values[i];
+				values[i] = values[j];
+				values[j] = v;
+			}
+		}
+
+		void rotate(int start, int size) {
+			int p = find(start);
+			if (p < 0)
+				p = -p - 1;
+			int[] k = new int[keys.length];
+			String[] v = new String[values.length];
+			int n = 0;
+			for (int i = p; i < count; i++, n++) {
+				k[n] = keys[i] - start;
+				v[n] = values[i];
+			}
+			for (int i = 0; i < p; i++, n++) {
+				k[n] = keys[i] + size - start;
+				v[n] = values[i];
+			}
+			keys = k;
+			values = v;
+		}
+
+		void copyFrom(SparseStringColumn src) {
+			keys = Arrays.copyOf(src.keys, Math.max(src.count, 4));
+			values = Arrays.copyOf(src.values, Math.max(src.count, 4));
+			count = src.count;
+		}
+
+		void clear() {
+			Arrays.fill(values, 0, count, null);
+			count = 0;
+		}
+	}
+}
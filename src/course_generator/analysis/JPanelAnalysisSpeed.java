@@ -22,6 +22,7 @@ import java.awt.Color;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.util.ResourceBundle;
+import java.util.function.IntToDoubleFunction;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -44,19 +45,20 @@ import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.StandardXYItemRenderer;
 import org.jfree.chart.renderer.xy.XYAreaRenderer;
 import org.jfree.data.xy.XYDataset;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
 
 import course_generator.CgData;
 import course_generator.TrackData;
+import course_generator.TrackStore;
 import course_generator.settings.CgSettings;
+import course_generator.utils.LazyRefresh;
+import course_generator.utils.TrackDataset;
 import course_generator.utils.Utils;
 
 public class JPanelAnalysisSpeed extends JPanel {
 	private static final long serialVersionUID = 8675654746142038326L;
 	private JFreeChart chart = null;
-	private XYSeriesCollection datasetSpeedReg = null;
-	private XYSeriesCollection datasetSpeed = null;
+	private TrackDataset datasetSpeedReg = null;
+	private TrackDataset datasetSpeed = null;
 	private ResourceBundle bundle;
 	private JPanel jPanelSpeedInfo;
 	private JLabel lbSpeedInfoStartSpeed;
@@ -67,6 +69,12 @@ public class JPanelAnalysisSpeed extends JPanel {
 	private Crosshair xCrosshair;
 	private TrackData track = null;
 	private CgSettings settings = null;
+	/** The chart is calculated only when the tab is displayed **/
+	private final LazyRefresh lazyRefresh = new LazyRefresh(this, new Runnable() {
+		public void run() {
+			RefreshChart();
+		}
+	});
 	private double startSpeed = 0.0;
 	private double endSpeed = 0.0;
 	private int index = 0;
@@ -76,8 +84,8 @@ public class JPanelAnalysisSpeed extends JPanel {
 		track = null;
 		this.settings = settings;
 		bundle = java.util.ResourceBundle.getBundle("course_generator/Bundle");
-		datasetSpeedReg = new XYSeriesCollection();
-		datasetSpeed = new XYSeriesCollection();
+		datasetSpeedReg = new TrackDataset();
+		datasetSpeed = new TrackDataset();
 		chart = CreateChart(datasetSpeedReg, datasetSpeed);
 		initComponents();
 	}
@@ -141,6 +149,8 @@ public class JPanelAnalysisSpeed extends JPanel {
 		// -- Chart Speed/Dist & Time/Dist
 		ChartPanelSpeed = new ChartPanel(chart, true /* Properties */, true /* save */, true /* print */,
 				false /* zoom */, true /* tooltips */);
+		datasetSpeedReg.attach(ChartPanelSpeed);
+		datasetSpeed.attach(ChartPanelSpeed);
 		ChartPanelSpeed.setDomainZoomable(false);
 		ChartPanelSpeed.setRangeZoomable(false);
 
@@ -166,7 +176,7 @@ public class JPanelAnalysisSpeed extends JPanel {
 					int i = e.getItem();
 					double x = d.getXValue(s, i);
 					xCrosshair.setValue(x);
-					RefreshInfo(i);
+					RefreshInfo(((TrackDataset) d).getPosition(s, i));
 				}
 			}
 
@@ -244,7 +254,7 @@ public class JPanelAnalysisSpeed extends JPanel {
 	}
 
 	/**
-	 * Update the Time/Distance chart
+	 * Update the Time/Distance chart. The refresh is done when the tab is displayed
 	 */
 	public void Refresh(TrackData track, CgSettings settings) {
 		if (track == null)
@@ -255,7 +265,13 @@ public class JPanelAnalysisSpeed extends JPanel {
 
 		this.track = track;
 		this.settings = settings;
+		lazyRefresh.invalidate(track);
+	}
 
+	/**
+	 * Update the Time/Distance chart with the current track
+	 */
+	private void RefreshChart() {
 		// -- Calculate the speed regression
 		/*
 		 * y = ax + b a = the slope of the trend line. b = the intercept of the trend
@@ -297,10 +313,6 @@ public class JPanelAnalysisSpeed extends JPanel {
 		XYPlot plot = chart.getXYPlot();
 		plot.clearDomainMarkers();
 
-		// -- Populate the serie
-		XYSeries serie1 = new XYSeries("Speed regression/Distance");
-		XYSeries serie2 = new XYSeries("Speed/Distance");
-
 		startSpeed = 0.0;
 		endSpeed = 0.0;
 		double maxspeed = 0.0;
@@ -320,17 +332,26 @@ public class JPanelAnalysisSpeed extends JPanel {
 				endSpeed = ((a * x + b) / (100 / d.getDiff())) / (100 / d.getCoeff());
 
 			cmpt++;
-
-			serie1.add(x, y / (100.0 / d.getDiff()) / (100.0 / d.getCoeff()));
-			serie2.add(x, a * cmpt + b);
-
 		}
 		// -- If there is no speed the exit (not already calculated)
 		if (maxspeed == 0.0)
 			return;
 
-		datasetSpeedReg.addSeries(serie2);
-		datasetSpeed.addSeries(serie1);
+		// -- Populate the serie
+		final TrackStore data = track.data;
+		final double km = Utils.DistanceFactor(settings.Unit) / 1000;
+		final double speed = Utils.DistanceFactor(settings.Unit);
+		final double ra = a;
+		final double rb = b;
+		IntToDoubleFunction dist = i -> {
+			double x = data.getTotal(i) * km;
+			return (x < 0.001) ? 0 : x;
+		};
+		datasetSpeedReg.addSeries("Speed regression/Distance", dist, i -> ra * (i + 1) + rb);
+		datasetSpeed.addSeries("Speed/Distance", dist,
+				i -> data.getSpeed(i) * speed / (100.0 / data.getDiff(i)) / (100.0 / data.getCoeff(i)));
+		datasetSpeedReg.setSize(track.data.size());
+		datasetSpeed.setSize(track.data.size());
 
 		ValueAxis axisY = plot.getRangeAxis(0);
 		axisY.setRange(0.0, Math.ceil(maxspeed / 5.0) * 5.0);
@@ -62,8 +62,10 @@ import com.sun.xml.txw2.output.IndentingXMLStreamWriter;
 import course_generator.CgData;
 import course_generator.TrackData;
 import course_generator.dialogs.frmSaveSSCurve;
+import course_generator.param.CurveRepository;
 import course_generator.settings.CgSettings;
 import course_generator.utils.CgConst;
+import course_generator.utils.LazyRefresh;
 import course_generator.utils.Utils;
 
 public class JPanelAnalysisSpeedSlope extends JPanel {
@@ -81,6 +83,12 @@ public class JPanelAnalysisSpeedSlope extends JPanel {
 	private Crosshair xCrosshair;
 	private TrackData track = null;
 	private CgSettings settings = null;
+	/** The chart is calculated only when the tab is displayed **/
+	private final LazyRefresh lazyRefresh = new LazyRefresh(this, new Runnable() {
+		public void run() {
+			RefreshChart();
+		}
+	});
 	private JButton btSpeedSlopeCorr;
 	private JButton btSpeedSlopeFilter;
 
@@ -282,6 +290,7 @@ public class JPanelAnalysisSpeedSlope extends JPanel {
 			writer.flush();
 			writer.close();
 			bufferedOutputStream.close();
+			CurveRepository.getInstance().invalidate(CgConst.CURVE_FOLDER_USER, name);
 
 		} catch (XMLStreamException | IOException e) {
 			e.printStackTrace();
@@ -356,7 +365,7 @@ public class JPanelAnalysisSpeedSlope extends JPanel {
 	}
 
 	/**
-	 * Update the Slope/Speed chart
+	 * Update the Slope/Speed chart. The refresh is done when the tab is displayed
 	 */
 	public void Refresh(TrackData track, CgSettings settings) {
 		if (track == null)
@@ -367,7 +376,13 @@ public class JPanelAnalysisSpeedSlope extends JPanel {
 
 		this.track = track;
 		this.settings = settings;
+		lazyRefresh.invalidate(track);
+	}
 
+	/**
+	 * Update the Slope/Speed chart with the current track
+	 */
+	private void RefreshChart() {
 		// -- Clear all series
 		if (datasetSpeedSlopePoint.getSeriesCount() > 0)
 			datasetSpeedSlopePoint.removeAllSeries();
@@ -416,7 +431,7 @@ public class JPanelAnalysisSpeedSlope extends JPanel {
 			// maxspeed=r.getSpeed(settings.Unit);
 
 			if (btSpeedSlopeFilter.isSelected())
-				s = r.tmp1;
+				s = r.getTmp1();
 			else
 				s = r.getSpeed();
 
@@ -473,7 +488,7 @@ public class JPanelAnalysisSpeedSlope extends JPanel {
 		for (CgData r : track.data) {
 			{
 				if (btSpeedSlopeFilter.isSelected())
-					s = r.tmp1;
+					s = r.getTmp1();
 				else
 					s = r.getSpeed();
 
@@ -517,7 +532,7 @@ public class JPanelAnalysisSpeedSlope extends JPanel {
 		// -- Populate the first serie
 		for (CgData r : track.data) {
 			if (btSpeedSlopeFilter.isSelected())
-				s = r.tmp1;
+				s = r.getTmp1();
 			else
 				s = r.getSpeed(settings.Unit);
 
@@ -581,7 +596,7 @@ public class JPanelAnalysisSpeedSlope extends JPanel {
 						+ track.data.get(i - 2).getSpeed(settings.Unit) + track.data.get(i - 3).getSpeed(settings.Unit)
 						+ track.data.get(i - 4).getSpeed(settings.Unit)) / 5;
 
-			track.data.get(i).tmp1 = avr;
+			track.data.get(i).setTmp1(avr);
 		}
 	}
 
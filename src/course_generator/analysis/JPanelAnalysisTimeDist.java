@@ -45,22 +45,29 @@ import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.StandardXYItemRenderer;
 import org.jfree.chart.renderer.xy.XYAreaRenderer;
 import org.jfree.data.xy.XYDataset;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
 
 import course_generator.CgData;
 import course_generator.TrackData;
+import course_generator.TrackStore;
 import course_generator.settings.CgSettings;
+import course_generator.utils.LazyRefresh;
+import course_generator.utils.TrackDataset;
 import course_generator.utils.Utils;
 
 public class JPanelAnalysisTimeDist extends JPanel {
 	private static final long serialVersionUID = -5411000318387926611L;
 	private JFreeChart chart = null;
-	private XYSeriesCollection datasetElevDist = null;
-	private XYSeriesCollection datasetTimeDist = null;
+	private TrackDataset datasetElevDist = null;
+	private TrackDataset datasetTimeDist = null;
 	private ResourceBundle bundle;
 	private TrackData track = null;
 	private CgSettings settings = null;
+	/** The chart is calculated only when the tab is displayed **/
+	private final LazyRefresh lazyRefresh = new LazyRefresh(this, new Runnable() {
+		public void run() {
+			RefreshChart();
+		}
+	});
 
 	private JPanel jPanelTimeDistInfo;
 	private JLabel lbTimeDistInfoDistance;
@@ -77,8 +84,8 @@ public class JPanelAnalysisTimeDist extends JPanel {
 		track = null;
 		this.settings = settings;
 		bundle = java.util.ResourceBundle.getBundle("course_generator/Bundle");
-		datasetElevDist = new XYSeriesCollection();
-		datasetTimeDist = new XYSeriesCollection();
+		datasetElevDist = new TrackDataset();
+		datasetTimeDist = new TrackDataset();
 		chart = CreateChart(datasetElevDist, datasetTimeDist);
 		initComponents();
 	}
@@ -145,6 +152,8 @@ public class JPanelAnalysisTimeDist extends JPanel {
 		// -- Chart Time/Dist
 		ChartPanelTimeDist = new ChartPanel(chart, true /* Properties */, true /* save */, true /* print */,
 				false /* zoom */, true /* tooltips */);
+		datasetElevDist.attach(ChartPanelTimeDist);
+		datasetTimeDist.attach(ChartPanelTimeDist);
 		ChartPanelTimeDist.setDomainZoomable(false);
 		ChartPanelTimeDist.setRangeZoomable(false);
 
@@ -168,7 +177,7 @@ public class JPanelAnalysisTimeDist extends JPanel {
 					int i = e.getItem();
 					double x = d.getXValue(s, i);
 					xCrosshair.setValue(x);
-					RefreshInfo(i);
+					RefreshInfo(((TrackDataset) d).getPosition(s, i));
 				}
 			}
 
@@ -248,7 +257,7 @@ public class JPanelAnalysisTimeDist extends JPanel {
 	}
 
 	/**
-	 * Update the Time/Distance chart
+	 * Update the Time/Distance chart. The refresh is done when the tab is displayed
 	 */
 	public void Refresh(TrackData track, CgSettings settings) {
 		if (track == null)
@@ -258,7 +267,13 @@ public class JPanelAnalysisTimeDist extends JPanel {
 			return;
 		this.track = track;
 		this.settings = settings;
+		lazyRefresh.invalidate(track);
+	}
 
+	/**
+	 * Update the Time/Distance chart with the current track
+	 */
+	private void RefreshChart() {
 		// -- Clear all series
 		if (datasetElevDist.getSeriesCount() > 0)
 			datasetElevDist.removeAllSeries();
@@ -269,17 +284,13 @@ public class JPanelAnalysisTimeDist extends JPanel {
 		XYPlot plot = chart.getXYPlot();
 
 		// -- Populate the serie
-		XYSeries serie1 = new XYSeries("Elevation/Distance");
-		XYSeries serie2 = new XYSeries("Time/Distance");
-		for (CgData r : track.data) {
-			double x = r.getTotal(settings.Unit) / 1000;
-			double y = r.getElevation(settings.Unit);
-			double t = r.getTime();
-			serie1.add(x, y);
-			serie2.add(x, t);
-		}
-		datasetElevDist.addSeries(serie1);
-		datasetTimeDist.addSeries(serie2);
+		final TrackStore data = track.data;
+		final double km = Utils.DistanceFactor(settings.Unit) / 1000;
+		final double elev = Utils.ElevationFactor(settings.Unit);
+		datasetElevDist.addSeries("Elevation/Distance", i -> data.getTotal(i) * km, i -> data.getElevation(i) * elev);
+		datasetTimeDist.addSeries("Time/Distance", i -> data.getTotal(i) * km, i -> data.getTime(i));
+		datasetElevDist.setSize(track.data.size());
+		datasetTimeDist.setSize(track.data.size());
 
 		if (track.getMaxElev(settings.Unit) > track.getMinElev(settings.Unit)) {
 			ValueAxis axisYElev = plot.getRangeAxis(0);
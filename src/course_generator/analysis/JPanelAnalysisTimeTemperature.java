@@ -45,22 +45,29 @@ import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.StandardXYItemRenderer;
 import org.jfree.chart.renderer.xy.XYAreaRenderer;
 import org.jfree.data.xy.XYDataset;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
 
 import course_generator.CgData;
 import course_generator.TrackData;
+import course_generator.TrackStore;
 import course_generator.settings.CgSettings;
+import course_generator.utils.LazyRefresh;
+import course_generator.utils.TrackDataset;
 import course_generator.utils.Utils;
 
 public class JPanelAnalysisTimeTemperature extends JPanel {
 	private static final long serialVersionUID = -5411000318387926611L;
 	private JFreeChart chart = null;
-	private XYSeriesCollection datasetElevTime = null;
-	private XYSeriesCollection datasetTemperatureTime = null;
+	private TrackDataset datasetElevTime = null;
+	private TrackDataset datasetTemperatureTime = null;
 	private ResourceBundle bundle;
 	private TrackData track = null;
 	private CgSettings settings = null;
+	/** The chart is calculated only when the tab is displayed **/
+	private final LazyRefresh lazyRefresh = new LazyRefresh(this, new Runnable() {
+		public void run() {
+			RefreshChart();
+		}
+	});
 
 	private JPanel jPanelTimeDistInfo;
 	private JLabel lbTimeDistInfoDistance;
@@ -76,8 +83,8 @@ public class JPanelAnalysisTimeTemperature extends JPanel {
 		track = null;
 		this.settings = settings;
 		bundle = java.util.ResourceBundle.getBundle("course_generator/Bundle");
-		datasetElevTime = new XYSeriesCollection();
-		datasetTemperatureTime = new XYSeriesCollection();
+		datasetElevTime = new TrackDataset();
+		datasetTemperatureTime = new TrackDataset();
 		chart = CreateChart(datasetElevTime, datasetTemperatureTime);
 		initComponents();
 	}
@@ -147,6 +154,8 @@ public class JPanelAnalysisTimeTemperature extends JPanel {
 		// -- Chart Time/Dist
 		ChartPanelTimeDist = new ChartPanel(chart, true /* Properties */, true /* save */, true /* print */,
 				false /* zoom */, true /* tooltips */);
+		datasetElevTime.attach(ChartPanelTimeDist);
+		datasetTemperatureTime.attach(ChartPanelTimeDist);
 		ChartPanelTimeDist.setDomainZoomable(false);
 		ChartPanelTimeDist.setRangeZoomable(false);
 
@@ -170,7 +179,7 @@ public class JPanelAnalysisTimeTemperature extends JPanel {
 					int i = e.getItem();
 					double x = d.getXValue(s, i);
 					xCrosshair.setValue(x);
-					RefreshInfo(i);
+					RefreshInfo(((TrackDataset) d).getPosition(s, i));
 					// Refresh the position on the data grid
 					// TableMain.setRowSelectionInterval(i, i);
 					// Rectangle rect = TableMain.getCellRect(i, 0, true);
@@ -254,7 +263,7 @@ public class JPanelAnalysisTimeTemperature extends JPanel {
 	}
 
 	/**
-	 * Update the Time/Distance chart
+	 * Update the Time/Distance chart. The refresh is done when the tab is displayed
 	 */
 	public void Refresh(TrackData track, CgSettings settings) {
 		if (track == null)
@@ -264,7 +273,13 @@ public class JPanelAnalysisTimeTemperature extends JPanel {
 			return;
 		this.track = track;
 		this.settings = settings;
+		lazyRefresh.invalidate(track);
+	}
 
+	/**
+	 * Update the Time/Distance chart with the current track
+	 */
+	private void RefreshChart() {
 		// -- Clear all series
 		if (datasetElevTime.getSeriesCount() > 0)
 			datasetElevTime.removeAllSeries();
@@ -274,16 +289,12 @@ public class JPanelAnalysisTimeTemperature extends JPanel {
 
 		XYPlot plot = chart.getXYPlot();
 
-		// -- Populate the series
-		XYSeries serie1 = new XYSeries("Elevation/Time");
-		XYSeries serie2 = new XYSeries("Temperature/Time");
-		for (CgData r : track.data) {
-			double x = r.getTotal(settings.Unit) / 1000;
-			double y = r.getElevation(settings.Unit);
-			serie1.add(x, y);
-		}
-		datasetElevTime.addSeries(serie1);
-		datasetTemperatureTime.addSeries(serie2);
+		// -- Populate the series. No temperature for now
+		final TrackStore data = track.data;
+		final double km = Utils.DistanceFactor(settings.Unit) / 1000;
+		final double elev = Utils.ElevationFactor(settings.Unit);
+		datasetElevTime.addSeries("Elevation/Time", i -> data.getTotal(i) * km, i -> data.getElevation(i) * elev);
+		datasetElevTime.setSize(track.data.size());
 
 		if (track.getMaxElev(settings.Unit) > track.getMinElev(settings.Unit)) {
 			ValueAxis axisYElev = plot.getRangeAxis(0);
@@ -51,15 +51,15 @@ import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.StandardXYItemRenderer;
 import org.jfree.chart.renderer.xy.XYAreaRenderer;
 import org.jfree.data.xy.XYDataset;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
 
 import course_generator.CgData;
 import course_generator.TrackData;
 import course_generator.TrackData.CalcClimbResult;
+import course_generator.TrackStore;
 import course_generator.settings.CgSettings;
 import course_generator.utils.CgConst;
 import course_generator.utils.CgSpinner;
+import course_generator.utils.TrackDataset;
 import course_generator.utils.Utils;
 
 public class FrmElevationFilter extends javax.swing.JDialog {
@@ -70,8 +70,8 @@ public class FrmElevationFilter extends javax.swing.JDialog {
 	private TrackData track;
 	private CgData data;
 	private JFreeChart chartProfil = null;
-	private XYSeriesCollection datasetElevDist = null;
-	private XYSeriesCollection datasetElevDistSmooth = null;
+	private TrackDataset datasetElevDist = null;
+	private TrackDataset datasetElevDistSmooth = null;
 	private ChartPanel ChartPanelProfil;
 	private JLabel lbFilter;
 	private CgSpinner spinFilter;
@@ -86,8 +86,8 @@ public class FrmElevationFilter extends javax.swing.JDialog {
 	public FrmElevationFilter(CgSettings _settings) {
 		settings = _settings;
 		bundle = java.util.ResourceBundle.getBundle("course_generator/Bundle");
-		datasetElevDist = new XYSeriesCollection();
-		datasetElevDistSmooth = new XYSeriesCollection();
+		datasetElevDist = new TrackDataset();
+		datasetElevDistSmooth = new TrackDataset();
 		chartProfil = CreateChart(datasetElevDist, datasetElevDistSmooth);
 		initComponents();
 		setModal(true);
@@ -178,6 +178,8 @@ public class FrmElevationFilter extends javax.swing.JDialog {
 		// -- Profil chart
 		// ------------------------------------------------------
 		ChartPanelProfil = new ChartPanel(chartProfil);
+		datasetElevDist.attach(ChartPanelProfil);
+		datasetElevDistSmooth.attach(ChartPanelProfil);
 		ChartPanelProfil.setBackground(new java.awt.Color(255, 0, 51));
 
 		Utils.addComponent(paneGlobal, ChartPanelProfil, 0, line++, 2, 1, 0, 1, 10, 10, 0, 10,
@@ -325,17 +327,15 @@ public class FrmElevationFilter extends javax.swing.JDialog {
 		XYPlot plot = chartProfil.getXYPlot();
 
 		// -- Populate the serie
-		XYSeries serie1 = new XYSeries("Elevation/Distance");
-		XYSeries serie2 = new XYSeries("Elevation smoothed/Distance");
-		for (CgData r : track.data) {
-			double x = r.getTotal(settings.Unit) / 1000;
-			double y = r.getElevationNotSmoothed(settings.Unit);
-			double ys = r.getElevationSmoothed(settings.Unit);
-			serie1.add(x, y);
-			serie2.add(x, ys);
-		}
-		datasetElevDist.addSeries(serie1);
-		datasetElevDistSmooth.addSeries(serie2);
+		final TrackStore data = track.data;
+		final double km = Utils.DistanceFactor(settings.Unit) / 1000;
+		final double elev = Utils.ElevationFactor(settings.Unit);
+		datasetElevDist.addSeries("Elevation/Distance", i -> data.getTotal(i) * km,
+				i -> data.getElevationNotSmoothed(i) * elev);
+		datasetElevDistSmooth.addSeries("Elevation smoothed/Distance", i -> data.getTotal(i) * km,
+				i -> data.getElevationSmoothed(i) * elev);
+		datasetElevDist.setSize(track.data.size());
+		datasetElevDistSmooth.setSize(track.data.size());
 
 		if (track.getMaxElev(settings.Unit) > track.getMinElev(settings.Unit)) {
 			ValueAxis axisYElev = plot.getRangeAxis(0);
@@ -70,6 +70,15 @@ public class ProgressDialog extends JDialog {
 		progressBar.setValue(value);
 	}
 
+	/**
+	 * Set the text displayed in the progress bar
+	 * 
+	 * @param text Text to display. null=percentage
+	 */
+	public void setText(String text) {
+		progressBar.setString(text);
+	}
+
 	public void setListener(ProgressDialogListener listener) {
 		this.progressDialogListener = listener;
 	}
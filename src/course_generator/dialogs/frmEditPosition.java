@@ -242,7 +242,7 @@ public class frmEditPosition extends javax.swing.JDialog {
 			track.data.get(line).setTag(tag);
 
 			if (newMRB)
-				track.data.get(line).FmtLbMiniRoadbook = settings.DefaultFormat;
+				track.data.get(line).setFmtLbMiniRoadbook(settings.DefaultFormat);
 
 			track.data.get(line).setElevation(spinElevation.getValueAsDouble(settings.Unit)); // CgConst.UNIT_METER));
 			track.data.get(line).setDiff(spinDiff.getValueAsDouble());
@@ -25,7 +25,10 @@ import java.awt.FlowLayout;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -38,10 +41,12 @@ import javax.swing.JPanel;
 import javax.swing.JProgressBar;
 import javax.swing.JRootPane;
 import javax.swing.KeyStroke;
+import javax.swing.SwingWorker;
 
-import course_generator.CgData;
 import course_generator.TrackData;
+import course_generator.param.CurveSearch;
 import course_generator.settings.CgSettings;
+import course_generator.utils.CgLog;
 import course_generator.utils.JTimeSetting;
 import course_generator.utils.Utils;
 
@@ -49,7 +54,6 @@ public class frmSearchCurve extends javax.swing.JDialog {
 	private static final long serialVersionUID = 2889867873080848278L;
 	private ResourceBundle bundle;
 	private boolean ok;
-	private final int NbCurves = 145;
 	private String strMin = "";
 	private String strMax = "";
 	private CgSettings settings;
@@ -70,6 +74,12 @@ public class frmSearchCurve extends javax.swing.JDialog {
 	private JLabel lbFoundTime2;
 	private JLabel lbFoundTime2Val;
 	private JButton btFoundSelect2;
+	/** Search engine. Keep the curves loaded between two searches **/
+	private final CurveSearch curveSearch = new CurveSearch();
+	/** Running search. Null if none **/
+	private SwingWorker<CurveSearch.Result, Integer> worker = null;
+	/** Copy of the track used by the running search **/
+	private TrackData track_calc = null;
 
 	/**
 	 * Creates new form frmSettings
@@ -115,6 +125,7 @@ public class frmSearchCurve extends javax.swing.JDialog {
 		@SuppressWarnings("serial")
 		Action actionListener = new AbstractAction() {
 			public void actionPerformed(ActionEvent actionEvent) {
+				CancelSearch();
 				setVisible(false);
 			}
 		};
@@ -203,7 +214,7 @@ public class frmSearchCurve extends javax.swing.JDialog {
 		// -- Line
 		line = 0;
 
-		progressBar = new JProgressBar(0, NbCurves);
+		progressBar = new JProgressBar(0, 100);
 		progressBar.setValue(0);
 		progressBar.setStringPainted(true);
 		Utils.addComponent(panelProgress, progressBar, 0, line, 1, 1, 1, 1, 0, 0, 0, 0,
@@ -316,6 +327,7 @@ public class frmSearchCurve extends javax.swing.JDialog {
 		btCancel.setText(bundle.getString("Global.btCancel.text"));
 		btCancel.addActionListener(new java.awt.event.ActionListener() {
 			public void actionPerformed(java.awt.event.ActionEvent evt) {
+				CancelSearch();
 				setVisible(false);
 			}
 		});
@@ -329,14 +341,27 @@ public class frmSearchCurve extends javax.swing.JDialog {
 		setLocationRelativeTo(null);
 	}
 
+	/**
+	 * Cancel the running search
+	 */
+	private void CancelSearch() {
+		if (worker != null) {
+			track_calc.CancelCalculation();
+			worker.cancel(true);
+		}
+	}
+
+	/**
+	 * Search the curves giving the final time. The search runs in background and
+	 * the result is displayed at the end
+	 */
 	private void Search() {
-		int targetTime = hsFinalTime.getHMSinSecond();
-		int timeMin = 0;
-		int timeMax = 0;
-		int cmpt = 0;
+		final int targetTime = hsFinalTime.getHMSinSecond();
 
-		TrackData track_calc = new TrackData(settings);
+		// -- Copy of the track used by the search. Not modified during the search
+		final TrackData track_calc = new TrackData(settings);
 		track.CopyTo(track_calc);
+		this.track_calc = track_calc;
 
 		// -- Init display
 		lbFoundCurve1.setText("");
@@ -346,47 +371,59 @@ public class frmSearchCurve extends javax.swing.JDialog {
 		lbFoundTime2Val.setText("");
 		progressBar.setValue(0);
 
-		boolean found = false;
+		strMin = "";
+		strMax = "";
+		btSearchCurve.setEnabled(false);
 
 		// -- Search
-		for (double speed = 3.6; speed <= 18; speed = speed + 0.1) {
-			String name = String.format("Run_%02d_%dkm_h", (int) speed, (int) ((speed - (int) speed) * 10));
-			track_calc.Paramfile = name;
-			track_calc.Calculate();
-
-			// Found exact time
-			if (track_calc.TotalTime == targetTime) {
-				strMin = track_calc.Paramfile;
-				timeMin = track_calc.TotalTime;
-				found = true;
-				break;
-			} else if (track_calc.TotalTime > targetTime) {
-				strMax = track_calc.Paramfile;
-				timeMax = track_calc.TotalTime;
-			} else {
-				if (!strMax.isEmpty()) {
-					strMin = track_calc.Paramfile;
-					timeMin = track_calc.TotalTime;
-					found = true;
-				}
-				break;
+		worker = new SwingWorker<CurveSearch.Result, Integer>() {
+			@Override
+			protected CurveSearch.Result doInBackground() throws Exception {
+				return curveSearch.search(track_calc, targetTime, new IntConsumer() {
+					public void accept(int value) {
+						publish(value);
+					}
+				});
+			}
+
+			@Override
+			protected void process(List<Integer> chunks) {
+				// Update progressbar
+				progressBar.setValue(chunks.get(chunks.size() - 1));
 			}
 
-			// Update progressbar
-			cmpt++;
-			progressBar.setValue(cmpt);
-		} // for
+			@Override
+			protected void done() {
+				worker = null;
+				frmSearchCurve.this.track_calc = null;
+				btSearchCurve.setEnabled(true);
+				if (isCancelled())
+					return;
+
+				CurveSearch.Result r;
+				try {
+					r = get();
+				} catch (InterruptedException | ExecutionException e) {
+					CgLog.error("frmSearchCurve.Search : Error during the search : " + e.getMessage());
+					return;
+				}
 
-		progressBar.setValue(NbCurves);
+				progressBar.setValue(100);
 
-		if (found) {
-			lbFoundCurve1.setText(strMin);
-			lbFoundTime1Val.setText(Utils.Second2DateString(timeMin));
+				if (r.found) {
+					strMin = r.curveMin;
+					strMax = r.curveMax;
 
-			lbFoundCurve2.setText(strMax);
-			lbFoundTime2Val.setText(Utils.Second2DateString(timeMax));
-		} else
-			lbFoundCurve1.setText(bundle.getString("frmSearchCurve.StrNotFound"));
+					lbFoundCurve1.setText(strMin);
+					lbFoundTime1Val.setText(Utils.Second2DateString(r.timeMin));
+
+					lbFoundCurve2.setText(strMax);
+					lbFoundTime2Val.setText(strMax.isEmpty() ? "" : Utils.Second2DateString(r.timeMax));
+				} else
+					lbFoundCurve1.setText(bundle.getString("frmSearchCurve.StrNotFound"));
+			}
+		};
+		worker.execute();
 	}
 
 }
@@ -93,6 +93,7 @@ import java.util.Enumeration;
 import java.util.Locale;
 import java.util.Scanner;
 import java.util.StringTokenizer;
+import java.util.concurrent.CancellationException;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -119,7 +120,6 @@ import javax.swing.table.DefaultTableModel;
 import org.openstreetmap.gui.jmapviewer.Coordinate;
 import org.openstreetmap.gui.jmapviewer.OsmFileCacheTileLoader;
 
-import course_generator.TrackData.CalcClimbResult;
 import course_generator.TrackData.SearchPointResult;
 import course_generator.analysis.JPanelAnalysisSpeed;
 import course_generator.analysis.JPanelAnalysisSpeedSlope;
@@ -127,6 +127,7 @@ import course_generator.analysis.JPanelAnalysisTimeDist;
 import course_generator.dialogs.FrmElevationFilter;
 import course_generator.dialogs.FrmExportWaypoints;
 import course_generator.dialogs.FrmImportChoice;
+import course_generator.dialogs.ProgressDialog;
 import course_generator.dialogs.frmEditPosition;
 import course_generator.dialogs.frmExportPoints;
 import course_generator.dialogs.frmFillCoeff;
@@ -171,11 +172,17 @@ public class frmMain extends javax.swing.JFrame {
 	private static final long serialVersionUID = 6484405417503538528L;
 
 	private final static String Version = "4.6.0";
+	/** Size of the GPX files read with a progress dialog (byte) **/
+	private final static long GPX_PROGRESS_MIN_SIZE = 2 * 1024 * 1024;
 
 	public static boolean inEclipse = false;
 	public static CgLog log = null;
 
-	public TrackData Track, Backup_Track;
+	public TrackData Track;
+	/** Undo/redo journal of the edits of the track **/
+	private TrackJournal Journal;
+	/** Time calculation of the track in background **/
+	private TrackCalculator Calculator;
 	private ResumeData Resume;
 	private final TrackDataModel ModelTableMain;
 	public CgSettings Settings;
@@ -186,7 +193,6 @@ public class frmMain extends javax.swing.JFrame {
 	private int cmptRelease = -1;
 	private boolean InternetConnectionActive = false;
 	private Timer timer1s; // 1 second timer object
-	private boolean bNoBackup = true;
 	private String StrMapsDirSize = "";
 	private String CurrentLanguage = "";
 
@@ -236,6 +242,7 @@ public class frmMain extends javax.swing.JFrame {
 	private JMenuItem mnuAbout;
 	private static JButton btSaveCGX;
 	private static JButton btUndo;
+	private static JButton btRedo;
 	private static JButton btSearch;
 	private static JButton btGotoPreviousMark;
 	private static JButton btGotoNextMark;
@@ -291,6 +298,7 @@ public class frmMain extends javax.swing.JFrame {
 	private JMenu mnuExport;
 	private JMenu mnuTags;
 	private JMenuItem mnuSaveAsCGX;
+	private JMenuItem mnuSaveAsCGB;
 
 	private JMenuItem mnuDisplayLogDir;
 
@@ -365,7 +373,6 @@ public class frmMain extends javax.swing.JFrame {
 		Resume = new ResumeData();
 		Settings = new CgSettings();
 		Track = new TrackData(Settings);
-		Backup_Track = new TrackData(Settings);
 
 		// -- Say to the system that we want to use the default proxy settings (the
 		// simpliest solution!)
@@ -375,6 +382,8 @@ public class frmMain extends javax.swing.JFrame {
 
 		// -- Load configuration
 		LoadConfig();
+		Journal = new TrackJournal(Settings.UndoMemory * 1024L * 1024L);
+		Calculator = new TrackCalculator(Settings);
 
 		// -- Post configuration loading settings
 		Track.MrbSizeW = Settings.DefMrbWidth;
@@ -552,26 +561,25 @@ public class frmMain extends javax.swing.JFrame {
 		if (Track.ReadOnly)
 			return;
 
-		// -- Calculation
-		Track.Calculate();
-
-		// -- Refresh
-		RefreshStatusbar(Track);
-
-		CalcClimbResult ccr = new CalcClimbResult();
-		ccr = Track.CalcClimb(CgConst.ELEV_NORM, 0, Track.data.size() - 1, ccr);
-		Track.setClimbP(ccr.cp);
-		Track.setClimbM(ccr.cm);
-		Track.AscTime = ccr.tp;
-		Track.DescTime = ccr.tm;
-
-		Track.CheckTimeLimit();
-
-		Track.isCalculated = true;
-		Track.isModified = true;
+		// -- Calculation in background. The result is displayed by
+		// CalculationDone()
+		Calculator.request(Track);
+		RefreshSaveState();
+	}
 
+	/**
+	 * Display the result of a time calculation
+	 * 
+	 * @param track   Calculated track
+	 * @param applied True if the result has been copied in the track
+	 */
+	private void CalculationDone(TrackData track, boolean applied) {
 		// -- Refresh statusbar
 		RefreshStatusbar(Track);
+		RefreshSaveState();
+
+		if (!applied || (track != Track))
+			return;
 
 		panelTrackData.refresh();
 		PanelResume.refresh();
@@ -581,7 +589,6 @@ public class frmMain extends javax.swing.JFrame {
 
 		// Refresh map
 		panelMap.RefreshTrack(Track, true);
-
 	}
 
 	/**
@@ -685,6 +692,17 @@ public class frmMain extends javax.swing.JFrame {
 		});
 		mnuFile.add(mnuSaveAsCGX);
 
+		// -- Save as CGB
+		mnuSaveAsCGB = new javax.swing.JMenuItem();
+		mnuSaveAsCGB.setIcon(Utils.getIcon(this, "save_cgx.png", Settings.MenuIconSize));
+		mnuSaveAsCGB.setEnabled(false);
+		mnuSaveAsCGB.addActionListener(new java.awt.event.ActionListener() {
+			public void actionPerformed(java.awt.event.ActionEvent evt) {
+				SaveAsCGB();
+			}
+		});
+		mnuFile.add(mnuSaveAsCGB);
+
 		// ##########################
 
 		// -- Separator
@@ -875,7 +893,6 @@ public class frmMain extends javax.swing.JFrame {
 		mnuImportPoints.setEnabled(false);
 		mnuImportPoints.addActionListener(new java.awt.event.ActionListener() {
 			public void actionPerformed(java.awt.event.ActionEvent evt) {
-				BackupInCGX();
 				ImportPoints();
 			}
 		});
@@ -1141,7 +1158,7 @@ public class frmMain extends javax.swing.JFrame {
 		mnuFindMinMax.setEnabled(false);
 		mnuFindMinMax.addActionListener(new java.awt.event.ActionListener() {
 			public void actionPerformed(java.awt.event.ActionEvent evt) {
-				BackupInCGX();
+				Journal.recordRange(Track, 0, Track.data.size() - 1, TrackJournal.COL_TAG);
 				Track.CalcMinMaxElevation();
 			}
 		});
@@ -1155,8 +1172,8 @@ public class frmMain extends javax.swing.JFrame {
 		mnuInvertTrack.addActionListener(new java.awt.event.ActionListener() {
 			public void actionPerformed(java.awt.event.ActionEvent evt) {
 				if (Track.data.size() > 0) {
-					BackupInCGX();
 					Track.Invert();
+					Journal.recordInvert();
 					panelProfil.RefreshProfilChart();
 					jPanelTimeDist.Refresh(Track, Settings);
 					jPanelSpeed.Refresh(Track, Settings);
@@ -1554,6 +1571,7 @@ public class frmMain extends javax.swing.JFrame {
 		mnuMruCGX5.setText(bundle.getString("frmMain.mnuMruCGX5.text"));
 		mnuSaveCGX.setText(bundle.getString("frmMain.mnuSaveCGX.text"));
 		mnuSaveAsCGX.setText(bundle.getString("frmMain.mnuSaveAsCGX.text"));
+		mnuSaveAsCGB.setText(bundle.getString("frmMain.mnuSaveAsCGB.text"));
 		mnuSaveGPX.setText(bundle.getString("frmMain.mnuSaveGPX.text"));
 		mnuSaveCSV.setText(bundle.getString("frmMain.mnuSaveCSV.text"));
 		mnuImportGPX.setText(bundle.getString("frmMain.mnuImportGPX.text"));
@@ -1628,7 +1646,8 @@ public class frmMain extends javax.swing.JFrame {
 		String s = Utils.LoadDialog(this, Settings.getLastDirectory(), ".cgp", bundle.getString("frmMain.CGPFile"));
 		if (!s.isEmpty()) {
 			frmImportPoints frm = new frmImportPoints(Settings);
-			frm.showDialog(s, Track);
+			if (frm.showDialog(s, Track) == 0)
+				Journal.add(frm.getEdit());
 
 			panelTrackData.refresh();
 			RefreshStatusbar(Track);
@@ -1754,10 +1773,14 @@ public class frmMain extends javax.swing.JFrame {
 				else
 					mode = CgConst.IMPORT_MODE_INS_START;
 
-				BackupInCGX();
+				TrackData.Header header = Track.getHeader();
+				int oldSize = Track.data.size();
 				// bAutorUpdatePos = false;
+				Calculator.cancel();
 				try {
 					Track.OpenCGX(this, s, mode, false);
+					Journal.recordImport(header, (mode == CgConst.IMPORT_MODE_ADD_END) ? oldSize : 0,
+							Track.data.size() - oldSize);
 					panelTrackData.refresh();
 					RefreshStatusbar(Track);
 					RefreshTitle();
@@ -1784,24 +1807,26 @@ public class frmMain extends javax.swing.JFrame {
 		showDialogAbout(this, false, true, Version);
 	}
 
-	private void BackupInCGX() {
-		Backup_Track = Track.CopyTo(Backup_Track);
-		bNoBackup = false;
-
-		// Track.SaveCGX(DataDir + "/" + CgConst.CG_DIR + "/backup.cgx", 0,
-		// Track.data.size() - 1, true);
-		// bNoBackup = false;
+	/**
+	 * Cancel the last edit of the track
+	 */
+	private void Undo() {
+		if (Journal.undo(Track))
+			RefreshAfterUndo();
 	}
 
-	private void RestoreInCGX() {
-		if ((Track.data.size() <= 0) || (bNoBackup))
-			return;
-		// bAutorUpdatePos = false;
-
-		// Track.OpenCGX(this, DataDir + "/" + CgConst.CG_DIR + "/backup.cgx",
-		// CgConst.IMPORT_MODE_LOAD, true);
-		Track = Backup_Track.CopyTo(Track);
+	/**
+	 * Apply again the last cancelled edit of the track
+	 */
+	private void Redo() {
+		if (Journal.redo(Track))
+			RefreshAfterUndo();
+	}
 
+	/**
+	 * Refresh the display after an undo or a redo
+	 */
+	private void RefreshAfterUndo() {
 		// -- Update the viewer
 		panelMap.setTrack(Track);
 		// -- Refresh the track information
@@ -1824,9 +1849,15 @@ public class frmMain extends javax.swing.JFrame {
 
 		// -- Force the update of the main table
 		panelTrackData.setTrack(Track);
+	}
 
-		// bAutorUpdatePos = true;
-		bNoBackup = true;
+	/**
+	 * Enable the undo and redo buttons according to the content of the journal
+	 */
+	private void RefreshUndoRedo() {
+		boolean isLoaded = (Track != null) && !Track.Name.isEmpty();
+		btUndo.setEnabled(isLoaded && Journal.canUndo());
+		btRedo.setEnabled(isLoaded && Journal.canRedo());
 	}
 
 	/**
@@ -1849,9 +1880,8 @@ public class frmMain extends javax.swing.JFrame {
 
 		// -- Ok! Let's go
 		if (ret == JOptionPane.YES_OPTION) {
-			BackupInCGX();
-
 			Track.NewStartingPoint(start);
+			Journal.recordNewStartingPoint(start);
 
 			// -- Move the cursor to the first line of the data table
 			panelTrackData.setSelectedRow(0);
@@ -2284,11 +2314,40 @@ public class frmMain extends javax.swing.JFrame {
 		btUndo.setEnabled(false);
 		btUndo.addActionListener(new java.awt.event.ActionListener() {
 			public void actionPerformed(java.awt.event.ActionEvent evt) {
-				RestoreInCGX();
+				Undo();
 			}
 		});
 		ToolBarMain.add(btUndo);
 
+		// -- Redo
+		// --------------------------------------------------------------
+		btRedo = new javax.swing.JButton();
+		btRedo.setIcon(Utils.getIcon(this, "redo.png", Settings.ToolbarIconSize));
+		btRedo.setFocusable(false);
+		btRedo.setEnabled(false);
+		btRedo.addActionListener(new java.awt.event.ActionListener() {
+			public void actionPerformed(java.awt.event.ActionEvent evt) {
+				Redo();
+			}
+		});
+		ToolBarMain.add(btRedo);
+
+		Journal.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent e) {
+				RefreshUndoRedo();
+			}
+		});
+
+		Calculator.addCalculatorListener(new TrackCalculator.CalculatorListener() {
+			public void calculationProgress(int percent) {
+				LbInfoCalculateVal.setText(String.format("%d %% ", percent));
+			}
+
+			public void calculationDone(TrackData track, boolean applied) {
+				CalculationDone(track, applied);
+			}
+		});
+
 		// -- Separator
 		// ---------------------------------------------------------
 		ToolBarMain.add(new javax.swing.JToolBar.Separator());
@@ -2401,15 +2460,17 @@ public class frmMain extends javax.swing.JFrame {
 				frmFillDiff frm = new frmFillDiff(Settings);
 				EditDiffResult res = frm.showDialog(Settings, Track, start, end);
 				if (res.Valid) {
-					BackupInCGX();
+					Journal.recordRange(Track, res.Start, res.End, TrackJournal.COL_DIFF);
 
 					for (int i = res.Start; i <= res.End; i++) {
 						Track.data.get(i).setDiff(res.Difficulty);
 					}
 
-					Track.isCalculated = false;
-					Track.isModified = true;
+					// -- Recalculate only the modified part of the track
+					Track.MarkDirty(res.Start);
+					Track.Recalculate();
 					panelTrackData.refresh();
+					PanelResume.refresh();
 					panelProfil.RefreshProfilChart();
 					jPanelTimeDist.Refresh(Track, Settings);
 					jPanelSpeed.Refresh(Track, Settings);
@@ -2438,7 +2499,7 @@ public class frmMain extends javax.swing.JFrame {
 				frmFillCoeff frm = new frmFillCoeff(Settings);
 				EditCoeffResult res = frm.showDialog(Settings, Track, start, end);
 				if (res.Valid) {
-					BackupInCGX();
+					Journal.recordRange(Track, res.Start, res.End, TrackJournal.COL_COEFF);
 
 					if (res.Start == res.End) {
 						Track.data.get(res.Start).setCoeff(res.Start_Coeff);
@@ -2473,9 +2534,11 @@ public class frmMain extends javax.swing.JFrame {
 						}
 					}
 
-					Track.isCalculated = false;
-					Track.isModified = true;
+					// -- Recalculate only the modified part of the track
+					Track.MarkDirty(res.Start);
+					Track.Recalculate();
 					panelTrackData.refresh();
+					PanelResume.refresh();
 					panelProfil.RefreshProfilChart();
 					jPanelTimeDist.Refresh(Track, Settings);
 					jPanelSpeed.Refresh(Track, Settings);
@@ -2512,6 +2575,7 @@ public class frmMain extends javax.swing.JFrame {
 		btOpenCGX.setToolTipText(bundle.getString("frmMain.btOpenCGX.toolTipText"));
 		btSaveCGX.setToolTipText(bundle.getString("frmMain.btSaveCGX.toolTipText"));
 		btUndo.setToolTipText(bundle.getString("frmMain.btUndo.toolTipText"));
+		btRedo.setToolTipText(bundle.getString("frmMain.btRedo.toolTipText"));
 		btSearch.setToolTipText(bundle.getString("frmMain.btSearch.toolTipText"));
 		btGotoPreviousMark.setToolTipText(bundle.getString("frmMain.btGotoPreviousMark.toolTipText"));
 		btGotoNextMark.setToolTipText(bundle.getString("frmMain.btGotoNextMark.toolTipText"));
@@ -2767,17 +2831,8 @@ public class frmMain extends javax.swing.JFrame {
 
 		// -- Tabbed panel
 		// ------------------------------------------------------
+		// -- The panels are refreshed when their tab is displayed
 		TabbedPaneMain = new javax.swing.JTabbedPane();
-		// -- Create the listener
-		ChangeListener changeListener = new ChangeListener() {
-			public void stateChanged(ChangeEvent changeEvent) {
-				JTabbedPane sourceTabbedPane = (JTabbedPane) changeEvent.getSource();
-				int index = sourceTabbedPane.getSelectedIndex();
-				if (index == 4) // Tab Resume
-					PanelResume.refresh();
-			}
-		};
-		TabbedPaneMain.addChangeListener(changeListener);
 
 		SplitPaneMainRight.setTopComponent(TabbedPaneMain);
 
@@ -2789,11 +2844,16 @@ public class frmMain extends javax.swing.JFrame {
 
 			@Override
 			public void doubleClickEvent() {
-				BackupInCGX();
 				frmEditPosition frm = new frmEditPosition(Settings);
-				if (frm.showDialog(Settings, Track, panelTrackData.getSelectedRow())) {
-					Track.isModified = true;
+				int line = panelTrackData.getSelectedRow();
+				TrackJournal.Edit edit = TrackJournal.captureRange(Track, line, line, TrackJournal.COL_ALL);
+				if (frm.showDialog(Settings, Track, line)) {
+					Journal.add(edit);
+					// -- Recalculate only the modified part of the track
+					Track.MarkDirty(line);
+					Track.Recalculate();
 					panelTrackData.refresh();
+					PanelResume.refresh();
 					panelProfil.RefreshProfilChart();
 					Track.CheckTimeLimit();
 					panelMap.RefreshTrack(Track, false);
@@ -2890,11 +2950,16 @@ public class frmMain extends javax.swing.JFrame {
 
 			@Override
 			public void doubleClickEvent() {
-				BackupInCGX();
 				frmEditPosition frm = new frmEditPosition(Settings);
-				if (frm.showDialog(Settings, Track, PanelResume.getDataTrackLine())) {
-					Track.isModified = true;
+				int line = PanelResume.getDataTrackLine();
+				TrackJournal.Edit edit = TrackJournal.captureRange(Track, line, line, TrackJournal.COL_ALL);
+				if (frm.showDialog(Settings, Track, line)) {
+					Journal.add(edit);
+					// -- Recalculate only the modified part of the track
+					Track.MarkDirty(line);
+					Track.Recalculate();
 					panelTrackData.refresh();
+					PanelResume.refresh();
 					panelProfil.RefreshProfilChart();
 					Track.CheckTimeLimit();
 					panelMap.RefreshTrack(Track, false);
@@ -3153,10 +3218,18 @@ public class frmMain extends javax.swing.JFrame {
 				else
 					mode = CgConst.IMPORT_MODE_INS_START;
 
-				BackupInCGX();
+				TrackData.Header header = Track.getHeader();
+				int oldSize = Track.data.size();
 				// bAutorUpdatePos = false;
+				// -- The track is read in background: stop the calculation
+				Calculator.cancel();
 				try {
-					if (Track.OpenGPX(s, mode, (double) Settings.PosFilterAskThreshold))
+					boolean noTime = Track.OpenGPX(s, mode, (double) Settings.PosFilterAskThreshold,
+							GPXProgressDialog(s));
+					// -- Only the read positions are filtered: the import is an insertion
+					Journal.recordImport(header, (mode == CgConst.IMPORT_MODE_ADD_END) ? oldSize : 0,
+							Track.data.size() - oldSize);
+					if (noTime)
 						JOptionPane.showMessageDialog(this, bundle.getString("frmMain.NoTimeData"));
 					panelTrackData.refresh();
 					RefreshStatusbar(Track);
@@ -3171,6 +3244,8 @@ public class frmMain extends javax.swing.JFrame {
 					panelWeather.refresh(Track, false);
 					Settings.previousGPXDirectory = Utils.GetDirFromFilename(s);
 					// bAutorUpdatePos = true;
+				} catch (CancellationException e) {
+					CgLog.info("ImportGPX : Import cancelled by the user");
 				} catch (Exception e) {
 					CgLog.error("ImportGPX : Impossible to import the GPX file");
 					e.printStackTrace();
@@ -3235,9 +3310,11 @@ public class frmMain extends javax.swing.JFrame {
 
 		// -- Go!
 		setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+		// -- The track is read in background: stop the calculation
+		Calculator.cancel();
 
 		try {
-			Track.OpenGPX(filename, 0, (double) Settings.PosFilterAskThreshold);
+			Track.OpenGPX(filename, 0, (double) Settings.PosFilterAskThreshold, GPXProgressDialog(filename));
 			AddMruGPX(filename);
 
 			// -- Update the viewer
@@ -3279,13 +3356,15 @@ public class frmMain extends javax.swing.JFrame {
 		panelMap.RefreshTrack(Track, true);
 		// Refresh weather
 				panelWeather.refresh(Track, false);
-		bNoBackup = true;
+		Journal.clear();
 
 		if (Track.data.size() > 0)
 			panelMap.RefreshCurrentPosMarker(Track.data.get(0).getLatitude(), Track.data.get(0).getLongitude());
 
 			if (Track.data.size() > 0)
 				panelMap.RefreshCurrentPosMarker(Track.data.get(0).getLatitude(), Track.data.get(0).getLongitude());
+		} catch (CancellationException e) {
+			CgLog.info("LoadGPX : Loading cancelled by the user");
 		} catch (Exception e) {
 			JOptionPane.showMessageDialog(this, bundle.getString("frmMain.FileError"), "Course Generator",
 					JOptionPane.ERROR_MESSAGE);
@@ -3294,6 +3373,18 @@ public class frmMain extends javax.swing.JFrame {
 		setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
 	}
 
+	/**
+	 * Return the dialog displaying the progress of the reading of a GPX file.
+	 * Return null for the small files (read without dialog)
+	 * 
+	 * @param filename file name
+	 */
+	private ProgressDialog GPXProgressDialog(String filename) {
+		if (new File(filename).length() < GPX_PROGRESS_MIN_SIZE)
+			return null;
+		return new ProgressDialog(this, bundle.getString("frmMain.ReadGPXProgress.Text"));
+	}
+
 	/**
 	 * Save the track in GPX format with file name input
 	 */
@@ -3329,7 +3420,7 @@ public class frmMain extends javax.swing.JFrame {
 	}
 
 	/**
-	 * Display a dialog box to open a CGX file
+	 * Display a dialog box to open a CGX or CGB file
 	 */
 	private void OpenCGXDialog() {
 		JFileChooser fileChooser = new JFileChooser();
@@ -3339,6 +3430,7 @@ public class frmMain extends javax.swing.JFrame {
 		FileFilter cgxFilter = new FileTypeFilter(".cgx", bundle.getString("frmMain.CGXFile")); // "CGX
 																								// file");
 		fileChooser.addChoosableFileFilter(cgxFilter);
+		fileChooser.addChoosableFileFilter(new FileTypeFilter(".cgb", bundle.getString("frmMain.CGBFile")));
 		fileChooser.setFileFilter(cgxFilter);
 
 		int result = fileChooser.showOpenDialog(this);
@@ -3350,7 +3442,7 @@ public class frmMain extends javax.swing.JFrame {
 	}
 
 	/**
-	 * Load a CGX file
+	 * Load a CGX or CGB file
 	 * 
 	 * @param filename File name
 	 */
@@ -3374,8 +3466,12 @@ public class frmMain extends javax.swing.JFrame {
 		// -- Go!
 		setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
 
+		Calculator.cancel();
 		try {
-			Track.OpenCGX(this, filename, CgConst.IMPORT_MODE_LOAD, false);
+			if (isCGB(filename))
+				Track.OpenCGB(this, filename, CgConst.IMPORT_MODE_LOAD, false);
+			else
+				Track.OpenCGX(this, filename, CgConst.IMPORT_MODE_LOAD, false);
 			AddMruCGX(filename);
 
 		// -- Update the viewer
@@ -3413,12 +3509,12 @@ public class frmMain extends javax.swing.JFrame {
 		// Refresh weather
 				panelWeather.refresh(Track, false);
 		RefreshMruCGX();
-		bNoBackup = true;
+		Journal.clear();
 			// Refresh map
 			panelMap.RefreshTrack(Track, true);
 
 			RefreshMruCGX();
-			bNoBackup = true;
+			Journal.clear();
 		} catch (Exception e) {
 			JOptionPane.showMessageDialog(this, bundle.getString("frmMain.FileError"), "Course Generator",
 					JOptionPane.ERROR_MESSAGE);
@@ -3464,7 +3560,53 @@ public class frmMain extends javax.swing.JFrame {
 	}
 
 	/**
-	 * Save the track in CGX format
+	 * Save the track in CGB format with file name input
+	 */
+	private void SaveAsCGB() {
+		String s;
+
+		if (Track.data.isEmpty())
+			return;
+
+		s = Utils.SaveDialog(this, Settings.previousCGXDirectory, "", ".cgb", bundle.getString("frmMain.CGBFile"), true,
+				bundle.getString("frmMain.FileExist"));
+
+		if (!s.isEmpty()) {
+			setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+
+			// -- Save track
+			Track.SaveCGB(s, 0, Track.data.size() - 1, false);
+			// -- Store the directory
+			Settings.previousCGXDirectory = Utils.GetDirFromFilename(s);
+
+			// -- Update CGX MRU
+			AddMruCGX(s);
+			RefreshMruCGX();
+
+			// -- Reset the track modified flag
+			Track.isModified = false;
+			Track.isNewTrack = false;
+
+			// -- Refresh info panel
+			RefreshStatusbar(Track);
+			RefreshTitle();
+
+			setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
+		}
+	}
+
+	/**
+	 * Return true if the file is a CGB file
+	 * 
+	 * @param filename File name
+	 */
+	private boolean isCGB(String filename) {
+		return Utils.GetFileExtension(filename).equalsIgnoreCase("cgb");
+	}
+
+	/**
+	 * Save the track in CGX format (or CGB if the track has been loaded from a
+	 * CGB file)
 	 */
 	private void SaveCGX() {
 		String s;
@@ -3480,7 +3622,10 @@ public class frmMain extends javax.swing.JFrame {
 				setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
 
 				// -- Save track
-				Track.SaveCGX(Track.FullName, 0, Track.data.size() - 1, false);
+				if (isCGB(Track.FullName))
+					Track.SaveCGB(Track.FullName, 0, Track.data.size() - 1, false);
+				else
+					Track.SaveCGX(Track.FullName, 0, Track.data.size() - 1, false);
 
 				// -- Reset the track modified flag
 				Track.isModified = false;
@@ -3699,7 +3844,7 @@ public class frmMain extends javax.swing.JFrame {
 	}
 
 	/**
-	 * Attempts to open a file (GPX or CGX).
+	 * Attempts to open a file (GPX, CGX or CGB).
 	 * 
 	 * @param filePath The absolute file path.
 	 */
@@ -3711,7 +3856,7 @@ public class frmMain extends javax.swing.JFrame {
 					filePath + " :\n" + bundle.getString("frmMain.QuestionRemoveRecentFile"),
 					bundle.getString("frmMain.FileNotFound"), JOptionPane.YES_NO_OPTION);
 			if (dialogResult == JOptionPane.YES_OPTION) {
-				if (fileExtension.equals("cgx")) {
+				if (fileExtension.equals("cgx") || fileExtension.equals("cgb")) {
 					for (int i = 0; i < Settings.mruCGX.length; ++i) {
 						if (Settings.mruCGX[i].equals(filePath)) {
 							Settings.mruCGX[i] = "";
@@ -3731,7 +3876,7 @@ public class frmMain extends javax.swing.JFrame {
 				}
 			}
 		} else {
-			if (fileExtension.equals("cgx")) {
+			if (fileExtension.equals("cgx") || fileExtension.equals("cgb")) {
 				LoadCGX(filePath);
 			}
 			if (fileExtension.equals("gpx")) {
@@ -3749,8 +3894,8 @@ public class frmMain extends javax.swing.JFrame {
 
 		boolean isLoaded = !Track.Name.isEmpty();
 
-		btSaveCGX.setEnabled(isLoaded);
-		btUndo.setEnabled(isLoaded);
+		RefreshSaveState();
+		RefreshUndoRedo();
 		btSearch.setEnabled(isLoaded);
 		btGotoPreviousMark.setEnabled(isLoaded);
 		btGotoNextMark.setEnabled(isLoaded);
@@ -3761,6 +3906,29 @@ public class frmMain extends javax.swing.JFrame {
 		btMiniRoadbook.setEnabled(isLoaded);
 	}
 
+	/**
+	 * Refresh the save and export commands. They are disabled while a time
+	 * calculation is running: the file would contain the previous times
+	 */
+	private void RefreshSaveState() {
+		if (Track == null)
+			return;
+
+		boolean canSave = !Track.Name.isEmpty() && !Calculator.isRunning();
+
+		btSaveCGX.setEnabled(canSave);
+		mnuSaveCGX.setEnabled(canSave);
+		mnuSaveAsCGX.setEnabled(canSave);
+		mnuSaveAsCGB.setEnabled(canSave);
+		mnuSaveGPX.setEnabled(canSave);
+		mnuSaveCSV.setEnabled(canSave);
+		mnuSavePartCGX.setEnabled(canSave);
+		mnuSavePartGPX.setEnabled(canSave);
+		mnuSavePartCSV.setEnabled(canSave);
+		mnuExportPoints.setEnabled(canSave);
+		mnuExportTagAsWaypoints.setEnabled(canSave);
+	}
+
 	/**
 	 * Refresh the main menu
 	 */
@@ -3770,15 +3938,7 @@ public class frmMain extends javax.swing.JFrame {
 
 		boolean isLoaded = !Track.Name.isEmpty();
 
-		mnuSaveCGX.setEnabled(isLoaded);
-		mnuSaveAsCGX.setEnabled(isLoaded);
-		mnuSaveGPX.setEnabled(isLoaded);
-		mnuSaveCSV.setEnabled(isLoaded);
-		mnuSavePartCGX.setEnabled(isLoaded);
-		mnuSavePartGPX.setEnabled(isLoaded);
-		mnuSavePartCSV.setEnabled(isLoaded);
-		mnuExportPoints.setEnabled(isLoaded);
-		mnuExportTagAsWaypoints.setEnabled(isLoaded);
+		RefreshSaveState();
 		mnuCopy.setEnabled(isLoaded);
 		mnuSearchPoint.setEnabled(isLoaded);
 		mnuSearchDistance.setEnabled(isLoaded);
@@ -40,6 +40,7 @@ import javax.swing.JTable;
 import javax.swing.KeyStroke;
 
 import course_generator.TrackData;
+import course_generator.TrackJournal;
 import course_generator.TrackData.SearchPointResult;
 import course_generator.settings.CgSettings;
 import course_generator.utils.CgLog;
@@ -51,6 +52,8 @@ public class frmImportPoints extends javax.swing.JDialog {
 	private CgSettings settings;
 	private TrackData track;
 	private boolean ok;
+	/** Previous values of the modified positions. null=nothing modified **/
+	private TrackJournal.Edit edit;
 	private JTable TableImport;
 	private ImportPtsDataModel Model;
 	private ImportPtsData list;
@@ -109,6 +112,7 @@ public class frmImportPoints extends javax.swing.JDialog {
 
 		// End set field
 		ok = false;
+		edit = null;
 
 		// -- Show the dialog
 		setVisible(true);
@@ -119,6 +123,14 @@ public class frmImportPoints extends javax.swing.JDialog {
 			return -1;
 	}
 
+	/**
+	 * Return the edit cancelling the import of the points (previous values of
+	 * the modified positions only). null if no position has been modified
+	 */
+	public TrackJournal.Edit getEdit() {
+		return edit;
+	}
+
 	/**
 	 * Manage low level key strokes ESCAPE : Close the window
 	 *
@@ -283,6 +295,10 @@ public class frmImportPoints extends javax.swing.JDialog {
 		if (list.data.size() < 0)
 			return;
 
+		// -- Save the positions which will be modified
+		int[] lines = list.data.stream().filter(r -> r.getSel()).mapToInt(r -> (int) r.getLine()).toArray();
+		edit = TrackJournal.captureRows(track, lines, TrackJournal.COL_POINT);
+
 		for (CgImportPts r : list.data) {
 			if (r.getSel()) {
 				track.data.get((int) r.getLine()).setTag(r.getTag());
@@ -291,11 +307,11 @@ public class frmImportPoints extends javax.swing.JDialog {
 
 				track.data.get((int) r.getLine()).setStation(r.getEatTime());
 				track.data.get((int) r.getLine()).setTimeLimit(r.getTimeLimit());
-				track.data.get((int) r.getLine()).FmtLbMiniRoadbook = r.getFmtRB();
-				track.data.get((int) r.getLine()).OptionMiniRoadbook = r.getOptMRB();
-				track.data.get((int) r.getLine()).VPosMiniRoadbook = r.getVPosMRB();
-				track.data.get((int) r.getLine()).CommentMiniRoadbook = r.getCommentMRB();
-				track.data.get((int) r.getLine()).FontSizeMiniRoadbook = r.getFontSizeMRB();
+				track.data.get((int) r.getLine()).setFmtLbMiniRoadbook(r.getFmtRB());
+				track.data.get((int) r.getLine()).setOptionMiniRoadbook(r.getOptMRB());
+				track.data.get((int) r.getLine()).setVPosMiniRoadbook(r.getVPosMRB());
+				track.data.get((int) r.getLine()).setCommentMiniRoadbook(r.getCommentMRB());
+				track.data.get((int) r.getLine()).setFontSizeMiniRoadbook(r.getFontSizeMRB());
 
 				track.isModified = true;
 			}
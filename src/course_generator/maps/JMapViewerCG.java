@@ -18,11 +18,20 @@
 
 package course_generator.maps;
 
-//import java.awt.event.MouseEvent;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ResourceBundle;
 
 //import org.openstreetmap.gui.jmapviewer.DefaultMapController;
 import org.openstreetmap.gui.jmapviewer.JMapViewer;
-import org.openstreetmap.gui.jmapviewer.MemoryTileCache;
+import org.openstreetmap.gui.jmapviewer.ShardedTileCache;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.TileScheduler;
+import org.openstreetmap.gui.jmapviewer.interfaces.MapMarker;
+import org.openstreetmap.gui.jmapviewer.interfaces.MapPolygon;
 
 /**
  * This class extend JMapViewer in order to change the way the map is controlled
@@ -34,13 +43,86 @@ import org.openstreetmap.gui.jmapviewer.MemoryTileCache;
 public class JMapViewerCG extends JMapViewer {
 	private static final long serialVersionUID = -8826616041157348692L;
 	public CGMapController CGMapController;
-	public static MemoryTileCache Cache = new MemoryTileCache();
+	public static ShardedTileCache Cache = new ShardedTileCache();
 
 	public JMapViewerCG() {
 		// super(new MemoryTileCache(), 2); //2 to avoid error 429 on openstreetmap.
 		// Before it was set to 8
 		super(Cache, 8);
 		CGMapController = new CGMapController(this);
+		final ResourceBundle bundle = ResourceBundle.getBundle("course_generator/Bundle");
+
+		// -- Show the state of the tile cache and of the tile loading in the tooltip
+		// of the zoom slider
+		zoomSlider.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseEntered(MouseEvent e) {
+				zoomSlider.setToolTipText(String.format(bundle.getString("JMapViewerCG.ZoomSlider.toolTipText"), zoom,
+						Cache.getStatistics(), TileScheduler.getInstance().getStatistics()));
+			}
+		});
+	}
+
+	/**
+	 * The size of the tile in the cache is updated with its loaded image
+	 */
+	@Override
+	public void tileLoadingFinished(Tile tile, boolean success) {
+		Cache.tileLoaded(tile);
+		super.tileLoadingFinished(tile, success);
+	}
+
+	/**
+	 * Paint a polygon. The track polylines are painted with their simplified
+	 * points of the current zoom level
+	 */
+	@Override
+	protected void paintPolygon(Graphics g, MapPolygon polygon) {
+		if (polygon instanceof MapPolyLine)
+			((MapPolyLine) polygon).paint(g, tileSource, zoom, center.x - getWidth() / 2, center.y - getHeight() / 2,
+					getWidth(), getHeight(), scrollWrapEnabled ? tileSource.getTileSize() << zoom : 0);
+		else
+			super.paintPolygon(g, polygon);
+	}
+
+	/**
+	 * Paint a marker. The position of the image markers is kept in map pixel by
+	 * the marker, so only the position of the view is applied. With the scroll
+	 * wrap, the marker is repeated like in JMapViewer.paintMarker
+	 */
+	@Override
+	protected void paintMarker(Graphics g, MapMarker marker) {
+		if ((marker instanceof MapMarkerImg) && (marker.getMarkerStyle() == MapMarker.STYLE.VARIABLE)) {
+			MapMarkerImg m = (MapMarkerImg) marker;
+			Point p = m.getMapPosition(tileSource, zoom, new Point());
+			p.translate(getWidth() / 2 - center.x, getHeight() / 2 - center.y);
+			paintMarkerImg(g, m, p);
+
+			if (scrollWrapEnabled) {
+				int mapSize = tileSource.getTileSize() << zoom;
+				int xSave = p.x;
+				while ((p.x -= mapSize) >= -15)
+					paintMarkerImg(g, m, p);
+				p.x = xSave;
+				while ((p.x += mapSize) <= getWidth() + 15)
+					paintMarkerImg(g, m, p);
+			}
+		} else
+			super.paintMarker(g, marker);
+	}
+
+	/**
+	 * Paint an image marker. The markers without text and outside the view are
+	 * not painted
+	 */
+	private void paintMarkerImg(Graphics g, MapMarkerImg m, Point p) {
+		Image img = m.getImg();
+		int w = img.getWidth(null);
+		int h = img.getHeight(null);
+		if ((m.getName() == null) && (w >= 0) && (h >= 0)
+				&& ((p.x + w < 0) || (p.y + h < 0) || (p.x - w > getWidth()) || (p.y - h > getHeight())))
+			return;
+		m.paint(g, p, 0);
 	}
 
 }
@@ -36,22 +36,30 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
 
 import javax.swing.AbstractButton;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JOptionPane;
 import javax.swing.JToolBar;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import org.openstreetmap.gui.jmapviewer.Coordinate;
 import org.openstreetmap.gui.jmapviewer.OsmFileCacheTileLoader;
 import org.openstreetmap.gui.jmapviewer.interfaces.MapMarker;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 import org.openstreetmap.gui.jmapviewer.tilesources.BingAerialTileSource;
 
 import course_generator.CgData;
 import course_generator.TrackData;
 import course_generator.dialogs.FrmSelectMap;
+import course_generator.dialogs.ProgressDialog;
+import course_generator.dialogs.ProgressDialogListener;
 import course_generator.settings.CgSettings;
 import course_generator.tiles.geoportail.Ign;
 import course_generator.tiles.openstreetmap.OpenStreetMap;
@@ -60,6 +68,7 @@ import course_generator.tiles.stamen_toner.StamenToner;
 import course_generator.tiles.thunderforest.Outdoors;
 import course_generator.utils.CgConst;
 import course_generator.utils.CgLog;
+import course_generator.utils.LazyRefresh;
 import course_generator.utils.Utils;
 
 public class JPanelMaps extends JPanel implements PropertyChangeListener {
@@ -79,6 +88,18 @@ public class JPanelMaps extends JPanel implements PropertyChangeListener {
 	private MapMarker NormalsWeatherStationMarker = null;
 	private ArrayList<Double> UndoDiff;
 	private List<JPanelMapsListener> listeners = new ArrayList<JPanelMapsListener>();
+	/** Track to display at the next refresh **/
+	private TrackData RefreshData = null;
+	/** True if the zoom must be set to display the track at the next refresh **/
+	private boolean RefreshZoom2Fit = false;
+	/** The track is drawn only when the map is displayed **/
+	private final LazyRefresh lazyRefresh = new LazyRefresh(this, new Runnable() {
+		public void run() {
+			boolean zoom2fit = RefreshZoom2Fit;
+			RefreshZoom2Fit = false;
+			DrawTrack(RefreshData, zoom2fit);
+		}
+	});
 	private JToolBar jToolBarMapViewer;
 	private JButton btMapCenterOnTrack;
 	private JButton btMapAddMarker;
@@ -102,6 +123,7 @@ public class JPanelMaps extends JPanel implements PropertyChangeListener {
 	private JButton btShowHideMarkers;
 	private boolean ShowMarkers;
 	private JButton btSaveMap;
+	private JButton btSeedTiles;
 	private FrmSelectMap selectMap;
 
 	public JPanelMaps(CgSettings settings) {
@@ -436,6 +458,18 @@ public class JPanelMaps extends JPanel implements PropertyChangeListener {
 		});
 		jToolBarMapViewer.add(btSaveMap);
 
+		// -- Download the tiles around the track
+		btSeedTiles = new javax.swing.JButton();
+		btSeedTiles.setIcon(Utils.getIcon(this, "import.png", Settings.MapToolbarIconSize));
+		btSeedTiles.setFocusable(false);
+		btSeedTiles.setEnabled(false);
+		btSeedTiles.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent evt) {
+				SeedTiles();
+			}
+		});
+		jToolBarMapViewer.add(btSeedTiles);
+
 		// -- Separator
 		jToolBarMapViewer.add(new javax.swing.JToolBar.Separator());
 
@@ -482,6 +516,7 @@ public class JPanelMaps extends JPanel implements PropertyChangeListener {
 		btMapDrink.setToolTipText(bundle.getString("frmMain.btMapDrink.toolTipText"));
 		btShowHideMarkers.setToolTipText(bundle.getString("frmMain.btShowHideMarkers.toolTipText"));
 		btSaveMap.setToolTipText(bundle.getString("frmMain.btSaveMap.toolTipText"));
+		btSeedTiles.setToolTipText(bundle.getString("frmMain.btSeedTiles.toolTipText"));
 		btMapSelect.setToolTipText(bundle.getString("frmMain.btMapSelect.toolTipText"));
 	}
 
@@ -495,6 +530,122 @@ public class JPanelMaps extends JPanel implements PropertyChangeListener {
 		}
 	}
 
+	/**
+	 * Download the tiles around the track for the offline use of the map
+	 */
+	private void SeedTiles() {
+		if (Track == null || Track.data.size() <= 0 || offlineTileCache == null)
+			return;
+
+		TileSource source = MapViewer.getTileController().getTileSource();
+		final TileSeeder seeder = new TileSeeder(offlineTileCache, source);
+		int zoomMin = Math.max(Settings.TileSeedZoomMin, source.getMinZoom());
+		int zoomMax = Math.min(Settings.TileSeedZoomMax, source.getMaxZoom());
+
+		final List<TileSeeder.SeedTile> corridor = TileSeeder.getCorridorTiles(Track.data, source, zoomMin, zoomMax,
+				Settings.TileSeedBuffer);
+
+		// -- Search of the tiles not in the cache (read of the tile store)
+		final ProgressDialog search = new ProgressDialog(SwingUtilities.getWindowAncestor(this),
+				bundle.getString("frmMain.SeedTilesSearch.Text"));
+		SwingWorker<List<TileSeeder.SeedTile>, Integer> searchWorker;
+		searchWorker = new SwingWorker<List<TileSeeder.SeedTile>, Integer>() {
+			@Override
+			protected List<TileSeeder.SeedTile> doInBackground() throws Exception {
+				return seeder.getMissingTiles(corridor, new IntConsumer() {
+					public void accept(int value) {
+						publish(value);
+					}
+				});
+			}
+
+			@Override
+			protected void process(List<Integer> chunks) {
+				search.setValue(chunks.get(chunks.size() - 1));
+			}
+
+			@Override
+			protected void done() {
+				search.setVisible(false);
+			}
+		};
+		search.setListener(new ProgressDialogListener() {
+			@Override
+			public void progressDialogCancelled() {
+				seeder.cancel();
+			}
+		});
+		search.setValue(0);
+		searchWorker.execute();
+		// -- Modal dialog: return when the worker is done
+		search.setVisible(true);
+
+		final List<TileSeeder.SeedTile> tiles;
+		try {
+			tiles = searchWorker.get();
+		} catch (InterruptedException | ExecutionException e) {
+			CgLog.error("JPanelMaps.SeedTiles : " + e.getMessage());
+			return;
+		}
+		if (seeder.isCancelled())
+			return;
+
+		if (tiles.isEmpty()) {
+			JOptionPane.showMessageDialog(this, bundle.getString("frmMain.SeedTilesNothing"));
+			return;
+		}
+		if (JOptionPane.showConfirmDialog(this,
+				String.format(bundle.getString("frmMain.SeedTilesConfirm"), tiles.size(), zoomMin, zoomMax,
+						Utils.humanReadableByteCount(tiles.size() * TileSeeder.DEFAULT_TILE_BYTES, true)),
+				"Course Generator", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION)
+			return;
+
+		final ProgressDialog progress = new ProgressDialog(SwingUtilities.getWindowAncestor(this),
+				bundle.getString("frmMain.SeedTilesProgress.Text"));
+		SwingWorker<Integer, long[]> worker = new SwingWorker<Integer, long[]>() {
+			@Override
+			protected Integer doInBackground() throws Exception {
+				return seeder.seed(tiles, new TileSeeder.SeedListener() {
+					public void seedProgress(int done, int total, long bytes, long estimatedBytes) {
+						publish(new long[] { done, total, bytes, estimatedBytes });
+					}
+				});
+			}
+
+			@Override
+			protected void process(List<long[]> chunks) {
+				long[] p = chunks.get(chunks.size() - 1);
+				progress.setValue((int) (p[0] * 100 / p[1]));
+				progress.setText(String.format(bundle.getString("frmMain.SeedTilesStatus"), p[0], p[1],
+						Utils.humanReadableByteCount(p[2], true), Utils.humanReadableByteCount(p[3], true)));
+			}
+
+			@Override
+			protected void done() {
+				progress.setVisible(false);
+			}
+		};
+		progress.setListener(new ProgressDialogListener() {
+			@Override
+			public void progressDialogCancelled() {
+				seeder.cancel();
+			}
+		});
+		progress.setValue(0);
+		worker.execute();
+		// -- Modal dialog: return when the worker is done
+		progress.setVisible(true);
+
+		try {
+			int failed = worker.get();
+			JOptionPane.showMessageDialog(this,
+					String.format(bundle.getString("frmMain.SeedTilesDone"), tiles.size() - failed, failed));
+		} catch (InterruptedException | ExecutionException e) {
+			CgLog.error("JPanelMaps.SeedTiles : " + e.getMessage());
+		}
+		MapViewer.repaint();
+	}
+
 	private void MapViewerMouseClicked(java.awt.event.MouseEvent evt) {
 		if (Track == null)
 			return;
@@ -523,7 +674,8 @@ public class JPanelMaps extends JPanel implements PropertyChangeListener {
 	}
 
 	/**
-	 * Display track stored in a TrackData class
+	 * Display track stored in a TrackData class. The track is drawn when the map
+	 * is displayed
 	 * 
 	 * @param tdata    TrackData object to display
 	 * @param zoom2fit If true the zoom is set have the complete display of the
@@ -536,6 +688,22 @@ public class JPanelMaps extends JPanel implements PropertyChangeListener {
 		if (tdata.data.size() <= 0)
 			return;
 
+		RefreshData = tdata;
+		RefreshZoom2Fit = RefreshZoom2Fit || zoom2fit;
+		lazyRefresh.invalidate(tdata);
+	}
+
+	/**
+	 * Draw the track on the map
+	 * 
+	 * @param tdata    TrackData object to display
+	 * @param zoom2fit If true the zoom is set have the complete display of the
+	 *                 track
+	 */
+	private void DrawTrack(TrackData tdata, boolean zoom2fit) {
+		if (tdata.data.size() <= 0)
+			return;
+
 		// Enabling the map tools
 		btMapCenterOnTrack.setEnabled(true);
 		btMapAddMarker.setEnabled(true);
@@ -544,6 +712,7 @@ public class JPanelMaps extends JPanel implements PropertyChangeListener {
 		btMapDrink.setEnabled(true);
 		btShowHideMarkers.setEnabled(true);
 		btSaveMap.setEnabled(true);
+		btSeedTiles.setEnabled(true);
 
 		// -- Remove the previous track
 		MapViewer.removeAllMapPolygons();
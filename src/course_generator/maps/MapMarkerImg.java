@@ -31,6 +31,7 @@ import org.openstreetmap.gui.jmapviewer.Layer;
 import org.openstreetmap.gui.jmapviewer.MapObjectImpl;
 import org.openstreetmap.gui.jmapviewer.Style;
 import org.openstreetmap.gui.jmapviewer.interfaces.MapMarker;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 
 /**
  *
@@ -43,6 +44,14 @@ public class MapMarkerImg extends MapObjectImpl implements MapMarker {
 	MapMarker.STYLE markerStyle;
 	Image img;
 
+	/** Position in map pixel, for the source, zoom and coordinate below **/
+	private int mapX;
+	private int mapY;
+	private TileSource mapSource = null;
+	private int mapZoom;
+	private double mapLat;
+	private double mapLon;
+
 	public MapMarkerImg(Coordinate coord, Image img) {
 		this(null, null, coord, img);
 	}
@@ -75,6 +84,30 @@ public class MapMarkerImg extends MapObjectImpl implements MapMarker {
 		return img;
 	}
 
+	/**
+	 * Return the position of the marker in map pixel. The position is calculated
+	 * again only when the zoom, the tile source or the coordinate change
+	 *
+	 * @param source Tile source of the map (projection)
+	 * @param zoom   Zoom level
+	 * @param pos    Receive the position
+	 * @return 'pos'
+	 */
+	public Point getMapPosition(TileSource source, int zoom, Point pos) {
+		double lat = getLat();
+		double lon = getLon();
+		if ((source != mapSource) || (zoom != mapZoom) || (lat != mapLat) || (lon != mapLon)) {
+			mapX = source.LonToX(lon, zoom);
+			mapY = source.LatToY(lat, zoom);
+			mapSource = source;
+			mapZoom = zoom;
+			mapLat = lat;
+			mapLon = lon;
+		}
+		pos.setLocation(mapX, mapY);
+		return pos;
+	}
+
 	public MapMarker.STYLE getMarkerStyle() {
 		return markerStyle;
 	}
@@ -18,23 +18,61 @@
 
 package course_generator.maps;
 
+import java.awt.BasicStroke;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Stroke;
 import java.awt.geom.Path2D;
+import java.util.HashMap;
 import java.util.List;
 import org.openstreetmap.gui.jmapviewer.MapPolygonImpl;
 import org.openstreetmap.gui.jmapviewer.interfaces.ICoordinate;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 //import org.openstreetmap.gui.jmapviewer.interfaces.ICoordinate;
 
 /**
+ * Polyline of the track.
+ *
+ * For each zoom level, the points are projected once in the pixel space of the
+ * map and simplified (Douglas-Peucker) with a tolerance of
+ * {@link #TOLERANCE} pixel. The painting only uses the simplified points of the
+ * segments visible in the viewport.
  *
  * @author pierre.delore
  */
 
 public class MapPolyLine extends MapPolygonImpl {
+	/** Maximum distance (in pixel) between the line and a removed point **/
+	public static final double TOLERANCE = 0.5;
+
+	private final double[] lat;
+	private final double[] lon;
+	/** Simplified points of each zoom level. Key=zoom **/
+	private final HashMap<Integer, Level> levels = new HashMap<Integer, Level>();
+	/** Tile source used to project the points of 'levels' **/
+	private TileSource source = null;
+
+	/**
+	 * Simplified points of a zoom level, in map pixel
+	 */
+	private static class Level {
+		int[] x;
+		int[] y;
+		int xmin = Integer.MAX_VALUE;
+		int ymin = Integer.MAX_VALUE;
+		int xmax = Integer.MIN_VALUE;
+		int ymax = Integer.MIN_VALUE;
+	}
+
 	public MapPolyLine(List<? extends ICoordinate> points) {
 		super(null, null, points);
+		lat = new double[points.size()];
+		lon = new double[points.size()];
+		for (int i = 0; i < points.size(); i++) {
+			lat[i] = points.get(i).getLat();
+			lon[i] = points.get(i).getLon();
+		}
 	}
 
 	@Override
@@ -47,6 +85,194 @@ public class MapPolyLine extends MapPolygonImpl {
 		g2d.dispose();
 	}
 
+	/**
+	 * Paint the visible part of the polyline
+	 *
+	 * @param g      Graphic context
+	 * @param source Tile source of the map (projection)
+	 * @param zoom   Zoom level
+	 * @param x0     X position of the map on the screen (map pixel at the left
+	 *               of the screen)
+	 * @param y0     Y position of the map on the screen (map pixel at the top of
+	 *               the screen)
+	 * @param width  Width of the screen
+	 * @param height Height of the screen
+	 * @param wrap   Width of the map when the map is repeated horizontally
+	 *               (scroll wrap), else 0
+	 */
+	public void paint(Graphics g, TileSource source, int zoom, int x0, int y0, int width, int height, int wrap) {
+		// -- Same condition as JMapViewer.paintPolygon
+		if (lat.length < 3)
+			return;
+
+		Level level = getLevel(source, zoom);
+
+		// -- Margin for the width of the line
+		int margin = 1;
+		Stroke stroke = getStroke();
+		if (stroke instanceof BasicStroke)
+			margin += (int) Math.ceil(((BasicStroke) stroke).getLineWidth());
+		int left = x0 - margin;
+		int top = y0 - margin;
+		int right = x0 + width + margin;
+		int bottom = y0 + height + margin;
+
+		if (level.ymax < top || level.ymin > bottom)
+			return;
+
+		// -- Copies of the polyline crossing the viewport (scroll wrap)
+		int kmin = 0;
+		int kmax = 0;
+		if (wrap > 0) {
+			kmin = (int) Math.ceil((double) (left - level.xmax) / wrap);
+			kmax = (int) Math.floor((double) (right - level.xmin) / wrap);
+		} else if (level.xmax < left || level.xmin > right)
+			return;
+
+		// -- Keep only the segments crossing the viewport
+		Path2D path = new Path2D.Double(Path2D.WIND_NON_ZERO, level.x.length);
+		for (int k = kmin; k <= kmax; k++) {
+			int dx = k * wrap;
+			boolean penDown = false;
+			for (int i = 1; i < level.x.length; i++) {
+				int xa = level.x[i - 1] + dx;
+				int ya = level.y[i - 1];
+				int xb = level.x[i] + dx;
+				int yb = level.y[i];
+				if ((xa < left && xb < left) || (xa > right && xb > right) || (ya < top && yb < top)
+						|| (ya > bottom && yb > bottom)) {
+					penDown = false;
+					continue;
+				}
+				if (!penDown) {
+					path.moveTo(xa - x0, ya - y0);
+					penDown = true;
+				}
+				path.lineTo(xb - x0, yb - y0);
+			}
+		}
+
+		Graphics2D g2d = (Graphics2D) g.create();
+		g2d.setColor(getColor());
+		g2d.setStroke(getStroke());
+		g2d.draw(path);
+		g2d.dispose();
+	}
+
+	/**
+	 * Return the simplified points of a zoom level. They are calculated at the
+	 * first call
+	 */
+	private Level getLevel(TileSource src, int zoom) {
+		if (src != source) {
+			levels.clear();
+			source = src;
+		}
+		Level level = levels.get(zoom);
+		if (level == null) {
+			level = simplify(src, zoom);
+			levels.put(zoom, level);
+		}
+		return level;
+	}
+
+	/**
+	 * Project the points in the pixel space of a zoom level and simplify them
+	 */
+	private Level simplify(TileSource src, int zoom) {
+		int n = lat.length;
+		int[] px = new int[n];
+		int[] py = new int[n];
+
+		// -- Projection. The consecutive points at the same pixel are removed
+		int cnt = 0;
+		for (int i = 0; i < n; i++) {
+			int x = src.LonToX(lon[i], zoom);
+			int y = src.LatToY(lat[i], zoom);
+			if (cnt == 0 || x != px[cnt - 1] || y != py[cnt - 1] || i == n - 1) {
+				px[cnt] = x;
+				py[cnt] = y;
+				cnt++;
+			}
+		}
+
+		// -- Douglas-Peucker
+		boolean[] keep = new boolean[cnt];
+		keep[0] = true;
+		keep[cnt - 1] = true;
+		int[] stack = new int[2 * cnt];
+		int sp = 0;
+		stack[sp++] = 0;
+		stack[sp++] = cnt - 1;
+		double tol2 = TOLERANCE * TOLERANCE;
+		while (sp > 0) {
+			int last = stack[--sp];
+			int first = stack[--sp];
+			double dx = px[last] - px[first];
+			double dy = py[last] - py[first];
+			double len2 = dx * dx + dy * dy;
+			double dmax = 0.0;
+			int imax = -1;
+			for (int i = first + 1; i < last; i++) {
+				double d = dist2(px[i] - px[first], py[i] - py[first], dx, dy, len2);
+				if (d > dmax) {
+					dmax = d;
+					imax = i;
+				}
+			}
+			if (imax >= 0 && dmax > tol2) {
+				keep[imax] = true;
+				stack[sp++] = first;
+				stack[sp++] = imax;
+				stack[sp++] = imax;
+				stack[sp++] = last;
+			}
+		}
+
+		Level level = new Level();
+		int nb = 0;
+		for (int i = 0; i < cnt; i++) {
+			if (keep[i])
+				nb++;
+		}
+		level.x = new int[nb];
+		level.y = new int[nb];
+		nb = 0;
+		for (int i = 0; i < cnt; i++) {
+			if (keep[i]) {
+				level.x[nb] = px[i];
+				level.y[nb] = py[i];
+				level.xmin = Math.min(level.xmin, px[i]);
+				level.ymin = Math.min(level.ymin, py[i]);
+				level.xmax = Math.max(level.xmax, px[i]);
+				level.ymax = Math.max(level.ymax, py[i]);
+				nb++;
+			}
+		}
+		return level;
+	}
+
+	/**
+	 * Return the square of the distance between a point and a segment
+	 *
+	 * @param x    X of the point (relative to the start of the segment)
+	 * @param y    Y of the point (relative to the start of the segment)
+	 * @param dx   X of the end of the segment (relative to the start)
+	 * @param dy   Y of the end of the segment (relative to the start)
+	 * @param len2 Square of the length of the segment
+	 */
+	private static double dist2(double x, double y, double dx, double dy, double len2) {
+		if (len2 == 0.0)
+			return x * x + y * y;
+		double t = (x * dx + y * dy) / len2;
+		if (t <= 0.0)
+			return x * x + y * y;
+		if (t >= 1.0)
+			return (x - dx) * (x - dx) + (y - dy) * (y - dy);
+		double c = x * dy - y * dx;
+		return c * c / len2;
+	}
+
 	private Path2D buildPath(List<Point> points) {
 		Path2D path = new Path2D.Double();
 		if (points != null && points.size() > 0) {
@@ -0,0 +1,320 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator.maps;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+import org.openstreetmap.gui.jmapviewer.OsmFileCacheTileLoader;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+
+import course_generator.CgData;
+import course_generator.utils.CgLog;
+
+/**
+ * Fills the offline tile cache with the tiles around a track, so the map can
+ * be used without internet connection.
+ *
+ * The tiles of each zoom level within a buffer around the track are listed
+ * ({@link #getCorridorTiles(List, TileSource, int, int, double)}), the tiles
+ * already stored are skipped and the others are downloaded by a few threads
+ * with a limited number of requests per second. Each tile is stored as soon as
+ * it's downloaded: a cancelled seeding restarts where it stopped.
+ */
+public class TileSeeder {
+	/** Earth radius (meter) **/
+	private static final double EARTH_RADIUS = 6378137.0;
+	/** Maximum step between two sampled positions of a segment (tile) **/
+	private static final double SAMPLE_STEP = 0.5;
+	/** Size of a tile used for the estimate before the first download (byte) **/
+	public static final long DEFAULT_TILE_BYTES = 20000;
+	/** Number of tries of a tile **/
+	public static final int MAX_TRIES = 3;
+
+	/**
+	 * Progress of the seeding
+	 */
+	public interface SeedListener {
+		/**
+		 * Called after each tile, from a download thread
+		 *
+		 * @param done           Number of tiles processed (downloaded or failed)
+		 * @param total          Number of tiles to download
+		 * @param bytes          Size of the downloaded tiles (byte)
+		 * @param estimatedBytes Estimated size of all the tiles (byte)
+		 */
+		public void seedProgress(int done, int total, long bytes, long estimatedBytes);
+	}
+
+	/**
+	 * Position of a tile
+	 */
+	public static class SeedTile {
+		public final int zoom;
+		public final int x;
+		public final int y;
+
+		public SeedTile(int zoom, int x, int y) {
+			this.zoom = zoom;
+			this.x = x;
+			this.y = y;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof SeedTile))
+				return false;
+			SeedTile t = (SeedTile) o;
+			return t.zoom == zoom && t.x == x && t.y == y;
+		}
+
+		@Override
+		public int hashCode() {
+			return (zoom * 31 + x) * 31 + y;
+		}
+
+		@Override
+		public String toString() {
+			return zoom + "/" + x + "/" + y;
+		}
+	}
+
+	private final OsmFileCacheTileLoader loader;
+	private final TileSource source;
+	private int threads = 2;
+	private double requestsPerSecond = 4.0;
+	private volatile boolean cancelled = false;
+	private ExecutorService executor = null;
+
+	// -- Rate limiter
+	private final Object rateLock = new Object();
+	private long nextRequest = 0;
+
+	public TileSeeder(OsmFileCacheTileLoader loader, TileSource source) {
+		this.loader = loader;
+		this.source = source;
+	}
+
+	/**
+	 * Set the number of download threads (default: 2)
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Set the maximum number of requests per second sent to the tile server
+	 * (default: 4)
+	 */
+	public void setRequestsPerSecond(double requestsPerSecond) {
+		this.requestsPerSecond = requestsPerSecond;
+	}
+
+	/**
+	 * Return the tiles within a buffer around a track. The tiles are sorted by
+	 * zoom level, then in the order of the track
+	 *
+	 * @param data    Positions of the track
+	 * @param src     Tile source (projection)
+	 * @param zoomMin First zoom level
+	 * @param zoomMax Last zoom level
+	 * @param buffer  Distance between the track and the border of the corridor
+	 *                (meter)
+	 */
+	public static List<SeedTile> getCorridorTiles(List<CgData> data, TileSource src, int zoomMin, int zoomMax,
+			double buffer) {
+		LinkedHashSet<SeedTile> tiles = new LinkedHashSet<SeedTile>();
+		if (data == null || data.isEmpty())
+			return new ArrayList<SeedTile>();
+
+		for (int zoom = zoomMin; zoom <= zoomMax; zoom++) {
+			int n = 1 << zoom;
+			double prevX = src.lonToTileX(data.get(0).getLongitude(), zoom);
+			double prevY = src.latToTileY(data.get(0).getLatitude(), zoom);
+			for (int i = 0; i < data.size(); i++) {
+				CgData p = data.get(i);
+				double tx = src.lonToTileX(p.getLongitude(), zoom);
+				double ty = src.latToTileY(p.getLatitude(), zoom);
+				// -- Size of the buffer in tile at this latitude
+				double b = buffer * n / (2 * Math.PI * EARTH_RADIUS * Math.cos(Math.toRadians(p.getLatitude())));
+
+				// -- Sample the segment so the squares of the buffer overlap
+				double dx = tx - prevX;
+				// -- Shortest way across the antimeridian
+				if (dx > n / 2.0)
+					dx -= n;
+				else if (dx < -n / 2.0)
+					dx += n;
+				double dy = ty - prevY;
+				double step = Math.min(SAMPLE_STEP, Math.max(b, 1e-3));
+				int steps = Math.max(1, (int) Math.ceil(Math.hypot(dx, dy) / step));
+				for (int k = 1; k <= steps; k++) {
+					double sx = prevX + dx * k / steps;
+					double sy = prevY + dy * k / steps;
+					int x1 = (int) Math.floor(sx - b);
+					int x2 = (int) Math.floor(sx + b);
+					int y1 = Math.max(0, (int) Math.floor(sy - b));
+					int y2 = Math.min(n - 1, (int) Math.floor(sy + b));
+					for (int x = x1; x <= x2; x++)
+						for (int y = y1; y <= y2; y++)
+							tiles.add(new SeedTile(zoom, Math.floorMod(x, n), y));
+				}
+				prevX = tx;
+				prevY = ty;
+			}
+		}
+		return new ArrayList<SeedTile>(tiles);
+	}
+
+	/**
+	 * Return the tiles not in the cache
+	 */
+	public List<SeedTile> getMissingTiles(List<SeedTile> tiles) {
+		return getMissingTiles(tiles, null);
+	}
+
+	/**
+	 * Return the tiles not in the cache
+	 *
+	 * @param tiles    Tiles to check
+	 * @param progress Called with the progress of the search (0..100). Can be
+	 *                 null
+	 */
+	public List<SeedTile> getMissingTiles(List<SeedTile> tiles, IntConsumer progress) {
+		List<SeedTile> missing = new ArrayList<SeedTile>();
+		for (int i = 0; i < tiles.size(); i++) {
+			if (cancelled)
+				break;
+			if (progress != null && (i & 1023) == 0)
+				progress.accept((int) (i * 100L / tiles.size()));
+			SeedTile t = tiles.get(i);
+			if (!loader.isTileStored(source, t.zoom, t.x, t.y))
+				missing.add(t);
+		}
+		return missing;
+	}
+
+	/**
+	 * Download the tiles and wait for the end of the downloads
+	 *
+	 * @param tiles    Tiles to download
+	 * @param listener Listener of the progress. Can be null
+	 * @return Number of tiles not downloaded (error or cancellation)
+	 */
+	public int seed(List<SeedTile> tiles, final SeedListener listener) throws InterruptedException {
+		final int total = tiles.size();
+		final AtomicInteger done = new AtomicInteger();
+		final AtomicInteger downloaded = new AtomicInteger();
+		final AtomicLong bytes = new AtomicLong();
+
+		synchronized (this) {
+			if (cancelled)
+				return total;
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private int cnt = 0;
+
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "TileSeeder " + (++cnt));
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+
+		for (final SeedTile tile : tiles) {
+			executor.execute(new Runnable() {
+				public void run() {
+					int size = download(tile);
+					if (size >= 0) {
+						downloaded.incrementAndGet();
+						bytes.addAndGet(size);
+					}
+					int d = done.incrementAndGet();
+					if (listener != null) {
+						int n = downloaded.get();
+						long b = bytes.get();
+						long average = (n == 0) ? DEFAULT_TILE_BYTES : b / n;
+						listener.seedProgress(d, total, b, b + average * (total - d));
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+			;
+		return total - downloaded.get();
+	}
+
+	/**
+	 * Stop the seeding. The downloaded tiles stay in the cache
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+		if (executor != null)
+			executor.shutdownNow();
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Download a tile, with a few tries
+	 *
+	 * @return Size of the tile (byte) or -1 if it can't be downloaded
+	 */
+	private int download(SeedTile tile) {
+		for (int i = 0; i < MAX_TRIES && !cancelled; i++) {
+			try {
+				waitRequestSlot();
+				return loader.downloadTile(source, tile.zoom, tile.x, tile.y);
+			} catch (InterruptedException e) {
+				break;
+			} catch (IOException e) {
+				CgLog.info("TileSeeder : tile " + tile + " try " + (i + 1) + " failed : " + e.getMessage());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Wait until a request can be sent to the server
+	 */
+	private void waitRequestSlot() throws InterruptedException {
+		long wait;
+		synchronized (rateLock) {
+			long now = System.nanoTime();
+			long slot = Math.max(now, nextRequest);
+			if (requestsPerSecond > 0)
+				nextRequest = slot + (long) (1e9 / requestsPerSecond);
+			wait = slot - now;
+		}
+		if (wait > 0)
+			TimeUnit.NANOSECONDS.sleep(wait);
+	}
+}
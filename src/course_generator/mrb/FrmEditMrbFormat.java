@@ -489,7 +489,7 @@ public class FrmEditMrbFormat extends javax.swing.JDialog {
 	 * Refresh the preview panel
 	 */
 	private void Refresh() {
-		data.FmtLbMiniRoadbook = tfLabelFormat.getText();
+		data.setFmtLbMiniRoadbook(tfLabelFormat.getText());
 		pnResult.setData(data);
 		pnResult.setTrack(track);
 		pnResult.setSettings(settings);
@@ -152,8 +152,8 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 						r.getDist(CgConst.UNIT_METER), r.getTotal(CgConst.UNIT_METER), r.getDiff(), r.getCoeff(),
 						r.getRecovery(), r.getSlope(), r.getSpeed(CgConst.UNIT_METER),
 						r.getdElevation(CgConst.UNIT_METER), r.getTime(), r.getdTime_f(), r.getTimeLimit(), r.getHour(),
-						r.getStation(), r.getName(), r.getComment(), 0, 0, r.FmtLbMiniRoadbook, r.OptionMiniRoadbook,
-						r.VPosMiniRoadbook, r.CommentMiniRoadbook, r.FontSizeMiniRoadbook, 0, 0, resClimb);
+						r.getStation(), r.getName(), r.getComment(), 0, 0, r.getFmtLbMiniRoadbook(), r.getOptionMiniRoadbook(),
+						r.getVPosMiniRoadbook(), r.getCommentMiniRoadbook(), r.getFontSizeMiniRoadbook(), 0, 0, resClimb);
 				datalist.data.add(d);
 			}
 		}
@@ -516,18 +516,18 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 
 		track.isModified = true;
 		if ((ConfigDuplication & CgConst.MRB_DUP_POS) != 0) {
-			track.data.get(line).VPosMiniRoadbook = track.data.get(DupLine).VPosMiniRoadbook;
-			datalist.data.get(row).VPosMiniRoadbook = track.data.get(DupLine).VPosMiniRoadbook;
+			track.data.get(line).setVPosMiniRoadbook(track.data.get(DupLine).getVPosMiniRoadbook());
+			datalist.data.get(row).setVPosMiniRoadbook(track.data.get(DupLine).getVPosMiniRoadbook());
 		}
 
 		if ((ConfigDuplication & CgConst.MRB_DUP_FORMAT) != 0) {
-			track.data.get(line).FmtLbMiniRoadbook = track.data.get(DupLine).FmtLbMiniRoadbook;
-			datalist.data.get(row).FmtLbMiniRoadbook = track.data.get(DupLine).FmtLbMiniRoadbook;
+			track.data.get(line).setFmtLbMiniRoadbook(track.data.get(DupLine).getFmtLbMiniRoadbook());
+			datalist.data.get(row).setFmtLbMiniRoadbook(track.data.get(DupLine).getFmtLbMiniRoadbook());
 		}
 
 		if ((ConfigDuplication & CgConst.MRB_DUP_ALIGN) != 0) {
-			int src = track.data.get(DupLine).OptionMiniRoadbook;
-			int dst = track.data.get(line).OptionMiniRoadbook;
+			int src = track.data.get(DupLine).getOptionMiniRoadbook();
+			int dst = track.data.get(line).getOptionMiniRoadbook();
 
 			if ((src & CgConst.MRBOPT_LEFT) != 0)
 				dst = Utils.Set(dst, CgConst.MRBOPT_LEFT);
@@ -544,26 +544,26 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 			else
 				dst = Utils.Reset(dst, CgConst.MRBOPT_RIGHT);
 
-			track.data.get(line).OptionMiniRoadbook = dst;
-			datalist.data.get(row).OptionMiniRoadbook = dst;
+			track.data.get(line).setOptionMiniRoadbook(dst);
+			datalist.data.get(row).setOptionMiniRoadbook(dst);
 		}
 
 		if ((ConfigDuplication & CgConst.MRB_DUP_SIZE) != 0) {
-			track.data.get(line).FontSizeMiniRoadbook = track.data.get(DupLine).FontSizeMiniRoadbook;
-			datalist.data.get(row).FontSizeMiniRoadbook = track.data.get(DupLine).FontSizeMiniRoadbook;
+			track.data.get(line).setFontSizeMiniRoadbook(track.data.get(DupLine).getFontSizeMiniRoadbook());
+			datalist.data.get(row).setFontSizeMiniRoadbook(track.data.get(DupLine).getFontSizeMiniRoadbook());
 		}
 
 		if ((ConfigDuplication & CgConst.MRB_DUP_TAGS) != 0) {
-			int src = track.data.get(DupLine).OptionMiniRoadbook;
-			int dst = track.data.get(line).OptionMiniRoadbook;
+			int src = track.data.get(DupLine).getOptionMiniRoadbook();
+			int dst = track.data.get(line).getOptionMiniRoadbook();
 
 			if ((src & CgConst.MRBOPT_SHOWTAGS) != 0)
 				dst = Utils.Set(dst, CgConst.MRBOPT_SHOWTAGS);
 			else
 				dst = Utils.Reset(dst, CgConst.MRBOPT_SHOWTAGS);
 
-			track.data.get(line).OptionMiniRoadbook = dst;
-			datalist.data.get(row).OptionMiniRoadbook = dst;
+			track.data.get(line).setOptionMiniRoadbook(dst);
+			datalist.data.get(row).setOptionMiniRoadbook(dst);
 		}
 
 		RefreshProperties();
@@ -586,8 +586,8 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 
 			String txt = memo;
 			tfFormat.setText(txt);
-			track.data.get(line).FmtLbMiniRoadbook = txt;
-			datalist.data.get(row).FmtLbMiniRoadbook = txt;
+			track.data.get(line).setFmtLbMiniRoadbook(txt);
+			datalist.data.get(row).setFmtLbMiniRoadbook(txt);
 
 			track.isModified = true;
 			RefreshTableData();
@@ -695,15 +695,15 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 					return;
 
 				if (chkSelect.isSelected()) {
-					track.data.get(line).OptionMiniRoadbook = Utils.Set(track.data.get(line).OptionMiniRoadbook,
-							CgConst.MRBOPT_SEL);
-					datalist.data.get(row).OptionMiniRoadbook = Utils.Set(datalist.data.get(row).OptionMiniRoadbook,
-							CgConst.MRBOPT_SEL);
+					track.data.get(line).setOptionMiniRoadbook(Utils.Set(track.data.get(line).getOptionMiniRoadbook(),
+							CgConst.MRBOPT_SEL));
+					datalist.data.get(row).setOptionMiniRoadbook(Utils.Set(datalist.data.get(row).getOptionMiniRoadbook(),
+							CgConst.MRBOPT_SEL));
 				} else {
-					track.data.get(line).OptionMiniRoadbook = Utils.Reset(track.data.get(line).OptionMiniRoadbook,
-							CgConst.MRBOPT_SEL);
-					datalist.data.get(row).OptionMiniRoadbook = Utils.Reset(datalist.data.get(row).OptionMiniRoadbook,
-							CgConst.MRBOPT_SEL);
+					track.data.get(line).setOptionMiniRoadbook(Utils.Reset(track.data.get(line).getOptionMiniRoadbook(),
+							CgConst.MRBOPT_SEL));
+					datalist.data.get(row).setOptionMiniRoadbook(Utils.Reset(datalist.data.get(row).getOptionMiniRoadbook(),
+							CgConst.MRBOPT_SEL));
 				}
 				track.isModified = true;
 				pnlProfil.Refresh();
@@ -732,8 +732,8 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 				if (line > track.data.size())
 					return;
 
-				track.data.get(line).VPosMiniRoadbook = spinPosition.getValueAsInt();
-				datalist.data.get(row).VPosMiniRoadbook = spinPosition.getValueAsInt();
+				track.data.get(line).setVPosMiniRoadbook(spinPosition.getValueAsInt());
+				datalist.data.get(row).setVPosMiniRoadbook(spinPosition.getValueAsInt());
 				track.isModified = true;
 
 				pnlProfil.Refresh();
@@ -761,19 +761,19 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 					return;
 				int line = (int) datalist.data.get(row).getNum() - 1;
 
-				track.data.get(line).OptionMiniRoadbook = Utils.Set(track.data.get(line).OptionMiniRoadbook,
-						CgConst.MRBOPT_LEFT);
-				track.data.get(line).OptionMiniRoadbook = Utils.Reset(track.data.get(line).OptionMiniRoadbook,
-						CgConst.MRBOPT_CENTER);
-				track.data.get(line).OptionMiniRoadbook = Utils.Reset(track.data.get(line).OptionMiniRoadbook,
-						CgConst.MRBOPT_RIGHT);
+				track.data.get(line).setOptionMiniRoadbook(Utils.Set(track.data.get(line).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_LEFT));
+				track.data.get(line).setOptionMiniRoadbook(Utils.Reset(track.data.get(line).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_CENTER));
+				track.data.get(line).setOptionMiniRoadbook(Utils.Reset(track.data.get(line).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_RIGHT));
 
-				datalist.data.get(row).OptionMiniRoadbook = Utils.Set(datalist.data.get(row).OptionMiniRoadbook,
-						CgConst.MRBOPT_LEFT);
-				datalist.data.get(row).OptionMiniRoadbook = Utils.Reset(datalist.data.get(row).OptionMiniRoadbook,
-						CgConst.MRBOPT_CENTER);
-				datalist.data.get(row).OptionMiniRoadbook = Utils.Reset(datalist.data.get(row).OptionMiniRoadbook,
-						CgConst.MRBOPT_RIGHT);
+				datalist.data.get(row).setOptionMiniRoadbook(Utils.Set(datalist.data.get(row).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_LEFT));
+				datalist.data.get(row).setOptionMiniRoadbook(Utils.Reset(datalist.data.get(row).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_CENTER));
+				datalist.data.get(row).setOptionMiniRoadbook(Utils.Reset(datalist.data.get(row).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_RIGHT));
 
 				RefreshAligmentBt(row);
 				track.isModified = true;
@@ -796,19 +796,19 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 					return;
 				int line = (int) datalist.data.get(row).getNum() - 1;
 
-				track.data.get(line).OptionMiniRoadbook = Utils.Reset(track.data.get(line).OptionMiniRoadbook,
-						CgConst.MRBOPT_LEFT);
-				track.data.get(line).OptionMiniRoadbook = Utils.Set(track.data.get(line).OptionMiniRoadbook,
-						CgConst.MRBOPT_CENTER);
-				track.data.get(line).OptionMiniRoadbook = Utils.Reset(track.data.get(line).OptionMiniRoadbook,
-						CgConst.MRBOPT_RIGHT);
+				track.data.get(line).setOptionMiniRoadbook(Utils.Reset(track.data.get(line).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_LEFT));
+				track.data.get(line).setOptionMiniRoadbook(Utils.Set(track.data.get(line).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_CENTER));
+				track.data.get(line).setOptionMiniRoadbook(Utils.Reset(track.data.get(line).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_RIGHT));
 
-				datalist.data.get(row).OptionMiniRoadbook = Utils.Reset(datalist.data.get(row).OptionMiniRoadbook,
-						CgConst.MRBOPT_LEFT);
-				datalist.data.get(row).OptionMiniRoadbook = Utils.Set(datalist.data.get(row).OptionMiniRoadbook,
-						CgConst.MRBOPT_CENTER);
-				datalist.data.get(row).OptionMiniRoadbook = Utils.Reset(datalist.data.get(row).OptionMiniRoadbook,
-						CgConst.MRBOPT_RIGHT);
+				datalist.data.get(row).setOptionMiniRoadbook(Utils.Reset(datalist.data.get(row).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_LEFT));
+				datalist.data.get(row).setOptionMiniRoadbook(Utils.Set(datalist.data.get(row).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_CENTER));
+				datalist.data.get(row).setOptionMiniRoadbook(Utils.Reset(datalist.data.get(row).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_RIGHT));
 
 				RefreshAligmentBt(row);
 				track.isModified = true;
@@ -831,19 +831,19 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 					return;
 				int line = (int) datalist.data.get(row).getNum() - 1;
 
-				track.data.get(line).OptionMiniRoadbook = Utils.Reset(track.data.get(line).OptionMiniRoadbook,
-						CgConst.MRBOPT_LEFT);
-				track.data.get(line).OptionMiniRoadbook = Utils.Reset(track.data.get(line).OptionMiniRoadbook,
-						CgConst.MRBOPT_CENTER);
-				track.data.get(line).OptionMiniRoadbook = Utils.Set(track.data.get(line).OptionMiniRoadbook,
-						CgConst.MRBOPT_RIGHT);
+				track.data.get(line).setOptionMiniRoadbook(Utils.Reset(track.data.get(line).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_LEFT));
+				track.data.get(line).setOptionMiniRoadbook(Utils.Reset(track.data.get(line).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_CENTER));
+				track.data.get(line).setOptionMiniRoadbook(Utils.Set(track.data.get(line).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_RIGHT));
 
-				datalist.data.get(row).OptionMiniRoadbook = Utils.Reset(datalist.data.get(row).OptionMiniRoadbook,
-						CgConst.MRBOPT_LEFT);
-				datalist.data.get(row).OptionMiniRoadbook = Utils.Reset(datalist.data.get(row).OptionMiniRoadbook,
-						CgConst.MRBOPT_CENTER);
-				datalist.data.get(row).OptionMiniRoadbook = Utils.Set(datalist.data.get(row).OptionMiniRoadbook,
-						CgConst.MRBOPT_RIGHT);
+				datalist.data.get(row).setOptionMiniRoadbook(Utils.Reset(datalist.data.get(row).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_LEFT));
+				datalist.data.get(row).setOptionMiniRoadbook(Utils.Reset(datalist.data.get(row).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_CENTER));
+				datalist.data.get(row).setOptionMiniRoadbook(Utils.Set(datalist.data.get(row).getOptionMiniRoadbook(),
+						CgConst.MRBOPT_RIGHT));
 
 				RefreshAligmentBt(row);
 				track.isModified = true;
@@ -882,8 +882,8 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 
 				tfFormat.setText(ShowEditMrbFormatDialog(row));
 
-				track.data.get(line).FmtLbMiniRoadbook = tfFormat.getText();
-				datalist.data.get(row).FmtLbMiniRoadbook = tfFormat.getText();
+				track.data.get(line).setFmtLbMiniRoadbook(tfFormat.getText());
+				datalist.data.get(row).setFmtLbMiniRoadbook(tfFormat.getText());
 
 				track.isModified = true;
 				pnlProfil.Refresh();
@@ -909,8 +909,8 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 					return;
 				int line = (int) datalist.data.get(row).getNum() - 1;
 
-				track.data.get(line).FontSizeMiniRoadbook = spinSize.getValueAsInt();
-				datalist.data.get(row).FontSizeMiniRoadbook = spinSize.getValueAsInt();
+				track.data.get(line).setFontSizeMiniRoadbook(spinSize.getValueAsInt());
+				datalist.data.get(row).setFontSizeMiniRoadbook(spinSize.getValueAsInt());
 
 				track.isModified = true;
 				pnlProfil.Refresh();
@@ -940,15 +940,15 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 					return;
 
 				if (chkTags.isSelected()) {
-					track.data.get(line).OptionMiniRoadbook = Utils.Set(track.data.get(line).OptionMiniRoadbook,
-							CgConst.MRBOPT_SHOWTAGS);
-					datalist.data.get(row).OptionMiniRoadbook = Utils.Set(datalist.data.get(row).OptionMiniRoadbook,
-							CgConst.MRBOPT_SHOWTAGS);
+					track.data.get(line).setOptionMiniRoadbook(Utils.Set(track.data.get(line).getOptionMiniRoadbook(),
+							CgConst.MRBOPT_SHOWTAGS));
+					datalist.data.get(row).setOptionMiniRoadbook(Utils.Set(datalist.data.get(row).getOptionMiniRoadbook(),
+							CgConst.MRBOPT_SHOWTAGS));
 				} else {
-					track.data.get(line).OptionMiniRoadbook = Utils.Reset(track.data.get(line).OptionMiniRoadbook,
-							CgConst.MRBOPT_SHOWTAGS);
-					datalist.data.get(row).OptionMiniRoadbook = Utils.Reset(datalist.data.get(row).OptionMiniRoadbook,
-							CgConst.MRBOPT_SHOWTAGS);
+					track.data.get(line).setOptionMiniRoadbook(Utils.Reset(track.data.get(line).getOptionMiniRoadbook(),
+							CgConst.MRBOPT_SHOWTAGS));
+					datalist.data.get(row).setOptionMiniRoadbook(Utils.Reset(datalist.data.get(row).getOptionMiniRoadbook(),
+							CgConst.MRBOPT_SHOWTAGS));
 				}
 				track.isModified = true;
 				pnlProfil.Refresh();
@@ -1005,7 +1005,7 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 	}
 
 	protected void RefreshAligmentBt(int line) {
-		int v = datalist.data.get(line).OptionMiniRoadbook;
+		int v = datalist.data.get(line).getOptionMiniRoadbook();
 		btAlignLeft.setSelected(((v & CgConst.MRBOPT_LEFT) != 0));
 		btAlignCenter.setSelected(((v & CgConst.MRBOPT_CENTER) != 0));
 		btAlignRight.setSelected(((v & CgConst.MRBOPT_RIGHT) != 0));
@@ -1017,31 +1017,31 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 
 		int row = TableData.getSelectedRow();
 		if (row >= 0) {
-			chkSelect.setSelected((datalist.data.get(row).OptionMiniRoadbook & CgConst.MRBOPT_SEL) != 0);
+			chkSelect.setSelected((datalist.data.get(row).getOptionMiniRoadbook() & CgConst.MRBOPT_SEL) != 0);
 			chkSelect.setEnabled(true);
 
-			spinPosition.setValue(datalist.data.get(row).VPosMiniRoadbook);
+			spinPosition.setValue(datalist.data.get(row).getVPosMiniRoadbook());
 			spinPosition.setEnabled(true);
 
-			btAlignLeft.setSelected((datalist.data.get(row).OptionMiniRoadbook & CgConst.MRBOPT_LEFT) != 0);
+			btAlignLeft.setSelected((datalist.data.get(row).getOptionMiniRoadbook() & CgConst.MRBOPT_LEFT) != 0);
 			btAlignLeft.setEnabled(true);
 
-			btAlignCenter.setSelected((datalist.data.get(row).OptionMiniRoadbook & CgConst.MRBOPT_CENTER) != 0);
+			btAlignCenter.setSelected((datalist.data.get(row).getOptionMiniRoadbook() & CgConst.MRBOPT_CENTER) != 0);
 			btAlignCenter.setEnabled(true);
 
-			btAlignRight.setSelected((datalist.data.get(row).OptionMiniRoadbook & CgConst.MRBOPT_RIGHT) != 0);
+			btAlignRight.setSelected((datalist.data.get(row).getOptionMiniRoadbook() & CgConst.MRBOPT_RIGHT) != 0);
 			btAlignRight.setEnabled(true);
 
-			tfFormat.setText(datalist.data.get(row).FmtLbMiniRoadbook);
+			tfFormat.setText(datalist.data.get(row).getFmtLbMiniRoadbook());
 			tfFormat.setEnabled(true);
 
-			spinSize.setValue(datalist.data.get(row).FontSizeMiniRoadbook);
+			spinSize.setValue(datalist.data.get(row).getFontSizeMiniRoadbook());
 			spinSize.setEnabled(true);
 
-			chkTags.setSelected((datalist.data.get(row).OptionMiniRoadbook & CgConst.MRBOPT_SHOWTAGS) != 0);
+			chkTags.setSelected((datalist.data.get(row).getOptionMiniRoadbook() & CgConst.MRBOPT_SHOWTAGS) != 0);
 			chkTags.setEnabled(true);
 
-			tfComment.setText(datalist.data.get(row).CommentMiniRoadbook);
+			tfComment.setText(datalist.data.get(row).getCommentMiniRoadbook());
 			tfComment.setEnabled(true);
 		} else {
 			chkSelect.setEnabled(false);
@@ -1078,8 +1078,8 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 					return;
 
 				String txt = tfFormat.getText();
-				track.data.get(line).FmtLbMiniRoadbook = txt;
-				datalist.data.get(row).FmtLbMiniRoadbook = txt;
+				track.data.get(line).setFmtLbMiniRoadbook(txt);
+				datalist.data.get(row).setFmtLbMiniRoadbook(txt);
 
 				track.isModified = true;
 				RefreshTableData();
@@ -1098,8 +1098,8 @@ public class FrmMiniroadbook extends javax.swing.JFrame implements FocusListener
 				if (line > track.data.size())
 					return;
 
-				track.data.get(line).CommentMiniRoadbook = tfComment.getText();
-				datalist.data.get(row).CommentMiniRoadbook = tfComment.getText();
+				track.data.get(line).setCommentMiniRoadbook(tfComment.getText());
+				datalist.data.get(row).setCommentMiniRoadbook(tfComment.getText());
 
 				track.isModified = true;
 				RefreshTableData();
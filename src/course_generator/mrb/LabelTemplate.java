@@ -0,0 +1,349 @@
+/*
+ * Course Generator
+ * Copyright (C) 2008..2019 Pierre Delore and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator.mrb;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import course_generator.TrackData;
+import course_generator.TrackData.CalcClimbResult;
+import course_generator.settings.CgSettings;
+import course_generator.utils.CgConst;
+import course_generator.utils.Utils;
+
+/**
+ * Label format of the mini roadbook compiled in a list of operations.
+ *
+ * Codes of the format:
+ * <ul>
+ * <li>%N: Name</li>
+ * <li>%A: Elevation</li>
+ * <li>%D: Distance from the start</li>
+ * <li>%T, %Ts: Time (hh:mm). %Tl: Time (hh:mm:ss). %Td: Delta time from the
+ * previous location</li>
+ * <li>%H: Hour (ddd hh:mm)</li>
+ * <li>%h, %hs: Hour (hh:mm). %hl: Hour (hh:mm:ss)</li>
+ * <li>%B: Time limit (hh:mm) -> Time from the start</li>
+ * <li>%b: Time limit (hh:mm) -> Limit hour</li>
+ * <li>%C: Comment. %c: Comment from the main data</li>
+ * <li>%L: Carriage return</li>
+ * <li>%R, %Rl: Station time (hh:mm:ss). %Rs: Station time (hh:mm)</li>
+ * <li>%+: Ascend from start. %+d: Ascend from the previous location</li>
+ * <li>%-: Descend from start. %-d: Descend from the previous location</li>
+ * </ul>
+ * An unknown character after '%' is copied and the next character is read as
+ * a code.
+ */
+public class LabelTemplate {
+	/** Maximum number of compiled formats kept in memory **/
+	private static final int CACHE_SIZE = 256;
+
+	private static final int OP_TEXT = 0;
+	private static final int OP_NAME = 1;
+	private static final int OP_ELEVATION = 2;
+	private static final int OP_DISTANCE = 3;
+	private static final int OP_TIME = 4;
+	private static final int OP_TIME_LONG = 5;
+	private static final int OP_DELTA_TIME = 6;
+	private static final int OP_DAY_HOUR = 7;
+	private static final int OP_HOUR = 8;
+	private static final int OP_HOUR_LONG = 9;
+	private static final int OP_STATION = 10;
+	private static final int OP_STATION_LONG = 11;
+	private static final int OP_TIME_LIMIT = 12;
+	private static final int OP_LIMIT_HOUR = 13;
+	private static final int OP_COMMENT_MRB = 14;
+	private static final int OP_COMMENT = 15;
+	private static final int OP_ASCEND = 16;
+	private static final int OP_DESCEND = 17;
+	private static final int OP_DELTA_ASCEND = 18;
+	private static final int OP_DELTA_DESCEND = 19;
+
+	/** Compiled formats. Key=format **/
+	private static final LinkedHashMap<String, LabelTemplate> cache = new LinkedHashMap<String, LabelTemplate>(16,
+			0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, LabelTemplate> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/** Operations **/
+	private final int[] ops;
+	/** Text of the OP_TEXT operations (same index as 'ops') **/
+	private final String[] texts;
+	/** True if the climb from the start is used **/
+	private final boolean withClimb;
+
+	/**
+	 * Return the compiled format
+	 *
+	 * @param format Label format
+	 */
+	public static LabelTemplate compile(String format) {
+		synchronized (cache) {
+			LabelTemplate t = cache.get(format);
+			if (t == null) {
+				t = new LabelTemplate(format);
+				cache.put(format, t);
+			}
+			return t;
+		}
+	}
+
+	/**
+	 * Compile a label format
+	 *
+	 * @param s Label format
+	 */
+	private LabelTemplate(String s) {
+		List<Integer> opList = new ArrayList<Integer>();
+		List<String> textList = new ArrayList<String>();
+		StringBuilder text = new StringBuilder();
+		int step = 0;
+
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			int op = -1;
+			switch (step) {
+			case 0:
+				if (c == '%')
+					step = 1;
+				else
+					text.append(c);
+				break;
+
+			case 1:
+				step = 0;
+				switch (c) {
+				case 'N':
+					op = OP_NAME;
+					break;
+				case 'A':
+					op = OP_ELEVATION;
+					break;
+				case 'D':
+					op = OP_DISTANCE;
+					break;
+				case 'T':
+					step = 3;
+					break;
+				case 'H':
+					op = OP_DAY_HOUR;
+					break;
+				case 'h':
+					step = 2;
+					break;
+				case 'R':
+					step = 4;
+					break;
+				case 'B':
+					op = OP_TIME_LIMIT;
+					break;
+				case 'b':
+					op = OP_LIMIT_HOUR;
+					break;
+				case 'C':
+					op = OP_COMMENT_MRB;
+					break;
+				case 'c':
+					op = OP_COMMENT;
+					break;
+				case '+':
+					step = 5;
+					break;
+				case '-':
+					step = 6;
+					break;
+				case 'L':
+					text.append('\n');
+					break;
+				default:
+					// -- Copied, the next character is still a code
+					text.append(c);
+					step = 1;
+					break;
+				}
+				break;
+
+			case 2: // %h
+				op = (c == 'l') ? OP_HOUR_LONG : OP_HOUR;
+				break;
+			case 3: // %T
+				op = (c == 'l') ? OP_TIME_LONG : (c == 'd') ? OP_DELTA_TIME : OP_TIME;
+				break;
+			case 4: // %R
+				op = (c == 's') ? OP_STATION : OP_STATION_LONG;
+				break;
+			case 5: // %+
+				op = (c == 'd') ? OP_DELTA_ASCEND : OP_ASCEND;
+				break;
+			case 6: // %-
+				op = (c == 'd') ? OP_DELTA_DESCEND : OP_DESCEND;
+				break;
+			}
+
+			if (op >= 0) {
+				add(opList, textList, text, op);
+				// -- A character not part of a 2 characters code is copied
+				if (step >= 2 && !isSuffix(step, c))
+					text.append(c);
+				step = 0;
+			}
+		}
+
+		// -- Command at the end of the format: default value
+		final int[] last = { -1, -1, OP_HOUR, OP_TIME, OP_STATION_LONG, OP_ASCEND, OP_DESCEND };
+		if (last[step] >= 0)
+			add(opList, textList, text, last[step]);
+		if (text.length() > 0)
+			add(opList, textList, text, OP_TEXT);
+
+		ops = new int[opList.size()];
+		texts = new String[opList.size()];
+		boolean climb = false;
+		for (int i = 0; i < ops.length; i++) {
+			ops[i] = opList.get(i);
+			texts[i] = textList.get(i);
+			climb = climb || ops[i] == OP_ASCEND || ops[i] == OP_DESCEND;
+		}
+		withClimb = climb;
+	}
+
+	/**
+	 * Indicate if a character is the second character of a code
+	 */
+	private static boolean isSuffix(int step, char c) {
+		switch (step) {
+		case 2:
+			return c == 's' || c == 'l';
+		case 3:
+			return c == 's' || c == 'l' || c == 'd';
+		case 4:
+			return c == 's' || c == 'l';
+		default:
+			return c == 'd';
+		}
+	}
+
+	/**
+	 * Add an operation. The pending text is added before
+	 */
+	private static void add(List<Integer> opList, List<String> textList, StringBuilder text, int op) {
+		if (text.length() > 0) {
+			opList.add(OP_TEXT);
+			textList.add(text.toString());
+			text.setLength(0);
+		}
+		if (op != OP_TEXT) {
+			opList.add(op);
+			textList.add(null);
+		}
+	}
+
+	/**
+	 * Generate the label of a position
+	 *
+	 * @param r        Position
+	 * @param cd       Track. If null an empty string is returned
+	 * @param settings Settings (unit)
+	 * @return The label, wrapped at the word wrap length of the track
+	 */
+	public String format(MrbData r, TrackData cd, CgSettings settings) {
+		if (cd == null)
+			return "";
+
+		CalcClimbResult res = null;
+		if (withClimb)
+			res = cd.CalcClimb(CgConst.ELEV_NORM, 0, (int) (r.getNum() - 1), new CalcClimbResult());
+
+		StringBuilder sr = new StringBuilder();
+		for (int i = 0; i < ops.length; i++) {
+			switch (ops[i]) {
+			case OP_TEXT:
+				sr.append(texts[i]);
+				break;
+			case OP_NAME:
+				sr.append(r.getName());
+				break;
+			case OP_ELEVATION:
+				sr.append(String.format("%.0f", r.getElevation(settings.Unit)))
+						.append(Utils.uElev2String(settings.Unit));
+				break;
+			case OP_DISTANCE:
+				sr.append(String.format("%.1f", r.getTotal(settings.Unit) / 1000.0))
+						.append(Utils.uLDist2String(settings.Unit));
+				break;
+			case OP_TIME:
+				sr.append(Utils.Second2DateString_HM(r.getTime()));
+				break;
+			case OP_TIME_LONG:
+				sr.append(Utils.Second2DateString(r.getTime()));
+				break;
+			case OP_DELTA_TIME:
+				sr.append(Utils.Second2DateString_HM(r.getDeltaTime()));
+				break;
+			case OP_DAY_HOUR:
+				sr.append(r.getHour().toString("E HH:mm"));
+				break;
+			case OP_HOUR:
+				sr.append(r.getHour().toString("HH:mm"));
+				break;
+			case OP_HOUR_LONG:
+				sr.append(r.getHour().toString("HH:mm:ss"));
+				break;
+			case OP_STATION:
+				sr.append(Utils.Second2DateString_HM(r.getStation()));
+				break;
+			case OP_STATION_LONG:
+				sr.append(Utils.Second2DateString(r.getStation()));
+				break;
+			case OP_TIME_LIMIT:
+				sr.append(Utils.Second2DateString_HM(r.getTimeLimit()));
+				break;
+			case OP_LIMIT_HOUR:
+				sr.append(cd.StartTime.plusSeconds(r.getTimeLimit()).toString("HH:mm"));
+				break;
+			case OP_COMMENT_MRB:
+				sr.append(r.getCommentMiniRoadbook());
+				break;
+			case OP_COMMENT:
+				sr.append(r.getComment());
+				break;
+			case OP_ASCEND:
+				sr.append(String.format("%.0f", res.cp));
+				break;
+			case OP_DESCEND:
+				sr.append(String.format("%.0f", res.cm));
+				break;
+			case OP_DELTA_ASCEND:
+				sr.append(r.getDeltaClimb().getAscendClimbSumString(settings.Unit, true));
+				break;
+			case OP_DELTA_DESCEND:
+				sr.append(r.getDeltaClimb().getDescentClimbSumString(settings.Unit, true));
+				break;
+			}
+		}
+		return Utils.WordWrap(sr.toString(), cd.WordWrapLength, true);
+	}
+}
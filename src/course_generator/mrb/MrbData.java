@@ -32,6 +32,8 @@ public class MrbData extends CgData {
 	private int deltatime;
 	/** Elevation from previous point **/
 	private CalcClimbResult deltaclimb;
+	/** Number of modifications of the fields above **/
+	private int deltaversion = 0;
 
 	public MrbData(double Num, double Latitude, double Longitude, double Elevation, double ElevationNotSmoothed,
 			double ElevationSmoothed, double ElevationMemo, int Tag, double Dist, double Total, double Diff,
@@ -101,6 +103,7 @@ public class MrbData extends CgData {
 
 	public void setDeltaDist(double dist) {
 		deltadistance = dist;
+		deltaversion++;
 	}
 
 	public int getDeltaTime() {
@@ -119,13 +122,20 @@ public class MrbData extends CgData {
 
 	public void setDeltaTime(int deltatime) {
 		this.deltatime = deltatime;
+		deltaversion++;
 	}
 
 	public void setDeltaClimb(CalcClimbResult climb) {
 		deltaclimb = climb;
+		deltaversion++;
 	}
 
 	public CalcClimbResult getDeltaClimb() {
 		return deltaclimb;
 	}
+
+	@Override
+	public int getVersion() {
+		return super.getVersion() + deltaversion;
+	}
 }
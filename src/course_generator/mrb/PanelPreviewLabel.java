@@ -105,13 +105,13 @@ public class PanelPreviewLabel extends JPanel {
 		// -- Text box drawing --
 		DrawStringMultiLine drawStringMulti = new DrawStringMultiLine();
 
-		g2d.setFont(new Font("ARIAL", Font.PLAIN, data.FontSizeMiniRoadbook));
+		g2d.setFont(new Font("ARIAL", Font.PLAIN, data.getFontSizeMiniRoadbook()));
 
 		int posx = 0;
 		int posy = 5;
 
 		// -- Generate the text to display
-		s = Utils.GenLabel(data.FmtLbMiniRoadbook, (MrbData) data, track, settings);
+		s = Utils.GenLabel(data.getFmtLbMiniRoadbook(), (MrbData) data, track, settings);
 		drawStringMulti.setText(g2d, s);
 
 		// -- Width calculation
@@ -18,6 +18,7 @@
 
 package course_generator.mrb;
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -26,13 +27,26 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.RenderingHints;
+import java.awt.Shape;
 import java.awt.Stroke;
-import java.awt.Toolkit;
+import java.awt.font.FontRenderContext;
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.WeakHashMap;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import javax.swing.ImageIcon;
 import javax.swing.JPanel;
 
 import org.joda.time.DateTime;
@@ -48,6 +62,8 @@ import course_generator.utils.Utils.CalcLineResult;
 
 public class PanelProfilMRB extends JPanel {
 	private static final long serialVersionUID = -2862978741208110562L;
+	/** Resolution of the screen (size of the panel) in dot per inch **/
+	public static final int SCREEN_DPI = 96;
 	private boolean WithHighlight;
 	private float transparence;
 	private TrackData track;
@@ -82,7 +98,6 @@ public class PanelProfilMRB extends JPanel {
 	// private int xSel1 = 0;
 	// private int xSel2 = 0;
 	// private int ySel1 = 0;
-	private int ySel2 = 0;
 	String[] MemoFormat;
 	private BasicStroke myPenDot;
 	private BasicStroke PenSimpleBorder;
@@ -93,6 +108,41 @@ public class PanelProfilMRB extends JPanel {
 	private BasicStroke PenRP_Border;
 	private BasicStroke PenSlopeBorder;
 	private BasicStroke myPenMoy;
+	/** Font of the graduations **/
+	private final Font FontGraduation = new Font("ARIAL", Font.PLAIN, 10);
+	/** Fonts of the labels. Key=size **/
+	private final HashMap<Integer, Font> labelFonts = new HashMap<Integer, Font>();
+	/** Images of the panel. Key=resource name **/
+	private final HashMap<String, Image> images = new HashMap<String, Image>();
+	/** Number of pixel per horizontal unit **/
+	private double resx = 0.0;
+	/** Y position of the profile for each x pixel **/
+	private int[] TabY = new int[0];
+	/** Layer with the axis and the profile, and the values used to draw it **/
+	private BufferedImage profileLayer = null;
+	private Object[] profileKey = null;
+	/** Incremented each time the profile layer is drawn **/
+	private int profileGeneration = 0;
+	/** Layer with the labels (transparent), and the values used to draw it **/
+	private BufferedImage labelsLayer = null;
+	private Object[] labelsKey = null;
+	/** Labels measured for the display. Key=position **/
+	private final WeakHashMap<MrbData, Label> labels = new WeakHashMap<MrbData, Label>();
+
+	/**
+	 * Text of a label and its dimension. Valid as long as the position, the
+	 * track and the settings used to generate it don't change
+	 */
+	private static class Label {
+		int version;
+		int trackVersion;
+		int unit;
+		int climbThreshold;
+		int wordWrapLength;
+		DateTime startTime;
+		FontRenderContext frc;
+		final DrawStringMultiLine text = new DrawStringMultiLine();
+	}
 
 	public PanelProfilMRB(int width, int height) {
 		super();
@@ -214,28 +264,134 @@ public class PanelProfilMRB extends JPanel {
 	}
 
 	/**
-	 * Refresh the panel
+	 * Refresh the panel. The axis with the profile and the labels are two images
+	 * drawn again only when the values used to draw them change. The selected
+	 * label is drawn over them
 	 */
 	public void paintComponent(Graphics g) {
 		super.paintComponent(g);
 		Graphics2D g2d = (Graphics2D) g;
 		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-		// private void RefreshProfil(bool WithHighlight)
+		// -- Scale of the screen (HiDPI)
+		double sx = g2d.getTransform().getScaleX();
+		double sy = g2d.getTransform().getScaleY();
+
+		// -- Axis and profile
+		Object[] key = getProfileKey(sx, sy);
+		if ((profileLayer == null) || !Arrays.deepEquals(key, profileKey)) {
+			profileLayer = createLayer(profileLayer, sx, sy, BufferedImage.TYPE_INT_RGB);
+			Graphics2D gl = createLayerGraphics(profileLayer, sx, sy);
+			DrawProfileLayer(gl);
+			gl.dispose();
+			profileKey = key;
+			profileGeneration++;
+		}
+		g2d.drawImage(profileLayer, 0, 0, width, height, null);
+
+		if (!isReady())
+			return;
+
+		// -- Labels
+		key = getLabelsKey();
+		if ((labelsLayer == null) || !Arrays.deepEquals(key, labelsKey)) {
+			labelsLayer = createLayer(labelsLayer, sx, sy, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D gl = createLayerGraphics(labelsLayer, sx, sy);
+			DrawLabelsLayer(gl);
+			gl.dispose();
+			labelsKey = key;
+		}
+		g2d.drawImage(labelsLayer, 0, 0, width, height, null);
+
+		// -- Selected label
+		if (WithHighlight && (SelLine >= 0) && (SelLine < data.data.size())) {
+			MrbData r = data.data.get(SelLine);
+			if ((r.getOptionMiniRoadbook() & CgConst.MRBOPT_SEL) != 0)
+				DrawLabel(g2d, r, true);
+		}
+	}
+
+	/**
+	 * Indicate if there is something to display
+	 */
+	private boolean isReady() {
+		return (data != null) && (settings != null) && (track != null) && !track.data.isEmpty();
+	}
+
+	/**
+	 * Return the values used to draw the axis and the profile
+	 */
+	private Object[] getProfileKey(double sx, double sy) {
+		if (!isReady())
+			return new Object[] { width, height, sx, sy };
+		return new Object[] { width, height, sx, sy, ProfileType, track, track.data.getVersion(), settings.Unit,
+				track.getTotalDistance(settings.Unit), track.getMinElev(settings.Unit),
+				track.getMaxElev(settings.Unit), track.TopMargin, track.CurveFilter, track.bNightCoeff,
+				track.bShowNightDay, track.StartNightTime, track.EndNightTime, track.clProfil_Simple_Fill,
+				track.clProfil_Simple_Border, track.clProfil_RS_Road, track.clProfil_RS_Path,
+				track.clProfil_RS_Border, track.clProfil_SlopeInf5, track.clProfil_SlopeInf10,
+				track.clProfil_SlopeInf15, track.clProfil_SlopeSup15, track.clProfil_SlopeBorder };
+	}
+
+	/**
+	 * Return the values used to draw the labels
+	 */
+	private Object[] getLabelsKey() {
+		int[] versions = new int[data.data.size()];
+		for (int i = 0; i < versions.length; i++) {
+			versions[i] = data.data.get(i).getVersion();
+		}
+		return new Object[] { profileGeneration, data, versions, track.LabelToBottom, track.WordWrapLength,
+				track.StartTime, settings.ClimbThresholdForCalculation };
+	}
+
+	/**
+	 * Return an image for a layer of the panel. The previous image is reused if
+	 * it has the right size
+	 * 
+	 * @param img  Previous image. Can be null
+	 * @param sx   Horizontal scale
+	 * @param sy   Vertical scale
+	 * @param type Type of the image (BufferedImage.TYPE_xxx)
+	 */
+	private BufferedImage createLayer(BufferedImage img, double sx, double sy, int type) {
+		int w = Math.max(1, (int) Math.ceil(width * sx));
+		int h = Math.max(1, (int) Math.ceil(height * sy));
+		if ((img != null) && (img.getWidth() == w) && (img.getHeight() == h) && (img.getType() == type))
+			return img;
+		return new BufferedImage(w, h, type);
+	}
+
+	/**
+	 * Return the graphic context of a layer, cleared and scaled
+	 */
+	private Graphics2D createLayerGraphics(BufferedImage img, double sx, double sy) {
+		Graphics2D g2d = img.createGraphics();
+		if (img.getColorModel().hasAlpha()) {
+			g2d.setComposite(AlphaComposite.Clear);
+			g2d.fillRect(0, 0, img.getWidth(), img.getHeight());
+			g2d.setComposite(AlphaComposite.SrcOver);
+		}
+		g2d.scale(sx, sy);
+		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		return g2d;
+	}
 
-		int nbtag = 0;
+	/**
+	 * Draw the axis and the profile. Calculate the resolution and the profile
+	 * position used to draw the labels
+	 * 
+	 * @param g2d Graphic context
+	 */
+	private void DrawProfileLayer(Graphics2D g2d) {
 		double[] stepval = { 1, 2, 2.5, 5 };
 		double[] stepval2 = { 0.1, 0.1, 0.2, 0.1 };
 
 		String s;
-		double resx = 0.0;
 		double resy = 0.0;
 		// double tf = 0;
 		// boolean first = false;
-		int[] TabY = new int[width];
-
-		for (int i = 0; i < width; i++)
-			TabY[i] = 0;
+		TabY = new int[width];
 
 		// Calculate the profile width
 		wp = width - offx - rMargin;
@@ -256,7 +412,6 @@ public class PanelProfilMRB extends JPanel {
 		// PixelPerVUnit = dElev / hp;
 
 		// Font FontSmall = new Font("ARIAL", Font.PLAIN, 7);
-		Font FontGraduation = new Font("ARIAL", Font.PLAIN, 10);
 		// Font FontLabel = new Font("ARIAL", Font.PLAIN, 11);
 
 		// CalcLineResult res = new CalcLineResult();
@@ -447,16 +602,16 @@ public class PanelProfilMRB extends JPanel {
 		// -- Horizontal grid drawing --
 		g2d.setStroke(PenBlackS);
 		for (double i = ymin; i <= ymax; i += stepy2) {
-			g.drawLine(offx - 2, height - offy - (int) ((i - ymin) * resy), offx,
+			g2d.drawLine(offx - 2, height - offy - (int) ((i - ymin) * resy), offx,
 					height - offy - (int) ((i - ymin) * resy));
 		}
 
 		for (double i = ymin; i <= ymax; i += stepy) {
 			g2d.setStroke(myPenDot);
-			g.drawLine(offx, height - offy - (int) ((i - ymin) * resy), offx + wp,
+			g2d.drawLine(offx, height - offy - (int) ((i - ymin) * resy), offx + wp,
 					height - offy - (int) ((i - ymin) * resy));
 			g2d.setStroke(PenBlackS);
-			g.drawLine(offx - 4, height - offy - (int) ((i - ymin) * resy), offx,
+			g2d.drawLine(offx - 4, height - offy - (int) ((i - ymin) * resy), offx,
 					height - offy - (int) ((i - ymin) * resy));
 		}
 
@@ -487,6 +642,18 @@ public class PanelProfilMRB extends JPanel {
 		else if (ProfileType == 2)
 			DrawSlopeProfile(g2d, xmin, ymin, resx, resy, TabY);
 
+		// -- Copyright --
+		Image img = getIcon_old("copyright.png");
+		g2d.drawImage(img, width - 15, (height - offy - img.getHeight(null)) / 2, this);
+	}
+
+	/**
+	 * Draw the labels and the lines between the labels and the profile. The
+	 * profile must have been drawn before
+	 * 
+	 * @param g2d Graphic context
+	 */
+	private void DrawLabelsLayer(Graphics2D g2d) {
 		// -- Vertical line drawing --
 		double dist = 0;
 		int posx = 0;
@@ -497,10 +664,10 @@ public class PanelProfilMRB extends JPanel {
 		g2d.setColor(Color.BLACK);
 
 		for (CgData r : data.data) {
-			if ((r.OptionMiniRoadbook & CgConst.MRBOPT_SEL) != 0) {
+			if ((r.getOptionMiniRoadbook() & CgConst.MRBOPT_SEL) != 0) {
 				dist = r.getTotal(settings.Unit);
 				posx = (int) (dist * resx);
-				posy = height - offy - (hp + track.TopMargin - 7 - r.VPosMiniRoadbook);
+				posy = height - offy - (hp + track.TopMargin - 7 - r.getVPosMiniRoadbook());
 				if (track.LabelToBottom)
 					posy_s = height - offy;
 				else
@@ -511,153 +678,147 @@ public class PanelProfilMRB extends JPanel {
 		}
 
 		// -- Text box drawing --
-		int miniRoadBookGridIndex = 0;
-		DrawStringMultiLine drawStringMulti = new DrawStringMultiLine();
 		for (MrbData r : data.data) {
-			if ((r.OptionMiniRoadbook & CgConst.MRBOPT_SEL) != 0) {
-				// -- Calc the number of tag
-				nbtag = NbTag(r.getTag());
-
-				g2d.setFont(new Font("ARIAL", Font.PLAIN, r.FontSizeMiniRoadbook));
-
-				dist = r.getTotal(settings.Unit);
-				posx = (int) (dist * resx);
-				posy = hp + track.TopMargin - 0 - r.VPosMiniRoadbook;
-
-				// -- Generate the text to display
-				// s = "Les Contamines\n1083m - km:100\n10h23";
-				// s = GenLabel("%N\n%Am - km:%D\n%H", r);
-				// s = GenLabel(r.FmtLbMiniRoadbook, r);
-				// s = Utils.GenLabel(r.FmtLbMiniRoadbook, r, track);
-				// s = Utils.GenLabel("%N%L%Am - km:%D\n%H", r, track, settings);
-				s = Utils.GenLabel(r.FmtLbMiniRoadbook, r, track, settings);
-				drawStringMulti.setText(g2d, s);
-
-				// -- Width calculation
-				int w = drawStringMulti.getWidth() + 4 + 2;
-				int w1 = (nbtag * 16) + ((nbtag - 1) * 2) + 4;
-				if (w1 > w)
-					w = w1;
-
-				// -- Text height
-				int htext = drawStringMulti.getHeight();
-
-				// -- Alignment position (left/center/right)
-				// Left nothing change
-				if ((r.OptionMiniRoadbook & CgConst.MRBOPT_CENTER) != 0) {
-					posx = posx - (w + 4) / 2;
-				}
-
-				if ((r.OptionMiniRoadbook & CgConst.MRBOPT_RIGHT) != 0) {
-					posx = posx - (w + 1);
-				}
-
-				// -- Size of the tags (with or without tags)
-				int htags = 16;
-				if (((r.OptionMiniRoadbook & CgConst.MRBOPT_SHOWTAGS) == 0) || (nbtag == 0))
-					htags = 0;
+			if ((r.getOptionMiniRoadbook() & CgConst.MRBOPT_SEL) != 0)
+				DrawLabel(g2d, r, false);
+		}
+	}
 
-				// -- Draw rectangle With or without selection
-				if ((miniRoadBookGridIndex == SelLine) && (WithHighlight)) {
-					g2d.setColor(new Color(0xFF, 0xEF, 0xBB));
-					g2d.fillRect(offx + posx, height - offy - posy, w, drawStringMulti.getHeight() + htags + 4);
-				} else {
-					g2d.setColor(Color.WHITE); // myBrushWhite
-					g2d.fillRect(offx + posx, height - offy - posy, w, drawStringMulti.getHeight() + htags + 4);
-				}
+	/**
+	 * Draw the label of a position
+	 * 
+	 * @param g2d       Graphic context
+	 * @param r         Position
+	 * @param highlight True to highlight the label (selected label)
+	 */
+	private void DrawLabel(Graphics2D g2d, MrbData r, boolean highlight) {
+		// -- Calc the number of tag
+		int nbtag = NbTag(r.getTag());
+
+		g2d.setFont(getLabelFont(r.getFontSizeMiniRoadbook()));
+
+		double dist = r.getTotal(settings.Unit);
+		int posx = (int) (dist * resx);
+		int posy = hp + track.TopMargin - 0 - r.getVPosMiniRoadbook();
+
+		// -- Generate the text to display
+		// s = "Les Contamines\n1083m - km:100\n10h23";
+		// s = GenLabel("%N\n%Am - km:%D\n%H", r);
+		// s = GenLabel(r.getFmtLbMiniRoadbook(), r);
+		// s = Utils.GenLabel(r.getFmtLbMiniRoadbook(), r, track);
+		// s = Utils.GenLabel("%N%L%Am - km:%D\n%H", r, track, settings);
+		DrawStringMultiLine drawStringMulti = getLabel(g2d, r).text;
+
+		// -- Width calculation
+		int w = drawStringMulti.getWidth() + 4 + 2;
+		int w1 = (nbtag * 16) + ((nbtag - 1) * 2) + 4;
+		if (w1 > w)
+			w = w1;
+
+		// -- Text height
+		int htext = drawStringMulti.getHeight();
+
+		// -- Alignment position (left/center/right)
+		// Left nothing change
+		if ((r.getOptionMiniRoadbook() & CgConst.MRBOPT_CENTER) != 0) {
+			posx = posx - (w + 4) / 2;
+		}
 
-				g2d.setColor(Color.BLACK); // PenBlackS
-				g2d.drawRect(offx + posx, height - offy - posy, w, drawStringMulti.getHeight() + htags + 4);
-				g2d.setClip(offx + posx, height - offy - posy, w, drawStringMulti.getHeight() + htags + 4);
+		if ((r.getOptionMiniRoadbook() & CgConst.MRBOPT_RIGHT) != 0) {
+			posx = posx - (w + 1);
+		}
 
-				if (miniRoadBookGridIndex == SelLine) {
-					// xSel1 = offx + posx;
-					// ySel1 = height - offy - posy;
-					// xSel2 = xSel1 + w;
-					ySel2 = ySel2 + htext + htags + 4;
-				}
+		// -- Size of the tags (with or without tags)
+		int htags = 16;
+		if (((r.getOptionMiniRoadbook() & CgConst.MRBOPT_SHOWTAGS) == 0) || (nbtag == 0))
+			htags = 0;
 
-				// -- Draw the text
-				g2d.setColor(Color.BLACK);
-				drawStringMulti.draw(g2d, s, offx + posx + 2, height - offy - posy);// +
-																					// htext);
+		// -- Draw rectangle With or without selection
+		if (highlight) {
+			g2d.setColor(new Color(0xFF, 0xEF, 0xBB));
+			g2d.fillRect(offx + posx, height - offy - posy, w, drawStringMulti.getHeight() + htags + 4);
+		} else {
+			g2d.setColor(Color.WHITE); // myBrushWhite
+			g2d.fillRect(offx + posx, height - offy - posy, w, drawStringMulti.getHeight() + htags + 4);
+		}
 
-				// -- Set the clipping to the whole panel
-				g2d.setClip(0, 0, width, height);
+		g2d.setColor(Color.BLACK); // PenBlackS
+		g2d.drawRect(offx + posx, height - offy - posy, w, drawStringMulti.getHeight() + htags + 4);
+		Shape clip = g2d.getClip();
+		g2d.setClip(offx + posx, height - offy - posy, w, drawStringMulti.getHeight() + htags + 4);
 
-				if ((r.OptionMiniRoadbook & CgConst.MRBOPT_SHOWTAGS) != 0) {
-					int m = 0;
-					int lt = (int) ((w - w1) / 2);
+		// -- Draw the text
+		g2d.setColor(Color.BLACK);
+		drawStringMulti.draw(g2d, offx + posx + 2, height - offy - posy);// +
+																			// htext);
 
-					if ((r.getTag() & CgConst.TAG_HIGH_PT) != 0) {
-						Image img = getIcon("high_point.png");
-						g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
-						m += 18;
-					}
+		// -- Restore the clipping
+		g2d.setClip(clip);
 
-					if ((r.getTag() & CgConst.TAG_LOW_PT) != 0) {
-						Image img = getIcon("low_point.png");
-						g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
-						m += 18;
-					}
+		if ((r.getOptionMiniRoadbook() & CgConst.MRBOPT_SHOWTAGS) != 0) {
+			int m = 0;
+			int lt = (int) ((w - w1) / 2);
 
-					if ((r.getTag() & CgConst.TAG_EAT_PT) != 0) {
-						Image img = getIcon("eat.png");
-						g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
-						m += 18;
-					}
+			if ((r.getTag() & CgConst.TAG_HIGH_PT) != 0) {
+				Image img = getIcon("high_point.png");
+				g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
+				m += 18;
+			}
 
-					if ((r.getTag() & CgConst.TAG_WATER_PT) != 0) {
-						Image img = getIcon("drink.png");
-						g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
-						m += 18;
-					}
+			if ((r.getTag() & CgConst.TAG_LOW_PT) != 0) {
+				Image img = getIcon("low_point.png");
+				g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
+				m += 18;
+			}
 
-					if ((r.getTag() & CgConst.TAG_COOL_PT) != 0) {
-						Image img = getIcon("photo.png");
-						g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
-						m += 18;
-					}
+			if ((r.getTag() & CgConst.TAG_EAT_PT) != 0) {
+				Image img = getIcon("eat.png");
+				g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
+				m += 18;
+			}
 
-					if ((r.getTag() & CgConst.TAG_NOTE) != 0) {
-						Image img = getIcon("note.png");
-						g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
-						m += 18;
-					}
+			if ((r.getTag() & CgConst.TAG_WATER_PT) != 0) {
+				Image img = getIcon("drink.png");
+				g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
+				m += 18;
+			}
 
-					if ((r.getTag() & CgConst.TAG_INFO) != 0) {
-						Image img = getIcon("info.png");
-						g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
-						m += 18;
-					}
+			if ((r.getTag() & CgConst.TAG_COOL_PT) != 0) {
+				Image img = getIcon("photo.png");
+				g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
+				m += 18;
+			}
 
-					if ((r.getTag() & CgConst.TAG_DROPBAG) != 0) {
-						Image img = getIcon("dropbag.png");
-						g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
-						m += 18;
-					}
+			if ((r.getTag() & CgConst.TAG_NOTE) != 0) {
+				Image img = getIcon("note.png");
+				g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
+				m += 18;
+			}
 
-					if ((r.getTag() & CgConst.TAG_CREW) != 0) {
-						Image img = getIcon("crew.png");
-						g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
-						m += 18;
-					}
-					if ((r.getTag() & CgConst.TAG_FIRST_AID) != 0) {
-						Image img = getIcon("first_aid.png");
-						g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
-						m += 18;
-					}
+			if ((r.getTag() & CgConst.TAG_INFO) != 0) {
+				Image img = getIcon("info.png");
+				g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
+				m += 18;
+			}
 
-				}
+			if ((r.getTag() & CgConst.TAG_DROPBAG) != 0) {
+				Image img = getIcon("dropbag.png");
+				g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
+				m += 18;
 			}
-			miniRoadBookGridIndex++;
-		}
 
-		// -- Copyright --
-		Image img = getIcon_old("copyright.png");
-		g2d.drawImage(img, width - 15, (height - offy - img.getHeight(null)) / 2, this);
+			if ((r.getTag() & CgConst.TAG_CREW) != 0) {
+				Image img = getIcon("crew.png");
+				g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
+				m += 18;
+			}
+			if ((r.getTag() & CgConst.TAG_FIRST_AID) != 0) {
+				Image img = getIcon("first_aid.png");
+				g2d.drawImage(img, (offx + posx + 2 + m + lt), height - offy - posy + 1 + htext, this);
+				m += 18;
+			}
 
-		g2d.dispose();
+		}
 	}
 
 	/**
@@ -985,21 +1146,106 @@ public class PanelProfilMRB extends JPanel {
 		this.transparence = transparence;
 	}
 
+	/**
+	 * Return the label of a position. The label is generated and measured again
+	 * only if the position (data or format), the track or the settings have
+	 * changed
+	 * 
+	 * @param g2d Graphics where the label is drawn. The font of the label must be
+	 *            selected
+	 * @param r   Position
+	 * @return The label
+	 */
+	private Label getLabel(Graphics2D g2d, MrbData r) {
+		Label l = labels.get(r);
+		FontRenderContext frc = g2d.getFontRenderContext();
+		if ((l == null) || (l.version != r.getVersion()) || (l.trackVersion != track.data.getVersion())
+				|| (l.unit != settings.Unit) || (l.climbThreshold != settings.ClimbThresholdForCalculation)
+				|| (l.wordWrapLength != track.WordWrapLength) || !l.startTime.equals(track.StartTime)
+				|| !l.frc.equals(frc)) {
+			if (l == null) {
+				l = new Label();
+				labels.put(r, l);
+			}
+			l.version = r.getVersion();
+			l.trackVersion = track.data.getVersion();
+			l.unit = settings.Unit;
+			l.climbThreshold = settings.ClimbThresholdForCalculation;
+			l.wordWrapLength = track.WordWrapLength;
+			l.startTime = track.StartTime;
+			l.frc = frc;
+			l.text.setText(g2d, Utils.GenLabel(r.getFmtLbMiniRoadbook(), r, track, settings));
+		}
+		return l;
+	}
+
+	/**
+	 * Save the profile in a PNG file at the resolution of the screen
+	 * 
+	 * @param filename Name of the file
+	 */
 	public void save(String filename) {
-		// -- Disable Highlight of the current box
-		WithHighlight = false;
-		// -- Save the image
-		BufferedImage image = new BufferedImage(this.getWidth(), this.getHeight(), BufferedImage.TYPE_INT_ARGB);
-		Graphics g = image.getGraphics();
-		paint(g);
+		save(filename, SCREEN_DPI);
+	}
+
+	/**
+	 * Save the profile in a PNG file. The profile is drawn in the image at the
+	 * requested resolution, without the selection and without modifying the
+	 * panel
+	 * 
+	 * @param filename Name of the file
+	 * @param dpi      Resolution of the image in dot per inch
+	 */
+	public void save(String filename, int dpi) {
+		double scale = (double) dpi / SCREEN_DPI;
+		BufferedImage image = createLayer(null, scale, scale, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2d = createLayerGraphics(image, scale, scale);
+		DrawProfileLayer(g2d);
+		if (isReady())
+			DrawLabelsLayer(g2d);
+		g2d.dispose();
+
 		try {
-			ImageIO.write(image, "png", new File(filename));
+			WritePNG(image, filename, dpi);
 		} catch (IOException ex) {
 			CgLog.error("PanelProfilMRB.save : Impossible to save the profile image");
 			System.out.println(ex.getMessage());
 		}
-		// -- Enable Highlight of the current box
-		WithHighlight = true;
+	}
+
+	/**
+	 * Write an image in a PNG file with its resolution
+	 * 
+	 * @param image    Image to write
+	 * @param filename Name of the file
+	 * @param dpi      Resolution in dot per inch
+	 */
+	private static void WritePNG(BufferedImage image, String filename, int dpi) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image),
+				param);
+
+		// -- Resolution in pixel per meter
+		String ppm = Integer.toString((int) Math.round(dpi / 0.0254));
+		IIOMetadataNode phys = new IIOMetadataNode("pHYs");
+		phys.setAttribute("pixelsPerUnitXAxis", ppm);
+		phys.setAttribute("pixelsPerUnitYAxis", ppm);
+		phys.setAttribute("unitSpecifier", "meter");
+		IIOMetadataNode root = new IIOMetadataNode("javax_imageio_png_1.0");
+		root.appendChild(phys);
+		metadata.mergeTree("javax_imageio_png_1.0", root);
+
+		OutputStream os = new FileOutputStream(filename);
+		try {
+			ImageOutputStream out = ImageIO.createImageOutputStream(os);
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(image, null, metadata), param);
+			out.close();
+		} finally {
+			os.close();
+			writer.dispose();
+		}
 	}
 
 	private int NbTag(int Value) {
@@ -1039,11 +1285,40 @@ public class PanelProfilMRB extends JPanel {
 	}
 
 	private Image getIcon(String name) {
-		return Toolkit.getDefaultToolkit().getImage(getClass().getResource("/course_generator/images/16/" + name));
+		return getImage("/course_generator/images/16/" + name);
 	}
 
 	private Image getIcon_old(String name) {
-		return Toolkit.getDefaultToolkit().getImage(getClass().getResource("/course_generator/images/old/" + name));
+		return getImage("/course_generator/images/old/" + name);
+	}
+
+	/**
+	 * Return an image of the resources. The image is completely loaded (the
+	 * layers are not drawn again when an image is loaded)
+	 * 
+	 * @param name Name of the resource
+	 */
+	private Image getImage(String name) {
+		Image img = images.get(name);
+		if (img == null) {
+			img = new ImageIcon(getClass().getResource(name)).getImage();
+			images.put(name, img);
+		}
+		return img;
+	}
+
+	/**
+	 * Return the font of a label
+	 * 
+	 * @param size Size of the font
+	 */
+	private Font getLabelFont(int size) {
+		Font f = labelFonts.get(size);
+		if (f == null) {
+			f = new Font("ARIAL", Font.PLAIN, size);
+			labelFonts.put(size, f);
+		}
+		return f;
 	}
 
 }
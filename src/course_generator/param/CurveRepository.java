@@ -0,0 +1,406 @@
+/*
+ * Course Generator
+ * Copyright (C) 2008..2019 Pierre Delore and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator.param;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import course_generator.utils.CgConst;
+import course_generator.utils.CgLog;
+import course_generator.utils.Utils;
+
+/**
+ * Curves (.par files) of the km/h, min/miles and user folders.
+ *
+ * The names of the curves of each folder are read once, and the loaded curves
+ * are kept in memory (the least recently used curves are removed when there
+ * are more than {@link #CACHE_SIZE} curves). The folders are watched: a curve
+ * created, modified or deleted on disk is updated at the next access. A
+ * folder which can't be watched is read on disk at each access.
+ *
+ * The watch events are received asynchronously, so a curve written by the
+ * application must be notified with {@link #invalidate(int, String)}.
+ *
+ * The class is thread safe.
+ */
+public class CurveRepository {
+	/** Maximum number of curves kept in memory **/
+	public static final int CACHE_SIZE = 256;
+
+	private static CurveRepository instance = null;
+
+	/** Folders. Index=CgConst.CURVE_FOLDER_xxx **/
+	private final String[] folders;
+	/** Names of the curves of each folder. null=folder not watched **/
+	private final List<TreeSet<String>> names = new ArrayList<TreeSet<String>>();
+	/** Loaded curves. Key=folder + name. Order=access order **/
+	private final LinkedHashMap<String, Curve> cache;
+	/** Incremented at each modification of a folder **/
+	private long generation = 0;
+
+	private WatchService watcher = null;
+	private final HashMap<WatchKey, Integer> keys = new HashMap<WatchKey, Integer>();
+
+	/**
+	 * A loaded curve. The curve is read only: use {@link #copyTo(ParamData)} to
+	 * modify it
+	 */
+	public static class Curve {
+		private final String name;
+		private final int folder;
+		private final ParamData param;
+		private final SpeedTable table;
+
+		Curve(String name, int folder, ParamData param) {
+			this.name = name;
+			this.folder = folder;
+			this.param = param;
+			this.table = new SpeedTable(param);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getFolder() {
+			return folder;
+		}
+
+		/**
+		 * @return Number of points of the curve
+		 */
+		public int size() {
+			return param.data.size();
+		}
+
+		/**
+		 * @return The curve compiled for the time calculation
+		 */
+		public SpeedTable getSpeedTable() {
+			return table;
+		}
+
+		/**
+		 * Copy the curve. The points of 'p' are replaced
+		 *
+		 * @param p Destination
+		 */
+		public void copyTo(ParamData p) {
+			p.name = param.name;
+			p.comment = param.comment;
+			p.data.clear();
+			for (CgParam c : param.data) {
+				p.data.add(new CgParam(c.getSlope(), c.getSpeed()));
+			}
+		}
+	}
+
+	/**
+	 * Return the repository of the curve folders of the application
+	 */
+	public static synchronized CurveRepository getInstance() {
+		if (instance == null) {
+			instance = new CurveRepository(Utils.getSelectedCurveFolder(CgConst.CURVE_FOLDER_KM_H),
+					Utils.getSelectedCurveFolder(CgConst.CURVE_FOLDER_MIN_MILES),
+					Utils.getSelectedCurveFolder(CgConst.CURVE_FOLDER_USER));
+		}
+		return instance;
+	}
+
+	/**
+	 * Create a repository
+	 *
+	 * @param folders Folders (ending with '/'). Index=CgConst.CURVE_FOLDER_xxx
+	 */
+	public CurveRepository(String... folders) {
+		this.folders = folders.clone();
+		cache = new LinkedHashMap<String, Curve>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Curve> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+
+		try {
+			watcher = FileSystems.getDefault().newWatchService();
+		} catch (IOException e) {
+			CgLog.error("CurveRepository : Impossible to watch the curve folders");
+		}
+
+		for (int i = 0; i < folders.length; i++) {
+			TreeSet<String> list = null;
+			if (watcher != null && new File(folders[i]).isDirectory()) {
+				try {
+					keys.put(Paths.get(folders[i]).register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), i);
+					list = new TreeSet<String>(listFolder(i));
+				} catch (IOException e) {
+					CgLog.error("CurveRepository : Impossible to watch the folder '" + folders[i] + "'");
+				}
+			}
+			names.add(list);
+		}
+
+		if (!keys.isEmpty()) {
+			Thread t = new Thread(new Runnable() {
+				public void run() {
+					watch();
+				}
+			}, "CurveRepository");
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	/**
+	 * Stop watching the folders
+	 */
+	public void close() {
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+			}
+		}
+		synchronized (this) {
+			for (int i = 0; i < names.size(); i++)
+				names.set(i, null);
+			cache.clear();
+			generation++;
+		}
+	}
+
+	/**
+	 * Return the name of the file of a curve
+	 *
+	 * @param folder Folder of the curve (CgConst.CURVE_FOLDER_xxx)
+	 * @param name   Name of the curve
+	 */
+	public String getFileName(int folder, String name) {
+		return folders[folder] + name + ".par";
+	}
+
+	/**
+	 * Return the folder of a curve. The folders are searched in this order:
+	 * user, min/miles, km/h
+	 *
+	 * @param name Name of the curve
+	 * @return The folder (CgConst.CURVE_FOLDER_xxx) or CgConst.CURVE_NOT_FOUND
+	 */
+	public int searchFolder(String name) {
+		if (exists(CgConst.CURVE_FOLDER_USER, name))
+			return CgConst.CURVE_FOLDER_USER;
+		else if (exists(CgConst.CURVE_FOLDER_MIN_MILES, name))
+			return CgConst.CURVE_FOLDER_MIN_MILES;
+		else if (exists(CgConst.CURVE_FOLDER_KM_H, name))
+			return CgConst.CURVE_FOLDER_KM_H;
+		else
+			return CgConst.CURVE_NOT_FOUND;
+	}
+
+	/**
+	 * Indicate if a curve exists
+	 *
+	 * @param folder Folder of the curve (CgConst.CURVE_FOLDER_xxx)
+	 * @param name   Name of the curve
+	 */
+	public boolean exists(int folder, String name) {
+		synchronized (this) {
+			if (names.get(folder) != null)
+				return names.get(folder).contains(name);
+		}
+		return Utils.FileExist(getFileName(folder, name));
+	}
+
+	/**
+	 * Return the names of the curves of a folder
+	 *
+	 * @param folder Folder (CgConst.CURVE_FOLDER_xxx)
+	 * @return The names sorted in alphabetical order
+	 */
+	public List<String> getNames(int folder) {
+		synchronized (this) {
+			if (names.get(folder) != null)
+				return new ArrayList<String>(names.get(folder));
+		}
+		return new ArrayList<String>(new TreeSet<String>(listFolder(folder)));
+	}
+
+	/**
+	 * Return a curve. The folders are searched in the order of
+	 * {@link #searchFolder(String)}
+	 *
+	 * @param name Name of the curve
+	 * @return The curve or null if the curve doesn't exist or can't be read
+	 */
+	public Curve get(String name) {
+		int folder = searchFolder(name);
+		if (folder == CgConst.CURVE_NOT_FOUND)
+			return null;
+		return get(folder, name);
+	}
+
+	/**
+	 * Return a curve of a folder
+	 *
+	 * @param folder Folder of the curve (CgConst.CURVE_FOLDER_xxx)
+	 * @param name   Name of the curve
+	 * @return The curve or null if the curve doesn't exist or can't be read
+	 */
+	public Curve get(int folder, String name) {
+		String key = folder + "/" + name;
+		long gen;
+		synchronized (this) {
+			Curve c = cache.get(key);
+			if (c != null)
+				return c;
+			gen = generation;
+		}
+
+		String filename = getFileName(folder, name);
+		if (!Utils.FileExist(filename))
+			return null;
+		ParamData p = new ParamData();
+		try {
+			p.Load(filename);
+		} catch (Exception e) {
+			CgLog.error("CurveRepository : Impossible to load the curve '" + filename + "'");
+			return null;
+		}
+		Curve c = new Curve(name, folder, p);
+
+		// -- Keep the curve only if the folder has not been modified during the load
+		synchronized (this) {
+			if (gen == generation && names.get(folder) != null)
+				cache.put(key, c);
+		}
+		return c;
+	}
+
+	/**
+	 * Indicate that a curve has been written or deleted
+	 *
+	 * @param folder Folder of the curve (CgConst.CURVE_FOLDER_xxx)
+	 * @param name   Name of the curve
+	 */
+	public void invalidate(int folder, String name) {
+		boolean exists = Utils.FileExist(getFileName(folder, name));
+		synchronized (this) {
+			TreeSet<String> list = names.get(folder);
+			if (list != null) {
+				if (exists)
+					list.add(name);
+				else
+					list.remove(name);
+			}
+			cache.remove(folder + "/" + name);
+			generation++;
+		}
+	}
+
+	/**
+	 * Read the names of the curves of a folder on disk
+	 */
+	private List<String> listFolder(int folder) {
+		List<String> list = new ArrayList<String>();
+		File[] files = new File(folders[folder]).listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (f.isFile() && f.getName().toLowerCase().endsWith(".par"))
+					list.add(Utils.getFileNameWithoutExtension(f.getName()));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Read the whole folder again. Called by the watch thread when some events
+	 * have been lost
+	 *
+	 * @param folder Folder (CgConst.CURVE_FOLDER_xxx)
+	 */
+	public void reload(int folder) {
+		List<String> list = listFolder(folder);
+		synchronized (this) {
+			if (names.get(folder) != null)
+				names.set(folder, new TreeSet<String>(list));
+			Iterator<String> it = cache.keySet().iterator();
+			while (it.hasNext()) {
+				if (it.next().startsWith(folder + "/"))
+					it.remove();
+			}
+			generation++;
+		}
+	}
+
+	/**
+	 * Loop of the watch thread
+	 */
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = watcher.take();
+				Integer folder = keys.get(key);
+				if (folder == null)
+					continue;
+
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == OVERFLOW) {
+						reload(folder);
+					} else {
+						String file = ((Path) event.context()).getFileName().toString();
+						if (file.toLowerCase().endsWith(".par"))
+							invalidate(folder, Utils.getFileNameWithoutExtension(file));
+					}
+				}
+
+				// -- The folder is not accessible anymore: read it on disk
+				if (!key.reset()) {
+					synchronized (this) {
+						names.set(folder, null);
+						generation++;
+					}
+					reload(folder);
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// -- End of the watch
+		}
+	}
+}
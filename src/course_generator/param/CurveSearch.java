@@ -0,0 +1,233 @@
+/*
+ * Course Generator
+ * Copyright (C) 2008..2019 Pierre Delore and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator.param;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import course_generator.TrackData;
+import course_generator.utils.CgConst;
+import course_generator.utils.CgLog;
+
+/**
+ * Search the running curves ("Run_xx_ykm_h") giving a final time.
+ *
+ * The curves are loaded once, in parallel. The total time of a track decreases
+ * when the speed of the curve increases, so the curves giving the final time
+ * are searched by dividing the range of the possible curves: at each step
+ * several curves are evaluated in parallel on the fork-join pool (one curve
+ * with one thread: bisection).
+ *
+ * The track must not be modified during the search (use a copy). The search
+ * is stopped by {@link TrackData#CancelCalculation()} on this copy.
+ */
+public class CurveSearch {
+	/** Name of the running curves. Group 1=km/h, group 2=tenth of km/h **/
+	private static final Pattern RUN_CURVE = Pattern.compile("Run_(\\d+)_(\\d)km_h");
+
+	private final ForkJoinPool pool;
+	/** Running curves sorted by speed. Null=not loaded **/
+	private List<Curve> curves = null;
+
+	/**
+	 * A running curve
+	 */
+	private static class Curve {
+		final String name;
+		final double speed;
+		SpeedTable table;
+
+		Curve(String name, double speed) {
+			this.name = name;
+			this.speed = speed;
+		}
+	}
+
+	/**
+	 * Result of a search
+	 */
+	public static class Result {
+		/** True if the final time is between the time of two curves **/
+		public boolean found = false;
+		/** Curve giving the final time or a faster time. Empty if none **/
+		public String curveMin = "";
+		public int timeMin = 0;
+		/** Curve giving a slower time. Empty if none **/
+		public String curveMax = "";
+		public int timeMax = 0;
+	}
+
+	public CurveSearch() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public CurveSearch(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Load the running curves if they are not loaded
+	 *
+	 * @param progress Called with the progress of the load (0..100). Can be null
+	 * @return The curves sorted by speed
+	 */
+	private synchronized List<Curve> loadCurves(final IntConsumer progress)
+			throws InterruptedException, ExecutionException {
+		if (curves != null)
+			return curves;
+
+		// -- List the running curves of the km/h folder
+		final CurveRepository repository = CurveRepository.getInstance();
+		List<Curve> list = new ArrayList<Curve>();
+		for (String name : repository.getNames(CgConst.CURVE_FOLDER_KM_H)) {
+			Matcher m = RUN_CURVE.matcher(name);
+			if (m.matches())
+				list.add(new Curve(name, Integer.parseInt(m.group(1)) + Integer.parseInt(m.group(2)) / 10.0));
+		}
+		Collections.sort(list, new Comparator<Curve>() {
+			public int compare(Curve a, Curve b) {
+				return Double.compare(a.speed, b.speed);
+			}
+		});
+
+		// -- Load them in parallel. A curve of the user folder replaces the
+		// curve of the same name (same search order as the calculation)
+		final AtomicInteger loaded = new AtomicInteger();
+		final int total = list.size();
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final Curve c : list) {
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					CurveRepository.Curve curve = repository.get(c.name);
+					if (curve == null)
+						CgLog.error("CurveSearch : Impossible to load the curve '" + c.name + "'");
+					else if (curve.size() >= 2)
+						c.table = curve.getSpeedTable();
+					if (progress != null)
+						progress.accept(loaded.incrementAndGet() * 100 / total);
+					return null;
+				}
+			});
+		}
+		for (Future<Void> f : pool.invokeAll(tasks))
+			f.get();
+
+		// -- Remove the invalid curves
+		List<Curve> valid = new ArrayList<Curve>();
+		for (Curve c : list) {
+			if (c.table != null)
+				valid.add(c);
+		}
+		curves = valid;
+		return curves;
+	}
+
+	/**
+	 * Search the curves giving a final time
+	 *
+	 * @param track      Track. Must not be modified during the search
+	 * @param targetTime Final time in second
+	 * @param progress   Called with the progress of the search (0..100). Can
+	 *                   be null
+	 * @return Result of the search
+	 * @throws CancellationException if the calculation of the track has been
+	 *                               cancelled
+	 */
+	public Result search(final TrackData track, int targetTime, final IntConsumer progress)
+			throws InterruptedException, ExecutionException {
+		// -- Loading: first half of the progress
+		final List<Curve> list = loadCurves(new IntConsumer() {
+			public void accept(int p) {
+				if (progress != null)
+					progress.accept(p / 2);
+			}
+		});
+		final int n = list.size();
+		int[] times = new int[n];
+
+		// -- Invariant: time(lo) > target (lo=-1: infinite time) and
+		// time(hi) <= target (hi=n: null time)
+		int lo = -1;
+		int hi = n;
+		int probes = Math.max(1, pool.getParallelism());
+		while (hi - lo > 1) {
+			// -- Evaluate curves evenly spaced in ]lo, hi[
+			int width = hi - lo - 1;
+			int count = Math.min(probes, width);
+			final int[] idx = new int[count];
+			List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+			for (int k = 0; k < count; k++) {
+				idx[k] = lo + (int) ((long) (k + 1) * (width + 1) / (count + 1));
+				final SpeedTable p = list.get(idx[k]).table;
+				tasks.add(new Callable<Integer>() {
+					public Integer call() {
+						return track.CalcTotalTime(p);
+					}
+				});
+			}
+			List<Future<Integer>> results = pool.invokeAll(tasks);
+
+			// -- Keep the part containing the final time
+			int newLo = lo;
+			int newHi = hi;
+			for (int k = 0; k < count; k++) {
+				times[idx[k]] = results.get(k).get();
+				if (times[idx[k]] < 0)
+					throw new CancellationException();
+				if (times[idx[k]] > targetTime)
+					newLo = idx[k];
+				else {
+					newHi = idx[k];
+					break;
+				}
+			}
+			lo = newLo;
+			hi = newHi;
+
+			if (progress != null)
+				progress.accept(100 - (int) (50 * Math.log(hi - lo) / Math.log(n + 1)));
+		}
+
+		// -- hi is the first curve with a time lower or equal to the final time
+		Result r = new Result();
+		if (hi < n && (times[hi] == targetTime || lo >= 0)) {
+			r.found = true;
+			r.curveMin = list.get(hi).name;
+			r.timeMin = times[hi];
+			if (lo >= 0) {
+				r.curveMax = list.get(lo).name;
+				r.timeMax = times[lo];
+			}
+		}
+		if (progress != null)
+			progress.accept(100);
+		return r;
+	}
+}
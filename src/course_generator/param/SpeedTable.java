@@ -0,0 +1,122 @@
+/*
+ * Course Generator
+ * Copyright (C) 2008..2019 Pierre Delore and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator.param;
+
+import course_generator.utils.CgConst;
+import course_generator.utils.Utils;
+
+/**
+ * Curve compiled for the time calculation: speed in km/h for a slope in %.
+ *
+ * The line equation (a, b) of each part of the curve is calculated once. The
+ * slopes from CgConst.MIN_CLIMB to CgConst.MAX_CLIMB are divided in cells of
+ * 0.1% and each cell gives the first part of the curve to test, so a speed is
+ * found with an array index and a line equation (usually without testing
+ * another part of the curve).
+ *
+ * Tolerance: none. The speed is identical (same double) to the interpolation
+ * of the curve points done before by the calculation: the slope is limited to
+ * [MIN_CLIMB, MAX_CLIMB], the part of the curve is the first point with a
+ * slope greater or equal to the slope and its previous point, and the speed
+ * of the last but one point is used above the last point.
+ *
+ * The tables of the curve files are kept by {@link CurveRepository}.
+ */
+public class SpeedTable {
+	/** Size of a cell in % **/
+	public static final double STEP = 0.1;
+	private static final int CELLS = (int) Math.round((CgConst.MAX_CLIMB - CgConst.MIN_CLIMB) / STEP) + 1;
+
+	/** Slope of the curve points **/
+	private final double[] slopes;
+	/**
+	 * Line equation (speed = a * slope + b) of each part. The part j ends at the
+	 * point j. The last part is used above the last point
+	 **/
+	private final double[] a;
+	private final double[] b;
+	/** First part to test for each cell **/
+	private final int[] cellPart;
+
+	/**
+	 * Compile a curve
+	 *
+	 * @param p Curve
+	 */
+	public SpeedTable(ParamData p) {
+		final int m = p.data.size();
+		slopes = new double[m];
+		double[] speeds = new double[m];
+		for (int j = 0; j < m; j++) {
+			slopes[j] = p.data.get(j).getSlope();
+			speeds[j] = p.data.get(j).getSpeedNumber();
+		}
+
+		a = new double[m + 1];
+		b = new double[m + 1];
+		Utils.CalcLineResult res = new Utils.CalcLineResult();
+		for (int j = 0; j < m; j++) {
+			int k = (j == 0) ? 0 : j - 1;
+			if (slopes[k] != slopes[j]) {
+				res = Utils.CalcLine(slopes[k], speeds[k], slopes[j], speeds[j], res);
+				a[j] = res.a;
+				b[j] = res.b;
+			} else {
+				a[j] = 0.0;
+				b[j] = speeds[k];
+			}
+		}
+		a[m] = 0.0;
+		b[m] = (m >= 2) ? speeds[m - 2] : 0.0;
+
+		// -- For each cell, the points before the first part to test have a slope
+		// lower than the cell (with a margin of one cell for the rounding)
+		cellPart = new int[CELLS];
+		int j = 0;
+		for (int c = 0; c < CELLS; c++) {
+			double low = CgConst.MIN_CLIMB + (c - 1) * STEP;
+			while (j < m && slopes[j] < low)
+				j++;
+			cellPart[c] = j;
+		}
+	}
+
+	/**
+	 * Return the speed for a slope
+	 *
+	 * @param slope Slope in %
+	 * @return Speed in km/h
+	 */
+	public double getSpeed(double slope) {
+		double x = slope;
+		if (x > CgConst.MAX_CLIMB) {
+			x = CgConst.MAX_CLIMB;
+		}
+		if (x < CgConst.MIN_CLIMB) {
+			x = CgConst.MIN_CLIMB;
+		}
+		if (Double.isNaN(x))
+			return b[slopes.length];
+
+		int j = cellPart[(int) ((x - CgConst.MIN_CLIMB) / STEP)];
+		while (j < slopes.length && slopes[j] < x)
+			j++;
+		return a[j] * x + b[j];
+	}
+}
@@ -27,7 +27,6 @@ import java.awt.GridBagLayout;
 import java.awt.GridLayout;
 import java.awt.event.WindowEvent;
 import java.io.File;
-import java.io.FilenameFilter;
 import java.util.Collections;
 
 import javax.swing.JButton;
@@ -141,8 +140,7 @@ public class frmEditCurve extends javax.swing.JDialog {
 		bEditMode = false;
 		tablemodel.setSettings(settings);
 
-		int res = Utils.searchCurveFolder(Paramfile);
-		LoadCurve(Utils.getSelectedCurveFolder(res) + Paramfile + ".par", res);
+		LoadCurve(Paramfile, Utils.searchCurveFolder(Paramfile));
 		ChangeEditStatus();
 		RefreshView();
 		// Set field
@@ -214,21 +212,14 @@ public class frmEditCurve extends javax.swing.JDialog {
 
 	/**
 	 * Refresh the curve list
+	 * 
+	 * @param folder Folder to display (CgConst.CURVE_FOLDER_xxx)
 	 */
-	private void RefreshCurveList(String dir) {
-		File[] files = new File(dir).listFiles(new FilenameFilter() {
-			@Override
-			public boolean accept(File dir, String name) {
-				return name.toLowerCase().endsWith(".par");
-			}
-		});
-
+	private void RefreshCurveList(int folder) {
 		model.clear();
 
-		for (int i = 0; i < files.length; i++) {
-			if (files[i].isFile()) {
-				model.addElement(Utils.getFileNameWithoutExtension(files[i].getName()));
-			}
+		for (String name : CurveRepository.getInstance().getNames(folder)) {
+			model.addElement(name);
 		}
 		model.sort();
 	}
@@ -401,7 +392,7 @@ public class frmEditCurve extends javax.swing.JDialog {
 		pack();
 
 		// -- Refresh the curve list
-		RefreshCurveList(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder));
+		RefreshCurveList(settings.SelectedCurveFolder);
 
 		// -- Center the windows
 		setLocationRelativeTo(null);
@@ -426,8 +417,7 @@ public class frmEditCurve extends javax.swing.JDialog {
 		int index = ListCurves.getSelectedIndex();
 		if (index >= 0) {
 			Paramfile = (String) model.getElementAt(index);
-			LoadCurve(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder) + (String) model.getElementAt(index)
-					+ ".par", settings.SelectedCurveFolder);
+			LoadCurve(Paramfile, settings.SelectedCurveFolder);
 			bEditMode = false;
 			RefreshView();
 		}
@@ -436,18 +426,17 @@ public class frmEditCurve extends javax.swing.JDialog {
 	/**
 	 * Load a curve
 	 * 
-	 * @param filename Curve file name
+	 * @param name          Curve name
+	 * @param SelFolderType Folder of the curve (CgConst.CURVE_FOLDER_xxx)
 	 */
-	protected void LoadCurve(String filename, int SelFolderType) {
-
-		if (Utils.FileExist(filename)) {
+	protected void LoadCurve(String name, int SelFolderType) {
+		if (SelFolderType == CgConst.CURVE_NOT_FOUND)
+			return;
 
-			try {
-				param.Load(filename);
-				bCurveReadonly = (SelFolderType != CgConst.CURVE_FOLDER_USER);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+		CurveRepository.Curve curve = CurveRepository.getInstance().get(SelFolderType, name);
+		if (curve != null) {
+			curve.copyTo(param);
+			bCurveReadonly = (SelFolderType != CgConst.CURVE_FOLDER_USER);
 		}
 	}
 
@@ -510,11 +499,12 @@ public class frmEditCurve extends javax.swing.JDialog {
 					// ".par", settings.Unit);
 					param.SaveCurve(Utils.getSelectedCurveFolder(CgConst.CURVE_FOLDER_USER) + Paramfile + ".par",
 							settings.Unit);
+					CurveRepository.getInstance().invalidate(CgConst.CURVE_FOLDER_USER, Paramfile);
 
 					bEditMode = false;
 					ChangeEditStatus();
 					RefreshView();
-					RefreshCurveList(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder));
+					RefreshCurveList(settings.SelectedCurveFolder);
 				}
 			}
 		});
@@ -529,8 +519,7 @@ public class frmEditCurve extends javax.swing.JDialog {
 				if (bEditMode) {
 					bEditMode = false;
 					Paramfile = Old_Paramfile;
-					LoadCurve(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder) + Paramfile + ".par",
-							settings.SelectedCurveFolder);
+					LoadCurve(Paramfile, settings.SelectedCurveFolder);
 					ChangeEditStatus();
 					RefreshView();
 				}
@@ -554,7 +543,7 @@ public class frmEditCurve extends javax.swing.JDialog {
 			public void actionPerformed(java.awt.event.ActionEvent evt) {
 				settings.SelectedCurveFolder = CgConst.CURVE_FOLDER_KM_H;
 				UpdateSelBtStatus();
-				RefreshCurveList(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder));
+				RefreshCurveList(settings.SelectedCurveFolder);
 			}
 		});
 		ToolBarSel.add(btKM_H);
@@ -566,7 +555,7 @@ public class frmEditCurve extends javax.swing.JDialog {
 			public void actionPerformed(java.awt.event.ActionEvent evt) {
 				settings.SelectedCurveFolder = CgConst.CURVE_FOLDER_MIN_MILES;
 				UpdateSelBtStatus();
-				RefreshCurveList(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder));
+				RefreshCurveList(settings.SelectedCurveFolder);
 			}
 		});
 		ToolBarSel.add(btMin_Miles);
@@ -578,7 +567,7 @@ public class frmEditCurve extends javax.swing.JDialog {
 			public void actionPerformed(java.awt.event.ActionEvent evt) {
 				settings.SelectedCurveFolder = CgConst.CURVE_FOLDER_USER;
 				UpdateSelBtStatus();
-				RefreshCurveList(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder));
+				RefreshCurveList(settings.SelectedCurveFolder);
 			}
 		});
 		ToolBarSel.add(btUser_Def);
@@ -826,11 +815,12 @@ public class frmEditCurve extends javax.swing.JDialog {
 				Paramfile = param.name;
 				param.SaveCurve(Utils.getSelectedCurveFolder(CgConst.CURVE_FOLDER_USER) + param.name + ".par",
 						settings.Unit);
+				CurveRepository.getInstance().invalidate(CgConst.CURVE_FOLDER_USER, param.name);
 				ChangeEditStatus();
 
 				settings.SelectedCurveFolder = CgConst.CURVE_FOLDER_USER;
 				UpdateSelBtStatus();
-				RefreshCurveList(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder));
+				RefreshCurveList(settings.SelectedCurveFolder);
 				RefreshView();
 			}
 		}
@@ -854,11 +844,11 @@ public class frmEditCurve extends javax.swing.JDialog {
 					if (ret == JOptionPane.YES_OPTION) {
 						File f = new File(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder) + s + ".par");
 						f.delete();
-						LoadCurve(Utils.getSelectedCurveFolder(CgConst.CURVE_FOLDER_KM_H) + "/default.par",
-								CgConst.CURVE_FOLDER_KM_H);
+						CurveRepository.getInstance().invalidate(settings.SelectedCurveFolder, s);
+						LoadCurve("Default", CgConst.CURVE_FOLDER_KM_H);
 						Paramfile = "Default";
 						RefreshView();
-						RefreshCurveList(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder));
+						RefreshCurveList(settings.SelectedCurveFolder);
 					}
 				}
 			}
@@ -905,7 +895,7 @@ public class frmEditCurve extends javax.swing.JDialog {
 
 				settings.SelectedCurveFolder = CgConst.CURVE_FOLDER_USER;
 				UpdateSelBtStatus();
-				RefreshCurveList(Utils.getSelectedCurveFolder(settings.SelectedCurveFolder));
+				RefreshCurveList(settings.SelectedCurveFolder);
 			}
 		}
 	}
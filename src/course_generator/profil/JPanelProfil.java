@@ -51,13 +51,13 @@ import org.jfree.chart.ui.RectangleAnchor;
 import org.jfree.chart.ui.RectangleInsets;
 import org.jfree.chart.ui.TextAnchor;
 import org.jfree.data.xy.XYDataset;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
 
 import course_generator.CgData;
 import course_generator.TrackData;
+import course_generator.TrackStore;
 import course_generator.settings.CgSettings;
 import course_generator.utils.CgConst;
+import course_generator.utils.TrackDataset;
 import course_generator.utils.Utils;
 
 public class JPanelProfil extends JPanel {
@@ -69,7 +69,7 @@ public class JPanelProfil extends JPanel {
 	private JToolBar ToolBarProfil;
 	private JButton btProfilMarker;
 	private JFreeChart chartProfil = null;
-	private XYSeriesCollection datasetProfil = null;
+	private TrackDataset datasetProfil = null;
 	private ChartPanel ChartPanelProfil;
 	private Crosshair xCrosshair;
 	private Crosshair yCrosshair;
@@ -92,7 +92,7 @@ public class JPanelProfil extends JPanel {
 		showProfilMarker = true;
 		this.settings = settings;
 		bundle = java.util.ResourceBundle.getBundle("course_generator/Bundle");
-		datasetProfil = new XYSeriesCollection();
+		datasetProfil = new TrackDataset();
 		chartProfil = CreateChartProfil(datasetProfil);
 		initComponents();
 	}
@@ -145,6 +145,7 @@ public class JPanelProfil extends JPanel {
 		// -- Profil chart
 		// ------------------------------------------------------
 		ChartPanelProfil = new ChartPanel(chartProfil);
+		datasetProfil.attach(ChartPanelProfil);
 		CrosshairOverlay crosshairOverlay = new CrosshairOverlay();
 		xCrosshair = new Crosshair(Double.NaN, Color.RED, new BasicStroke(0f));
 		// xCrosshair.setLabelVisible(true);
@@ -174,7 +175,7 @@ public class JPanelProfil extends JPanel {
 					double y = d.getYValue(s, i);
 					xCrosshair.setValue(x);
 					yCrosshair.setValue(y);
-					RefreshProfilInfo(i);
+					RefreshProfilInfo(datasetProfil.getPosition(s, i));
 					notifyProfilSelection();
 				}
 			}
@@ -359,13 +360,15 @@ public class JPanelProfil extends JPanel {
 		plot.clearDomainMarkers();
 
 		// -- Populate the serie
-		XYSeries serie1 = new XYSeries("Elevation/Distance");
+		final TrackStore data = track.data;
+		final double km = Utils.DistanceFactor(settings.Unit) / 1000;
+		final double elev = Utils.ElevationFactor(settings.Unit);
+		datasetProfil.addSeries("Elevation/Distance", i -> data.getTotal(i) * km, i -> data.getElevation(i) * elev);
+		datasetProfil.setSize(track.data.size());
+
 		int cmpt = 1;
 		for (CgData r : track.data) {
 			double x = r.getTotal(settings.Unit) / 1000;
-			double y = r.getElevation(settings.Unit);
-			serie1.add(x, y);
-
 			if (((r.getTag() & CgConst.TAG_MARK) != 0) & showProfilMarker) {
 				Marker m = new ValueMarker(x);
 				m.setPaint(Color.GRAY);
@@ -378,7 +381,6 @@ public class JPanelProfil extends JPanel {
 				cmpt++;
 			}
 		}
-		datasetProfil.addSeries(serie1);
 
 		if (track.getMaxElev(settings.Unit) > track.getMinElev(settings.Unit)) {
 			// XYPlot plot = chart.getXYPlot();
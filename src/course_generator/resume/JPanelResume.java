@@ -43,6 +43,7 @@ import course_generator.resume_table.ResumeModel;
 import course_generator.resume_table.ResumeRenderer;
 import course_generator.settings.CgSettings;
 import course_generator.utils.CgConst;
+import course_generator.utils.LazyRefresh;
 import course_generator.utils.Utils;
 
 public class JPanelResume extends JPanel {
@@ -59,6 +60,12 @@ public class JPanelResume extends JPanel {
 	private JButton btResumeSave;
 	private JButton btRefreshRefresh;
 	private List<JPanelResumeListener> listeners = new ArrayList<JPanelResumeListener>();
+	/** The summary is calculated only when the tab is displayed **/
+	private final LazyRefresh lazyRefresh = new LazyRefresh(this, new Runnable() {
+		public void run() {
+			RefreshResume();
+		}
+	});
 
 	public JPanelResume(ResumeData resume, CgSettings settings) {
 		super();
@@ -246,16 +253,16 @@ public class JPanelResume extends JPanel {
 	}
 
 	/**
-	 * Refresh the resume grid
-	 * 
-	 * @param force
-	 * 
+	 * Refresh the resume grid. The refresh is done when the tab is displayed
 	 */
 	public void refresh() {
-		// Exit if the tab is not displayed
-		// if (TabbedPaneMain.getSelectedIndex() != 4) // Resume
-		// return;
+		lazyRefresh.invalidate(Track);
+	}
 
+	/**
+	 * Calculate the resume and refresh the grid
+	 */
+	private void RefreshResume() {
 		// StatusBar.Items["Message"].Visible = true;
 		// StatusBar.Items["Message"].Text = "Mise à jour resumé en cours...";
 		// StatusBar.Refresh();
@@ -57,6 +57,12 @@ public class CgSettings {
 	public int map = 0;
 
 	public boolean offlineMap = true;
+	/** Zoom levels and buffer (meter) of the offline tile seeding **/
+	public int TileSeedZoomMin = 10;
+	public int TileSeedZoomMax = 16;
+	public double TileSeedBuffer = 500.0;
+	/** Memory used by the undo/redo journal (MB) **/
+	public int UndoMemory = 32;
 
 	public String MemoFormat[] = new String[5];
 	public String DefaultFormat;
@@ -301,6 +307,10 @@ public class CgSettings {
 			Utils.WriteIntToXML(writer, "DEFMRBWIDTH", DefMrbWidth);
 			Utils.WriteIntToXML(writer, "DEFMRBHEIGHT", DefMrbHeight);			
 			Utils.WriteIntToXML(writer, "MAP", map);
+			Utils.WriteIntToXML(writer, "TILESEEDZOOMMIN", TileSeedZoomMin);
+			Utils.WriteIntToXML(writer, "TILESEEDZOOMMAX", TileSeedZoomMax);
+			Utils.WriteDoubleToXML(writer, "TILESEEDBUFFER", TileSeedBuffer);
+			Utils.WriteIntToXML(writer, "UNDOMEMORY", UndoMemory);
 
 			Utils.WriteDoubleToXML(writer, "DISTNEAR", DistNear);
 			Utils.WriteDoubleToXML(writer, "DISTFAR", DistFar);
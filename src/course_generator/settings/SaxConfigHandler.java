@@ -309,6 +309,14 @@ public class SaxConfigHandler extends DefaultHandler {
 				Settings.DefMrbHeight = ManageInt(480, ERR_READ_INT);
 			} else if (qName.equalsIgnoreCase("MAP")) {
 				Settings.map = ManageInt(0, ERR_READ_INT);
+			} else if (qName.equalsIgnoreCase("TILESEEDZOOMMIN")) {
+				Settings.TileSeedZoomMin = ManageInt(10, ERR_READ_INT);
+			} else if (qName.equalsIgnoreCase("TILESEEDZOOMMAX")) {
+				Settings.TileSeedZoomMax = ManageInt(16, ERR_READ_INT);
+			} else if (qName.equalsIgnoreCase("TILESEEDBUFFER")) {
+				Settings.TileSeedBuffer = ManageDouble(500.0, ERR_READ_DOUBLE);
+			} else if (qName.equalsIgnoreCase("UNDOMEMORY")) {
+				Settings.UndoMemory = ManageInt(32, ERR_READ_INT);
 			} else if (qName.equalsIgnoreCase("DISTNEAR")) {
 				Settings.DistNear = ManageDouble(100.0, ERR_READ_DOUBLE);
 			} else if (qName.equalsIgnoreCase("DISTFAR")) {
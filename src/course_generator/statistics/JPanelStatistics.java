@@ -38,6 +38,7 @@ import course_generator.TrackData.CalcAvrSpeedResult;
 import course_generator.settings.CgSettings;
 import course_generator.utils.CgConst;
 import course_generator.utils.CgLog;
+import course_generator.utils.LazyRefresh;
 import course_generator.utils.Utils;
 
 public class JPanelStatistics extends JPanel {
@@ -50,6 +51,12 @@ public class JPanelStatistics extends JPanel {
 	private JToolBar toolBar;
 	private JButton btStatisticSave;
 	private JButton btStatisticRefresh;
+	/** The statistics are calculated only when the tab is displayed **/
+	private final LazyRefresh lazyRefresh = new LazyRefresh(this, new Runnable() {
+		public void run() {
+			RefreshStatistics();
+		}
+	});
 
 	public JPanelStatistics(CgSettings settings) {
 		super();
@@ -121,9 +128,16 @@ public class JPanelStatistics extends JPanel {
 	}
 
 	/**
-	 * Refresh the statistic tab
+	 * Refresh the statistic tab. The refresh is done when the tab is displayed
 	 */
 	public void refresh() {
+		lazyRefresh.invalidate(track);
+	}
+
+	/**
+	 * Calculate the statistics and refresh the tab
+	 */
+	private void RefreshStatistics() {
 		if (track == null)
 			return;
 
@@ -164,9 +178,7 @@ public class JPanelStatistics extends JPanel {
 			e.printStackTrace();
 		}
 
-		track.CalcStatElev();
-		track.CalcStatSlope();
-		track.CalcStatNight();
+		track.CalcStat();
 
 		CalcAvrSlopeResult casr = new CalcAvrSlopeResult();
 		casr = track.CalcAvrSlope(0, track.data.size() - 1, casr);
@@ -0,0 +1,105 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.Test;
+
+import course_generator.CgData;
+import course_generator.CgbFile;
+import course_generator.TrackData;
+import course_generator.settings.CgSettings;
+import course_generator.utils.CgConst;
+import course_generator.utils.Utils;
+
+/**
+ * Tests for the {@link CgbFile} class.
+ */
+public class CgbFileTests {
+
+	/**
+	 * Testing the write and the read of a CGB file
+	 */
+	@Test
+	public void testReadWrite() throws IOException {
+		Utils.ProgDir = Utils.GetAppDir() + "/src/course_generator";
+		TrackData track = new TrackData(new CgSettings());
+		track.CourseName = "Course";
+		track.Description = "Description \u00e9\u00e8";
+		track.Paramfile = "Default";
+		track.NightCoeffAsc = 1.0 / 3.0;
+
+		// -- Values of all the types written in the file
+		Random rnd = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			CgData r = track.data.get(track.data.addEmpty());
+			r.setLatitude(45.0 + rnd.nextDouble() / 7.0);
+			r.setLongitude(6.0 + rnd.nextDouble() / 7.0);
+			r.setElevation(1000.0 + rnd.nextGaussian() * 100.0);
+			r.setElevationSmoothed(rnd.nextDouble());
+			r.setTotal(i * Math.PI);
+			r.setCoeff(100.0 - rnd.nextDouble());
+			r.setTime(i * 10);
+			r.setTag(rnd.nextInt(64));
+			if (i % 10 == 0) {
+				r.setName("Point " + i);
+				r.setComment(" Comment\n\u00fc ");
+			}
+		}
+
+		File f = File.createTempFile("test", ".cgb");
+		try {
+			CgbFile.write(f.getPath(), track, 0, track.data.size() - 1);
+
+			TrackData loaded = new TrackData(new CgSettings());
+			assertEquals(CgbFile.ERR_READ_NO,
+					CgbFile.read(null, f.getPath(), loaded, CgConst.IMPORT_MODE_LOAD));
+			assertEquals(track.CourseName, loaded.CourseName);
+			assertEquals(track.Description, loaded.Description);
+			assertEquals(track.StartTime, loaded.StartTime);
+			assertEquals(track.NightCoeffAsc, loaded.NightCoeffAsc, 0.0);
+			assertEquals(track.data.size(), loaded.data.size());
+			for (int i = 0; i < track.data.size(); i++) {
+				CgData a = track.data.get(i);
+				CgData b = loaded.data.get(i);
+				assertEquals(a.getLatitude(), b.getLatitude(), 0.0);
+				assertEquals(a.getLongitude(), b.getLongitude(), 0.0);
+				assertEquals(a.getElevation(CgConst.UNIT_METER), b.getElevation(CgConst.UNIT_METER), 0.0);
+				assertEquals(a.getElevationSmoothed(CgConst.UNIT_METER), b.getElevationSmoothed(CgConst.UNIT_METER), 0.0);
+				assertEquals(a.getTotal(CgConst.UNIT_METER), b.getTotal(CgConst.UNIT_METER), 0.0);
+				assertEquals(a.getCoeff(), b.getCoeff(), 0.0);
+				assertEquals(a.getTime(), b.getTime());
+				assertEquals(a.getTag(), b.getTag());
+				assertEquals(a.getName(), b.getName());
+				assertEquals(a.getComment(), b.getComment());
+				assertEquals(a.getFmtLbMiniRoadbook(), b.getFmtLbMiniRoadbook());
+			}
+
+			// -- Part of the track inserted at the start
+			CgbFile.write(f.getPath(), track, 100, 199);
+			assertEquals(CgbFile.ERR_READ_NO,
+					CgbFile.read(null, f.getPath(), loaded, CgConst.IMPORT_MODE_INS_START));
+			assertEquals(track.data.size() + 100, loaded.data.size());
+			assertEquals(track.data.get(100).getName(), loaded.data.get(0).getName());
+			assertEquals(track.data.get(199).getLatitude(), loaded.data.get(99).getLatitude(), 0.0);
+			assertEquals(track.data.get(0).getLatitude(), loaded.data.get(100).getLatitude(), 0.0);
+
+			// -- Not a CGB file: the track is not modified
+			CgbFile.write(f.getPath(), track, 0, 9);
+			RandomAccessFile raf = new RandomAccessFile(f, "rw");
+			raf.setLength(raf.length() - 10);
+			raf.close();
+			assertEquals(CgbFile.ERR_READ_FORMAT,
+					CgbFile.read(null, f.getPath(), loaded, CgConst.IMPORT_MODE_LOAD));
+			assertEquals(track.data.size() + 100, loaded.data.size());
+			assertNotNull(loaded.data.get(0));
+		} finally {
+			f.delete();
+		}
+	}
+}
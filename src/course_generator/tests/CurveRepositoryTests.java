@@ -0,0 +1,90 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import course_generator.param.CgParam;
+import course_generator.param.CurveRepository;
+import course_generator.param.ParamData;
+import course_generator.utils.CgConst;
+
+/**
+ * Tests for the {@link CurveRepository} class.
+ */
+public class CurveRepositoryTests {
+
+	private void save(File dir, String name, double speed) {
+		ParamData p = new ParamData();
+		p.name = name;
+		p.data.add(new CgParam(-10.0, "8.0"));
+		p.data.add(new CgParam(10.0, String.valueOf(speed)));
+		p.SaveCurve(new File(dir, name + ".par").getPath(), CgConst.UNIT_METER);
+	}
+
+	private void delete(File dir) {
+		for (File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	/**
+	 * Testing the search, the cache and the invalidation of the curves
+	 */
+	@Test
+	public void testRepository() throws Exception {
+		File kmh = Files.createTempDirectory("kmh").toFile();
+		File miles = Files.createTempDirectory("miles").toFile();
+		File user = Files.createTempDirectory("user").toFile();
+		save(kmh, "Default", 6.0);
+		save(kmh, "Run", 10.0);
+		save(user, "Run", 12.0);
+		CurveRepository repository = new CurveRepository(kmh.getPath() + "/", miles.getPath() + "/",
+				user.getPath() + "/");
+		try {
+			assertEquals(CgConst.CURVE_FOLDER_USER, repository.searchFolder("Run"));
+			assertEquals(CgConst.CURVE_FOLDER_KM_H, repository.searchFolder("Default"));
+			assertEquals(CgConst.CURVE_NOT_FOUND, repository.searchFolder("Walk"));
+			assertEquals(2, repository.getNames(CgConst.CURVE_FOLDER_KM_H).size());
+			assertNull(repository.get("Walk"));
+
+			CurveRepository.Curve run = repository.get("Run");
+			assertEquals(12.0, run.getSpeedTable().getSpeed(10.0), 0.0);
+			assertSame(run, repository.get("Run"));
+
+			ParamData p = new ParamData();
+			run.copyTo(p);
+			assertEquals(2, p.data.size());
+			assertEquals("Run", p.name);
+
+			// -- Curve written by the application
+			save(user, "Run", 14.0);
+			repository.invalidate(CgConst.CURVE_FOLDER_USER, "Run");
+			assertEquals(14.0, repository.get("Run").getSpeedTable().getSpeed(10.0), 0.0);
+
+			// -- Curves modified by another application (path of the watch thread)
+			run = repository.get("Run");
+			new File(user, "Run.par").delete();
+			save(miles, "Walk", 4.0);
+			repository.reload(CgConst.CURVE_FOLDER_USER);
+			repository.reload(CgConst.CURVE_FOLDER_MIN_MILES);
+			assertEquals(CgConst.CURVE_FOLDER_MIN_MILES, repository.searchFolder("Walk"));
+			assertEquals(CgConst.CURVE_FOLDER_KM_H, repository.searchFolder("Run"));
+			assertNotSame(run, repository.get("Run"));
+			assertEquals(10.0, repository.get("Run").getSpeedTable().getSpeed(10.0), 0.0);
+			assertTrue(repository.getNames(CgConst.CURVE_FOLDER_USER).isEmpty());
+		} finally {
+			repository.close();
+			delete(kmh);
+			delete(miles);
+			delete(user);
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openstreetmap.gui.jmapviewer.IndexedTileStore;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileStore;
+
+/**
+ * Tests for the {@link IndexedTileStore} class.
+ */
+public class IndexedTileStoreTests {
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("cgtiles").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null)
+			for (File f : files)
+				f.delete();
+		dir.delete();
+	}
+
+	private byte[] tileData(int seed, int size) {
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++)
+			data[i] = (byte) (seed + i);
+		return data;
+	}
+
+	/**
+	 * Testing put, get, replacement and removal
+	 */
+	@Test
+	public void testPutGet() throws IOException {
+		IndexedTileStore store = new IndexedTileStore(dir);
+		Map<String, String> tags = new HashMap<>();
+		tags.put("etag", "abc=1");
+
+		store.put(12, 2100, 1400, tileData(1, 1000), tags, 1000L);
+		store.put(12, 2101, 1400, null, null, 2000L);
+		assertEquals(2, store.getTileCount());
+
+		TileStore.Record r = store.get(12, 2100, 1400);
+		assertNotNull(r);
+		assertArrayEquals(tileData(1, 1000), r.data);
+		assertEquals("abc=1", r.tags.get("etag"));
+		assertEquals(1000L, r.time);
+
+		r = store.get(12, 2101, 1400);
+		assertNull(r.data);
+		assertTrue(r.tags.isEmpty());
+		assertNull(store.get(12, 2102, 1400));
+		assertTrue(store.contains(12, 2101, 1400));
+		assertFalse(store.contains(12, 2102, 1400));
+
+		store.put(12, 2100, 1400, tileData(2, 500), null, 3000L);
+		store.setTime(12, 2100, 1400, 4000L);
+		r = store.get(12, 2100, 1400);
+		assertArrayEquals(tileData(2, 500), r.data);
+		assertEquals(4000L, r.time);
+		assertEquals(2, store.getTileCount());
+
+		store.remove(12, 2101, 1400);
+		assertNull(store.get(12, 2101, 1400));
+		assertEquals(1, store.getTileCount());
+		assertEquals(new File(dir, IndexedTileStore.DATA_FILE).length(), store.getSize());
+
+		store.clear();
+		assertEquals(0, store.getTileCount());
+		assertNull(store.get(12, 2100, 1400));
+		store.close();
+	}
+
+	/**
+	 * Testing the reopening with the index, with the records written after the
+	 * index and with an incomplete record at the end of the file
+	 */
+	@Test
+	public void testReopen() throws IOException {
+		IndexedTileStore store = new IndexedTileStore(dir);
+		store.put(10, 1, 2, tileData(1, 100), null, 1000L);
+		store.put(10, 1, 3, tileData(2, 100), null, 1000L);
+		store.setTime(10, 1, 2, 5000L);
+		store.close();
+
+		// -- Records after the index
+		store = new IndexedTileStore(dir);
+		assertEquals(5000L, store.get(10, 1, 2).time);
+		store.put(10, 1, 4, tileData(3, 100), null, 2000L);
+		store.remove(10, 1, 3);
+		long size = store.getSize();
+		// -- Not closed: the index isn't written
+		store = new IndexedTileStore(dir);
+		assertEquals(2, store.getTileCount());
+		assertArrayEquals(tileData(3, 100), store.get(10, 1, 4).data);
+		assertNull(store.get(10, 1, 3));
+		store.close();
+
+		// -- Without index, with an incomplete record
+		new File(dir, IndexedTileStore.INDEX_FILE).delete();
+		try (RandomAccessFile f = new RandomAccessFile(new File(dir, IndexedTileStore.DATA_FILE), "rw")) {
+			f.setLength(size + 10);
+		}
+		store = new IndexedTileStore(dir);
+		assertEquals(2, store.getTileCount());
+		assertNull(store.get(10, 1, 3));
+		assertArrayEquals(tileData(1, 100), store.get(10, 1, 2).data);
+		assertEquals(size, store.getSize());
+		store.close();
+
+		// -- Index not matching the data file (offsets of the 2 tiles swapped): the
+		// records are missing tiles
+		try (RandomAccessFile f = new RandomAccessFile(new File(dir, IndexedTileStore.INDEX_FILE), "rw")) {
+			f.seek(20 + 8);
+			long offset1 = f.readLong();
+			f.seek(20 + 28 + 8);
+			long offset2 = f.readLong();
+			f.seek(20 + 28 + 8);
+			f.writeLong(offset1);
+			f.seek(20 + 8);
+			f.writeLong(offset2);
+		}
+		store = new IndexedTileStore(dir);
+		assertEquals(2, store.getTileCount());
+		assertNull(store.get(10, 1, 2));
+		assertNull(store.get(10, 1, 4));
+		store.close();
+	}
+
+	/**
+	 * Testing the compaction and the expiry
+	 */
+	@Test
+	public void testCompact() throws IOException {
+		IndexedTileStore store = new IndexedTileStore(dir);
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < 10; i++)
+			for (int x = 0; x < 20; x++)
+				store.put(14, x, 7, tileData(x + i, 1000), null, now);
+		store.put(14, 100, 7, tileData(0, 1000), null, now - 400 * IndexedTileStore.AGE_ONE_DAY);
+		long size = store.getSize();
+
+		store.compact();
+		assertTrue(store.getSize() < size / 9);
+		assertEquals(21, store.getTileCount());
+		for (int x = 0; x < 20; x++)
+			assertArrayEquals(tileData(x + 9, 1000), store.get(14, x, 7).data);
+
+		// -- The index is written with the new data file
+		assertFalse(new File(dir, IndexedTileStore.DATA_FILE + ".tmp").exists());
+		assertTrue(new File(dir, IndexedTileStore.INDEX_FILE).exists());
+
+		store.maintain();
+		assertEquals(20, store.getTileCount());
+		assertNull(store.get(14, 100, 7));
+		store.close();
+
+		store = new IndexedTileStore(dir);
+		assertEquals(20, store.getTileCount());
+		assertArrayEquals(tileData(5 + 9, 1000), store.get(14, 5, 7).data);
+		store.close();
+	}
+
+	/**
+	 * Testing the import of the tiles stored one file per tile
+	 */
+	@Test
+	public void testLegacyImport() throws IOException {
+		Files.write(new File(dir, "8_10_20.png").toPath(), tileData(1, 300));
+		Files.write(new File(dir, "8_10_20.tags").toPath(), "etag=xyz\nsize=300\n".getBytes("UTF-8"));
+		Files.write(new File(dir, "8_10_21.tags").toPath(), "tile-info=no-tile\n".getBytes("UTF-8"));
+		Files.write(new File(dir, "8_10_22.png").toPath(), tileData(2, 300));
+		new File(dir, "8_10_22.png").setLastModified(123000L);
+
+		IndexedTileStore store = new IndexedTileStore(dir);
+		assertTrue(store.hasLegacyFiles());
+
+		// -- On demand
+		store.importLegacyTile(8, 10, 20, "png");
+		assertFalse(new File(dir, "8_10_20.png").exists());
+		assertFalse(new File(dir, "8_10_20.tags").exists());
+		TileStore.Record r = store.get(8, 10, 20);
+		assertArrayEquals(tileData(1, 300), r.data);
+		assertEquals("xyz", r.tags.get("etag"));
+
+		// -- Background
+		store.importLegacyFiles(100);
+		assertFalse(store.hasLegacyFiles());
+		assertEquals(3, store.getTileCount());
+		r = store.get(8, 10, 21);
+		assertNull(r.data);
+		assertEquals("no-tile", r.tags.get("tile-info"));
+		assertEquals(123000L, store.get(8, 10, 22).time);
+		store.close();
+	}
+}
@@ -0,0 +1,43 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import course_generator.TrackData;
+import course_generator.TrackData.CalcClimbResult;
+import course_generator.mrb.LabelTemplate;
+import course_generator.mrb.MrbData;
+import course_generator.settings.CgSettings;
+
+/**
+ * Tests for the {@link LabelTemplate} class.
+ */
+public class LabelTemplateTests {
+
+	/**
+	 * Testing the generation of the labels
+	 */
+	@Test
+	public void testFormat() {
+		CgSettings settings = new CgSettings();
+		TrackData track = new TrackData(settings);
+		track.WordWrapLength = 100;
+		track.StartTime = new DateTime(2020, 6, 1, 6, 0);
+
+		MrbData r = new MrbData(1, 45.0, 6.0, 1000.0, 1000.0, 1000.0, 1000.0, 0, 0.0, 0.0, 100.0, 100.0, 0.0, 0.0,
+				0.0, 0.0, 3725, 0.0, 7200, new DateTime(2020, 6, 1, 7, 2, 5), 90, "Col", "Comment", 0, 0, "", 0, 0,
+				"Water", 10, 0.0, 600, new CalcClimbResult());
+
+		assertEquals("Col\nComment - Water", LabelTemplate.compile("%N%L%c - %C").format(r, track, settings));
+		assertEquals("01:02 01:02:05  00:10", LabelTemplate.compile("%T %Tl %Td").format(r, track, settings));
+		assertEquals("07:02 07:02:05 07:02x", LabelTemplate.compile("%h %hl %hx").format(r, track, settings));
+		assertEquals("00:01:30  00:01 02:00 08:00", LabelTemplate.compile("%R %Rs %B %b").format(r, track, settings));
+		// -- Unknown code: copied, the next character is a code
+		assertEquals("xCol", LabelTemplate.compile("%xN").format(r, track, settings));
+		// -- Code at the end of the format
+		assertEquals("Time 01:02", LabelTemplate.compile("Time %T").format(r, track, settings));
+		assertEquals("", LabelTemplate.compile("%N").format(r, null, settings));
+	}
+}
@@ -0,0 +1,72 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.swing.JPanel;
+
+import org.junit.Test;
+
+import course_generator.TrackData;
+import course_generator.settings.CgSettings;
+import course_generator.utils.LazyRefresh;
+
+/**
+ * Tests for the {@link LazyRefresh} class.
+ */
+public class LazyRefreshTests {
+
+	private boolean showing = false;
+	private int refreshCount = 0;
+
+	private LazyRefresh createRefresh() {
+		return new LazyRefresh(new JPanel(), new Runnable() {
+			public void run() {
+				refreshCount++;
+			}
+		}) {
+			@Override
+			protected boolean isShowing() {
+				return showing;
+			}
+		};
+	}
+
+	/**
+	 * Testing the refresh of a hidden panel and of a visible panel
+	 */
+	@Test
+	public void testRefresh() {
+		TrackData track = TestTracks.create(new CgSettings(), 10, 45.0, 0.001, i -> 1000.0);
+		LazyRefresh refresh = createRefresh();
+		assertFalse(refresh.isStale());
+
+		// -- Hidden: nothing is done until the panel is displayed
+		refresh.invalidate(track);
+		refresh.invalidate(track);
+		refresh.invalidate(track);
+		assertEquals(0, refreshCount);
+		assertTrue(refresh.isStale());
+		showing = true;
+		refresh.update();
+		assertEquals(1, refreshCount);
+		refresh.update();
+		assertEquals(1, refreshCount);
+
+		// -- Visible: done now
+		refresh.invalidate(track);
+		assertEquals(2, refreshCount);
+
+		// -- Modification of the track while the panel is hidden
+		showing = false;
+		refresh.update();
+		assertFalse(refresh.isStale());
+		track.data.get(3).setElevation(1200.0);
+		assertTrue(refresh.isStale());
+		showing = true;
+		refresh.update();
+		assertEquals(3, refreshCount);
+		assertFalse(refresh.isStale());
+	}
+}
@@ -0,0 +1,170 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.javadocmd.simplelatlng.LatLng;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import course_generator.weather.NoaaHistoricalWeatherRetriever;
+
+/**
+ * Tests for the {@link NoaaHistoricalWeatherRetriever} class.
+ */
+public class NoaaHistoricalWeatherRetrieverTests {
+
+	private File dir;
+	private HttpServer server;
+	private String oldBaseUrl;
+	private String oldCacheDirectory;
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("cgweather").toFile();
+
+		// -- NOAA server: the closest station (ST1) has no daily summaries, the
+		// second one (ST2) has all the data. The daily summaries search also
+		// returns an invalid station and many far stations
+		final StringBuilder stations = new StringBuilder();
+		stations.append("{\"results\":[{\"stations\":[],\"location\":{\"coordinates\":[\"6.0\",\"45.0\"]}},");
+		for (int i = 0; i < 200; i++)
+			stations.append(station("FAR" + i, 46.0 + i * 0.01)).append(",");
+		stations.append(station("ST2", 45.1)).append(",").append(station("ST1", 45.01));
+		stations.append("],\"metadata\":{\"count\":203}}");
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				String query = exchange.getRequestURI().getPath() + "?" + exchange.getRequestURI().getQuery();
+				requests.add(query);
+				String body = "[]";
+				if (query.startsWith("/search/v1/data") && query.contains("dataset=daily-summaries"))
+					body = stations.toString();
+				else if (query.startsWith("/search/v1/data") && query.contains("dataset=normals-daily"))
+					body = "{\"results\":[" + station("ST2", 45.1) + "]}";
+				else if (query.contains("stations=ST2") && query.contains("dataset=daily-summaries"))
+					body = "[{\"date\":\"2019-06-01\",\"TMAX\":\"25.0\",\"TMIN\":\"10.0\",\"PRCP\":\"1.5\"}]";
+				else if (query.contains("stations=ST2") && query.contains("dataset=normals-daily"))
+					body = "[{\"DLY-TMAX-NORMAL\":\"24.0\",\"DLY-TMIN-NORMAL\":\"9.0\",\"DLY-TAVG-NORMAL\":\"16.5\"}]";
+				else if (query.contains("stations=ST2") && query.contains("dataset=normals-monthly"))
+					body = "[{\"MLY-TMAX-NORMAL\":\"23.0\",\"MLY-TMIN-NORMAL\":\"8.0\",\"MLY-TAVG-NORMAL\":\"15.5\"}]";
+
+				byte[] data = body.getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, data.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(data);
+				}
+				exchange.close();
+			}
+		});
+		server.start();
+
+		oldBaseUrl = NoaaHistoricalWeatherRetriever.NoaaBaseUrl;
+		oldCacheDirectory = NoaaHistoricalWeatherRetriever.CacheDirectory;
+		NoaaHistoricalWeatherRetriever.NoaaBaseUrl = "http://localhost:" + server.getAddress().getPort() + "/";
+		NoaaHistoricalWeatherRetriever.CacheDirectory = dir.getAbsolutePath();
+	}
+
+	@After
+	public void tearDown() {
+		NoaaHistoricalWeatherRetriever.NoaaBaseUrl = oldBaseUrl;
+		NoaaHistoricalWeatherRetriever.CacheDirectory = oldCacheDirectory;
+		server.stop(0);
+		deleteDir(dir);
+	}
+
+	private void deleteDir(File f) {
+		File[] files = f.listFiles();
+		if (files != null)
+			for (File c : files)
+				deleteDir(c);
+		f.delete();
+	}
+
+	private String station(String id, double lat) {
+		return "{\"stations\":[{\"id\":\"" + id + "\",\"name\":\"Station " + id
+				+ "\"}],\"location\":{\"coordinates\":[\"6.0\",\"" + lat + "\"]}}";
+	}
+
+	private int countRequests(String part) {
+		int n = 0;
+		synchronized (requests) {
+			for (String request : requests)
+				if (request.contains(part))
+					n++;
+		}
+		return n;
+	}
+
+	private NoaaHistoricalWeatherRetriever retrieve(DateTime date) {
+		LatLng start = new LatLng(45.0, 6.0);
+		return NoaaHistoricalWeatherRetriever.where(start, start, 10000.0).when(date).retrieve();
+	}
+
+	/**
+	 * Testing the choice of the closest valid station and the cache
+	 */
+	@Test
+	public void testRetrieve() {
+		NoaaHistoricalWeatherRetriever retriever = retrieve(new DateTime(2020, 6, 1, 8, 0));
+
+		assertNotNull(retriever.getNoaaSummariesWeatherStation());
+		assertEquals("ST2", retriever.getNoaaSummariesWeatherStation().getId());
+		assertEquals(3, retriever.getPastDailySummaries().size());
+		assertEquals("25.0", retriever.getPastDailySummaries().get(0).getTemperatureMax());
+		assertEquals("1.5", retriever.getPastDailySummaries().get(2).getPrecipitation());
+
+		assertEquals("ST2", retriever.getNoaaNormalsWeatherStation().getId());
+		assertEquals("16.5", retriever.getNormalsDaily().getTemperatureAverage());
+		assertEquals("8.0", retriever.getNormalsMonthly().getTemperatureMin());
+
+		// -- 2 searches, 3 years for the 2 closest stations, the normals daily and
+		// monthly. The next 2 stations are requested at the same time, their
+		// requests are cancelled once ST2 is found. The other stations aren't
+		// requested
+		int farRequests = countRequests("stations=FAR0&") + countRequests("stations=FAR1&");
+		assertTrue(farRequests <= 6);
+		assertEquals(10, requests.size() - farRequests);
+		assertEquals(0, countRequests("stations=FAR2&"));
+
+		// -- Second time: everything comes from the cache, except the empty
+		// responses of ST1
+		requests.clear();
+		retriever = retrieve(new DateTime(2020, 6, 1, 8, 0));
+		farRequests = countRequests("stations=FAR0&") + countRequests("stations=FAR1&");
+		assertEquals(3, countRequests("stations=ST1&"));
+		assertEquals(3, requests.size() - farRequests);
+		assertEquals("ST2", retriever.getNoaaSummariesWeatherStation().getId());
+		assertEquals("24.0", retriever.getNormalsDaily().getTemperatureMax());
+		assertEquals(3, retriever.getPastDailySummaries().size());
+	}
+
+	/**
+	 * Testing that the station search covering the current year is not cached
+	 */
+	@Test
+	public void testRecentDate() {
+		retrieve(DateTime.now());
+		retrieve(DateTime.now());
+		assertEquals(2, countRequests("dataset=daily-summaries&startDate="));
+		assertEquals(1, countRequests("dataset=normals-daily&units="));
+	}
+}
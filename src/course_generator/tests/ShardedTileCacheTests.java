@@ -0,0 +1,77 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+import org.openstreetmap.gui.jmapviewer.ShardedTileCache;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+import org.openstreetmap.gui.jmapviewer.tilesources.OsmTileSource;
+
+/**
+ * Tests for the {@link ShardedTileCache} class.
+ */
+public class ShardedTileCacheTests {
+
+	private Tile loadedTile(TileSource source, int x, int y, int z) {
+		Tile tile = new Tile(source, x, y, z, new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB));
+		tile.setLoaded(true);
+		return tile;
+	}
+
+	/**
+	 * Testing the size limit, the eviction order and the counters
+	 */
+	@Test
+	public void testCache() {
+		TileSource source = new OsmTileSource.Mapnik();
+		// -- 64 tiles of 256KB (4 by shard)
+		ShardedTileCache cache = new ShardedTileCache(64 * 256 * 1024 + 64 * 1024);
+
+		// -- A tile used often
+		Tile often = loadedTile(source, 0, 0, 10);
+		cache.addTile(often);
+		cache.getTile(source, 0, 0, 10);
+
+		for (int i = 1; i < 1000; i++)
+			cache.addTile(loadedTile(source, i, 0, 10));
+
+		assertSame(often, cache.getTile(source, 0, 0, 10));
+		assertNull(cache.getTile(source, 1, 0, 10));
+		assertNotNull(cache.getTile(source, 999, 0, 10));
+		assertTrue(cache.getBytes() <= cache.getMaxBytes());
+		assertEquals(cache.getTileCount() + cache.getEvictions(), 1000);
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		cache.clear();
+		assertEquals(0, cache.getTileCount());
+		assertEquals(0, cache.getBytes());
+
+		// -- A tile measured again at the end of its loading
+		Tile loading = new Tile(source, 5, 5, 5);
+		cache.addTile(loading);
+		long bytes = cache.getBytes();
+		loading.setImage(new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB));
+		cache.tileLoaded(loading);
+		assertEquals(bytes + 256 * 256 * 4, cache.getBytes());
+
+		// -- Tiles added before their loading and never requested again: the
+		// cache stays under its size
+		cache.clear();
+		for (int i = 0; i < 1000; i++) {
+			Tile tile = new Tile(source, i, 1, 10);
+			cache.addTile(tile);
+			tile.setImage(new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB));
+			cache.tileLoaded(tile);
+		}
+		assertTrue(cache.getBytes() <= cache.getMaxBytes());
+		assertTrue(cache.getTileCount() < 100);
+	}
+}
@@ -0,0 +1,80 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Test;
+
+import course_generator.param.CgParam;
+import course_generator.param.ParamData;
+import course_generator.param.SpeedTable;
+import course_generator.utils.CgConst;
+import course_generator.utils.Utils;
+
+/**
+ * Tests for the {@link SpeedTable} class.
+ */
+public class SpeedTableTests {
+
+	/**
+	 * Interpolation of the curve points by a linear search
+	 */
+	private double interpolate(ParamData p, double slope) {
+		double x = Math.min(Math.max(slope, CgConst.MIN_CLIMB), CgConst.MAX_CLIMB);
+		for (int j = 0; j < p.data.size(); j++) {
+			if (p.data.get(j).getSlope() >= x) {
+				int k = (j == 0) ? 0 : j - 1;
+				double x1 = p.data.get(k).getSlope();
+				double y1 = p.data.get(k).getSpeedNumber();
+				double x2 = p.data.get(j).getSlope();
+				double y2 = p.data.get(j).getSpeedNumber();
+				if (x1 == x2)
+					return y1;
+				Utils.CalcLineResult res = Utils.CalcLine(x1, y1, x2, y2, new Utils.CalcLineResult());
+				return res.a * x + res.b;
+			}
+		}
+		return p.data.get(p.data.size() - 2).getSpeedNumber();
+	}
+
+	private void check(ParamData p) {
+		SpeedTable table = new SpeedTable(p);
+		Random rnd = new Random(7);
+		for (int i = 0; i < 20000; i++) {
+			double slope = (rnd.nextDouble() - 0.5) * 120.0;
+			assertEquals(interpolate(p, slope), table.getSpeed(slope), 0.0);
+		}
+		for (CgParam c : p.data) {
+			assertEquals(interpolate(p, c.getSlope()), table.getSpeed(c.getSlope()), 0.0);
+			assertEquals(interpolate(p, Math.nextUp(c.getSlope())), table.getSpeed(Math.nextUp(c.getSlope())), 0.0);
+		}
+		for (int i = -600; i <= 600; i++) {
+			assertEquals(interpolate(p, i / 10.0), table.getSpeed(i / 10.0), 0.0);
+		}
+	}
+
+	/**
+	 * Testing the table against the interpolation of the curve points
+	 */
+	@Test
+	public void testSpeed() throws Exception {
+		File[] files = new File(Utils.GetAppDir() + "/src/course_generator/curves/km_h").listFiles();
+		for (File f : files) {
+			ParamData p = new ParamData();
+			p.Load(f.getPath());
+			check(p);
+		}
+
+		// -- Points with the same slope and not sorted
+		ParamData p = new ParamData();
+		p.data.add(new CgParam(-30.0, "4.0"));
+		p.data.add(new CgParam(-10.05, "8.0"));
+		p.data.add(new CgParam(-10.05, "9.0"));
+		p.data.add(new CgParam(0.0, "10.0"));
+		p.data.add(new CgParam(-5.0, "7.0"));
+		p.data.add(new CgParam(25.0, "3.5"));
+		check(p);
+	}
+}
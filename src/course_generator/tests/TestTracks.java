@@ -0,0 +1,41 @@
+package course_generator.tests;
+
+import java.util.function.IntToDoubleFunction;
+
+import course_generator.CgData;
+import course_generator.TrackData;
+import course_generator.settings.CgSettings;
+
+/**
+ * Tracks used by the tests.
+ */
+public class TestTracks {
+
+	/**
+	 * Create a track going to the north. The distances and the slopes are
+	 * calculated
+	 *
+	 * @param settings  Settings of the track
+	 * @param n         Number of positions
+	 * @param lat0      Latitude of the first position
+	 * @param dLat      Latitude between two positions
+	 * @param elevation Elevation of a position from its index
+	 * @return The track
+	 */
+	public static TrackData create(CgSettings settings, int n, double lat0, double dLat,
+			IntToDoubleFunction elevation) {
+		TrackData track = new TrackData(settings);
+		for (int i = 0; i < n; i++) {
+			CgData r = track.data.get(track.data.addEmpty());
+			r.setNum(i + 1);
+			r.setLatitude(lat0 + i * dLat);
+			r.setLongitude(6.0);
+			r.setElevation(elevation.applyAsDouble(i));
+			r.setDiff(100.0);
+			r.setCoeff(100.0);
+		}
+		track.MarkDirty(0);
+		track.Recalculate();
+		return track;
+	}
+}
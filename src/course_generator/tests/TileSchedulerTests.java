@@ -0,0 +1,104 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openstreetmap.gui.jmapviewer.Tile;
+import org.openstreetmap.gui.jmapviewer.TileScheduler;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileJob;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+import org.openstreetmap.gui.jmapviewer.tilesources.OsmTileSource;
+
+/**
+ * Tests for the {@link TileScheduler} class.
+ */
+public class TileSchedulerTests {
+
+	private final List<String> done = Collections.synchronizedList(new ArrayList<String>());
+
+	private TileJob job(final Tile tile, final CountDownLatch start, final CountDownLatch end) {
+		return new TileJob() {
+			public void run() {
+				try {
+					if (start != null)
+						start.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+				}
+				done.add(tile.getXtile() + "," + tile.getYtile());
+				end.countDown();
+			}
+
+			public Tile getTile() {
+				return tile;
+			}
+		};
+	}
+
+	/**
+	 * Testing the order, the deduplication and the cancellation of the jobs
+	 */
+	@Test
+	public void testScheduler() throws Exception {
+		TileScheduler scheduler = TileScheduler.getInstance();
+		TileSource source = new OsmTileSource.Mapnik();
+		int maxRequests = scheduler.getMaxRequestsPerSource();
+		scheduler.setMaxRequestsPerSource(1);
+		try {
+			scheduler.setViewport(source, 10, 0, 0, 4, 4);
+			long cancelled = scheduler.getCancelledCount();
+
+			// -- A running job blocks the other jobs of the source
+			CountDownLatch start = new CountDownLatch(1);
+			CountDownLatch end = new CountDownLatch(4);
+			scheduler.addJob(job(new Tile(source, 2, 2, 10), start, end));
+			while (scheduler.getRunningCount() == 0)
+				Thread.sleep(10);
+
+			scheduler.addJob(job(new Tile(source, 5, 5, 10), null, end), true);
+			scheduler.addJob(job(new Tile(source, 0, 0, 10), null, end));
+			scheduler.addJob(job(new Tile(source, 0, 0, 10), null, end));
+			scheduler.addJob(job(new Tile(source, 3, 2, 10), null, end));
+			scheduler.addJob(job(new Tile(source, 20, 20, 10), null, end));
+			assertEquals(4, scheduler.getQueueDepth());
+
+			// -- The viewport moves: the tile 20,20 is not loaded
+			scheduler.setViewport(source, 10, 1, 1, 4, 4);
+			assertEquals(3, scheduler.getQueueDepth());
+			assertEquals(cancelled + 1, scheduler.getCancelledCount());
+
+			start.countDown();
+			end.await(10, TimeUnit.SECONDS);
+			assertEquals("[2,2, 3,2, 0,0, 5,5]", done.toString());
+		} finally {
+			scheduler.setMaxRequestsPerSource(maxRequests);
+		}
+	}
+
+	/**
+	 * Testing that all the workers can load the tiles of one tile source
+	 */
+	@Test
+	public void testWorkers() throws Exception {
+		TileScheduler scheduler = TileScheduler.getInstance();
+		TileSource source = new OsmTileSource.Mapnik();
+		scheduler.setViewport(source, 12, 0, 0, 7, 7);
+
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch end = new CountDownLatch(8);
+		for (int i = 0; i < 8; i++)
+			scheduler.addJob(job(new Tile(source, i, 0, 12), start, end));
+		long timeout = System.currentTimeMillis() + 10000;
+		while (scheduler.getRunningCount() < 8 && System.currentTimeMillis() < timeout)
+			Thread.sleep(10);
+		assertEquals(8, scheduler.getRunningCount());
+
+		start.countDown();
+		end.await(10, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,174 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openstreetmap.gui.jmapviewer.OsmFileCacheTileLoader;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+import org.openstreetmap.gui.jmapviewer.tilesources.AbstractOsmTileSource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import course_generator.CgData;
+import course_generator.maps.TileSeeder;
+
+/**
+ * Tests for the {@link TileSeeder} class.
+ */
+public class TileSeederTests {
+
+	private File dir;
+	private HttpServer server;
+	private final AtomicInteger requests = new AtomicInteger();
+	private final Set<String> failedOnce = new HashSet<String>();
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("cgseed").toFile();
+
+		// -- Tile server: each tile is its path, the first request of the tiles of
+		// the zoom levels 0 and 1 fails
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				String path = exchange.getRequestURI().getPath();
+				boolean fail;
+				synchronized (failedOnce) {
+					fail = (path.startsWith("/0/") || path.startsWith("/1/")) && failedOnce.add(path);
+				}
+				byte[] body = path.getBytes("UTF-8");
+				exchange.sendResponseHeaders(fail ? 503 : 200, fail ? -1 : body.length);
+				if (!fail) {
+					try (OutputStream out = exchange.getResponseBody()) {
+						out.write(body);
+					}
+				}
+				exchange.close();
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+		deleteDir(dir);
+	}
+
+	private void deleteDir(File f) {
+		File[] files = f.listFiles();
+		if (files != null)
+			for (File c : files)
+				deleteDir(c);
+		f.delete();
+	}
+
+	private CgData point(double lat, double lon) {
+		CgData p = new CgData();
+		p.setLatitude(lat);
+		p.setLongitude(lon);
+		return p;
+	}
+
+	private TileSource localSource() {
+		return new AbstractOsmTileSource("Seed test", "http://localhost:" + server.getAddress().getPort()) {
+			public TileUpdate getTileUpdate() {
+				return TileUpdate.None;
+			}
+		};
+	}
+
+	/**
+	 * Testing the tiles of the corridor
+	 */
+	@Test
+	public void testCorridor() {
+		TileSource source = localSource();
+		List<CgData> data = new ArrayList<CgData>();
+		// -- Along the equator, from the center of the tile 0 to the center of the
+		// tile 3 of the zoom 2 (~30000 km)
+		data.add(point(0.0, -180.0 + 45.0));
+		data.add(point(0.0, 0.0));
+		data.add(point(0.0, 180.0 - 45.0));
+
+		// -- Small buffer: one row on each side of the equator
+		List<TileSeeder.SeedTile> tiles = TileSeeder.getCorridorTiles(data, source, 2, 3, 100.0);
+		assertEquals(4 * 2 + 8 * 2, tiles.size());
+		assertEquals(2, tiles.get(0).zoom);
+		assertEquals(3, tiles.get(tiles.size() - 1).zoom);
+		assertEquals(new HashSet<TileSeeder.SeedTile>(tiles).size(), tiles.size());
+
+		// -- Across the antimeridian: only the tiles 0 and 3 of the zoom 2
+		data.clear();
+		data.add(point(1.0, 135.0));
+		data.add(point(1.0, -135.0));
+		tiles = TileSeeder.getCorridorTiles(data, source, 2, 2, 100.0);
+		assertEquals(2, tiles.size());
+		assertTrue(tiles.contains(new TileSeeder.SeedTile(2, 3, 1)));
+		assertTrue(tiles.contains(new TileSeeder.SeedTile(2, 0, 1)));
+
+		// -- A buffer of 1 tile around one position
+		data.clear();
+		data.add(point(45.0, 6.0));
+		double tileWidth = 2 * Math.PI * 6378137.0 * Math.cos(Math.toRadians(45.0)) / (1 << 12);
+		tiles = TileSeeder.getCorridorTiles(data, source, 12, 12, tileWidth * 0.99);
+		assertTrue(tiles.size() >= 4 && tiles.size() <= 9);
+	}
+
+	/**
+	 * Testing the download, the retries and the restart
+	 */
+	@Test
+	public void testSeed() throws Exception {
+		TileSource source = localSource();
+		OsmFileCacheTileLoader loader = new OsmFileCacheTileLoader(null, dir);
+
+		List<CgData> data = new ArrayList<CgData>();
+		data.add(point(45.0, 6.0));
+		data.add(point(45.1, 6.1));
+		List<TileSeeder.SeedTile> corridor = TileSeeder.getCorridorTiles(data, source, 0, 8, 200.0);
+
+		TileSeeder seeder = new TileSeeder(loader, source);
+		seeder.setThreads(4);
+		seeder.setRequestsPerSecond(0);
+		List<TileSeeder.SeedTile> tiles = seeder.getMissingTiles(corridor);
+		assertEquals(corridor.size(), tiles.size());
+
+		final int[] last = new int[2];
+		int failed = seeder.seed(tiles, new TileSeeder.SeedListener() {
+			public void seedProgress(int done, int total, long bytes, long estimatedBytes) {
+				synchronized (last) {
+					last[0] = Math.max(last[0], done);
+					last[1] = total;
+				}
+			}
+		});
+		assertEquals(0, failed);
+		assertEquals(tiles.size(), last[0]);
+		assertEquals(tiles.size(), last[1]);
+		// -- Tiles 0/0/0 and 1/1/0 failed once
+		assertEquals(tiles.size() + 2, requests.get());
+
+		// -- Restart: nothing left to download
+		assertEquals(0, new TileSeeder(loader, source).getMissingTiles(corridor).size());
+		assertTrue(loader.isTileStored(source, 8, 132, 92));
+		loader.close();
+	}
+}
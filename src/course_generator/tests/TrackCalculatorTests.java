@@ -0,0 +1,145 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToDoubleFunction;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import course_generator.TrackCalculator;
+import course_generator.TrackData;
+import course_generator.param.ParamData;
+import course_generator.settings.CgSettings;
+import course_generator.utils.CgConst;
+import course_generator.utils.Utils;
+
+/**
+ * Tests for the {@link TrackCalculator} class.
+ */
+public class TrackCalculatorTests {
+
+	private static final IntToDoubleFunction ELEVATION = i -> 1000.0 + (i % 101) * 2.0;
+
+	private final CgSettings settings = new CgSettings();
+	private final List<Boolean> results = new ArrayList<Boolean>();
+	private final CountDownLatch applied = new CountDownLatch(1);
+	/** Set when a listener is called outside of the event dispatch thread **/
+	private volatile boolean outsideEdt = false;
+
+	@BeforeClass
+	public static void setUpCurves() {
+		// -- Curves of the application used by the calculation
+		Utils.ProgDir = Utils.GetAppDir() + "/src/course_generator";
+	}
+
+	private TrackCalculator createCalculator() {
+		TrackCalculator calculator = new TrackCalculator(settings);
+		calculator.addCalculatorListener(new TrackCalculator.CalculatorListener() {
+			public void calculationProgress(int percent) {
+				if (!SwingUtilities.isEventDispatchThread())
+					outsideEdt = true;
+			}
+
+			public void calculationDone(TrackData track, boolean ok) {
+				if (!SwingUtilities.isEventDispatchThread())
+					outsideEdt = true;
+				results.add(ok);
+				if (ok)
+					applied.countDown();
+			}
+		});
+		return calculator;
+	}
+
+	private void assertSameTimes(TrackData expected, TrackData track) {
+		assertTrue(track.isCalculated);
+		assertEquals(expected.TotalTime, track.TotalTime);
+		assertEquals(expected.AscTime, track.AscTime);
+		for (int i = 0; i < track.data.size(); i++) {
+			assertEquals(expected.data.getTime(i), track.data.getTime(i));
+			assertEquals(expected.data.getSpeed(i), track.data.getSpeed(i), 0.0);
+			assertEquals(expected.data.getHour(i), track.data.getHour(i));
+			assertEquals(expected.data.getNight(i), track.data.getNight(i));
+		}
+	}
+
+	/**
+	 * Reference: calculation in the current thread
+	 */
+	private TrackData calculate(TrackData track) {
+		TrackData r = track.CopyTo(new TrackData(settings));
+		r.param = new ParamData();
+		assertTrue(r.Calculate(null));
+		TrackData.CalcClimbResult ccr = r.CalcClimb(CgConst.ELEV_NORM, 0, r.data.size() - 1,
+				new TrackData.CalcClimbResult());
+		r.AscTime = ccr.tp;
+		return r;
+	}
+
+	/**
+	 * Testing the calculation in background and the coalescing of the requests
+	 */
+	@Test
+	public void testCalculate() throws Exception {
+		final TrackData track = TestTracks.create(settings, 20000, 45.0, 0.0005, ELEVATION);
+		TrackData expected = calculate(track);
+		final TrackCalculator calculator = createCalculator();
+
+		// -- 3 requests: the first calculation is cancelled, the last request is
+		// calculated
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				calculator.request(track);
+				calculator.request(track);
+				calculator.request(track);
+				assertTrue(calculator.isRunning());
+			}
+		});
+		assertTrue(applied.await(30, TimeUnit.SECONDS));
+		assertFalse(outsideEdt);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				assertFalse(calculator.isRunning());
+			}
+		});
+
+		assertEquals(2, results.size());
+		assertFalse(results.get(0));
+		assertEquals(1, calculator.getResultVersion());
+		assertSameTimes(expected, track);
+	}
+
+	/**
+	 * Testing a modification of the track during the calculation
+	 */
+	@Test
+	public void testModified() throws Exception {
+		final TrackData track = TestTracks.create(settings, 20000, 45.0, 0.0005, ELEVATION);
+		final TrackCalculator calculator = createCalculator();
+
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				calculator.request(track);
+				// -- The result of the running calculation is out of date
+				for (int i = 0; i < 1000; i++)
+					track.data.get(i).setDiff(50.0);
+				track.MarkDirty(0);
+				track.Recalculate();
+			}
+		});
+		assertTrue(applied.await(30, TimeUnit.SECONDS));
+		assertFalse(outsideEdt);
+
+		assertEquals(1, calculator.getResultVersion());
+		assertSameTimes(calculate(track), track);
+	}
+}
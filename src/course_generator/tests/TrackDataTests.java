@@ -0,0 +1,114 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.IntToDoubleFunction;
+
+import org.joda.time.DateTime;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import course_generator.TrackData;
+import course_generator.TrackData.CalcClimbResult;
+import course_generator.settings.CgSettings;
+import course_generator.utils.CgConst;
+import course_generator.utils.Utils;
+
+/**
+ * Tests for the {@link TrackData} class.
+ */
+public class TrackDataTests {
+
+	private static final IntToDoubleFunction ELEVATION = i -> 1000.0 + (i % 101) * 2.0;
+	/** Elevation after the edit of the positions 800 to 849 **/
+	private static final IntToDoubleFunction EDITED = i -> (i >= 800 && i < 850) ? 1500.0 + i
+			: ELEVATION.applyAsDouble(i);
+
+	private final CgSettings settings = new CgSettings();
+
+	@BeforeClass
+	public static void setUpCurves() {
+		// -- Curves of the application used by the calculation
+		Utils.ProgDir = Utils.GetAppDir() + "/src/course_generator";
+	}
+
+	/**
+	 * Modify the difficulty and the coefficient of the positions 800 to 849
+	 */
+	private void editValues(TrackData track) {
+		for (int i = 800; i < 850; i++) {
+			track.data.get(i).setDiff(80.0);
+			track.data.get(i).setCoeff(90.0);
+		}
+	}
+
+	/**
+	 * Reference: the edited track calculated from scratch
+	 */
+	private TrackData calculate(DateTime startTime) {
+		TrackData r = TestTracks.create(settings, 2000, 45.0, 0.0005, EDITED);
+		editValues(r);
+		r.StartTime = startTime;
+		r.MarkDirty(0);
+		r.Recalculate();
+		assertTrue(r.Calculate(null));
+		// -- Time of the climbs (done after the time calculation by the
+		// application)
+		CalcClimbResult ccr = r.CalcClimb(CgConst.ELEV_NORM, 0, r.data.size() - 1, new CalcClimbResult());
+		r.AscTime = ccr.tp;
+		r.DescTime = ccr.tm;
+		return r;
+	}
+
+	private void assertSameData(TrackData expected, TrackData track) {
+		assertEquals(expected.data.size(), track.data.size());
+		for (int i = 0; i < track.data.size(); i++) {
+			assertEquals(expected.data.getElevation(i), track.data.getElevation(i), 0.0);
+			assertEquals(expected.data.getDist(i), track.data.getDist(i), 0.0);
+			assertEquals(expected.data.getTotal(i), track.data.getTotal(i), 0.0);
+			assertEquals(expected.data.getSlope(i), track.data.getSlope(i), 0.0);
+			assertEquals(expected.data.getSpeed(i), track.data.getSpeed(i), 0.0);
+			assertEquals(expected.data.get(i).getdTime_f(), track.data.get(i).getdTime_f(), 0.0);
+			assertEquals(expected.data.getTime(i), track.data.getTime(i));
+			assertEquals(expected.data.getHour(i), track.data.getHour(i));
+			assertEquals(expected.data.getNight(i), track.data.getNight(i));
+		}
+		assertEquals(expected.TotalTime, track.TotalTime);
+		assertEquals(expected.getClimbP(0), track.getClimbP(0), 0.0);
+		assertEquals(expected.getClimbM(0), track.getClimbM(0), 0.0);
+		assertEquals(expected.AscTime, track.AscTime);
+		assertEquals(expected.DescTime, track.DescTime);
+		assertEquals(expected.getMinElev(0), track.getMinElev(0), 0.0);
+		assertEquals(expected.getMaxElev(0), track.getMaxElev(0), 0.0);
+		assertEquals(expected.getDistRoad(0), track.getDistRoad(0), 0.0);
+	}
+
+	/**
+	 * Testing the recalculation of a track from a modified position
+	 */
+	@Test
+	public void testRecalculate() {
+		DateTime start = new DateTime(2020, 6, 1, 8, 0, 0);
+		TrackData track = TestTracks.create(settings, 2000, 45.0, 0.0005, ELEVATION);
+		track.StartTime = start;
+		assertTrue(track.Calculate(null));
+
+		// -- Only the positions from the first modified one are recalculated
+		for (int i = 800; i < 850; i++)
+			track.data.get(i).setElevation(EDITED.applyAsDouble(i));
+		editValues(track);
+		track.MarkDirty(800);
+		track.Recalculate();
+		assertTrue(track.isCalculated);
+		assertSameData(calculate(start), track);
+
+		// -- The settings of the calculation have changed: the whole track is
+		// recalculated
+		DateTime later = new DateTime(2020, 6, 1, 20, 0, 0);
+		track.StartTime = later;
+		track.MarkDirty(1500);
+		track.Recalculate();
+		assertSameData(calculate(later), track);
+	}
+}
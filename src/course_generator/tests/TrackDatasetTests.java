@@ -0,0 +1,72 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import course_generator.utils.TrackDataset;
+
+/**
+ * Tests for the {@link TrackDataset} class.
+ */
+public class TrackDatasetTests {
+
+	private static final int SIZE = 100000;
+
+	private double y(int i) {
+		return (i == 77777) ? 5000.0 : 1000.0 + 500.0 * Math.sin(i / 1000.0);
+	}
+
+	private TrackDataset createDataset() {
+		TrackDataset dataset = new TrackDataset();
+		dataset.addSeries("Test", i -> i * 0.01, i -> y(i));
+		dataset.setSize(SIZE);
+		return dataset;
+	}
+
+	/**
+	 * Testing the selection of the items
+	 */
+	@Test
+	public void testSample() {
+		TrackDataset dataset = createDataset();
+		dataset.setView(Double.NaN, Double.NaN, 500);
+
+		// -- At most 4 items per pixel, in the order of the positions, with the
+		// first, the last and the highest position
+		int n = dataset.getItemCount(0);
+		assertTrue(n <= 4 * 500);
+		assertTrue(n > 500);
+		assertEquals(0, dataset.getPosition(0, 0));
+		assertEquals(SIZE - 1, dataset.getPosition(0, n - 1));
+		boolean peak = false;
+		for (int i = 0; i < n; i++) {
+			int p = dataset.getPosition(0, i);
+			if (i > 0)
+				assertTrue(p > dataset.getPosition(0, i - 1));
+			assertEquals(p * 0.01, dataset.getXValue(0, i), 0.0);
+			assertEquals(y(p), dataset.getYValue(0, i), 0.0);
+			peak |= (p == 77777);
+		}
+		assertTrue(peak);
+
+		// -- Bounds of all the positions
+		assertEquals(0.0, dataset.getDomainLowerBound(false), 0.0);
+		assertEquals((SIZE - 1) * 0.01, dataset.getDomainUpperBound(false), 1e-9);
+		assertEquals(5000.0, dataset.getRangeUpperBound(false), 0.0);
+
+		// -- Zoom: all the visible positions and one on each side
+		dataset.setView(100.0, 110.0, 500);
+		n = dataset.getItemCount(0);
+		assertEquals(1002, n);
+		assertEquals(9999, dataset.getPosition(0, 0));
+		assertEquals(11000, dataset.getPosition(0, n - 1));
+		assertEquals(5000.0, dataset.getRangeUpperBound(false), 0.0);
+
+		// -- Small track: all the positions
+		dataset.setSize(300);
+		dataset.setView(Double.NaN, Double.NaN, 500);
+		assertEquals(300, dataset.getItemCount(0));
+	}
+}
@@ -0,0 +1,220 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.IntToDoubleFunction;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import course_generator.CgData;
+import course_generator.TrackData;
+import course_generator.TrackJournal;
+import course_generator.settings.CgSettings;
+
+/**
+ * Tests for the {@link TrackJournal} class.
+ */
+public class TrackJournalTests {
+
+	private static final IntToDoubleFunction ELEVATION = i -> 1000.0 + (i % 17) * 3.0;
+
+	/**
+	 * Latitude, line number and distance of each position
+	 */
+	private double[] snapshot(TrackData track) {
+		double[] r = new double[track.data.size() * 3];
+		for (int i = 0; i < track.data.size(); i++) {
+			r[i * 3] = track.data.getLatitude(i);
+			r[i * 3 + 1] = track.data.get(i).getNum();
+			r[i * 3 + 2] = track.data.getTotal(i);
+		}
+		return r;
+	}
+
+	/**
+	 * Testing the undo and the redo of the modification of values
+	 */
+	@Test
+	public void testRange() {
+		TrackData track = TestTracks.create(new CgSettings(), 100, 45.0, 0.001, ELEVATION);
+		TrackJournal journal = new TrackJournal(1024 * 1024);
+		assertFalse(journal.canUndo());
+
+		journal.recordRange(track, 10, 19, TrackJournal.COL_DIFF);
+		for (int i = 10; i <= 19; i++)
+			track.data.get(i).setDiff(50.0);
+
+		TrackJournal.Edit edit = TrackJournal.captureRange(track, 42, 42, TrackJournal.COL_ALL);
+		track.data.get(42).setName("Summit");
+		track.data.get(42).setElevation(2000.0);
+		track.MarkDirty(42);
+		track.Recalculate();
+		journal.add(edit);
+		double climb = track.getClimbP(0);
+
+		// -- Undo
+		assertTrue(journal.undo(track));
+		assertEquals("", track.data.get(42).getName());
+		assertEquals(1000.0 + (42 % 17) * 3.0, track.data.getElevation(42), 0.0);
+		assertTrue(journal.undo(track));
+		for (int i = 0; i < 100; i++)
+			assertEquals(100.0, track.data.getDiff(i), 0.0);
+		assertFalse(journal.canUndo());
+		assertFalse(journal.undo(track));
+
+		// -- Redo
+		assertTrue(journal.redo(track));
+		assertEquals(50.0, track.data.getDiff(15), 0.0);
+		assertEquals(100.0, track.data.getDiff(20), 0.0);
+		assertTrue(journal.redo(track));
+		assertEquals("Summit", track.data.get(42).getName());
+		assertEquals(climb, track.getClimbP(0), 1e-9);
+		assertFalse(journal.canRedo());
+
+		// -- A new edit removes the cancelled edits
+		journal.undo(track);
+		assertTrue(journal.canRedo());
+		journal.recordRange(track, 0, 5, TrackJournal.COL_COEFF);
+		assertFalse(journal.canRedo());
+	}
+
+	/**
+	 * Testing the undo and the redo of the modification of isolated positions
+	 */
+	@Test
+	public void testRows() {
+		TrackData track = TestTracks.create(new CgSettings(), 100, 45.0, 0.001, ELEVATION);
+		TrackJournal journal = new TrackJournal(1024 * 1024);
+
+		journal.add(TrackJournal.captureRows(track, new int[] { 70, 5, 70, 200 }, TrackJournal.COL_POINT));
+		track.data.get(5).setName("Start");
+		track.data.get(70).setName("Summit");
+		track.data.get(70).setStation(600);
+		track.MarkDirty(5);
+		track.Recalculate();
+		assertEquals(1, journal.getUndoCount());
+		assertEquals(null, TrackJournal.captureRows(track, new int[] { -1, 100 }, TrackJournal.COL_POINT));
+
+		assertTrue(journal.undo(track));
+		assertEquals("", track.data.get(5).getName());
+		assertEquals("", track.data.get(70).getName());
+		assertEquals(0, track.data.get(70).getStation());
+
+		assertTrue(journal.redo(track));
+		assertEquals("Start", track.data.get(5).getName());
+		assertEquals("Summit", track.data.get(70).getName());
+		assertEquals(600, track.data.get(70).getStation());
+	}
+
+	/**
+	 * Testing the undo and the redo of the inversion, of the new starting point
+	 * and of the insertion of positions
+	 */
+	@Test
+	public void testStructure() {
+		TrackData track = TestTracks.create(new CgSettings(), 200, 45.0, 0.001, ELEVATION);
+		TrackJournal journal = new TrackJournal(1024 * 1024);
+		double[] original = snapshot(track);
+
+		track.Invert();
+		journal.recordInvert();
+		track.NewStartingPoint(30);
+		journal.recordNewStartingPoint(30);
+
+		// -- Import of positions at the end and at the start
+		TrackData added = TestTracks.create(new CgSettings(), 20, 46.0, 0.001, ELEVATION);
+		int oldSize = track.data.size();
+		for (CgData r : added.data)
+			track.data.add(r);
+		journal.recordInsert(oldSize, 20);
+		for (int i = 0; i < 10; i++)
+			track.data.add(0, added.data.get(i));
+		journal.recordInsert(0, 10);
+		for (int i = 0; i < track.data.size(); i++)
+			track.data.get(i).setNum(i + 1);
+		track.MarkDirty(0);
+		track.Recalculate();
+		double[] edited = snapshot(track);
+		assertEquals(4, journal.getUndoCount());
+
+		while (journal.canUndo())
+			journal.undo(track);
+		assertEquals(200, track.data.size());
+		assertArrayEquals(original, snapshot(track), 1e-6);
+
+		while (journal.canRedo())
+			journal.redo(track);
+		assertEquals(230, track.data.size());
+		assertArrayEquals(edited, snapshot(track), 1e-6);
+	}
+
+	/**
+	 * Testing the undo and the redo of an import: the positions and the values of
+	 * the track
+	 */
+	@Test
+	public void testImport() {
+		TrackData track = TestTracks.create(new CgSettings(), 100, 45.0, 0.001, ELEVATION);
+		TrackJournal journal = new TrackJournal(1024 * 1024);
+		track.Name = "Track.gpx";
+		track.StartTime = new DateTime(2020, 6, 1, 8, 0, 0);
+		double[] original = snapshot(track);
+
+		// -- Import at the end
+		TrackData.Header header = track.getHeader();
+		TrackData added = TestTracks.create(new CgSettings(), 20, 46.0, 0.001, ELEVATION);
+		for (CgData r : added.data)
+			track.data.add(r);
+		for (int i = 100; i < track.data.size(); i++)
+			track.data.get(i).setNum(i + 1);
+		track.Name = "Added.gpx";
+		track.StartTime = new DateTime(2021, 7, 2, 6, 0, 0);
+		track.MarkDirty(99);
+		track.Recalculate();
+		journal.recordImport(header, 100, track.data.size() - 100);
+		double[] edited = snapshot(track);
+
+		// -- Nothing inserted: no edit
+		journal.recordImport(track.getHeader(), 0, 0);
+		assertEquals(1, journal.getUndoCount());
+
+		assertTrue(journal.undo(track));
+		assertEquals(100, track.data.size());
+		assertArrayEquals(original, snapshot(track), 1e-6);
+		assertEquals("Track.gpx", track.Name);
+		assertEquals(new DateTime(2020, 6, 1, 8, 0, 0), track.StartTime);
+
+		assertTrue(journal.redo(track));
+		assertEquals(120, track.data.size());
+		assertArrayEquals(edited, snapshot(track), 1e-6);
+		assertEquals("Added.gpx", track.Name);
+		assertEquals(new DateTime(2021, 7, 2, 6, 0, 0), track.StartTime);
+	}
+
+	/**
+	 * Testing the memory budget
+	 */
+	@Test
+	public void testBudget() {
+		TrackData track = TestTracks.create(new CgSettings(), 1000, 45.0, 0.001, ELEVATION);
+		TrackJournal journal = new TrackJournal(10000);
+
+		// -- 8 bytes per position
+		for (int k = 0; k < 5; k++)
+			journal.recordRange(track, 0, 499, TrackJournal.COL_DIFF);
+		assertEquals(2, journal.getUndoCount());
+		assertTrue(journal.getSize() <= 10000);
+
+		// -- The last edit is kept even if it's over the budget
+		journal.recordRange(track, 0, 999, TrackJournal.COL_ALL);
+		assertEquals(1, journal.getUndoCount());
+
+		journal.clear();
+		assertFalse(journal.canUndo());
+		assertEquals(0, journal.getSize());
+	}
+}
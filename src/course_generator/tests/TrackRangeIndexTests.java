@@ -0,0 +1,213 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import course_generator.CgData;
+import course_generator.TrackData;
+import course_generator.TrackData.CalcAvrSlopeResult;
+import course_generator.TrackData.CalcClimbResult;
+import course_generator.TrackRangeIndex;
+import course_generator.settings.CgSettings;
+import course_generator.utils.CgConst;
+
+/**
+ * Tests for the {@link TrackRangeIndex} class.
+ */
+public class TrackRangeIndexTests {
+
+	/**
+	 * Climb calculated by a scan of the range (reference)
+	 */
+	private CalcClimbResult scanClimb(TrackData track, int start, int end, double threshold) {
+		CalcClimbResult r = new CalcClimbResult();
+		double oldElev = track.data.getElevation(start);
+		int oldTime = track.data.getTime(start);
+		for (int i = start; i <= end; i++) {
+			double de = track.data.getElevation(i) - oldElev;
+			int dt = track.data.getTime(i) - oldTime;
+			if (Math.abs(de) > threshold) {
+				if (de > 0) {
+					r.cp += de;
+					r.tp += dt;
+				}
+				if (de < 0) {
+					r.cm -= de;
+					r.tm += dt;
+				}
+				oldElev = track.data.getElevation(i);
+				oldTime = track.data.getTime(i);
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Testing the climb calculation with the hysteresis
+	 */
+	@Test
+	public void testClimb() {
+		CgSettings settings = new CgSettings();
+		settings.ClimbThresholdForCalculation = 5;
+		TrackData track = new TrackData(settings);
+
+		Random rnd = new Random(42);
+		double elev = 1000.0;
+		for (int i = 0; i < 2000; i++) {
+			elev += rnd.nextGaussian() * 4.0;
+			CgData r = new CgData();
+			r.setElevation(elev);
+			r.setTime(i * 10);
+			track.data.add(r);
+		}
+
+		for (int k = 0; k < 500; k++) {
+			int a = rnd.nextInt(track.data.size());
+			int b = rnd.nextInt(track.data.size());
+			int start = (k % 5 == 0) ? 0 : Math.min(a, b);
+			int end = Math.max(a, b);
+
+			CalcClimbResult expected = scanClimb(track, start, end, 5.0);
+			CalcClimbResult actual = track.CalcClimb(CgConst.ELEV_NORM, start, end, new CalcClimbResult());
+			assertEquals(expected.cp, actual.cp, 1e-6);
+			assertEquals(expected.cm, actual.cm, 1e-6);
+			assertEquals(expected.tp, actual.tp);
+			assertEquals(expected.tm, actual.tm);
+		}
+
+		// The index must follow the modifications of the track
+		track.data.get(1000).setElevation(5000.0);
+		CalcClimbResult expected = scanClimb(track, 10, 1990, 5.0);
+		CalcClimbResult actual = track.CalcClimb(CgConst.ELEV_NORM, 10, 1990, new CalcClimbResult());
+		assertEquals(expected.cp, actual.cp, 1e-6);
+		assertEquals(expected.cm, actual.cm, 1e-6);
+	}
+
+	/**
+	 * Compare the range queries of a track with the ones of a copy (index built
+	 * from scratch)
+	 */
+	private void assertSameQueries(TrackData track, Random rnd) {
+		TrackData copy = track.CopyTo(new TrackData(new CgSettings()));
+		int n = track.data.size();
+		for (int k = 0; k < 100; k++) {
+			int a = rnd.nextInt(n);
+			int b = rnd.nextInt(n);
+			int start = (k % 5 == 0) ? 0 : Math.min(a, b);
+			int end = Math.max(a, b);
+
+			CalcClimbResult expected = copy.CalcClimb(CgConst.ELEV_NORM, start, end, new CalcClimbResult());
+			CalcClimbResult actual = track.CalcClimb(CgConst.ELEV_NORM, start, end, new CalcClimbResult());
+			assertEquals(expected.cp, actual.cp, 0.0);
+			assertEquals(expected.tm, actual.tm);
+
+			CalcAvrSlopeResult es = copy.CalcAvrSlope(start, end, new CalcAvrSlopeResult());
+			CalcAvrSlopeResult as = track.CalcAvrSlope(start, end, new CalcAvrSlopeResult());
+			assertEquals(es.AvrSlopeP, as.AvrSlopeP, 0.0);
+			assertEquals(es.getTotFlat(CgConst.UNIT_METER), as.getTotFlat(CgConst.UNIT_METER), 0.0);
+			assertEquals(copy.CalcRoad(start, end), track.CalcRoad(start, end), 0.0);
+		}
+	}
+
+	/**
+	 * Testing the update of the index after modifications of the track
+	 */
+	@Test
+	public void testModifications() {
+		TrackData track = new TrackData(new CgSettings());
+		Random rnd = new Random(7);
+		double elev = 1000.0;
+		for (int i = 0; i < 3000; i++) {
+			elev += rnd.nextGaussian() * 4.0;
+			CgData r = new CgData();
+			r.setElevation(elev);
+			r.setTime(i * 10);
+			r.setSlope(rnd.nextGaussian() * 8.0);
+			r.setDist(10.0);
+			r.setDiff((i % 7 == 0) ? 100.0 : 80.0);
+			track.data.add(r);
+		}
+		assertSameQueries(track, rnd);
+
+		// -- Modification of one position
+		track.data.get(1500).setElevation(1200.0);
+		track.data.get(1500).setSlope(15.0);
+		assertSameQueries(track, rnd);
+
+		// -- Insert, remove in the middle and at the end
+		CgData r = new CgData();
+		r.setElevation(900.0);
+		r.setDiff(100.0);
+		r.setDist(25.0);
+		track.data.add(2000, r);
+		assertSameQueries(track, rnd);
+		track.data.removeRange(100, 300);
+		assertSameQueries(track, rnd);
+		track.data.removeRange(track.data.size() - 10, track.data.size());
+		assertSameQueries(track, rnd);
+	}
+
+	/**
+	 * Nearest point for a distance calculated by a scan (reference)
+	 */
+	private int scanDistance(TrackData track, double dist) {
+		int p = -1;
+		double best = 0.0;
+		for (int i = 0; i < track.data.size(); i++) {
+			double d = Math.abs(dist - track.data.getTotal(i));
+			if (p == -1 || d < best) {
+				best = d;
+				p = i;
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Testing the search of a point from a distance or a time
+	 */
+	@Test
+	public void testSearchDistance() {
+		TrackData track = new TrackData(new CgSettings());
+		assertEquals(-1, track.SearchDistance(10.0));
+
+		Random rnd = new Random(42);
+		double total = 0.0;
+		for (int i = 0; i < 1000; i++) {
+			// Some points at the same distance
+			if (rnd.nextInt(10) != 0)
+				total += rnd.nextDouble() * 50.0;
+			CgData r = new CgData();
+			r.setTotal(total);
+			r.setTime(i * 10);
+			track.data.add(r);
+		}
+
+		for (int k = 0; k < 500; k++) {
+			double dist = rnd.nextDouble() * (total + 200.0) - 100.0;
+			int p = scanDistance(track, dist);
+			assertEquals(scanDistance(track, (dist / 1000.0) * 1000.0), track.SearchDistance(dist / 1000.0));
+
+			double f = track.DistanceToIndex(dist);
+			int i = (int) Math.floor(f);
+			if (dist <= 0.0 || dist >= total) {
+				assertEquals(p, f, 0.0);
+			} else {
+				double t1 = track.data.getTotal(i);
+				double t2 = (i + 1 < track.data.size()) ? track.data.getTotal(i + 1) : t1;
+				assertEquals(dist, t1 + (f - i) * (t2 - t1), 1e-6);
+			}
+		}
+		assertEquals(25, track.SearchTime(252));
+		assertEquals(25.2, track.TimeToIndex(252), 1e-9);
+
+		// Distances not up to date: the search must scan the points
+		CgData r = new CgData();
+		r.setTotal(10.0);
+		track.data.add(r);
+		assertEquals(scanDistance(track, 12.0), track.SearchDistance(0.012));
+	}
+}
@@ -0,0 +1,73 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import course_generator.CgData;
+import course_generator.TrackData;
+import course_generator.TrackSpatialIndex;
+import course_generator.settings.CgSettings;
+import course_generator.utils.Utils;
+
+/**
+ * Tests for the {@link TrackSpatialIndex} class.
+ */
+public class TrackSpatialIndexTests {
+
+	/**
+	 * Testing the nearest point and radius searches against a scan of the track
+	 */
+	@Test
+	public void testSearch() {
+		TrackData track = new TrackData(new CgSettings());
+
+		Random rnd = new Random(42);
+		double lat = 45.0;
+		double lon = 6.0;
+		for (int i = 0; i < 3000; i++) {
+			lat += (rnd.nextDouble() - 0.5) * 0.001;
+			lon += (rnd.nextDouble() - 0.5) * 0.001;
+			CgData r = new CgData();
+			r.setLatitude(lat);
+			r.setLongitude(lon);
+			track.data.add(r);
+		}
+
+		for (int k = 0; k < 300; k++) {
+			double qlat = 45.0 + (rnd.nextDouble() - 0.5) * 0.05;
+			double qlon = 6.0 + (rnd.nextDouble() - 0.5) * 0.05;
+			double radius = rnd.nextDouble() * 1000.0;
+
+			int best = -1;
+			double bestDist = 0.0;
+			int[] inside = new int[track.data.size()];
+			int n = 0;
+			for (int i = 0; i < track.data.size(); i++) {
+				double d = Utils.CalcDistance(track.data.getLatitude(i), track.data.getLongitude(i), qlat, qlon);
+				if (best == -1 || d < bestDist) {
+					best = i;
+					bestDist = d;
+				}
+				if (d <= radius)
+					inside[n++] = i;
+			}
+
+			assertEquals(best, track.SearchPoint(qlat, qlon).Point);
+			assertEquals(best, track.FindNearestPoint(qlat, qlon));
+			assertArrayEquals(Arrays.copyOf(inside, n), track.SearchPointsInRadius(qlat, qlon, radius));
+		}
+
+		// The index must follow the modifications of the track
+		CgData last = track.data.get(track.data.size() - 1);
+		last.setLatitude(10.0);
+		last.setLongitude(10.0);
+		assertEquals(track.data.size() - 1, track.SearchPoint(10.0, 10.0).Point);
+		track.data.remove(0);
+		assertEquals(track.data.size() - 1, track.FindNearestPoint(10.0, 10.0));
+	}
+}
@@ -0,0 +1,154 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import course_generator.CgData;
+import course_generator.TrackData;
+import course_generator.TrackStatistics;
+import course_generator.settings.CgSettings;
+import course_generator.utils.CgConst;
+import course_generator.utils.StatData;
+
+/**
+ * Tests for the {@link TrackStatistics} class.
+ */
+public class TrackStatisticsTests {
+
+	/**
+	 * Slope bucket as calculated by the original loop
+	 */
+	private int slopeBucket(double s) {
+		if (s < -40)
+			return 0;
+		else if (s < -30)
+			return 1;
+		else if (s < -20)
+			return 2;
+		else if (s < -10)
+			return 3;
+		else if (s < -5)
+			return 4;
+		else if (s < -2)
+			return 5;
+		else if (s <= 2)
+			return 6;
+		else if (s <= 5)
+			return 7;
+		else if (s <= 10)
+			return 8;
+		else if (s <= 20)
+			return 9;
+		else if (s <= 30)
+			return 10;
+		else if (s <= 40)
+			return 11;
+		return 12;
+	}
+
+	/**
+	 * Elevation bucket as calculated by the original loop
+	 */
+	private int elevBucket(double e) {
+		if (e < 1000)
+			return 0;
+		else if (e < 1500)
+			return 1;
+		else if (e < 2000)
+			return 2;
+		else if (e < 2500)
+			return 3;
+		else if (e < 3000)
+			return 4;
+		return 5;
+	}
+
+	private void add(StatData st, CgData r) {
+		st.setSpeed(st.getSpeed(CgConst.UNIT_METER) + r.getSpeed());
+		st.setDist(st.getDistance() + r.getDist(CgConst.UNIT_METER));
+		st.Time += r.getdTime_f();
+		st.Cmpt++;
+	}
+
+	private void assertStat(StatData expected, StatData actual) {
+		assertEquals(expected.Cmpt, actual.Cmpt);
+		assertEquals(expected.getSpeed(CgConst.UNIT_METER), actual.getSpeed(CgConst.UNIT_METER), 1e-6);
+		assertEquals(expected.getDistance(), actual.getDistance(), 1e-6);
+		assertEquals(expected.Time, actual.Time, 1e-6);
+	}
+
+	private StatData[] newStats(int n) {
+		StatData[] r = new StatData[n];
+		for (int i = 0; i < n; i++)
+			r[i] = new StatData();
+		return r;
+	}
+
+	private void testStat(int n) {
+		// -- Only the values read by the statistics
+		TrackData track = new TrackData(new CgSettings());
+		DateTime start = new DateTime(2020, 6, 1, 18, 0, 0);
+		for (int i = 0; i < n; i++) {
+			CgData r = track.data.get(track.data.addEmpty());
+			r.setSlope(((i * 7) % 901) / 10.0 - 45.0);
+			r.setElevation(500.0 + (i % 3000));
+			r.setSpeed(5.0 + (i % 13));
+			r.setDist(10.0 + (i % 17));
+			r.setdTime_f(2.0 + (i % 5) / 4.0);
+			r.setHour(start.plusSeconds(i * 2));
+		}
+		track.bNightCoeff = true;
+		track.StartNightTime = new DateTime(2020, 6, 1, 21, 30, 0);
+		track.EndNightTime = new DateTime(2020, 6, 1, 5, 45, 0);
+		track.CalcStat();
+
+		// -- Reference
+		StatData[] slope = newStats(TrackStatistics.SLOPE_COUNT);
+		StatData[] elev = newStats(TrackStatistics.ELEV_COUNT);
+		StatData[] elevNight = newStats(TrackStatistics.ELEV_COUNT);
+		StatData[] elevDay = newStats(TrackStatistics.ELEV_COUNT);
+		StatData night = new StatData();
+		StatData day = new StatData();
+		int startNight = track.StartNightTime.getSecondOfDay();
+		int endNight = track.EndNightTime.getSecondOfDay();
+		for (int i = 1; i < n; i++) {
+			CgData r = track.data.get(i);
+			int sec = r.getHour().getSecondOfDay();
+			boolean isNight = (sec >= startNight) || (sec <= endNight);
+			int j = elevBucket(r.getElevation(CgConst.UNIT_METER));
+			add(slope[slopeBucket(r.getSlope())], r);
+			add(elev[j], r);
+			add(isNight ? elevNight[j] : elevDay[j], r);
+			add(isNight ? night : day, r);
+		}
+
+		for (int i = 0; i < TrackStatistics.SLOPE_COUNT; i++)
+			assertStat(slope[i], track.StatSlope[i]);
+		for (int i = 0; i < TrackStatistics.ELEV_COUNT; i++) {
+			assertStat(elev[i], track.StatElev[i]);
+			assertStat(elevNight[i], track.StatElevNight[i]);
+			assertStat(elevDay[i], track.StatElevDay[i]);
+		}
+		assertStat(night, track.tInNight);
+		assertStat(day, track.tInDay);
+		assertEquals(n - 1, track.tInNight.Cmpt + track.tInDay.Cmpt);
+	}
+
+	/**
+	 * Testing the statistics of a small track (one pass)
+	 */
+	@Test
+	public void testSmallTrack() {
+		testStat(5000);
+	}
+
+	/**
+	 * Testing the statistics of a large track (parallel calculation)
+	 */
+	@Test
+	public void testLargeTrack() {
+		testStat(300000);
+	}
+}
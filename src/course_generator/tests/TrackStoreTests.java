@@ -0,0 +1,90 @@
+package course_generator.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import course_generator.CgData;
+import course_generator.TrackStore;
+import course_generator.utils.CgConst;
+
+/**
+ * Tests for the {@link TrackStore} class.
+ */
+public class TrackStoreTests {
+
+	private TrackStore createStore(int n) {
+		TrackStore store = new TrackStore(2);
+		for (int i = 0; i < n; i++) {
+			CgData r = new CgData();
+			r.setNum(i + 1);
+			r.setElevation(100.0 * i);
+			if (i == 1)
+				r.setName("P" + i);
+			store.add(r);
+		}
+		return store;
+	}
+
+	/**
+	 * Testing the insertion and the removal of positions
+	 */
+	@Test
+	public void testAddRemove() {
+		TrackStore store = createStore(5);
+		assertEquals(5, store.size());
+		assertEquals("P1", store.get(1).getName());
+
+		// A detached position becomes a cursor on the store
+		CgData r = new CgData();
+		r.setNum(99);
+		store.add(0, r);
+		r.setElevation(42.0);
+		assertEquals(42.0, store.getElevation(0), 0.0);
+		assertEquals("P1", store.get(2).getName());
+
+		// The removed and the replaced values are returned as detached copies
+		CgData old = store.remove(0);
+		assertEquals(5, store.size());
+		assertEquals(1.0, store.get(0).getNum(), 0.0);
+		assertEquals(99.0, old.getNum(), 0.0);
+		assertEquals(42.0, old.getElevation(CgConst.UNIT_METER), 0.0);
+		old = store.set(1, old);
+		assertEquals("P1", old.getName());
+		assertEquals(99.0, store.get(1).getNum(), 0.0);
+		assertEquals("", store.get(1).getName());
+		old.setName("Q");
+		assertEquals("", store.get(1).getName());
+		store.set(1, old);
+
+		store.get(1).setToDelete(true);
+		store.get(3).setToDelete(true);
+		assertEquals(2, store.removeMarked());
+		assertEquals(3, store.size());
+		assertEquals("", store.get(1).getName());
+		assertEquals(200.0, store.get(1).getElevation(CgConst.UNIT_METER), 0.0);
+	}
+
+	/**
+	 * Testing the reverse and the rotation of the positions
+	 */
+	@Test
+	public void testReverseRotate() {
+		TrackStore store = createStore(5);
+		store.reverse();
+		assertEquals(5.0, store.get(0).getNum(), 0.0);
+		assertEquals("P1", store.get(3).getName());
+
+		store.rotate(3);
+		assertEquals(2.0, store.get(0).getNum(), 0.0);
+		assertEquals("P1", store.get(0).getName());
+		assertEquals(3.0, store.get(4).getNum(), 0.0);
+
+		TrackStore copy = new TrackStore();
+		copy.copyFrom(store);
+		assertEquals(store.size(), copy.size());
+		assertTrue(copy.get(0) != store.get(0));
+		assertEquals("P1", copy.get(0).getName());
+	}
+}
@@ -24,6 +24,10 @@ import java.awt.Graphics2D;
 public class DrawStringMultiLine {
 	private String Text;
 	private String[] TabText;
+	/** Width of each line of the text **/
+	private int[] LineWidth;
+	/** Height of a line **/
+	private int LineHeight;
 	private int Width;
 	private int Height;
 	private int Align;
@@ -40,21 +44,26 @@ public class DrawStringMultiLine {
 
 	public void draw(Graphics2D g2d, String text, int x, int y) {
 		setText(g2d, text);
+		draw(g2d, x, y);
+	}
 
+	/**
+	 * Draw the text measured by the last call of
+	 * {@link #setText(Graphics2D, String)}. The font must be the same
+	 */
+	public void draw(Graphics2D g2d, int x, int y) {
 		int w = 0;
-		FontMetrics m = g2d.getFontMetrics();
-		int hh = m.getHeight();
-		int h = hh;
+		int h = LineHeight;
 
-		for (String line : TabText) {
+		for (int i = 0; i < TabText.length; i++) {
 			if (Align == ALIGN_CENTER)
-				w = (Width - m.stringWidth(line)) / 2;
+				w = (Width - LineWidth[i]) / 2;
 			else if (Align == ALIGN_RIGHT)
-				w = (Width - m.stringWidth(line));
+				w = (Width - LineWidth[i]);
 			else
 				w = 0;
-			g2d.drawString(line, x + w, y + h);
-			h = h + hh;
+			g2d.drawString(TabText[i], x + w, y + h);
+			h = h + LineHeight;
 		}
 	}
 
@@ -78,11 +87,14 @@ public class DrawStringMultiLine {
 		int h = 0;
 		FontMetrics m = g2d.getFontMetrics();
 
-		for (String line : TabText) {
-			w = m.stringWidth(line);
+		LineWidth = new int[TabText.length];
+		LineHeight = m.getHeight();
+		for (int i = 0; i < TabText.length; i++) {
+			w = m.stringWidth(TabText[i]);
+			LineWidth[i] = w;
 			if (w > xmax)
 				xmax = w;
-			h = h + m.getHeight();
+			h = h + LineHeight;
 		}
 		Width = xmax;
 		Height = h;
@@ -0,0 +1,100 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator.utils;
+
+import java.awt.Component;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+
+import course_generator.TrackData;
+
+/**
+ * Refresh of a panel done only when the panel is visible.
+ *
+ * A refresh asked while the panel is hidden (tab not selected) is delayed until
+ * the panel is displayed. Several refreshes asked while the panel is hidden
+ * give only one refresh. The panel is also refreshed when it is displayed if
+ * the track has been modified ({@link TrackData#getVersion()}) since its last
+ * refresh.
+ *
+ * Must be used from the event dispatch thread.
+ */
+public class LazyRefresh {
+
+	private final Component panel;
+	private final Runnable refresh;
+	/** Track displayed by the panel. null=none **/
+	private TrackData track = null;
+	/** True if a refresh has been asked **/
+	private boolean stale = false;
+	/** Version of the track at the last refresh **/
+	private int version = -1;
+
+	/**
+	 * @param panel   Panel to refresh
+	 * @param refresh Refresh of the panel
+	 */
+	public LazyRefresh(Component panel, Runnable refresh) {
+		this.panel = panel;
+		this.refresh = refresh;
+		panel.addHierarchyListener(new HierarchyListener() {
+			public void hierarchyChanged(HierarchyEvent e) {
+				if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0)
+					update();
+			}
+		});
+	}
+
+	/**
+	 * Ask for a refresh of the panel. The refresh is done now if the panel is
+	 * visible, otherwise when it is displayed
+	 *
+	 * @param track Track displayed by the panel
+	 */
+	public void invalidate(TrackData track) {
+		this.track = track;
+		stale = true;
+		update();
+	}
+
+	/**
+	 * Refresh the panel if it is visible and if it is not up to date
+	 */
+	public void update() {
+		if (!isStale() || !isShowing())
+			return;
+		stale = false;
+		refresh.run();
+		version = track.getVersion();
+	}
+
+	/**
+	 * Return true if the panel must be refreshed before being displayed
+	 */
+	public boolean isStale() {
+		return (track != null) && (stale || (track.getVersion() != version));
+	}
+
+	/**
+	 * Return true if the panel is visible on the screen
+	 */
+	protected boolean isShowing() {
+		return panel.isShowing();
+	}
+}
@@ -0,0 +1,400 @@
+/*
+ * Course Generator
+ * Copyright (C) 2016 Pierre Delore
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package course_generator.utils;
+
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.event.AxisChangeEvent;
+import org.jfree.chart.event.AxisChangeListener;
+import org.jfree.data.DomainInfo;
+import org.jfree.data.Range;
+import org.jfree.data.RangeInfo;
+import org.jfree.data.xy.AbstractXYDataset;
+
+/**
+ * Chart dataset reading the values of the positions of a track.
+ *
+ * The values are not copied: each series reads them with a function of the
+ * index of the position, usually directly in the columns of the
+ * {@link course_generator.TrackStore}. The x values must increase with the
+ * index (distance or time). The positions are read when the chart is drawn, so
+ * they must be modified only on the event dispatch thread.
+ *
+ * Only the positions needed to draw the visible part of the chart are given to
+ * the chart: for each pixel column, the first, the last, the lowest and the
+ * highest position (M4 downsampling). The chart drawn is the same as with all
+ * the positions, but the number of items is at most 4 times the width of the
+ * chart. The items are selected again when the chart is zoomed or resized (see
+ * {@link #attach(ChartPanel)}).
+ *
+ * The item numbers used by the chart are not the index of the positions. Use
+ * {@link #getPosition(int, int)} to get the index of a position.
+ */
+public class TrackDataset extends AbstractXYDataset implements DomainInfo, RangeInfo {
+	private static final long serialVersionUID = 3816254062374718125L;
+
+	/** Width of the chart (in pixel) used before it is displayed **/
+	private static final int DEFAULT_WIDTH = 1000;
+
+	/**
+	 * A series of the dataset
+	 */
+	private static class Series {
+		final Comparable<?> key;
+		final IntToDoubleFunction x;
+		final IntToDoubleFunction y;
+		/** Index of the positions given to the chart **/
+		int[] items = new int[0];
+		int count = 0;
+
+		Series(Comparable<?> key, IntToDoubleFunction x, IntToDoubleFunction y) {
+			this.key = key;
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	private final ArrayList<Series> series = new ArrayList<Series>();
+	/** Number of positions **/
+	private int size = 0;
+	/** Visible part of the x axis. NaN=all the positions **/
+	private double lower = Double.NaN;
+	private double upper = Double.NaN;
+	/** Width of the chart in pixel **/
+	private int width = DEFAULT_WIDTH;
+	/** Bounds of all the positions. null=not calculated **/
+	private Range domainBounds = null;
+	private Range rangeBounds = null;
+
+	/**
+	 * Add a series
+	 *
+	 * @param key Name of the series
+	 * @param x   Return the x value of a position
+	 * @param y   Return the y value of a position
+	 */
+	public void addSeries(Comparable<?> key, IntToDoubleFunction x, IntToDoubleFunction y) {
+		series.add(new Series(key, x, y));
+		update();
+	}
+
+	/**
+	 * Remove all the series
+	 */
+	public void removeAllSeries() {
+		series.clear();
+		size = 0;
+		update();
+	}
+
+	/**
+	 * Set the number of positions. Must be called on the event dispatch thread
+	 * each time the values of the positions are modified, once the modification
+	 * is done
+	 *
+	 * @param size Number of positions
+	 */
+	public void setSize(int size) {
+		this.size = size;
+		update();
+	}
+
+	/**
+	 * Return the index of the position displayed by an item
+	 *
+	 * @param series Index of the series
+	 * @param item   Index of the item
+	 */
+	public int getPosition(int series, int item) {
+		return this.series.get(series).items[item];
+	}
+
+	/**
+	 * Set the visible part of the chart
+	 *
+	 * @param lower Lowest visible x value. NaN=all the positions
+	 * @param upper Highest visible x value. NaN=all the positions
+	 * @param width Width of the chart in pixel
+	 */
+	public void setView(double lower, double upper, int width) {
+		if (width <= 0)
+			width = DEFAULT_WIDTH;
+		if (Double.compare(lower, this.lower) == 0 && Double.compare(upper, this.upper) == 0 && width == this.width)
+			return;
+		this.lower = lower;
+		this.upper = upper;
+		this.width = width;
+		sample();
+		fireDatasetChanged();
+	}
+
+	/**
+	 * Select the items again when the domain axis of the chart is modified (zoom)
+	 * or when the chart is resized
+	 *
+	 * @param panel Panel displaying the chart using the dataset
+	 */
+	public void attach(final ChartPanel panel) {
+		final ValueAxis axis = panel.getChart().getXYPlot().getDomainAxis();
+		axis.addChangeListener(new AxisChangeListener() {
+			public void axisChanged(AxisChangeEvent event) {
+				setView(panel, axis);
+			}
+		});
+		panel.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				setView(panel, axis);
+			}
+		});
+	}
+
+	private void setView(ChartPanel panel, ValueAxis axis) {
+		Rectangle2D area = panel.getScreenDataArea();
+		int w = (area.getWidth() > 0) ? (int) Math.ceil(area.getWidth()) : panel.getWidth();
+		if (axis.isAutoRange())
+			setView(Double.NaN, Double.NaN, w);
+		else
+			setView(axis.getLowerBound(), axis.getUpperBound(), w);
+	}
+
+	/**
+	 * Calculate the bounds and select the items after a modification
+	 */
+	private void update() {
+		domainBounds = null;
+		rangeBounds = null;
+		sample();
+		fireDatasetChanged();
+	}
+
+	/**
+	 * Select the items of each series
+	 */
+	private void sample() {
+		for (Series s : series)
+			sample(s);
+	}
+
+	private void sample(Series s) {
+		s.count = 0;
+		if (size == 0)
+			return;
+
+		// -- Visible positions and the ones just outside to draw the line up to
+		// the border
+		int start = 0;
+		int end = size - 1;
+		double x0 = s.x.applyAsDouble(start);
+		double x1 = s.x.applyAsDouble(end);
+		if (!Double.isNaN(lower) && !Double.isNaN(upper) && upper > lower) {
+			start = Math.max(0, search(s, lower) - 1);
+			end = Math.min(size - 1, search(s, upper));
+			x0 = lower;
+			x1 = upper;
+		}
+
+		int n = end - start + 1;
+		if (n <= 4 * width) {
+			ensureCapacity(s, n);
+			for (int i = start; i <= end; i++)
+				s.items[s.count++] = i;
+			return;
+		}
+
+		// -- One bucket per pixel column: keep the first, the lowest, the highest
+		// and the last position of the bucket, in the order of the positions
+		ensureCapacity(s, 4 * width + 8);
+		double scale = (x1 > x0) ? width / (x1 - x0) : 0.0;
+		int bucket = 0;
+		int first = start;
+		int min = start;
+		int max = start;
+		double ymin = s.y.applyAsDouble(start);
+		double ymax = ymin;
+		for (int i = start + 1; i <= end; i++) {
+			int b = Math.max(0, Math.min(width - 1, (int) ((s.x.applyAsDouble(i) - x0) * scale)));
+			double y = s.y.applyAsDouble(i);
+			if (b != bucket) {
+				flush(s, first, min, max, i - 1);
+				bucket = b;
+				first = i;
+				min = i;
+				max = i;
+				ymin = y;
+				ymax = y;
+			} else if (y < ymin) {
+				ymin = y;
+				min = i;
+			} else if (y > ymax) {
+				ymax = y;
+				max = i;
+			}
+		}
+		flush(s, first, min, max, end);
+	}
+
+	/**
+	 * Add the positions kept in a bucket, in order and without duplicates
+	 */
+	private void flush(Series s, int first, int min, int max, int last) {
+		int[] p = { first, Math.min(min, max), Math.max(min, max), last };
+		for (int i : p) {
+			if (s.count == 0 || s.items[s.count - 1] < i) {
+				ensureCapacity(s, s.count + 1);
+				s.items[s.count++] = i;
+			}
+		}
+	}
+
+	private void ensureCapacity(Series s, int n) {
+		if (s.items.length < n)
+			s.items = Arrays.copyOf(s.items, Math.max(n, s.items.length * 2));
+	}
+
+	/**
+	 * Return the index of the first position with a x value >= v (size if none)
+	 */
+	private int search(Series s, double v) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (s.x.applyAsDouble(mid) < v)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Calculate the bounds of all the positions
+	 */
+	private void calcBounds() {
+		double xmin = Double.POSITIVE_INFINITY;
+		double xmax = Double.NEGATIVE_INFINITY;
+		double ymin = Double.POSITIVE_INFINITY;
+		double ymax = Double.NEGATIVE_INFINITY;
+		for (Series s : series) {
+			for (int i = 0; i < size; i++) {
+				double x = s.x.applyAsDouble(i);
+				double y = s.y.applyAsDouble(i);
+				if (x < xmin)
+					xmin = x;
+				if (x > xmax)
+					xmax = x;
+				if (y < ymin)
+					ymin = y;
+				if (y > ymax)
+					ymax = y;
+			}
+		}
+		domainBounds = (xmin <= xmax) ? new Range(xmin, xmax) : null;
+		rangeBounds = (ymin <= ymax) ? new Range(ymin, ymax) : null;
+	}
+
+	// -- XYDataset
+
+	@Override
+	public int getSeriesCount() {
+		return series.size();
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Comparable getSeriesKey(int series) {
+		return this.series.get(series).key;
+	}
+
+	@Override
+	public int getItemCount(int series) {
+		return this.series.get(series).count;
+	}
+
+	@Override
+	public Number getX(int series, int item) {
+		return getXValue(series, item);
+	}
+
+	@Override
+	public Number getY(int series, int item) {
+		return getYValue(series, item);
+	}
+
+	@Override
+	public double getXValue(int series, int item) {
+		Series s = this.series.get(series);
+		return s.x.applyAsDouble(s.items[item]);
+	}
+
+	@Override
+	public double getYValue(int series, int item) {
+		Series s = this.series.get(series);
+		return s.y.applyAsDouble(s.items[item]);
+	}
+
+	// -- DomainInfo and RangeInfo: bounds of all the positions, not only of the
+	// selected items, for the automatic range of the axis
+
+	@Override
+	public double getDomainLowerBound(boolean includeInterval) {
+		Range r = getDomainBounds(includeInterval);
+		return (r == null) ? Double.NaN : r.getLowerBound();
+	}
+
+	@Override
+	public double getDomainUpperBound(boolean includeInterval) {
+		Range r = getDomainBounds(includeInterval);
+		return (r == null) ? Double.NaN : r.getUpperBound();
+	}
+
+	@Override
+	public Range getDomainBounds(boolean includeInterval) {
+		if (domainBounds == null)
+			calcBounds();
+		return domainBounds;
+	}
+
+	@Override
+	public double getRangeLowerBound(boolean includeInterval) {
+		Range r = getRangeBounds(includeInterval);
+		return (r == null) ? Double.NaN : r.getLowerBound();
+	}
+
+	@Override
+	public double getRangeUpperBound(boolean includeInterval) {
+		Range r = getRangeBounds(includeInterval);
+		return (r == null) ? Double.NaN : r.getUpperBound();
+	}
+
+	@Override
+	public Range getRangeBounds(boolean includeInterval) {
+		if (rangeBounds == null)
+			calcBounds();
+		return rangeBounds;
+	}
+}
@@ -62,9 +62,10 @@ import org.joda.time.Minutes;
 import org.shredzone.commons.suncalc.SunTimes;
 
 import course_generator.TrackData;
-import course_generator.TrackData.CalcClimbResult;
 import course_generator.settings.CgSettings;
+import course_generator.mrb.LabelTemplate;
 import course_generator.mrb.MrbData;
+import course_generator.param.CurveRepository;
 import net.iakovlev.timeshape.TimeZoneEngine;
 
 /**
@@ -177,14 +178,7 @@ public class Utils {
 	}
 
 	public static int searchCurveFolder(String paramFileName) {
-		if (FileExist(getSelectedCurveFolder(CgConst.CURVE_FOLDER_USER) + paramFileName + ".par")) {
-			return CgConst.CURVE_FOLDER_USER;
-		} else if (FileExist(getSelectedCurveFolder(CgConst.CURVE_FOLDER_MIN_MILES) + paramFileName + ".par")) {
-			return CgConst.CURVE_FOLDER_MIN_MILES;
-		} else if (FileExist(getSelectedCurveFolder(CgConst.CURVE_FOLDER_KM_H) + paramFileName + ".par")) {
-			return CgConst.CURVE_FOLDER_KM_H;
-		} else
-			return CgConst.CURVE_NOT_FOUND;
+		return CurveRepository.getInstance().searchFolder(paramFileName);
 	}
 
 	/**
@@ -357,6 +351,28 @@ public class Utils {
 		return m * 3.28083989501;
 	}
 
+	/**
+	 * Return the factor converting a distance in meter to the distance unit
+	 * (meter or 1/1000 miles). Used to convert a column of values once
+	 * 
+	 * @param unit Unit (CgConst.UNIT_METER or CgConst.UNIT_MILES_FEET)
+	 * @return Conversion factor
+	 */
+	public static double DistanceFactor(int unit) {
+		return (unit == CgConst.UNIT_MILES_FEET) ? Meter2uMiles(1.0) : 1.0;
+	}
+
+	/**
+	 * Return the factor converting an elevation in meter to the elevation unit
+	 * (meter or feet). Used to convert a column of values once
+	 * 
+	 * @param unit Unit (CgConst.UNIT_METER or CgConst.UNIT_MILES_FEET)
+	 * @return Conversion factor
+	 */
+	public static double ElevationFactor(int unit) {
+		return (unit == CgConst.UNIT_MILES_FEET) ? Meter2Feet(1.0) : 1.0;
+	}
+
 	/**
 	 * Convert feet in meter
 	 * 
@@ -742,7 +758,7 @@ public class Utils {
 	 * @param v Number of second to convert
 	 * @return Result string
 	 */
-	private static String Second2DateString_HM(int v) {
+	public static String Second2DateString_HM(int v) {
 		int nbh = v / 3600;
 		int nbm = (v % 3600) / 60;
 
@@ -1126,253 +1142,17 @@ public class Utils {
 		return r;
 	}
 
+	/**
+	 * Generate the label of a mini roadbook position
+	 * 
+	 * @param s        Label format (see {@link LabelTemplate} for the codes)
+	 * @param r        Position
+	 * @param cd       Track
+	 * @param settings Settings
+	 * @return The label
+	 */
 	public static String GenLabel(String s, MrbData r, TrackData cd, CgSettings settings) {
-		/*
-		 * %N:Name %A:Elevation %D:Distance from the start %T:Time (hh:mm) %Ts:Time
-		 * (hh:mm) %Tl:Time (hh:mm:ss) %Td:Delta time from the previous location %H:
-		 * Hour (ddd hh:mm) %h: Hour (hh:mm) %hs:Hour (hh:mm) %hl:Hour (hh:mm:s) %B
-		 * :Time limit (hh:mm) -> Time from the start %b :Time limit (hh:mm) -> Limit
-		 * hour %C :Comment %c :Comment from the main data %L :Carriage return %R
-		 * :Station time (hh:mm) %Rs:Station time (hh:mm) %Rl:Station time (Duration)
-		 * (hh:mm:ss) %+ :Ascend from start %- :Descend from start %+d :Ascend from the
-		 * previous location %-d :Descend from the previous location
-		 */
-		int i = 0;
-		int step = 0;
-		String sr = "";
-		DateTime dt;
-
-		if (cd != null) {
-			CalcClimbResult res = new CalcClimbResult();
-			res = cd.CalcClimb(CgConst.ELEV_NORM, 0, (int) (r.getNum() - 1), res);
-
-			for (i = 0; i < s.length(); i++) {
-				switch (step) {
-				case 0: {
-					if (s.charAt(i) == '%') {
-						step = 1;
-					} else {
-						sr = sr + s.charAt(i);
-					}
-					break;
-				}
-				case 1: {
-					switch (s.charAt(i)) {
-					// %N:Name
-					case 'N':
-						sr = sr + r.getName();
-						step = 0;
-						break;
-
-					// %A:Elevation
-					case 'A':
-						sr = sr + String.format("%.0f", r.getElevation(settings.Unit))
-								+ Utils.uElev2String(settings.Unit);
-						step = 0;
-						break;
-
-					// %D:Distance from the start
-					case 'D':
-						sr = sr + String.format("%.1f", r.getTotal(settings.Unit) / 1000.0)
-								+ Utils.uLDist2String(settings.Unit);
-						step = 0;
-						break;
-
-					// %T:Time (hh:mm)
-					case 'T':
-						step = 3;
-						break;
-
-					// %H:Hour (ddd hh:mm)
-					case 'H':
-						sr = sr + r.getHour().toString("E HH:mm");
-						step = 0;
-						break;
-
-					// %h:Time (hh:mm)
-					case 'h':
-						step = 2;
-						break;
-
-					// %R:Station time (hh:mm:ss)
-					case 'R':
-						step = 4;
-						break;
-
-					// %B:Time limit (hh:mm) -> Time from the start
-					case 'B':
-						sr = sr + Utils.Second2DateString_HM(r.getTimeLimit());
-						step = 0;
-						break;
-
-					// %b:Time limit (hh:mm) -> Limit hour
-					case 'b':
-						if (cd != null) {
-							dt = cd.StartTime.plusSeconds(r.getTimeLimit());
-							sr = sr + dt.toString("HH:mm");
-						} else {
-							sr = sr + "00:00";
-						}
-						step = 0;
-						break;
-
-					// %C:Comment from the MRB data
-					case 'C':
-						sr = sr + r.CommentMiniRoadbook;
-						step = 0;
-						break;
-
-					// %c:Comment from the main data
-					case 'c':
-						sr = sr + r.getComment();
-						step = 0;
-						break;
-
-					// %+: Sum ascend
-					case '+':
-						step = 5;
-						break;
-
-					// %-: Sum descend
-					case '-':
-						step = 6;
-						break;
-
-					// %L: Carriage return
-					case 'L':
-						sr = sr + "\n";
-						step = 0;
-						break;
-
-					default:
-						sr = sr + s.charAt(i);
-						break;
-					}
-					break;
-				}
-
-				case 2: // %h
-				{
-					switch (s.charAt(i)) {
-					case 's':
-						sr = sr + r.getHour().toString("HH:mm");
-						step = 0;
-						break;
-					case 'l':
-						sr = sr + r.getHour().toString("HH:mm:ss");
-						step = 0;
-						break;
-					default:
-						sr = sr + r.getHour().toString("HH:mm");
-						sr = sr + s.charAt(i);
-						step = 0;
-						break;
-					}
-					break;
-				}
-
-				case 3: // %T
-				{
-					switch (s.charAt(i)) {
-					case 's':
-						sr = sr + Utils.Second2DateString_HM(r.getTime());
-						step = 0;
-						break;
-					case 'l':
-						sr = sr + Utils.Second2DateString(r.getTime());
-						step = 0;
-						break;
-					case 'd':
-						sr = sr + Utils.Second2DateString_HM(r.getDeltaTime());
-						step = 0;
-						break;
-					default:
-						sr = sr + Utils.Second2DateString_HM(r.getTime());
-						sr = sr + s.charAt(i);
-						step = 0;
-						break;
-					}
-					break;
-				}
-
-				case 4: // %R
-				{
-					switch (s.charAt(i)) {
-					case 's':
-						sr = sr + Utils.Second2DateString_HM(r.getStation());
-						step = 0;
-						break;
-					case 'l':
-						sr = sr + Utils.Second2DateString(r.getStation());
-						step = 0;
-						break;
-					default:
-						sr = sr + Utils.Second2DateString(r.getStation());
-						sr = sr + s.charAt(i);
-						step = 0;
-						break;
-					}
-					break;
-				}
-
-				case 5: // %+: Sum ascend
-				{
-					switch (s.charAt(i)) {
-					case 'd':
-						sr = sr + r.getDeltaClimb().getAscendClimbSumString(settings.Unit, true);
-						step = 0;
-						break;
-					default:
-
-						sr = sr + String.format("%.0f", res.cp);
-						sr = sr + s.charAt(i);
-						step = 0;
-						break;
-					}
-					break;
-
-				}
-				case 6: // %-: Sum descend
-				{
-					switch (s.charAt(i)) {
-					case 'd':
-						sr = sr + r.getDeltaClimb().getDescentClimbSumString(settings.Unit, true);
-						step = 0;
-						break;
-					default:
-
-						sr = sr + String.format("%.0f", res.cm);
-						sr = sr + s.charAt(i);
-						step = 0;
-						break;
-					}
-					break;
-				}
-				}
-			}
-
-			// Manage a command if it's the last character
-			// If a command with 1 or 2 characters => Default value
-			if (step == 2) {
-				sr = sr + r.getHour().toString("HH:mm");
-			} else if (step == 3) {
-				sr = sr + Utils.Second2DateString_HM(r.getTime());
-			} else if (step == 4) {
-				sr = sr + Utils.Second2DateString(r.getStation());
-			} else if (step == 5) {
-				sr = sr + String.format("%.0f", res.cp);
-			} else if (step == 6) {
-				sr = sr + String.format("%.0f", res.cm);
-			}
-
-			if (cd != null) {
-				return Utils.WordWrap(sr, cd.WordWrapLength, true);
-			}
-			// else {
-			// return sr;
-			// }
-		}
-		return sr;
+		return LabelTemplate.compile(s).format(r, cd, settings);
 	}
 
 	public static String GetFileExtension(String fname) {
@@ -33,6 +33,7 @@ import course_generator.dialogs.ProgressDialog;
 import course_generator.settings.CgSettings;
 import course_generator.utils.CgConst;
 import course_generator.utils.CgLog;
+import course_generator.utils.LazyRefresh;
 import course_generator.utils.Utils;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
@@ -67,6 +68,12 @@ public class JPanelWeather extends JFXPanel implements PropertyChangeListener {
 	private String weatherDataSheetContent;
 	private ProgressDialog progressDialog;
 	private JFrame parentFrame;
+	/** The weather of the track is displayed only when the tab is displayed **/
+	private final LazyRefresh lazyRefresh = new LazyRefresh(this, new Runnable() {
+		public void run() {
+			RefreshWeather(track, false);
+		}
+	});
 
 	public static final String EVENT_TYPE_CLICK = "click"; //$NON-NLS-1$
 
@@ -189,7 +196,8 @@ public class JPanelWeather extends JFXPanel implements PropertyChangeListener {
 
 
 	/**
-	 * Refreshes the weather data sheet.
+	 * Refreshes the weather data sheet. The weather stored in the track is
+	 * displayed when the tab is displayed.
 	 * 
 	 * @param track
 	 *            The current track.
@@ -198,6 +206,27 @@ public class JPanelWeather extends JFXPanel implements PropertyChangeListener {
 	 *            otherwise, we retrieve it from the track.
 	 */
 	public void refresh(TrackData track, boolean retrieveOnlineData) {
+		if (retrieveOnlineData || track == null || track.data.isEmpty()) {
+			RefreshWeather(track, retrieveOnlineData);
+			return;
+		}
+
+		this.track = track;
+		btWeatherRefresh.setEnabled(true);
+		lazyRefresh.invalidate(track);
+	}
+
+
+	/**
+	 * Refreshes the weather data sheet now.
+	 * 
+	 * @param track
+	 *            The current track.
+	 * @param retrieveOnlineData
+	 *            True if we need to retrieve data from the weather provider,
+	 *            otherwise, we retrieve it from the track.
+	 */
+	private void RefreshWeather(TrackData track, boolean retrieveOnlineData) {
 		if (track == null || track.data.isEmpty()) {
 			return;
 		}
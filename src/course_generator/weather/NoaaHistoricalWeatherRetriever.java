@@ -1,36 +1,60 @@
 package course_generator.weather;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.joda.time.DateTime;
 import org.joda.time.Instant;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.javadocmd.simplelatlng.LatLng;
 import com.javadocmd.simplelatlng.LatLngTool;
 import com.javadocmd.simplelatlng.util.LengthUnit;
 
+import course_generator.utils.CgConst;
 import course_generator.utils.CgLog;
+import course_generator.utils.Utils;
 
 /**
  * A class that retrieves, for a given track, the historical weather data.
  * 
+ * The requests share one pooled HTTP client and run in parallel, at most
+ * {@link #MAX_CONCURRENT_REQUESTS} at the same time. The data of the
+ * {@link #STATION_WINDOW} closest stations are requested together and the
+ * first valid station in distance order is kept. The responses containing
+ * data are saved in {@link #CacheDirectory}, so the same data are never
+ * requested twice. The responses are written in files and read with a
+ * streaming parser. The responses of the last {@link #RECENT_DAYS} days are not
+ * saved: the NOAA data of these days can still be completed.
+ * 
  * @author Frederic Bard
  */
 final public class NoaaHistoricalWeatherRetriever {
@@ -52,18 +76,50 @@ final public class NoaaHistoricalWeatherRetriever {
 	private NoaaWeatherData noaaNormalsMonthly;
 
 	public static String NoaaBaseUrl = "https://www.ncei.noaa.gov/access/services/"; //$NON-NLS-1$
-	private final String ghcndDatSetId = "&dataset=daily-summaries"; //$NON-NLS-1$
+	/**
+	 * Directory of the cached NOAA responses. null=no cache
+	 */
+	public static String CacheDirectory = Utils.GetHomeDir() + "/" + CgConst.CG_DIR + "/WeatherCache"; //$NON-NLS-1$ //$NON-NLS-2$
+
+	/** Maximum number of NOAA requests running at the same time **/
+	public static final int MAX_CONCURRENT_REQUESTS = 6;
+	/** Number of stations whose data are requested at the same time **/
+	public static final int STATION_WINDOW = 3;
+	/** Number of the closest stations kept from a station search **/
+	public static final int MAX_STATIONS = 20;
+	/** Connection and read timeout of a request (ms) **/
+	private static final int REQUEST_TIMEOUT = 30000;
+	/** Number of days whose data are not cached **/
+	public static final int RECENT_DAYS = 30;
+
+	private static final ObjectMapper stationMapper = new ObjectMapper();
+	private static final CloseableHttpClient httpClient = createHttpClient();
+	private static final ExecutorService requestExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS,
+			new ThreadFactory() {
+				private int cnt = 0;
+
+				public synchronized Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "NOAA request " + (++cnt)); //$NON-NLS-1$
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	private static final String DAILY_SUMMARIES = "daily-summaries"; //$NON-NLS-1$
+	private static final String NORMALS_DAILY = "normals-daily"; //$NON-NLS-1$
+	private static final String NORMALS_MONTHLY = "normals-monthly"; //$NON-NLS-1$
+	private final String ghcndDatSetId = "&dataset=" + DAILY_SUMMARIES; //$NON-NLS-1$
 	private final String TMax = "TMAX";
 	private final String TMin = "TMIN";
 	private final String Precipitation = "PRCP";
 	private final String ghcndDataTypeIds = "&dataTypes=" + TMax + "," + TMin + "," + Precipitation; //$NON-NLS-1$
-	private final String normalDlyDataSet = "&dataset=normals-daily"; //$NON-NLS-1$
+	private final String normalDlyDataSet = "&dataset=" + NORMALS_DAILY; //$NON-NLS-1$
 	private final String TMaxNormalDaily = "DLY-TMAX-NORMAL";
 	private final String TMinNormalDaily = "DLY-TMIN-NORMAL";
 	private final String TAvgNormalDaily = "DLY-TAVG-NORMAL";
 	private final String normalDlyDataTypeIds = "&datatypes=" + TMaxNormalDaily + "," + TMinNormalDaily + "," //$NON-NLS-1$
 			+ TAvgNormalDaily;
-	private final String normalMlyDataSet = "&dataset=normals-monthly"; //$NON-NLS-1$
+	private final String normalMlyDataSet = "&dataset=" + NORMALS_MONTHLY; //$NON-NLS-1$
 	private final String TMaxNormalMonthly = "MLY-TMAX-NORMAL";
 	private final String TMinNormalMonthly = "MLY-TMIN-NORMAL";
 	private final String TAvgNormalMonthly = "MLY-TAVG-NORMAL";
@@ -121,9 +177,21 @@ final public class NoaaHistoricalWeatherRetriever {
 
 		computeSearchArea();
 
-		pastDailySummaries = findMostRelevantDailySummaries();
-
-		noaaNormalsDaily = findMostRelevantNormalsDaily();
+		// -- The two station searches run together
+		String extent = getExtent(searchAreaSouthWestCorner, searchAreaNorthEastCorner);
+		String threeYearsAgo = String.valueOf(Integer.valueOf(requestStartDate.getYear()) - 3);
+		String summariesDates = threeYearsAgo + "-01-01" + endDate + requestStartDate.getYear() + "-12-31"; //$NON-NLS-1$ //$NON-NLS-2$
+		// -- The search covering the last days can return new stations later
+		boolean recentSearch = isRecent(new DateTime(requestStartDate.getYear(), 12, 31, 0, 0));
+		Future<File> summariesStations = submitNoaaRequest(
+				searchWeatherStationQueryBase + extent + ghcndDatSetId + startDate + summariesDates,
+				recentSearch ? null : cacheKey("search-" + extent, DAILY_SUMMARIES, summariesDates)); //$NON-NLS-1$
+		Future<File> normalsStations = submitNoaaRequest(searchWeatherStationQueryBase + extent + normalDlyDataSet,
+				cacheKey("search-" + extent, NORMALS_DAILY, "")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		pastDailySummaries = findMostRelevantDailySummaries(summariesStations);
+
+		noaaNormalsDaily = findMostRelevantNormalsDaily(normalsStations);
 		noaaNormalsMonthly = retrieveNormalsMonthly();
 
 		return this;
@@ -164,115 +232,281 @@ final public class NoaaHistoricalWeatherRetriever {
 	}
 
 
+	private static CloseableHttpClient createHttpClient() {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(MAX_CONCURRENT_REQUESTS);
+		connectionManager.setDefaultMaxPerRoute(MAX_CONCURRENT_REQUESTS);
+
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(REQUEST_TIMEOUT)
+				.setSocketTimeout(REQUEST_TIMEOUT).setConnectionRequestTimeout(REQUEST_TIMEOUT).build();
+
+		// I don't understand exactly the parameters 'requestSentRetryEnabled' is used.
+		// From the official documentation :
+		// (https://jar-download.com/artifacts/org.apache.httpcomponents/httpclient/4.5.2/source-code/org/apache/http/impl/client/DefaultHttpRequestRetryHandler.java)
+		// @param requestSentRetryEnabled true if it's OK to retry requests that have
+		// been sent
+		return HttpClientBuilder.create().setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setRetryHandler(new DefaultHttpRequestRetryHandler(3, false)).build();
+	}
+
+
 	/**
-	 * Processes a query against the NOAA API.
+	 * Returns the name of the cache file of a NOAA response.
 	 * 
-	 * @param parameters
-	 *            The parameters to specify within the query.
-	 * @return The result of the NOAA query.
+	 * @param station
+	 *            The Id of the weather station (or of the search).
+	 * @param dataset
+	 *            The NOAA dataset.
+	 * @param date
+	 *            The requested dates.
+	 * @return The path of the file, relative to the cache directory.
 	 */
-	private String processNoaaRequest(String parameters) {
-		StringBuffer weatherHistory = new StringBuffer();
+	private String cacheKey(String station, String dataset, String date) {
+		String name = station + "_" + date.replace(endDate, "_"); //$NON-NLS-1$ //$NON-NLS-2$
+		return dataset + "/" + name.replaceAll("[^A-Za-z0-9._-]", "_") + ".json"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+
+	/**
+	 * Indicates if a day is in the last {@link #RECENT_DAYS} days (or in the
+	 * future). The NOAA data of these days are not complete yet.
+	 */
+	private static boolean isRecent(DateTime date) {
+		return date.isAfter(DateTime.now().minusDays(RECENT_DAYS));
+	}
+
+
+	/**
+	 * Indicates if a NOAA response contains data: a non empty array of data or a
+	 * station search with a non empty "results" array.
+	 */
+	private static boolean hasData(File response) {
+		try (JsonParser parser = stationMapper.getFactory().createParser(new FileInputStream(response))) {
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_ARRAY)
+				return parser.nextToken() == JsonToken.START_OBJECT;
+			if (token != JsonToken.START_OBJECT)
+				return false;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				token = parser.nextToken();
+				if ("results".equals(fieldName) && token == JsonToken.START_ARRAY) //$NON-NLS-1$
+					return parser.nextToken() == JsonToken.START_OBJECT;
+				parser.skipChildren();
+			}
+		} catch (IOException e) {
+		}
+		return false;
+	}
+
+
+	/**
+	 * Processes a query against the NOAA API in a background thread.
+	 * 
+	 * @see #processNoaaRequest(String, String)
+	 */
+	private Future<File> submitNoaaRequest(final String parameters, final String cacheKey) {
+		return requestExecutor.submit(new Callable<File>() {
+			@Override
+			public File call() {
+				return processNoaaRequest(parameters, cacheKey);
+			}
+		});
+	}
+
+
+	/**
+	 * Waits for the result of a query.
+	 * 
+	 * @return The file of the result of the NOAA query, null if the query failed
+	 *         or was cancelled.
+	 */
+	private static File getResult(Future<File> request) {
 		try {
-			HttpClientBuilder clientBuilder = HttpClientBuilder.create();
+			return request.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			CgLog.error("NoaaWeatherHistoryRetriever.getResult : " + e.getCause()); //$NON-NLS-1$
+		}
+		return null;
+	}
 
-			// I don't understand exactly the parameters 'requestSentRetryEnabled' is used.
-			// From the official documentation :
-			// (https://jar-download.com/artifacts/org.apache.httpcomponents/httpclient/4.5.2/source-code/org/apache/http/impl/client/DefaultHttpRequestRetryHandler.java)
-			// @param requestSentRetryEnabled true if it's OK to retry requests that have
-			// been sent
-			clientBuilder.setRetryHandler(new DefaultHttpRequestRetryHandler(3, false));
 
-			HttpClient client = clientBuilder.build();
-			HttpGet request = new HttpGet(NoaaBaseUrl + parameters + "&units=metric&limit=1000"); //$NON-NLS-1$
+	/**
+	 * Cancels the queries not started yet. The temporary files of the finished
+	 * queries are deleted.
+	 */
+	private static void cancelRequests(List<Future<File>> requests) {
+		for (Future<File> request : requests) {
+			if (!request.cancel(false) && !request.isCancelled())
+				release(getResult(request));
+		}
+	}
+
+
+	/**
+	 * Deletes the file of a response if it's not in the cache.
+	 */
+	private static void release(File response) {
+		if (response != null && response.getName().endsWith(".tmp")) //$NON-NLS-1$
+			response.delete();
+	}
 
-			HttpResponse response = client.execute(request);
 
-			if (response.getStatusLine().getStatusCode() != 200)
+	/**
+	 * Processes a query against the NOAA API. The response is written in a file
+	 * without being decoded. The successful responses containing data are saved
+	 * in the cache directory and are read from it for the next queries. The other
+	 * responses are written in a temporary file deleted by {@link #release(File)}.
+	 * 
+	 * @param parameters
+	 *            The parameters to specify within the query.
+	 * @param cacheKey
+	 *            The name of the cache file of the response. null=no cache (recent
+	 *            data)
+	 * @return The file of the result of the NOAA query, null if the query failed.
+	 */
+	private File processNoaaRequest(String parameters, String cacheKey) {
+		File cacheFile = (CacheDirectory == null || cacheKey == null) ? null : new File(CacheDirectory, cacheKey);
+		if (cacheFile != null && cacheFile.isFile())
+			return cacheFile;
+
+		File responseFile = null;
+		boolean success;
+		HttpGet request = new HttpGet(NoaaBaseUrl + parameters + "&units=metric&limit=1000"); //$NON-NLS-1$
+		try (CloseableHttpResponse response = httpClient.execute(request)) {
+			int statusCode = response.getStatusLine().getStatusCode();
+			success = (statusCode == 200);
+			if (!success)
 				CgLog.error("NoaaWeatherHistoryRetriever.processNoaaRequest : Error code '" //$NON-NLS-1$
-						+ response.getStatusLine().getStatusCode()
-						+ "' while executing the NOAA request with the parameters " + parameters + ":\n" //$NON-NLS-2$
+						+ statusCode + "' while executing the NOAA request with the parameters " + parameters + ":\n" //$NON-NLS-2$
 						+ response.getStatusLine().getReasonPhrase());
 
-			BufferedReader rd = new BufferedReader(new InputStreamReader(response.getEntity().getContent()));
-
-			String line = ""; //$NON-NLS-1$
-			while ((line = rd.readLine()) != null) {
-				weatherHistory.append(line);
+			// -- The response is written next to its cache file, so it's only renamed
+			// when it's kept
+			File dir = (cacheFile == null) ? null : cacheFile.getParentFile();
+			if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+				dir = null;
+			responseFile = File.createTempFile("noaa", ".tmp", dir); //$NON-NLS-1$ //$NON-NLS-2$
+			responseFile.deleteOnExit();
+			try (InputStream in = response.getEntity().getContent()) {
+				Files.copy(in, responseFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
 			}
 		} catch (Exception ex) {
 			CgLog.error(
 					"NoaaWeatherHistoryRetriever.processNoaaRequest : Error while executing the NOAA request with the parameters " //$NON-NLS-1$
 							+ parameters + "\n" + ex.getMessage()); //$NON-NLS-1$
+			release(responseFile);
+			return null;
+		}
+
+		if (success && cacheFile != null && hasData(responseFile)) {
+			try {
+				Files.move(responseFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				return cacheFile;
+			} catch (IOException e) {
+				CgLog.error("NoaaWeatherHistoryRetriever.processNoaaRequest : Error while writing the cache file " //$NON-NLS-1$
+						+ cacheFile + "\n" + e.getMessage()); //$NON-NLS-1$
+			}
 		}
-		return weatherHistory.toString();
+		return responseFile;
 	}
 
 
 	/**
-	 * Retrieves all the available weather stations that meet certain criteria.
+	 * Retrieves the closest weather stations that meet certain criteria.
 	 * 
-	 * @param queryParameters
-	 *            The parameters for the weather station search.
+	 * The "results" array is read one element at a time and only the
+	 * {@link #MAX_STATIONS} closest valid stations are kept, so a search
+	 * returning thousands of stations doesn't use more memory.
 	 * 
-	 * @return If any were found, a list containing all the weather stations sorted
-	 *         ascending order by the distance from the start.
+	 * @param request
+	 *            The weather station search.
+	 * 
+	 * @return If any were found, a list containing the closest weather stations
+	 *         sorted in ascending order by the distance from the search area
+	 *         center.
 	 */
-	private List<NoaaWeatherStation> findClosestWeatherStations(String queryParameters) {
-		String weatherStationsQueryResults = processNoaaRequest(queryParameters);
-		if (weatherStationsQueryResults.equals("") || !weatherStationsQueryResults.contains("results")) //$NON-NLS-1$ //$NON-NLS-2$
+	private List<NoaaWeatherStation> findClosestWeatherStations(Future<File> request) {
+		File weatherStationsQueryResults = getResult(request);
+		if (weatherStationsQueryResults == null)
 			return null;
 
-		List<NoaaWeatherStation> stations = new ArrayList<NoaaWeatherStation>();
-		try {
-			ObjectMapper mapper = new ObjectMapper();
-			String weatherStationsResults = mapper.readValue(weatherStationsQueryResults, JsonNode.class).get("results") //$NON-NLS-1$
-					.toString();
-
-			List<NoaaResults> noaaObjects = mapper.readValue(weatherStationsResults,
-					new TypeReference<List<NoaaResults>>() {
-					});
-
-			for (NoaaResults currentObject : noaaObjects) {
+		// -- The farthest kept station is at the head of the queue
+		PriorityQueue<NoaaWeatherStation> closestStations = new PriorityQueue<NoaaWeatherStation>(MAX_STATIONS + 1,
+				Collections.reverseOrder());
+		boolean found = false;
+		try (JsonParser parser = stationMapper.getFactory()
+				.createParser(new FileInputStream(weatherStationsQueryResults))) {
+			if (parser.nextToken() != JsonToken.START_OBJECT)
+				return null;
 
-				if (!currentObject.IsStationValid()) {
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (!"results".equals(fieldName) || token != JsonToken.START_ARRAY) { //$NON-NLS-1$
+					parser.skipChildren();
 					continue;
 				}
 
-				LatLng stationLocation = new LatLng(Double.valueOf(currentObject.getStationLatitude()),
-						Double.valueOf(currentObject.getStationLongitude()));
+				found = true;
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					NoaaResults currentObject = stationMapper.readValue(parser, NoaaResults.class);
+					if (!currentObject.IsStationValid()) {
+						continue;
+					}
 
-				double distanceFromStart = LatLngTool.distance(stationLocation, startPoint, LengthUnit.KILOMETER);
-				double distanceFromSearchAreaCenter = LatLngTool.distance(stationLocation, searchAreaCenter,
-						LengthUnit.KILOMETER);
+					LatLng stationLocation = new LatLng(Double.valueOf(currentObject.getStationLatitude()),
+							Double.valueOf(currentObject.getStationLongitude()));
 
-				// Converting the distance and only keeping 1 decimal.
-				distanceFromStart = distanceFromStart * 10;
-				distanceFromStart = (double) ((int) distanceFromStart);
-				distanceFromStart = distanceFromStart / 10;
+					double distanceFromSearchAreaCenter = LatLngTool.distance(stationLocation, searchAreaCenter,
+							LengthUnit.KILOMETER);
 
-				NoaaWeatherStation noaaWeatherStation = new NoaaWeatherStation(currentObject.getStationId(),
-						currentObject.getStationName(), currentObject.getStationLatitude(),
-						currentObject.getStationLongitude(), distanceFromStart);
+					NoaaWeatherStation noaaWeatherStation = new NoaaWeatherStation(currentObject.getStationId(),
+							currentObject.getStationName(), currentObject.getStationLatitude(),
+							currentObject.getStationLongitude(), 0.0);
 
-				// Converting the distance and only keeping 1 decimal.
-				distanceFromSearchAreaCenter = distanceFromSearchAreaCenter * 10;
-				distanceFromSearchAreaCenter = (double) ((int) distanceFromSearchAreaCenter);
-				distanceFromSearchAreaCenter = distanceFromSearchAreaCenter / 10;
-				noaaWeatherStation.setDistanceFromSearchAreaCenter(distanceFromSearchAreaCenter);
+					// Converting the distance and only keeping 1 decimal.
+					distanceFromSearchAreaCenter = distanceFromSearchAreaCenter * 10;
+					distanceFromSearchAreaCenter = (double) ((int) distanceFromSearchAreaCenter);
+					distanceFromSearchAreaCenter = distanceFromSearchAreaCenter / 10;
+					noaaWeatherStation.setDistanceFromSearchAreaCenter(distanceFromSearchAreaCenter);
 
-				stations.add(noaaWeatherStation);
+					closestStations.add(noaaWeatherStation);
+					if (closestStations.size() > MAX_STATIONS)
+						closestStations.poll();
+				}
 			}
-
-			// We sort the stations from closest to the start to farthest to the
-			// start.
-			Collections.sort(stations);
-
-		} catch (IOException e) {
+		} catch (IOException | NumberFormatException e) {
 			CgLog.error(
-					"NoaaWeatherHistoryRetriever.findClosestStation : Error while searching for the closest weather station for the parameters " //$NON-NLS-1$
-							+ queryParameters + "\n" + e.getMessage()); //$NON-NLS-1$
+					"NoaaWeatherHistoryRetriever.findClosestStation : Error while searching for the closest weather station\n" //$NON-NLS-1$
+							+ e.getMessage());
+		} finally {
+			release(weatherStationsQueryResults);
+		}
+		if (!found)
+			return null;
 
+		// We sort the stations from closest to the search area center to farthest.
+		// The distance from the start is only computed for the kept stations.
+		List<NoaaWeatherStation> stations = new ArrayList<NoaaWeatherStation>();
+		while (!closestStations.isEmpty()) {
+			NoaaWeatherStation station = closestStations.poll();
+			LatLng stationLocation = new LatLng(Double.valueOf(station.getLatitude()),
+					Double.valueOf(station.getLongitude()));
+			double distanceFromStart = LatLngTool.distance(stationLocation, startPoint, LengthUnit.KILOMETER);
+
+			// Converting the distance and only keeping 1 decimal.
+			distanceFromStart = distanceFromStart * 10;
+			distanceFromStart = (double) ((int) distanceFromStart);
+			distanceFromStart = distanceFromStart / 10;
+
+			NoaaWeatherStation noaaWeatherStation = new NoaaWeatherStation(station.getId(), station.getName(),
+					station.getLatitude(), station.getLongitude(), distanceFromStart);
+			noaaWeatherStation.setDistanceFromSearchAreaCenter(station.getDistanceFromSearchAreaCenter());
+			stations.add(0, noaaWeatherStation);
 		}
 
 		return stations;
@@ -284,64 +518,86 @@ final public class NoaaHistoricalWeatherRetriever {
 	 * data (GHCND) for the last 3 years. The data consists of : Temperature Max,
 	 * Temperature Min, Precipitation
 	 * 
+	 * @param stationsRequest
+	 *            The search of the stations having data for the last 3 years.
 	 * @return If any were found, the last 3 years of daily summaries weather.
 	 */
-	private List<NoaaWeatherData> findMostRelevantDailySummaries() {
+	private List<NoaaWeatherData> findMostRelevantDailySummaries(Future<File> stationsRequest) {
 
-		// Looking for the 3 previous years of weather data
-		String threeYearsAgo = String.valueOf(Integer.valueOf(requestStartDate.getYear()) - 3);
-		String queryParameters = searchWeatherStationQueryBase
-				+ getExtent(searchAreaSouthWestCorner, searchAreaNorthEastCorner) + ghcndDatSetId + startDate
-				+ threeYearsAgo + "-01-01" + endDate + requestStartDate.getYear() //$NON-NLS-1$ //$NON-NLS-2$
-				+ "-12-31"; //$NON-NLS-1$
-
-		List<NoaaWeatherStation> stations = findClosestWeatherStations(queryParameters);
+		List<NoaaWeatherStation> stations = findClosestWeatherStations(stationsRequest);
 		if (stations == null)
 			return null;
 
-		for (NoaaWeatherStation station : stations) {
-			List<NoaaWeatherData> data = retrieveDailySummaries(station.getId());
-			if (data == null)
-				continue;
+		List<Future<File>> requests = new ArrayList<Future<File>>();
+		try {
+			for (int i = 0; i < stations.size(); i++) {
+				// The data of the next stations are requested while the current one is
+				// waited for
+				while (requests.size() < Math.min(stations.size(), i + STATION_WINDOW) * 3)
+					requests.addAll(requestDailySummaries(stations.get(requests.size() / 3).getId()));
+
+				List<NoaaWeatherData> data = parseDailySummaries(requests.subList(i * 3, i * 3 + 3));
+				if (data == null)
+					continue;
 
-			// if the current station has no valid data, we go to the next one,
-			// otherwise we return the current results.
-			if (data.get(0).isDailySummaryValid()) {
-				noaaSummariesWeatherStation = station;
-				return data;
+				// if the current station has no valid data, we go to the next one,
+				// otherwise we return the current results.
+				if (data.get(0).isDailySummaryValid()) {
+					noaaSummariesWeatherStation = stations.get(i);
+					return data;
+				}
 			}
-
+		} finally {
+			cancelRequests(requests);
 		}
 		return null;
 	}
 
 
 	/**
-	 * Retrieves the daily summaries for a given weather station.
+	 * Requests the daily summaries of the 3 previous years for a given weather
+	 * station.
 	 * 
 	 * @param stationId
 	 *            The Id of a given weather station.
-	 * @return The weather data, if found.
+	 * @return The 3 queries, from the last year.
 	 */
-	private ArrayList<NoaaWeatherData> retrieveDailySummaries(String stationId) {
+	private List<Future<File>> requestDailySummaries(String stationId) {
 
-		ArrayList<NoaaWeatherData> pastDailySummaries = new ArrayList<NoaaWeatherData>();
+		List<Future<File>> requests = new ArrayList<Future<File>>();
 
 		for (int pastYearNumber = 1; pastYearNumber < 4; ++pastYearNumber) {
 			Instant time = Instant.ofEpochMilli(requestStartDate.minusDays(pastYearNumber * 364).getMillis());
 			String pastDate = time.toDateTime().toString("yyyy-MM-dd"); //$NON-NLS-1$
+			boolean recent = isRecent(time.toDateTime());
 
 			String queryParameters = dataAccessQueryBase + stationId + ghcndDatSetId + ghcndDataTypeIds + startDate // $NON-NLS-1$
 					+ pastDate + endDate + pastDate;
 
-			String dailyNormalsData = processNoaaRequest(queryParameters);
-			if (!dailyNormalsData.contains(TMax) && !dailyNormalsData.contains(TMin)
-					&& !dailyNormalsData.contains(Precipitation))
+			requests.add(submitNoaaRequest(queryParameters,
+					recent ? null : cacheKey(stationId, DAILY_SUMMARIES, pastDate)));
+		}
+
+		return requests;
+	}
+
+
+	/**
+	 * Parses the daily summaries of a weather station.
+	 * 
+	 * @param requests
+	 *            The queries of the 3 previous years.
+	 * @return The weather data, if found.
+	 */
+	private ArrayList<NoaaWeatherData> parseDailySummaries(List<Future<File>> requests) {
+
+		ArrayList<NoaaWeatherData> pastDailySummaries = new ArrayList<NoaaWeatherData>();
+
+		for (Future<File> request : requests) {
+			NoaaWeatherData dailySummary = parseWeatherData(getResult(request));
+			if (dailySummary == null)
 				return null;
-			else {
-				NoaaWeatherData dailyNormals = parseWeatherData(dailyNormalsData);
-				pastDailySummaries.add(dailyNormals);
-			}
+			pastDailySummaries.add(dailySummary);
 		}
 
 		return pastDailySummaries;
@@ -353,27 +609,33 @@ final public class NoaaHistoricalWeatherRetriever {
 	 * data. The data consists of : Temperature Max, Temperature Min, Temperature
 	 * Average.
 	 * 
+	 * @param stationsRequest
+	 *            The search of the stations having normals daily.
 	 * @return If any were found, the weather daily normals.
 	 */
-	private NoaaWeatherData findMostRelevantNormalsDaily() {
-
-		String queryParameters = searchWeatherStationQueryBase
-				+ getExtent(searchAreaSouthWestCorner, searchAreaNorthEastCorner) // $NON-NLS-1$
-				+ normalDlyDataSet;
+	private NoaaWeatherData findMostRelevantNormalsDaily(Future<File> stationsRequest) {
 
-		List<NoaaWeatherStation> stations = findClosestWeatherStations(queryParameters);
+		List<NoaaWeatherStation> stations = findClosestWeatherStations(stationsRequest);
 		if (stations == null)
 			return null;
 
-		for (NoaaWeatherStation station : stations) {
-			NoaaWeatherData data = retrieveNormalsDaily(station.getId());
+		List<Future<File>> requests = new ArrayList<Future<File>>();
+		try {
+			for (int i = 0; i < stations.size(); i++) {
+				while (requests.size() < Math.min(stations.size(), i + STATION_WINDOW))
+					requests.add(requestNormalsDaily(stations.get(requests.size()).getId()));
+
+				NoaaWeatherData data = parseNormalsDaily(requests.get(i));
 
-			// if the current station has no valid data, we go to the next one,
-			// otherwise we return the current results.
-			if (data != null && data.isNormalsDataValid()) {
-				noaaNormalsWeatherStation = station;
-				return data;
+				// if the current station has no valid data, we go to the next one,
+				// otherwise we return the current results.
+				if (data != null && data.isNormalsDataValid()) {
+					noaaNormalsWeatherStation = stations.get(i);
+					return data;
+				}
 			}
+		} finally {
+			cancelRequests(requests);
 		}
 
 		return null;
@@ -381,23 +643,30 @@ final public class NoaaHistoricalWeatherRetriever {
 
 
 	/**
-	 * Retrieves the normals daily for a given weather station.
+	 * Requests the normals daily for a given weather station.
 	 * 
 	 * @param stationId
 	 *            The Id of a given weather station.
-	 * @return The weather data, if found.
+	 * @return The query.
 	 */
-	private NoaaWeatherData retrieveNormalsDaily(String stationId) {
-		String queryParameters = dataAccessQueryBase + stationId + startDate + "2010-" //$NON-NLS-1$ //$NON-NLS-2$
-				+ requestStartDate.toString("MM-dd") //$NON-NLS-1$
-				+ endDate + "2010-" + requestStartDate.toString("MM-dd") + normalDlyDataSet + normalDlyDataTypeIds; //$NON-NLS-1$ //$NON-NLS-2$
-
-		String normalsDailyData = processNoaaRequest(queryParameters);
-		if (!normalsDailyData.contains(TMinNormalDaily) && !normalsDailyData.contains(TMaxNormalDaily)
-				&& !normalsDailyData.contains(TAvgNormalDaily))
-			return null;
+	private Future<File> requestNormalsDaily(String stationId) {
+		String date = "2010-" + requestStartDate.toString("MM-dd"); //$NON-NLS-1$ //$NON-NLS-2$
+		String queryParameters = dataAccessQueryBase + stationId + startDate + date + endDate + date
+				+ normalDlyDataSet + normalDlyDataTypeIds;
+
+		return submitNoaaRequest(queryParameters, cacheKey(stationId, NORMALS_DAILY, date));
+	}
 
-		return parseWeatherData(normalsDailyData);
+
+	/**
+	 * Parses the normals daily of a weather station.
+	 * 
+	 * @param request
+	 *            The query of the normals daily.
+	 * @return The weather data, if found.
+	 */
+	private NoaaWeatherData parseNormalsDaily(Future<File> request) {
+		return parseWeatherData(getResult(request));
 	}
 
 
@@ -415,29 +684,30 @@ final public class NoaaHistoricalWeatherRetriever {
 																										// //$NON-NLS-3$
 				+ requestStartDate.toString("2010-MM-01"); //$NON-NLS-1$
 
-		String normalsMonthlyData = processNoaaRequest(findWeatherStation);
-		if (!normalsMonthlyData.contains(TMinNormalMonthly) && !normalsMonthlyData.contains(TMaxNormalMonthly)
-				&& !normalsMonthlyData.contains(TAvgNormalMonthly))
-			return null;
-
+		File normalsMonthlyData = processNoaaRequest(findWeatherStation, cacheKey(
+				noaaNormalsWeatherStation.getId(), NORMALS_MONTHLY, requestStartDate.toString("2010-MM-01"))); //$NON-NLS-1$
 		return parseWeatherData(normalsMonthlyData);
 	}
 
 
 	/**
-	 * Parses a JSON weather data object into a NoaaWeatherData object.
+	 * Parses a JSON weather data file into a NoaaWeatherData object. The file is
+	 * released.
 	 * 
-	 * @param dailyNormalsData
-	 *            A string containing a NOAA weather data JSON object.
-	 * @return The parsed weather data.
+	 * @param weatherData
+	 *            The file of a NOAA weather data response. Can be null.
+	 * @return The parsed weather data, null if the response doesn't contain any
+	 *         weather value.
 	 */
-	private NoaaWeatherData parseWeatherData(String weatherData) {
+	private NoaaWeatherData parseWeatherData(File weatherData) {
+		if (weatherData == null)
+			return null;
 
 		NoaaWeatherData noaaWeatherData = new NoaaWeatherData();
-		try {
+		try (InputStream in = new FileInputStream(weatherData)) {
 			ObjectMapper mapper = new ObjectMapper();
 			mapper.configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true);
-			List<NoaaResults> noaaObjects = mapper.readValue(weatherData, new TypeReference<List<NoaaResults>>() {
+			List<NoaaResults> noaaObjects = mapper.readValue(in, new TypeReference<List<NoaaResults>>() {
 			});
 
 			for (NoaaResults currentObject : noaaObjects) {
@@ -474,10 +744,17 @@ final public class NoaaHistoricalWeatherRetriever {
 
 		} catch (IOException e) {
 			CgLog.error(
-					"NoaaWeatherHistoryRetriever.parseWeatherData : Error while parsing the NOAA weather JSON object :" //$NON-NLS-1$
+					"NoaaWeatherHistoryRetriever.parseWeatherData : Error while parsing the NOAA weather JSON file :" //$NON-NLS-1$
 							+ weatherData + "\n" + e.getMessage()); //$NON-NLS-1$
+		} finally {
+			release(weatherData);
 		}
 
+		if (StringUtils.isBlank(noaaWeatherData.getTemperatureMax())
+				&& StringUtils.isBlank(noaaWeatherData.getTemperatureMin())
+				&& StringUtils.isBlank(noaaWeatherData.getTemperatureAverage())
+				&& StringUtils.isBlank(noaaWeatherData.getPrecipitation()))
+			return null;
 		return noaaWeatherData;
 	}
 
@@ -0,0 +1,740 @@
+// License: GPL. For details, see Readme.txt file.
+package org.openstreetmap.gui.jmapviewer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openstreetmap.gui.jmapviewer.interfaces.TileStore;
+
+/**
+ * {@link TileStore} implementation keeping all the tiles of a directory in one
+ * data file.
+ *
+ * The records (tile image and tags) are appended to the data file
+ * <code>tiles.dat</code>. An index in memory gives the position of the last
+ * record of each tile. It's written in <code>tiles.idx</code> when the store
+ * is closed and by the maintenance, and the records appended after it are read
+ * again when the store is opened. A removed tile is written as an empty record
+ * so it's not restored.
+ *
+ * A background task (every {@link #MAINTENANCE_PERIOD} minutes):
+ * <ul>
+ * <li>imports the tiles stored one file per tile (z_x_y.png and
+ * z_x_y.tags)</li>
+ * <li>removes the tiles older than {@link #getMaxAge()}</li>
+ * <li>rewrites the data file without the replaced records when they use more
+ * than half of the file</li>
+ * <li>writes the index</li>
+ * </ul>
+ */
+public class IndexedTileStore implements TileStore {
+
+	private static final Logger log = Logger.getLogger(IndexedTileStore.class.getName());
+
+	public static final String DATA_FILE = "tiles.dat";
+	public static final String INDEX_FILE = "tiles.idx";
+
+	public static final long AGE_ONE_DAY = 1000L * 60 * 60 * 24;
+
+	/**
+	 * Period of the maintenance in minutes
+	 */
+	public static final int MAINTENANCE_PERIOD = 10;
+
+	protected static final int FILE_MAGIC = 0x43475453; // CGTS
+	protected static final int INDEX_MAGIC = 0x43475449; // CGTI
+	protected static final int VERSION = 1;
+	protected static final int FILE_HEADER = 8;
+
+	protected static final int RECORD_MAGIC = 0x54494C45; // TILE
+	protected static final int RECORD_HEADER = 32;
+	protected static final int NO_DATA = -1;
+	protected static final int REMOVED = -2;
+
+	/**
+	 * Size of the replaced records triggering the compaction
+	 */
+	protected static final long COMPACT_MIN_BYTES = 4L << 20;
+
+	/**
+	 * Maximum number of tiles imported from the old files by a maintenance
+	 */
+	protected static final int IMPORT_MAX = 2000;
+
+	protected static final Charset TAGS_CHARSET = Charset.forName("UTF-8");
+
+	protected static final Pattern LEGACY_FILE = Pattern.compile("(\\d+)_(\\d+)_(\\d+)\\.(\\w+)");
+
+	private static final ScheduledExecutorService maintenance = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "TileStore");
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				}
+			});
+
+	/**
+	 * Position of the last record of a tile
+	 */
+	protected static class IndexEntry {
+		final long offset;
+		final int length;
+		long time;
+
+		IndexEntry(long offset, int length, long time) {
+			this.offset = offset;
+			this.length = length;
+			this.time = time;
+		}
+	}
+
+	protected final File dir;
+	protected final File dataFile;
+	protected final File indexFile;
+
+	protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	protected FileChannel channel;
+	protected final HashMap<Long, IndexEntry> index = new HashMap<>();
+	/** End of the data file **/
+	protected volatile long length;
+	/** Size of the records in the index **/
+	protected long liveBytes;
+	/** true if the index has been modified since it has been written **/
+	protected boolean dirty = false;
+	/** true if the directory can contain tiles stored one file per tile **/
+	protected volatile boolean legacyFiles;
+	protected long maxAge = 365 * AGE_ONE_DAY;
+	protected ScheduledFuture<?> task;
+
+	/**
+	 * Opens the store of a directory. The directory is created if necessary.
+	 *
+	 * @param dir directory of the store
+	 */
+	public IndexedTileStore(File dir) throws IOException {
+		this.dir = dir;
+		if (!dir.exists() && !dir.mkdirs())
+			throw new IOException("Cannot create the directory " + dir);
+		dataFile = new File(dir, DATA_FILE);
+		indexFile = new File(dir, INDEX_FILE);
+
+		channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long start = FILE_HEADER;
+		if (!checkFileHeader()) {
+			channel.truncate(0);
+			ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(FILE_MAGIC).putInt(VERSION);
+			((Buffer) header).flip();
+			writeFully(header, 0);
+			indexFile.delete();
+		} else {
+			start = readIndex();
+		}
+		scan(start);
+		legacyFiles = hasLegacyFiles();
+
+		task = maintenance.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				maintain();
+			}
+		}, 1, MAINTENANCE_PERIOD, TimeUnit.MINUTES);
+	}
+
+	protected static long key(int zoom, int x, int y) {
+		return ((long) zoom << 56) | ((long) (x & 0xFFFFFFF) << 28) | (y & 0xFFFFFFF);
+	}
+
+	/**
+	 * The record read is checked with its header. A record not matching its index
+	 * entry (index not up to date with the data file) is a missing tile
+	 */
+	@Override
+	public Record get(int zoom, int x, int y) throws IOException {
+		lock.readLock().lock();
+		try {
+			IndexEntry e = index.get(key(zoom, x, y));
+			if (e == null || e.length < RECORD_HEADER || e.offset + e.length > length)
+				return null;
+			ByteBuffer buf = ByteBuffer.allocate(e.length);
+			readFully(buf, e.offset);
+			((Buffer) buf).flip();
+			if (buf.getInt() != RECORD_MAGIC || buf.getInt() != zoom || buf.getInt() != x || buf.getInt() != y)
+				return invalidRecord(e);
+			buf.getLong();
+			int tagsLen = buf.getInt();
+			int dataLen = buf.getInt();
+			if (tagsLen < 0 || dataLen < NO_DATA || RECORD_HEADER + (long) tagsLen + Math.max(dataLen, 0) != e.length)
+				return invalidRecord(e);
+			byte[] tags = new byte[tagsLen];
+			buf.get(tags);
+			byte[] data = null;
+			if (dataLen >= 0) {
+				data = new byte[dataLen];
+				buf.get(data);
+			}
+			return new Record(data, decodeTags(tags), e.time);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(int zoom, int x, int y) {
+		lock.readLock().lock();
+		try {
+			return index.containsKey(key(zoom, x, y));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	protected Record invalidRecord(IndexEntry e) {
+		log.warning("Tile store " + dataFile + ": invalid record at " + e.offset);
+		return null;
+	}
+
+	@Override
+	public void put(int zoom, int x, int y, byte[] data, Map<String, String> tags, long time) throws IOException {
+		byte[] t = encodeTags(tags);
+		ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER + t.length + (data == null ? 0 : data.length));
+		buf.putInt(RECORD_MAGIC).putInt(zoom).putInt(x).putInt(y).putLong(time).putInt(t.length)
+				.putInt(data == null ? NO_DATA : data.length).put(t);
+		if (data != null)
+			buf.put(data);
+		((Buffer) buf).flip();
+
+		lock.writeLock().lock();
+		try {
+			long offset = length;
+			writeFully(buf, offset);
+			length = offset + buf.capacity();
+			IndexEntry old = index.put(key(zoom, x, y), new IndexEntry(offset, buf.capacity(), time));
+			if (old != null)
+				liveBytes -= old.length;
+			liveBytes += buf.capacity();
+			dirty = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void setTime(int zoom, int x, int y, long time) {
+		lock.writeLock().lock();
+		try {
+			IndexEntry e = index.get(key(zoom, x, y));
+			if (e != null) {
+				e.time = time;
+				dirty = true;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void remove(int zoom, int x, int y) throws IOException {
+		lock.writeLock().lock();
+		try {
+			IndexEntry old = index.remove(key(zoom, x, y));
+			if (old != null) {
+				liveBytes -= old.length;
+				writeRemoved(zoom, x, y);
+				dirty = true;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int getTileCount() {
+		lock.readLock().lock();
+		try {
+			return index.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public long getSize() {
+		return length;
+	}
+
+	@Override
+	public void clear() throws IOException {
+		lock.writeLock().lock();
+		try {
+			index.clear();
+			liveBytes = 0;
+			channel.truncate(FILE_HEADER);
+			length = FILE_HEADER;
+			indexFile.delete();
+			dirty = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		task.cancel(false);
+		lock.writeLock().lock();
+		try {
+			if (!channel.isOpen())
+				return;
+			if (dirty)
+				writeIndex();
+			channel.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the maximum age of the tiles in ms (0=no maximum)
+	 */
+	public long getMaxAge() {
+		return maxAge;
+	}
+
+	/**
+	 * Sets the maximum age of the tiles. The tiles not checked with the server
+	 * during this time are removed by the maintenance.
+	 *
+	 * @param maxAge maximum age in ms (0=no maximum)
+	 */
+	public void setMaxAge(long maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Runs the maintenance of the store: import of the old files, expiry,
+	 * compaction and write of the index.
+	 */
+	public void maintain() {
+		try {
+			if (legacyFiles)
+				importLegacyFiles(IMPORT_MAX);
+			if (maxAge > 0)
+				removeOlderThan(System.currentTimeMillis() - maxAge);
+			if (length - FILE_HEADER - liveBytes > Math.max(COMPACT_MIN_BYTES, liveBytes))
+				compact();
+			lock.writeLock().lock();
+			try {
+				if (dirty && channel.isOpen())
+					writeIndex();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (Exception e) {
+			log.log(Level.WARNING, "Tile store maintenance failed: " + dir, e);
+		}
+	}
+
+	/**
+	 * Removes the tiles older than a time.
+	 */
+	protected void removeOlderThan(long time) throws IOException {
+		lock.writeLock().lock();
+		try {
+			List<Long> keys = new ArrayList<>();
+			for (Entry<Long, IndexEntry> e : index.entrySet()) {
+				if (e.getValue().time < time)
+					keys.add(e.getKey());
+			}
+			for (Long k : keys) {
+				IndexEntry old = index.remove(k);
+				liveBytes -= old.length;
+				writeRemoved((int) (k >>> 56), (int) ((k >>> 28) & 0xFFFFFFF), (int) (k & 0xFFFFFFF));
+				dirty = true;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Rewrites the data file with only the last record of each tile. The records
+	 * are copied without blocking the store, then the records added during the
+	 * copy are copied and the files are swapped.
+	 */
+	public void compact() throws IOException {
+		Map<Long, IndexEntry> snapshot;
+		lock.readLock().lock();
+		try {
+			if (!channel.isOpen())
+				return;
+			snapshot = new HashMap<>(index);
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		File tmpFile = new File(dir, DATA_FILE + ".tmp");
+		HashMap<Long, IndexEntry> newIndex = new HashMap<>();
+		try (FileChannel out = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long pos = FILE_HEADER;
+			ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(FILE_MAGIC).putInt(VERSION);
+			((Buffer) header).flip();
+			writeFully(out, header, 0);
+
+			// -- Copy without lock. The records are never modified, the old file is only
+			// closed with the write lock
+			for (Entry<Long, IndexEntry> e : snapshot.entrySet()) {
+				lock.readLock().lock();
+				try {
+					if (!channel.isOpen())
+						return;
+					pos = copyRecord(e.getValue(), out, pos, newIndex, e.getKey());
+				} finally {
+					lock.readLock().unlock();
+				}
+			}
+
+			lock.writeLock().lock();
+			try {
+				if (!channel.isOpen())
+					return;
+				// -- Tiles added, replaced or removed during the copy
+				HashMap<Long, IndexEntry> result = new HashMap<>();
+				long live = 0;
+				for (Entry<Long, IndexEntry> e : index.entrySet()) {
+					IndexEntry n = (snapshot.get(e.getKey()) == e.getValue()) ? newIndex.get(e.getKey()) : null;
+					if (n == null) {
+						pos = copyRecord(e.getValue(), out, pos, result, e.getKey());
+						n = result.get(e.getKey());
+					}
+					n.time = e.getValue().time;
+					result.put(e.getKey(), n);
+					live += n.length;
+				}
+				out.force(false);
+
+				// -- The index of the old file must not be used with the new file
+				if (indexFile.exists() && !indexFile.delete())
+					throw new IOException("Cannot delete the index " + indexFile);
+				dirty = true;
+				channel.close();
+				Files.move(tmpFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+				index.clear();
+				index.putAll(result);
+				liveBytes = live;
+				length = pos;
+				writeIndex();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} finally {
+			tmpFile.delete();
+		}
+	}
+
+	/**
+	 * Copies a record of the data file in another file
+	 *
+	 * @return the end of the copied record in the other file
+	 */
+	protected long copyRecord(IndexEntry e, FileChannel out, long pos, Map<Long, IndexEntry> newIndex, Long key)
+			throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(e.length);
+		readFully(buf, e.offset);
+		((Buffer) buf).flip();
+		buf.putLong(16, e.time);
+		writeFully(out, buf, pos);
+		newIndex.put(key, new IndexEntry(pos, e.length, e.time));
+		return pos + e.length;
+	}
+
+	/**
+	 * Imports the tiles of the directory stored one file per tile
+	 * (z_x_y.&lt;type&gt;, z_x_y.tags and z_x_y.etag). The files are deleted.
+	 *
+	 * @param max maximum number of tiles imported
+	 */
+	public void importLegacyFiles(int max) throws IOException {
+		int cnt = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir.toPath())) {
+			for (Path p : files) {
+				if (cnt >= max)
+					return;
+				Matcher m = LEGACY_FILE.matcher(p.getFileName().toString());
+				if (m.matches()) {
+					importLegacyTile(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)),
+							Integer.parseInt(m.group(3)), m.group(4));
+					cnt++;
+				}
+			}
+		}
+		legacyFiles = false;
+	}
+
+	/**
+	 * Imports a tile stored in its own files, if the files exist. The files are
+	 * deleted.
+	 *
+	 * @param type extension of the image file
+	 */
+	public void importLegacyTile(int zoom, int x, int y, String type) throws IOException {
+		if (!legacyFiles)
+			return;
+		String name = zoom + "_" + x + "_" + y;
+		File tagsFile = new File(dir, name + ".tags");
+		File etagFile = new File(dir, name + ".etag");
+		File tileFile = new File(dir, name + "." + type);
+		if ("tags".equals(type) || "etag".equals(type) || !tileFile.exists()) {
+			tileFile = null;
+			File[] images = dir.listFiles(new FilenameFilter() {
+				public boolean accept(File d, String n) {
+					return n.startsWith(name + ".") && !n.endsWith(".tags") && !n.endsWith(".etag");
+				}
+			});
+			if (images != null && images.length > 0)
+				tileFile = images[0];
+		}
+
+		Map<String, String> tags = new LinkedHashMap<>();
+		if (etagFile.exists())
+			tags.put("etag", new String(Files.readAllBytes(etagFile.toPath()), TAGS_CHARSET));
+		if (tagsFile.exists()) {
+			try (BufferedReader f = new BufferedReader(
+					new InputStreamReader(new FileInputStream(tagsFile), TAGS_CHARSET))) {
+				readTags(f, tags);
+			}
+		}
+
+		byte[] data = null;
+		long time = 0;
+		if (tileFile != null) {
+			data = Files.readAllBytes(tileFile.toPath());
+			time = tileFile.lastModified();
+		} else if (tagsFile.exists())
+			time = tagsFile.lastModified();
+
+		if ((data != null && data.length > 0) || tags.containsKey("tile-info")) {
+			// -- The tile stored after the old files is newer
+			if (!contains(zoom, x, y))
+				put(zoom, x, y, (data != null && data.length > 0) ? data : null, tags, time);
+		}
+
+		if (tileFile != null)
+			tileFile.delete();
+		tagsFile.delete();
+		etagFile.delete();
+	}
+
+	/**
+	 * @return true if the directory can contain tiles stored one file per tile
+	 */
+	public boolean hasLegacyFiles() {
+		if (legacyFiles)
+			return true;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir.toPath())) {
+			for (Path p : files) {
+				if (LEGACY_FILE.matcher(p.getFileName().toString()).matches())
+					return true;
+			}
+		} catch (IOException e) {
+		}
+		return false;
+	}
+
+	protected void writeRemoved(int zoom, int x, int y) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER);
+		buf.putInt(RECORD_MAGIC).putInt(zoom).putInt(x).putInt(y).putLong(0).putInt(0).putInt(REMOVED);
+		((Buffer) buf).flip();
+		writeFully(buf, length);
+		length += RECORD_HEADER;
+	}
+
+	protected boolean checkFileHeader() throws IOException {
+		if (channel.size() < FILE_HEADER)
+			return false;
+		ByteBuffer buf = ByteBuffer.allocate(FILE_HEADER);
+		readFully(buf, 0);
+		((Buffer) buf).flip();
+		return buf.getInt() == FILE_MAGIC && buf.getInt() == VERSION;
+	}
+
+	/**
+	 * Reads the records of the data file from a position. An incomplete record at
+	 * the end of the file is removed.
+	 */
+	protected void scan(long start) throws IOException {
+		long size = channel.size();
+		long pos = start;
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+		while (pos + RECORD_HEADER <= size) {
+			((Buffer) header).clear();
+			readFully(header, pos);
+			((Buffer) header).flip();
+			int magic = header.getInt();
+			int zoom = header.getInt();
+			int x = header.getInt();
+			int y = header.getInt();
+			long time = header.getLong();
+			int tagsLen = header.getInt();
+			int dataLen = header.getInt();
+			long recLen = RECORD_HEADER + (long) tagsLen + Math.max(dataLen, 0);
+			if (magic != RECORD_MAGIC || tagsLen < 0 || dataLen < REMOVED || pos + recLen > size)
+				break;
+
+			long k = key(zoom, x, y);
+			IndexEntry old;
+			if (dataLen == REMOVED) {
+				old = index.remove(k);
+			} else {
+				old = index.put(k, new IndexEntry(pos, (int) recLen, time));
+				liveBytes += recLen;
+			}
+			if (old != null)
+				liveBytes -= old.length;
+			pos += recLen;
+		}
+		if (pos < size) {
+			log.warning("Tile store " + dataFile + ": incomplete data removed at " + pos);
+			channel.truncate(pos);
+		}
+		if (pos != start)
+			dirty = true;
+		length = pos;
+	}
+
+	/**
+	 * Reads the index file
+	 *
+	 * @return the position of the first record of the data file not in the index
+	 */
+	protected long readIndex() {
+		if (!indexFile.exists())
+			return FILE_HEADER;
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(indexFile), 65536))) {
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != VERSION)
+				return FILE_HEADER;
+			long end = in.readLong();
+			int count = in.readInt();
+			if (end > channel.size())
+				return FILE_HEADER;
+			HashMap<Long, IndexEntry> entries = new HashMap<>(count * 2);
+			long live = 0;
+			for (int i = 0; i < count; i++) {
+				long k = in.readLong();
+				IndexEntry e = new IndexEntry(in.readLong(), in.readInt(), in.readLong());
+				entries.put(k, e);
+				live += e.length;
+			}
+			index.putAll(entries);
+			liveBytes = live;
+			return end;
+		} catch (IOException e) {
+			log.warning("Tile store " + indexFile + " can't be read: " + e.getMessage());
+			return FILE_HEADER;
+		}
+	}
+
+	/**
+	 * Writes the index file. Must be called with the write lock
+	 */
+	protected void writeIndex() throws IOException {
+		channel.force(false);
+		File tmp = new File(dir, INDEX_FILE + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(tmp), 65536))) {
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(length);
+			out.writeInt(index.size());
+			for (Entry<Long, IndexEntry> e : index.entrySet()) {
+				out.writeLong(e.getKey());
+				out.writeLong(e.getValue().offset);
+				out.writeInt(e.getValue().length);
+				out.writeLong(e.getValue().time);
+			}
+		}
+		Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		dirty = false;
+	}
+
+	protected void readFully(ByteBuffer buf, long pos) throws IOException {
+		while (buf.hasRemaining()) {
+			int n = channel.read(buf, pos);
+			if (n < 0)
+				throw new IOException("Unexpected end of file " + dataFile);
+			pos += n;
+		}
+	}
+
+	protected void writeFully(ByteBuffer buf, long pos) throws IOException {
+		writeFully(channel, buf, pos);
+	}
+
+	protected static void writeFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+		while (buf.hasRemaining())
+			pos += ch.write(buf, pos);
+	}
+
+	protected static byte[] encodeTags(Map<String, String> tags) {
+		if (tags == null || tags.isEmpty())
+			return new byte[0];
+		StringBuilder sb = new StringBuilder();
+		for (Entry<String, String> e : tags.entrySet())
+			sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+		return sb.toString().getBytes(TAGS_CHARSET);
+	}
+
+	protected static Map<String, String> decodeTags(byte[] tags) throws IOException {
+		Map<String, String> map = new LinkedHashMap<>();
+		if (tags.length > 0)
+			readTags(new BufferedReader(new InputStreamReader(new ByteArrayInputStream(tags), TAGS_CHARSET)), map);
+		return map;
+	}
+
+	protected static void readTags(BufferedReader f, Map<String, String> tags) throws IOException {
+		for (String line = f.readLine(); line != null; line = f.readLine()) {
+			final int i = line.indexOf('=');
+			if (i == -1 || i == 0)
+				continue;
+			tags.put(line.substring(0, i), line.substring(i + 1));
+		}
+	}
+}
@@ -112,7 +112,7 @@ public class JMapViewer extends JPanel implements TileLoaderListener {
 
 	public JMapViewer(TileCache tileCache, int downloadThreadCount) {
 		super();
-		JobDispatcher.setMaxWorkers(downloadThreadCount);
+		TileScheduler.setMaxWorkers(downloadThreadCount);
 		tileSource = new OsmTileSource.Mapnik();
 		tileController = new TileController(tileSource, tileCache, this);
 		mapMarkerList = new LinkedList<>();
@@ -543,6 +543,13 @@ public class JMapViewer extends JPanel implements TileLoaderListener {
 		int diff_top = off_y;
 		int diff_bottom = tilesize - off_y;
 
+		// the tiles outside of the view are not loaded anymore
+		int view_x1 = Math.floorDiv(center.x - w2, tilesize);
+		int view_y1 = Math.floorDiv(center.y - h2, tilesize);
+		int view_x2 = Math.floorDiv(center.x - w2 + getWidth() - 1, tilesize);
+		int view_y2 = Math.floorDiv(center.y - h2 + getHeight() - 1, tilesize);
+		tileController.setViewport(zoom, view_x1, view_y1, view_x2, view_y2);
+
 		boolean start_left = diff_left < diff_right;
 		boolean start_top = diff_top < diff_bottom;
 
@@ -604,6 +611,14 @@ public class JMapViewer extends JPanel implements TileLoaderListener {
 				iMove = (iMove + 1) % move.length;
 			}
 		}
+		// prefetch the tiles around the view
+		for (int i = view_x1 - TileScheduler.PREFETCH_RING; i <= view_x2 + TileScheduler.PREFETCH_RING; i++) {
+			for (int j = view_y1 - TileScheduler.PREFETCH_RING; j <= view_y2 + TileScheduler.PREFETCH_RING; j++) {
+				if (i < view_x1 || i > view_x2 || j < view_y1 || j > view_y2)
+					tileController.prefetchTile(scrollWrapEnabled ? Math.floorMod(i, gridLength) : i, j, zoom);
+			}
+		}
+
 		// outer border of the map
 		int mapSize = tilesize << zoom;
 		if (scrollWrapEnabled) {
@@ -768,7 +783,6 @@ public class JMapViewer extends JPanel implements TileLoaderListener {
 	 * @param y vertical movement in pixel
 	 */
 	public void moveMap(int x, int y) {
-		tileController.cancelOutstandingJobs(); // Clear outstanding load
 		center.x += x;
 		center.y += y;
 		repaint();
@@ -823,8 +837,6 @@ public class JMapViewer extends JPanel implements TileLoaderListener {
 				|| zoom == this.zoom)
 			return;
 		Coordinate zoomPos = getPosition(mapPoint);
-		tileController.cancelOutstandingJobs(); // Clearing outstanding load
-		// requests
 		setDisplayPosition(mapPoint, zoomPos, zoom);
 
 		this.fireJMVEvent(new JMVCommandEvent(COMMAND.ZOOM, this));
@@ -1,22 +1,14 @@
 // License: GPL. For details, see Readme.txt file.
 package org.openstreetmap.gui.jmapviewer;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
-import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -30,6 +22,7 @@ import org.openstreetmap.gui.jmapviewer.interfaces.TileJob;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileLoader;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileStore;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileSource.TileUpdate;
 
 /**
@@ -37,6 +30,9 @@ import org.openstreetmap.gui.jmapviewer.interfaces.TileSource.TileUpdate;
  * saves all loaded files in a directory located in the temporary directory. If
  * a tile is present in this file cache it will not be loaded from OSM again.
  *
+ * The tiles of a tile source are kept in an {@link IndexedTileStore} (one data
+ * file per source directory).
+ *
  * @author Jan Peter Stotz
  * @author Stefan Zeller
  */
@@ -44,17 +40,15 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 
 	private static final Logger log = Logger.getLogger(OsmFileCacheTileLoader.class.getName());
 
-	private static final String ETAG_FILE_EXT = ".etag";
-	private static final String TAGS_FILE_EXT = ".tags";
-
-	private static final Charset TAGS_CHARSET = Charset.forName("UTF-8");
-
 	public static final long FILE_AGE_ONE_DAY = 1000 * 60 * 60 * 24;
 	public static final long FILE_AGE_ONE_WEEK = FILE_AGE_ONE_DAY * 7;
 
 	protected String cacheDirBase;
 
-	protected final Map<TileSource, File> sourceCacheDirMap;
+	/**
+	 * Stores of the tiles. Key=directory of the tile source
+	 */
+	protected final Map<File, TileStore> stores = new HashMap<>();
 
 	protected long maxCacheFileAge = FILE_AGE_ONE_WEEK;
 	protected long recheckAfter = FILE_AGE_ONE_DAY;
@@ -101,7 +95,12 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 
 		log.finest("Tile cache directory: " + cacheDir);
 		cacheDirBase = cacheDir.getAbsolutePath();
-		sourceCacheDirMap = new HashMap<>();
+		Runtime.getRuntime().addShutdownHook(new Thread("TileStore close") {
+			@Override
+			public void run() {
+				close();
+			}
+		});
 	}
 
 	/**
@@ -121,22 +120,117 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 	}
 
 	protected File getSourceCacheDir(TileSource source) {
-		File dir = sourceCacheDirMap.get(source);
-		if (dir == null) {
-			dir = new File(cacheDirBase, source.getName().replaceAll("[\\\\/:*?\"<>|]", "_"));
-			if (!dir.exists()) {
-				dir.mkdirs();
-			}
+		File dir = new File(cacheDirBase, source.getName().replaceAll("[\\\\/:*?\"<>|]", "_"));
+		if (!dir.exists()) {
+			dir.mkdirs();
 		}
 		return dir;
 	}
 
+	/**
+	 * Returns the store of the tiles of a source. It's opened at the first call
+	 *
+	 * @return the store or <code>null</code> if it can't be opened
+	 */
+	protected TileStore getStore(TileSource source) {
+		File dir = getSourceCacheDir(source);
+		synchronized (stores) {
+			TileStore store = stores.get(dir);
+			if (store == null) {
+				try {
+					store = new IndexedTileStore(dir);
+					stores.put(dir, store);
+				} catch (IOException e) {
+					System.err.println("Failed to open the tile store: " + e.getLocalizedMessage());
+				}
+			}
+			return store;
+		}
+	}
+
+	/**
+	 * Writes the pending changes of the tile stores and releases their files
+	 */
+	public void close() {
+		synchronized (stores) {
+			for (TileStore store : stores.values()) {
+				try {
+					store.close();
+				} catch (IOException e) {
+					System.err.println("Failed to close the tile store: " + e.getLocalizedMessage());
+				}
+			}
+			stores.clear();
+		}
+	}
+
+	/**
+	 * Indicate if a tile is in the store of its source. Only the index of the
+	 * store is read
+	 */
+	public boolean isTileStored(TileSource source, int zoom, int x, int y) {
+		TileStore store = getStore(source);
+		if (store == null)
+			return false;
+		if (store.contains(zoom, x, y))
+			return true;
+		if (store instanceof IndexedTileStore) {
+			try {
+				((IndexedTileStore) store).importLegacyTile(zoom, x, y, source.getTileType());
+			} catch (IOException e) {
+				return false;
+			}
+			return store.contains(zoom, x, y);
+		}
+		return false;
+	}
+
+	/**
+	 * Downloads a tile and puts it in the store of its source without decoding
+	 * its image. Used to fill the cache before using the map offline.
+	 *
+	 * @return size of the stored image in bytes
+	 * @throws IOException the tile can't be downloaded or stored
+	 */
+	public int downloadTile(TileSource source, int zoom, int x, int y) throws IOException {
+		TileStore store = getStore(source);
+		if (store == null)
+			throw new IOException("No tile store");
+		Tile tile = new Tile(source, x, y, zoom);
+		URLConnection urlConn = loadTileFromOsm(tile);
+		if (urlConn instanceof HttpURLConnection) {
+			int code = ((HttpURLConnection) urlConn).getResponseCode();
+			if (code != HttpURLConnection.HTTP_OK)
+				throw new IOException("HTTP error " + code + " for " + tile.getUrl());
+		}
+		loadTileMetadata(tile, urlConn);
+		if (source.getTileUpdate() == TileUpdate.ETag || source.getTileUpdate() == TileUpdate.IfNoneMatch)
+			tile.putValue("etag", urlConn.getHeaderField("ETag"));
+
+		byte[] data = null;
+		if (!"no-tile".equals(tile.getValue("tile-info"))) {
+			try (InputStream input = urlConn.getInputStream()) {
+				ByteArrayOutputStream bout = new ByteArrayOutputStream();
+				byte[] buffer = new byte[2048];
+				int read;
+				while ((read = input.read(buffer)) >= 0)
+					bout.write(buffer, 0, read);
+				if (bout.size() == 0)
+					throw new IOException("Empty tile " + tile.getUrl());
+				data = bout.toByteArray();
+			}
+		}
+		store.put(zoom, x, y, data, tile.getMetadata(), System.currentTimeMillis());
+		return (data == null) ? 0 : data.length;
+	}
+
 	protected class FileLoadJob implements TileJob {
 		InputStream input = null;
 
 		Tile tile;
-		File tileCacheDir;
-		File tileFile = null;
+		TileStore store;
+		/** true if the tile is in the store **/
+		boolean cached = false;
 		long fileAge = 0;
 		boolean fileTilePainted = false;
 
@@ -158,7 +252,7 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 				tile.error = false;
 				tile.loading = true;
 			}
-			tileCacheDir = getSourceCacheDir(tile.getSource());
+			store = getStore(tile.getSource());
 			if (loadTileFromFile()) {
 				return;
 			}
@@ -175,7 +269,7 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 						return tile;
 					}
 				};
-				JobDispatcher.getInstance().addJob(job);
+				TileScheduler.getInstance().addJob(job);
 			} else {
 				loadOrUpdateTile();
 			}
@@ -186,7 +280,7 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 				URLConnection urlConn = loadTileFromOsm(tile);
 				// System.out.println("(loadOrUpdateTile) >>>"+urlConn.getURL());
 
-				if (tileFile != null) {
+				if (cached) {
 					switch (tile.getSource().getTileUpdate()) {
 					case IfModifiedSince:
 						urlConn.setIfModifiedSince(fileAge);
@@ -195,7 +289,7 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 						if (!isOsmTileNewer(fileAge)) {
 							log.finest("LastModified test: local version is up to date: " + tile);
 							tile.setLoaded(true);
-							tileFile.setLastModified(System.currentTimeMillis() - maxCacheFileAge + recheckAfter);
+							touchTile();
 							return;
 						}
 						break;
@@ -214,7 +308,7 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 						case ETag:
 							if (hasOsmTileETag(fileETag)) {
 								tile.setLoaded(true);
-								tileFile.setLastModified(System.currentTimeMillis() - maxCacheFileAge + recheckAfter);
+								touchTile();
 								return;
 							}
 						default:
@@ -228,16 +322,16 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 					// and the server answers with a HTTP 304 = "Not Modified"
 					log.finest("ETag test: local version is up to date: " + tile);
 					tile.setLoaded(true);
-					tileFile.setLastModified(System.currentTimeMillis() - maxCacheFileAge + recheckAfter);
+					touchTile();
 					return;
 				}
 
 				loadTileMetadata(tile, urlConn);
-				saveTagsToFile();
 
 				if ("no-tile".equals(tile.getValue("tile-info"))) {
 					tile.setError("No tile at this zoom level");
 					listener.tileLoadingFinished(tile, true);
+					saveTileToFile(null);
 				} else {
 					for (int i = 0; i < 5; ++i) {
 						if (urlConn instanceof HttpURLConnection
@@ -274,27 +368,31 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 		}
 
 		protected boolean loadTileFromFile() {
+			if (store == null)
+				return false;
 			try {
-				tileFile = getTileFile();
-				if (!tileFile.exists())
+				TileStore.Record record = store.get(tile.getZoom(), tile.getXtile(), tile.getYtile());
+				if (record == null && store instanceof IndexedTileStore) {
+					// -- Tile stored in its own files by a previous version
+					((IndexedTileStore) store).importLegacyTile(tile.getZoom(), tile.getXtile(), tile.getYtile(),
+							tile.getSource().getTileType());
+					record = store.get(tile.getZoom(), tile.getXtile(), tile.getYtile());
+				}
+				if (record == null)
 					return false;
+				cached = true;
 
-				loadTagsFromFile();
+				for (Entry<String, String> entry : record.tags.entrySet())
+					tile.putValue(entry.getKey(), entry.getValue());
 				if ("no-tile".equals(tile.getValue("tile-info"))) {
 					tile.setError("No tile at this zoom level");
-					if (tileFile.exists()) {
-						tileFile.delete();
-					}
-					tileFile = getTagsFile();
 				} else {
-					try (FileInputStream fin = new FileInputStream(tileFile)) {
-						if (fin.available() == 0)
-							throw new IOException("File empty");
-						tile.loadImage(fin);
-					}
+					if (record.data == null || record.data.length == 0)
+						throw new IOException("Tile empty");
+					tile.loadImage(new ByteArrayInputStream(record.data));
 				}
 
-				fileAge = tileFile.lastModified();
+				fileAge = record.time;
 				boolean oldTile = System.currentTimeMillis() - fileAge > maxCacheFileAge;
 				if (!oldTile) {
 					tile.setLoaded(true);
@@ -305,8 +403,11 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 				listener.tileLoadingFinished(tile, true);
 				fileTilePainted = true;
 			} catch (Exception e) {
-				tileFile.delete();
-				tileFile = null;
+				try {
+					store.remove(tile.getZoom(), tile.getXtile(), tile.getYtile());
+				} catch (IOException e1) {
+				}
+				cached = false;
 				fileAge = 0;
 			}
 			return false;
@@ -384,79 +485,29 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 			return (osmETag.equals(eTag));
 		}
 
-		protected File getTileFile() {
-			return new File(tileCacheDir + "/" + tile.getZoom() + "_" + tile.getXtile() + "_" + tile.getYtile() + "."
-					+ tile.getSource().getTileType());
-		}
-
-		protected File getTagsFile() {
-			return new File(tileCacheDir + "/" + tile.getZoom() + "_" + tile.getXtile() + "_" + tile.getYtile()
-					+ TAGS_FILE_EXT);
-		}
-
-		protected void saveTileToFile(byte[] rawData) {
-			try (FileOutputStream f = new FileOutputStream(tileCacheDir + "/" + tile.getZoom() + "_" + tile.getXtile()
-					+ "_" + tile.getYtile() + "." + tile.getSource().getTileType())) {
-				f.write(rawData);
-			} catch (Exception e) {
-				System.err.println("Failed to save tile content: " + e.getLocalizedMessage());
-			}
-		}
-
-		protected void saveTagsToFile() {
-			File tagsFile = getTagsFile();
-			if (tile.getMetadata() == null) {
-				tagsFile.delete();
-				return;
-			}
-			try (PrintWriter f = new PrintWriter(
-					new OutputStreamWriter(new FileOutputStream(tagsFile), TAGS_CHARSET))) {
-				for (Entry<String, String> entry : tile.getMetadata().entrySet()) {
-					f.println(entry.getKey() + "=" + entry.getValue());
-				}
-			} catch (Exception e) {
-				System.err.println("Failed to save tile tags: " + e.getLocalizedMessage());
-			}
+		/**
+		 * The tile in the store is up to date: it will be checked again after
+		 * <code>recheckAfter</code>
+		 */
+		protected void touchTile() {
+			if (store != null && cached)
+				store.setTime(tile.getZoom(), tile.getXtile(), tile.getYtile(),
+						System.currentTimeMillis() - maxCacheFileAge + recheckAfter);
 		}
 
 		/**
-		 * Load backward-compatiblity .etag file and if it exists move it to new .tags
-		 * file
+		 * Stores the tile and its tags
+		 *
+		 * @param rawData image of the tile, <code>null</code> to store only the tags
 		 */
-		private void loadOldETagfromFile() {
-			File etagFile = new File(tileCacheDir,
-					tile.getZoom() + "_" + tile.getXtile() + "_" + tile.getYtile() + ETAG_FILE_EXT);
-			if (!etagFile.exists())
+		protected void saveTileToFile(byte[] rawData) {
+			if (store == null)
 				return;
-			try (FileInputStream f = new FileInputStream(etagFile)) {
-				byte[] buf = new byte[f.available()];
-				f.read(buf);
-				String etag = new String(buf, TAGS_CHARSET.name());
-				tile.putValue("etag", etag);
-				if (etagFile.delete()) {
-					saveTagsToFile();
-				}
-			} catch (IOException e) {
-				System.err.println("Failed to load compatiblity etag: " + e.getLocalizedMessage());
-			}
-		}
-
-		protected void loadTagsFromFile() {
-			loadOldETagfromFile();
-			File tagsFile = getTagsFile();
-			try (BufferedReader f = new BufferedReader(
-					new InputStreamReader(new FileInputStream(tagsFile), TAGS_CHARSET))) {
-				for (String line = f.readLine(); line != null; line = f.readLine()) {
-					final int i = line.indexOf('=');
-					if (i == -1 || i == 0) {
-						System.err.println("Malformed tile tag in file '" + tagsFile.getName() + "':" + line);
-						continue;
-					}
-					tile.putValue(line.substring(0, i), line.substring(i + 1));
-				}
-			} catch (FileNotFoundException e) {
+			try {
+				store.put(tile.getZoom(), tile.getXtile(), tile.getYtile(), rawData, tile.getMetadata(),
+						System.currentTimeMillis());
 			} catch (Exception e) {
-				System.err.println("Failed to load tile tags: " + e.getLocalizedMessage());
+				System.err.println("Failed to save tile content: " + e.getLocalizedMessage());
 			}
 		}
 	}
@@ -498,6 +549,16 @@ public class OsmFileCacheTileLoader extends OsmTileLoader implements CachedTileL
 	@Override
 	public void clearCache(TileSource source, TileClearController controller) {
 		File dir = getSourceCacheDir(source);
+		synchronized (stores) {
+			TileStore store = stores.remove(dir);
+			if (store != null) {
+				try {
+					store.close();
+				} catch (IOException e) {
+					System.err.println("Failed to close the tile store: " + e.getLocalizedMessage());
+				}
+			}
+		}
 		if (dir != null) {
 			if (controller != null)
 				controller.initClearDir(dir);
@@ -0,0 +1,351 @@
+// License: GPL. For details, see Readme.txt file.
+package org.openstreetmap.gui.jmapviewer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openstreetmap.gui.jmapviewer.interfaces.TileCache;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+
+/**
+ * {@link TileCache} implementation that stores the {@link Tile} objects in
+ * memory up to a size in bytes ({@link #getMaxBytes()}). The size of a tile is
+ * the size of its decoded image.
+ *
+ * The tiles are spread in {@link #SHARDS} shards having their own lock, so the
+ * loading threads and the painting don't wait for each other. Each shard is a
+ * segmented LRU: a new tile goes in the probation segment and goes in the
+ * protected segment when it's requested again after its loading. The least
+ * recently used tiles of the probation segment are removed first, so a zoom or
+ * a fast scroll doesn't remove the tiles used often.
+ */
+public class ShardedTileCache implements TileCache {
+
+	/**
+	 * Number of shards (power of 2)
+	 */
+	public static final int SHARDS = 16;
+
+	/**
+	 * Default size of the cache: 128 MB, at most a quarter of the heap
+	 */
+	public static final long DEFAULT_MAX_BYTES = Math.min(128L << 20, Runtime.getRuntime().maxMemory() / 4);
+
+	/**
+	 * Part of a shard used by the protected segment (percent)
+	 */
+	protected static final int PROTECTED_PERCENT = 80;
+
+	/**
+	 * Size of a tile without image (object, key, placeholder)
+	 */
+	protected static final int ENTRY_BYTES = 512;
+
+	protected final Shard[] shards = new Shard[SHARDS];
+	protected final AtomicLong maxBytes = new AtomicLong();
+	protected final AtomicInteger tileCount = new AtomicInteger();
+	protected final LongAdder hits = new LongAdder();
+	protected final LongAdder misses = new LongAdder();
+	protected final LongAdder evictions = new LongAdder();
+
+	public ShardedTileCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * @param maxBytes maximum size of the cache in bytes
+	 */
+	public ShardedTileCache(long maxBytes) {
+		for (int i = 0; i < SHARDS; i++)
+			shards[i] = new Shard();
+		setMaxBytes(maxBytes);
+	}
+
+	@Override
+	public void addTile(Tile tile) {
+		shardOf(tile.getKey()).add(tile);
+	}
+
+	@Override
+	public Tile getTile(TileSource source, int x, int y, int z) {
+		String key = Tile.getTileKey(source, x, y, z);
+		Tile tile = shardOf(key).get(key);
+		if (tile == null)
+			misses.increment();
+		else
+			hits.increment();
+		return tile;
+	}
+
+	/**
+	 * The tile is not counted in the hits and the misses, and is not moved to the
+	 * protected segment
+	 */
+	@Override
+	public Tile peekTile(TileSource source, int x, int y, int z) {
+		String key = Tile.getTileKey(source, x, y, z);
+		return shardOf(key).peek(key);
+	}
+
+	/**
+	 * Measures again a tile of the cache whose image has been loaded. Called at
+	 * the end of the loading, so the tiles added before their loading are counted
+	 * with their image even if they are not requested again.
+	 *
+	 * @param tile loaded tile
+	 */
+	public void tileLoaded(Tile tile) {
+		shardOf(tile.getKey()).update(tile.getKey());
+	}
+
+	/**
+	 * Clears the cache deleting all tiles from memory
+	 */
+	public void clear() {
+		for (Shard s : shards)
+			s.clear();
+	}
+
+	@Override
+	public int getTileCount() {
+		return tileCount.get();
+	}
+
+	/**
+	 * @return size of the tiles in the cache in bytes
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for (Shard s : shards)
+			bytes += s.getBytes();
+		return bytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes.get();
+	}
+
+	/**
+	 * Changes the maximum size of the cache.
+	 *
+	 * @param maxBytes new maximum size in bytes
+	 */
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes.set(maxBytes);
+		for (Shard s : shards)
+			s.setMaxBytes(maxBytes / SHARDS);
+	}
+
+	/**
+	 * @return number of requested tiles found in the cache
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of requested tiles not found in the cache
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return number of tiles removed from the cache to free memory
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return text with the size and the counters of the cache
+	 */
+	public String getStatistics() {
+		long h = getHits();
+		long m = getMisses();
+		return String.format("%d tiles, %d/%d MB, hits %d (%.1f%%), misses %d, evictions %d", getTileCount(),
+				getBytes() >> 20, getMaxBytes() >> 20, h, (h + m) == 0 ? 0.0 : h * 100.0 / (h + m), m,
+				getEvictions());
+	}
+
+	protected Shard shardOf(String key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return shards[h & (SHARDS - 1)];
+	}
+
+	/**
+	 * @return size of a tile in bytes
+	 */
+	protected static int weightOf(BufferedImage image) {
+		if (image == null || image == Tile.LOADING_IMAGE || image == Tile.ERROR_IMAGE)
+			return ENTRY_BYTES;
+		DataBuffer buffer = image.getRaster().getDataBuffer();
+		long bytes = (long) buffer.getSize() * buffer.getNumBanks()
+				* (DataBuffer.getDataTypeSize(buffer.getDataType()) / 8);
+		return (int) Math.min(Integer.MAX_VALUE - ENTRY_BYTES, bytes) + ENTRY_BYTES;
+	}
+
+	/**
+	 * Tile of the cache with the image used to calculate its size
+	 */
+	protected static class CacheEntry {
+		final Tile tile;
+		BufferedImage image;
+		int weight;
+
+		protected CacheEntry(Tile tile) {
+			this.tile = tile;
+			this.image = tile.getImage();
+			this.weight = weightOf(image);
+		}
+
+		public Tile getTile() {
+			return tile;
+		}
+	}
+
+	/**
+	 * Part of the cache with its own lock
+	 */
+	protected class Shard {
+		/** Tiles requested once. Order=access order **/
+		protected final LinkedHashMap<String, CacheEntry> probation = new LinkedHashMap<>(16, 0.75f, true);
+		/** Tiles requested again after their loading. Order=access order **/
+		protected final LinkedHashMap<String, CacheEntry> protectedTiles = new LinkedHashMap<>(16, 0.75f, true);
+		protected long probationBytes;
+		protected long protectedBytes;
+		protected long maxBytes;
+
+		protected synchronized void add(Tile tile) {
+			String key = tile.getKey();
+			remove(key);
+			CacheEntry entry = new CacheEntry(tile);
+			probation.put(key, entry);
+			probationBytes += entry.weight;
+			tileCount.incrementAndGet();
+			evict();
+		}
+
+		protected synchronized Tile get(String key) {
+			CacheEntry entry = protectedTiles.get(key);
+			if (entry != null) {
+				protectedBytes += updateWeight(entry);
+				evict();
+				return entry.tile;
+			}
+
+			entry = probation.get(key);
+			if (entry == null)
+				return null;
+			probationBytes += updateWeight(entry);
+			// We don't care about placeholder tiles and hourglass image tiles, the
+			// important tiles are the loaded ones
+			if (entry.tile.isLoaded()) {
+				probation.remove(key);
+				probationBytes -= entry.weight;
+				protectedTiles.put(key, entry);
+				protectedBytes += entry.weight;
+			}
+			evict();
+			return entry.tile;
+		}
+
+		protected synchronized void update(String key) {
+			CacheEntry entry = protectedTiles.get(key);
+			if (entry != null)
+				protectedBytes += updateWeight(entry);
+			else {
+				entry = probation.get(key);
+				if (entry == null)
+					return;
+				probationBytes += updateWeight(entry);
+			}
+			evict();
+		}
+
+		protected synchronized Tile peek(String key) {
+			CacheEntry entry = protectedTiles.get(key);
+			if (entry == null)
+				entry = probation.get(key);
+			return (entry == null) ? null : entry.tile;
+		}
+
+		/**
+		 * Measure again a tile whose image has been loaded
+		 *
+		 * @return the variation of the size
+		 */
+		protected int updateWeight(CacheEntry entry) {
+			BufferedImage image = entry.tile.getImage();
+			if (image == entry.image)
+				return 0;
+			int weight = weightOf(image);
+			int delta = weight - entry.weight;
+			entry.image = image;
+			entry.weight = weight;
+			return delta;
+		}
+
+		protected void remove(String key) {
+			CacheEntry entry = probation.remove(key);
+			if (entry != null) {
+				probationBytes -= entry.weight;
+				tileCount.decrementAndGet();
+			}
+			entry = protectedTiles.remove(key);
+			if (entry != null) {
+				protectedBytes -= entry.weight;
+				tileCount.decrementAndGet();
+			}
+		}
+
+		/**
+		 * Removes the least recently used tiles
+		 */
+		protected void evict() {
+			// -- Protected segment too big: its oldest tiles go back in probation
+			long maxProtected = maxBytes * PROTECTED_PERCENT / 100;
+			Iterator<Map.Entry<String, CacheEntry>> it = protectedTiles.entrySet().iterator();
+			while (protectedBytes > maxProtected && it.hasNext()) {
+				Map.Entry<String, CacheEntry> e = it.next();
+				it.remove();
+				protectedBytes -= e.getValue().weight;
+				probation.put(e.getKey(), e.getValue());
+				probationBytes += e.getValue().weight;
+			}
+
+			it = probation.entrySet().iterator();
+			while (probationBytes + protectedBytes > maxBytes && it.hasNext()) {
+				CacheEntry entry = it.next().getValue();
+				it.remove();
+				probationBytes -= entry.weight;
+				tileCount.decrementAndGet();
+				evictions.increment();
+			}
+		}
+
+		protected synchronized void clear() {
+			tileCount.addAndGet(-(probation.size() + protectedTiles.size()));
+			probation.clear();
+			protectedTiles.clear();
+			probationBytes = 0;
+			protectedBytes = 0;
+		}
+
+		protected synchronized long getBytes() {
+			return probationBytes + protectedBytes;
+		}
+
+		protected synchronized void setMaxBytes(long maxBytes) {
+			this.maxBytes = maxBytes;
+			evict();
+		}
+	}
+}
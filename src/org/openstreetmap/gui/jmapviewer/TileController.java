@@ -1,7 +1,7 @@
 // License: GPL. For details, see Readme.txt file.
 package org.openstreetmap.gui.jmapviewer;
 
-import org.openstreetmap.gui.jmapviewer.JobDispatcher.JobThread;
+import org.openstreetmap.gui.jmapviewer.TileScheduler.JobThread;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileCache;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileLoader;
 import org.openstreetmap.gui.jmapviewer.interfaces.TileLoaderListener;
@@ -13,13 +13,13 @@ public class TileController {
 	protected TileCache tileCache;
 	protected TileSource tileSource;
 
-	JobDispatcher jobDispatcher;
+	TileScheduler scheduler;
 
 	public TileController(TileSource source, TileCache tileCache, TileLoaderListener listener) {
 		tileSource = new OsmTileSource.Mapnik();
 		tileLoader = new OsmTileLoader(listener);
 		this.tileCache = tileCache;
-		jobDispatcher = JobDispatcher.getInstance();
+		scheduler = TileScheduler.getInstance();
 	}
 
 	/**
@@ -46,11 +46,47 @@ public class TileController {
 			tile.loadPlaceholderFromCache(tileCache);
 		}
 		if (!tile.isLoaded()) {
-			jobDispatcher.addJob(tileLoader.createTileLoaderJob(tile));
+			scheduler.addJob(tileLoader.createTileLoaderJob(tile));
 		}
 		return tile;
 	}
 
+	/**
+	 * Loads a tile with the idle priority if it's not present in the cache. Used
+	 * to prefetch the tiles around the visible tiles.
+	 *
+	 * @param tilex the X position of the tile
+	 * @param tiley the Y position of the tile
+	 * @param zoom  the zoom level of the tile
+	 */
+	public void prefetchTile(int tilex, int tiley, int zoom) {
+		int max = (1 << zoom);
+		if (tilex < 0 || tilex >= max || tiley < 0 || tiley >= max)
+			return;
+		Tile tile = tileCache.peekTile(tileSource, tilex, tiley, zoom);
+		if (tile == null) {
+			tile = new Tile(tileSource, tilex, tiley, zoom);
+			tileCache.addTile(tile);
+		}
+		if (!tile.isLoaded() && !tile.hasError()) {
+			scheduler.addJob(tileLoader.createTileLoaderJob(tile), true);
+		}
+	}
+
+	/**
+	 * Set the visible tiles. The loading of the tiles not visible anymore is
+	 * cancelled, and the other tiles are loaded from the center of the viewport.
+	 *
+	 * @param zoom the zoom level
+	 * @param x1   first visible tile on the x axis
+	 * @param y1   first visible tile on the y axis
+	 * @param x2   last visible tile on the x axis
+	 * @param y2   last visible tile on the y axis
+	 */
+	public void setViewport(int zoom, int x1, int y1, int x2, int y2) {
+		scheduler.setViewport(tileSource, zoom, x1, y1, x2, y2);
+	}
+
 	public TileCache getTileCache() {
 		return tileCache;
 	}
@@ -83,6 +119,6 @@ public class TileController {
 	 *
 	 */
 	public void cancelOutstandingJobs() {
-		jobDispatcher.cancelOutstandingJobs();
+		scheduler.cancelOutstandingJobs();
 	}
 }
@@ -0,0 +1,458 @@
+// License: GPL. For details, see Readme.txt file.
+package org.openstreetmap.gui.jmapviewer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.gui.jmapviewer.interfaces.TileJob;
+import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
+
+/**
+ * Processes the {@link TileJob} of the tiles with up to
+ * {@link #setMaxWorkers(int)} threads (default: 8).
+ *
+ * The jobs are ordered by their distance to the center of the viewport (see
+ * {@link #setViewport(TileSource, int, int, int, int, int)}). The jobs added
+ * with the idle priority (prefetch) are processed when no other job waits.
+ * When the viewport changes, the waiting jobs of the tiles outside of the
+ * viewport and of the ring of {@link #PREFETCH_RING} tiles around it, or of
+ * another zoom level, are cancelled.
+ *
+ * A tile has at most one waiting job, and the number of jobs running for a
+ * tile source can be limited with {@link #setMaxRequestsPerSource(int)}
+ * (default: no limit). The jobs have one queue per tile source, so a worker
+ * only looks at the first job of each source.
+ *
+ * The workers are started when jobs are added and stop after
+ * {@link #workerThreadTimeout} seconds without job.
+ */
+public class TileScheduler {
+
+	private static final TileScheduler instance = new TileScheduler();
+
+	/**
+	 * Number of tiles around the viewport prefetched and kept in the queue
+	 */
+	public static final int PREFETCH_RING = 1;
+
+	/**
+	 * Priority added to the idle jobs
+	 */
+	protected static final double IDLE_PRIORITY = 1e12;
+
+	/**
+	 * Priority added to the jobs of another zoom level or tile source
+	 */
+	protected static final double OTHER_VIEW_PRIORITY = 1e9;
+
+	/**
+	 * @return the singleton instance of the {@link TileScheduler}
+	 */
+	public static TileScheduler getInstance() {
+		return instance;
+	}
+
+	protected static int workerThreadMaxCount = 8;
+
+	/**
+	 * Specifies the time span in seconds that a worker thread waits for new jobs to
+	 * perform. If the time span has elapsed the worker thread terminates itself.
+	 */
+	protected static int workerThreadTimeout = 30;
+
+	protected int maxRequestsPerSource = Integer.MAX_VALUE;
+
+	/**
+	 * Job waiting in the queue or running
+	 */
+	protected static class Entry {
+		final TileJob job;
+		/** Key of the tile. null=job without tile **/
+		final String key;
+		/** Name of the tile source. null=job without tile **/
+		final String source;
+		final long seq;
+		final long queued;
+		boolean idle;
+		double priority;
+
+		Entry(TileJob job, boolean idle, long seq) {
+			this.job = job;
+			Tile tile = job.getTile();
+			this.key = (tile == null) ? null : tile.getKey();
+			this.source = (tile == null) ? null : tile.getSource().getName();
+			this.idle = idle;
+			this.seq = seq;
+			this.queued = System.nanoTime();
+		}
+	}
+
+	protected static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+		public int compare(Entry a, Entry b) {
+			int c = Double.compare(a.priority, b.priority);
+			return (c != 0) ? c : Long.compare(a.seq, b.seq);
+		}
+	};
+
+	/**
+	 * Waiting jobs by tile source. Key=tile source name (null=jobs without tile)
+	 */
+	protected final Map<String, PriorityQueue<Entry>> queues = new HashMap<>();
+
+	/**
+	 * Number of jobs in the queues
+	 */
+	protected int queueSize = 0;
+
+	/**
+	 * Waiting jobs. Key=tile key
+	 */
+	protected final Map<String, Entry> waiting = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of running jobs. Key=tile source name
+	 */
+	protected final Map<String, Integer> running = new HashMap<>();
+
+	// -- Viewport
+	protected TileSource viewSource = null;
+	protected int viewZoom;
+	protected int viewX1;
+	protected int viewY1;
+	protected int viewX2;
+	protected int viewY2;
+
+	// -- Metrics
+	protected long seq = 0;
+	protected int runningCount = 0;
+	protected long completedCount = 0;
+	protected long cancelledCount = 0;
+	protected long totalLatency = 0;
+	protected long maxLatency = 0;
+
+	protected int workerThreadCount = 0;
+	/** Number of worker threads waiting for a job **/
+	protected int workerThreadIdleCount = 0;
+	protected int workerThreadId = 0;
+
+	private TileScheduler() {
+	}
+
+	/**
+	 * Function to set the maximum number of workers for tile loading.
+	 */
+	static public void setMaxWorkers(int workers) {
+		workerThreadMaxCount = workers;
+	}
+
+	/**
+	 * Function to set the maximum number of jobs running at the same time for a
+	 * tile source.
+	 */
+	public synchronized void setMaxRequestsPerSource(int max) {
+		maxRequestsPerSource = max;
+		notifyAll();
+	}
+
+	public synchronized int getMaxRequestsPerSource() {
+		return maxRequestsPerSource;
+	}
+
+	/**
+	 * Removes all jobs from the queue that are currently not being processed.
+	 */
+	public synchronized void cancelOutstandingJobs() {
+		cancelledCount += queueSize;
+		queues.clear();
+		queueSize = 0;
+		waiting.clear();
+	}
+
+	/**
+	 * Adds a job to the queue with the normal priority. Jobs for tiles already in
+	 * the queue are ignored (using a <code>null</code> tile prevents skipping).
+	 *
+	 * @param job the the job to be added
+	 */
+	public void addJob(TileJob job) {
+		addJob(job, false);
+	}
+
+	/**
+	 * Adds a job to the queue. Jobs for tiles already in the queue are ignored, an
+	 * idle job becomes a normal job if it's added again with the normal priority.
+	 *
+	 * @param job  the the job to be added
+	 * @param idle <code>true</code> to process the job only when no other job
+	 *             waits
+	 */
+	public void addJob(TileJob job, boolean idle) {
+		Tile tile = job.getTile();
+		// -- Most jobs are added again at each painting until the tile is loaded
+		if (tile != null) {
+			Entry e = waiting.get(tile.getKey());
+			if (e != null && (idle || !e.idle))
+				return;
+		}
+
+		synchronized (this) {
+			if (tile != null) {
+				Entry e = waiting.get(tile.getKey());
+				if (e != null) {
+					if (idle || !e.idle)
+						return;
+					PriorityQueue<Entry> queue = queues.get(e.source);
+					queue.remove(e);
+					e.idle = false;
+					e.priority = priority(e, tile);
+					queue.add(e);
+					notifyAll();
+					return;
+				}
+			}
+
+			Entry e = new Entry(job, idle, seq++);
+			e.priority = priority(e, tile);
+			if (e.key != null)
+				waiting.put(e.key, e);
+			PriorityQueue<Entry> queue = queues.get(e.source);
+			if (queue == null) {
+				queue = new PriorityQueue<>(64, ORDER);
+				queues.put(e.source, queue);
+			}
+			queue.add(e);
+			queueSize++;
+			// -- The idle workers have not taken the jobs added before yet
+			if (workerThreadIdleCount < queueSize && workerThreadCount < workerThreadMaxCount)
+				addWorkerThread();
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Set the tiles displayed by the map. The priorities of the waiting jobs are
+	 * calculated again and the jobs of the tiles not displayed are cancelled.
+	 *
+	 * @param source tile source of the map
+	 * @param zoom   zoom level
+	 * @param x1     first visible tile on the x axis
+	 * @param y1     first visible tile on the y axis
+	 * @param x2     last visible tile on the x axis
+	 * @param y2     last visible tile on the y axis
+	 */
+	public synchronized void setViewport(TileSource source, int zoom, int x1, int y1, int x2, int y2) {
+		if (source == viewSource && zoom == viewZoom && x1 == viewX1 && y1 == viewY1 && x2 == viewX2
+				&& y2 == viewY2)
+			return;
+		viewSource = source;
+		viewZoom = zoom;
+		viewX1 = x1;
+		viewY1 = y1;
+		viewX2 = x2;
+		viewY2 = y2;
+
+		for (PriorityQueue<Entry> queue : queues.values()) {
+			List<Entry> entries = new ArrayList<>(queue);
+			queue.clear();
+			for (Entry e : entries) {
+				Tile tile = e.job.getTile();
+				if (tile != null && !isInView(tile)) {
+					waiting.remove(e.key);
+					queueSize--;
+					cancelledCount++;
+				} else {
+					e.priority = priority(e, tile);
+					queue.add(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Indicate if a tile is in the viewport or in the prefetch ring. The x axis
+	 * is cyclic (scroll wrap)
+	 */
+	protected boolean isInView(Tile tile) {
+		return tile.getSource() == viewSource && tile.getZoom() == viewZoom
+				&& Math.floorMod(tile.getXtile() - viewX1 + PREFETCH_RING, 1 << viewZoom) <= viewX2 - viewX1
+						+ 2 * PREFETCH_RING
+				&& tile.getYtile() >= viewY1 - PREFETCH_RING && tile.getYtile() <= viewY2 + PREFETCH_RING;
+	}
+
+	/**
+	 * Return the priority of a job. The smallest value is processed first
+	 */
+	protected double priority(Entry e, Tile tile) {
+		double p = e.idle ? IDLE_PRIORITY : 0.0;
+		if (tile == null || viewSource == null)
+			return p;
+		if (tile.getSource() != viewSource || tile.getZoom() != viewZoom)
+			p += OTHER_VIEW_PRIORITY;
+		// -- Square of the distance to the center of the viewport (in half tile). The
+		// x axis is cyclic (scroll wrap)
+		int n = 2 << tile.getZoom();
+		double dx = Math.floorMod(2 * tile.getXtile() + 1 - (viewX1 + viewX2 + 1), n);
+		dx = Math.min(dx, n - dx);
+		double dy = 2 * tile.getYtile() + 1 - (viewY1 + viewY2 + 1);
+		return p + dx * dx + dy * dy;
+	}
+
+	/**
+	 * Wait for the next job whose tile source can accept a request. The worker
+	 * thread is removed if no job comes during {@link #workerThreadTimeout}
+	 * seconds
+	 *
+	 * @return the job or <code>null</code> if the worker thread must stop
+	 */
+	protected synchronized Entry take() throws InterruptedException {
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(workerThreadTimeout);
+		workerThreadIdleCount++;
+		try {
+			while (true) {
+				// -- First job of the tile sources which can accept a request
+				PriorityQueue<Entry> chosen = null;
+				for (Map.Entry<String, PriorityQueue<Entry>> q : queues.entrySet()) {
+					Entry e = q.getValue().peek();
+					if (e != null && (q.getKey() == null || getRunning(q.getKey()) < maxRequestsPerSource)
+							&& (chosen == null || ORDER.compare(e, chosen.peek()) < 0))
+						chosen = q.getValue();
+				}
+
+				if (chosen != null) {
+					Entry e = chosen.poll();
+					queueSize--;
+					if (e.key != null)
+						waiting.remove(e.key, e);
+					if (e.source != null)
+						running.put(e.source, getRunning(e.source) + 1);
+					runningCount++;
+					return e;
+				}
+
+				long remaining = end - System.nanoTime();
+				if (remaining <= 0) {
+					workerThreadCount--;
+					return null;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+		} finally {
+			workerThreadIdleCount--;
+		}
+	}
+
+	/**
+	 * End of a job
+	 */
+	protected synchronized void finish(Entry e) {
+		if (e.source != null)
+			running.put(e.source, getRunning(e.source) - 1);
+		runningCount--;
+		completedCount++;
+		long latency = System.nanoTime() - e.queued;
+		totalLatency += latency;
+		maxLatency = Math.max(maxLatency, latency);
+		notifyAll();
+	}
+
+	protected int getRunning(String source) {
+		Integer n = running.get(source);
+		return (n == null) ? 0 : n;
+	}
+
+	/**
+	 * @return number of jobs waiting in the queue
+	 */
+	public synchronized int getQueueDepth() {
+		return queueSize;
+	}
+
+	/**
+	 * @return number of jobs currently running
+	 */
+	public synchronized int getRunningCount() {
+		return runningCount;
+	}
+
+	/**
+	 * @return number of jobs processed
+	 */
+	public synchronized long getCompletedCount() {
+		return completedCount;
+	}
+
+	/**
+	 * @return number of jobs removed from the queue without being processed
+	 */
+	public synchronized long getCancelledCount() {
+		return cancelledCount;
+	}
+
+	/**
+	 * @return average time between the addition and the end of a job in ms
+	 */
+	public synchronized double getAverageLatency() {
+		return (completedCount == 0) ? 0.0 : totalLatency / 1e6 / completedCount;
+	}
+
+	/**
+	 * @return maximum time between the addition and the end of a job in ms
+	 */
+	public synchronized double getMaxLatency() {
+		return maxLatency / 1e6;
+	}
+
+	/**
+	 * @return text with the state and the counters of the scheduler
+	 */
+	public synchronized String getStatistics() {
+		return String.format("%d waiting, %d running, %d done, %d cancelled, latency %.0f ms (max %.0f ms)",
+				queueSize, runningCount, completedCount, cancelledCount, getAverageLatency(), getMaxLatency());
+	}
+
+	protected void addWorkerThread() {
+		JobThread jobThread = new JobThread(++workerThreadId);
+		workerThreadCount++;
+		jobThread.start();
+	}
+
+	public class JobThread extends Thread {
+
+		public JobThread(int threadId) {
+			super("OSMJobThread " + threadId);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Entry e;
+				try {
+					e = take();
+				} catch (InterruptedException e1) {
+					synchronized (instance) {
+						workerThreadCount--;
+					}
+					return;
+				}
+				// -- Timeout: the thread has been removed by take()
+				if (e == null)
+					return;
+				try {
+					e.job.run();
+				} catch (Exception ex) {
+					ex.printStackTrace();
+				} finally {
+					finish(e);
+				}
+			}
+		}
+	}
+
+}
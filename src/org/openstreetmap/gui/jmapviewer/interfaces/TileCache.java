@@ -25,6 +25,22 @@ public interface TileCache {
 	 */
 	public Tile getTile(TileSource source, int x, int y, int z);
 
+	/**
+	 * Retrieves a tile from the cache if present, like
+	 * {@link #getTile(TileSource, int, int, int)}, but without counting it as a
+	 * request of the tile. Used by the prefetch.
+	 *
+	 * @param source the tile source
+	 * @param x      tile number on the x axis of the tile to be retrieved
+	 * @param y      tile number on the y axis of the tile to be retrieved
+	 * @param z      zoom level of the tile to be retrieved
+	 * @return the tile or <code>null</code> if the tile is not present in the
+	 *         cache
+	 */
+	public default Tile peekTile(TileSource source, int x, int y, int z) {
+		return getTile(source, x, y, z);
+	}
+
 	/**
 	 * Adds a tile to the cache. How long after adding a tile can be retrieved via
 	 * {@link #getTile(TileSource, int, int, int)} is unspecified and depends on the
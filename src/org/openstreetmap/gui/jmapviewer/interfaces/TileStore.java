@@ -0,0 +1,81 @@
+// License: GPL. For details, see Readme.txt file.
+package org.openstreetmap.gui.jmapviewer.interfaces;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Persistent storage of the tiles of a tile source, used by the tile loaders
+ * keeping the loaded tiles on disk.
+ */
+public interface TileStore {
+
+	/**
+	 * A stored tile
+	 */
+	public static class Record {
+		/** Image of the tile. null=no image (tags only) **/
+		public final byte[] data;
+		/** Tags of the tile (etag, tile-info...) **/
+		public final Map<String, String> tags;
+		/** Time of the last check of the tile with the server (ms) **/
+		public final long time;
+
+		public Record(byte[] data, Map<String, String> tags, long time) {
+			this.data = data;
+			this.tags = tags;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * Retrieves a tile.
+	 *
+	 * @return the tile or <code>null</code> if the tile is not stored
+	 */
+	public Record get(int zoom, int x, int y) throws IOException;
+
+	/**
+	 * Indicates if a tile is stored, without reading it.
+	 */
+	public boolean contains(int zoom, int x, int y);
+
+	/**
+	 * Stores a tile, replacing the previous version.
+	 *
+	 * @param data image of the tile, or <code>null</code> to store only the tags
+	 * @param tags tags of the tile, can be <code>null</code>
+	 * @param time time of the tile (ms)
+	 */
+	public void put(int zoom, int x, int y, byte[] data, Map<String, String> tags, long time) throws IOException;
+
+	/**
+	 * Changes the time of a stored tile.
+	 */
+	public void setTime(int zoom, int x, int y, long time);
+
+	/**
+	 * Removes a tile.
+	 */
+	public void remove(int zoom, int x, int y) throws IOException;
+
+	/**
+	 * @return number of stored tiles
+	 */
+	public int getTileCount();
+
+	/**
+	 * @return size of the store on disk in bytes
+	 */
+	public long getSize();
+
+	/**
+	 * Removes all the tiles.
+	 */
+	public void clear() throws IOException;
+
+	/**
+	 * Writes the pending changes and releases the files.
+	 */
+	public void close() throws IOException;
+}